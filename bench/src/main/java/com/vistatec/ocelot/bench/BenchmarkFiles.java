@@ -0,0 +1,42 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.google.common.io.Files;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF12Parser;
+
+/**
+ * Temporary files used by the benchmarks.
+ */
+class BenchmarkFiles {
+
+    static File createTempDir() {
+        return Files.createTempDir();
+    }
+
+    static void delete(File file) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    delete(child);
+                }
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Generates an XLIFF 1.2 document and parses it, for the benchmarks
+     * working on segments.
+     */
+    static List<OcelotSegment> parseXliff12(SyntheticDocuments documents, File dir)
+            throws IOException {
+        File file = new File(dir, "segments.xlf");
+        documents.writeXliff12(file);
+        return new OkapiXLIFF12Parser().parse(file);
+    }
+}
@@ -0,0 +1,118 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vistatec.ocelot.segment.editdistance.EditDistance;
+import com.vistatec.ocelot.segment.editdistance.Levenshtein;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+/**
+ * Computing the edit distance of edited targets from their original targets,
+ * as the edit distance report does for a whole document. The diff-match-patch
+ * benchmark is the way the distance used to be computed, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EditDistanceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int segmentCount;
+
+    /** The fraction of the words changed in the targets. */
+    @Param({"0.1", "0.5"})
+    public double editRatio;
+
+    private File dir;
+    private List<OcelotSegment> segments;
+    private final List<String> targets = new ArrayList<>();
+    private final List<String> originalTargets = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkFiles.createTempDir();
+        segments = BenchmarkFiles.parseXliff12(
+                new SyntheticDocuments(segmentCount, 0, 0).withOriginalTargets(editRatio),
+                dir);
+        for (OcelotSegment segment : segments) {
+            if (segment.hasOriginalTarget()) {
+                targets.add(segment.getTarget().getDisplayText());
+                originalTargets.add(segment.getOriginalTarget().getDisplayText());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public int calcEditDistance() {
+        int distance = 0;
+        for (OcelotSegment segment : segments) {
+            if (segment.hasOriginalTarget()) {
+                distance += EditDistance.calcEditDistance(segment.getTarget(),
+                        segment.getOriginalTarget());
+            }
+        }
+        return distance;
+    }
+
+    @Benchmark
+    public int diffMatchPatch() {
+        DiffMatchPatch dmp = new DiffMatchPatch();
+        int distance = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            distance += dmp.diffLevenshtein(dmp.diffMain(originalTargets.get(i), targets.get(i)));
+        }
+        return distance;
+    }
+
+    @Benchmark
+    public int levenshteinTokens() {
+        int distance = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            distance += Levenshtein.distance(originalTargets.get(i), targets.get(i),
+                    Levenshtein.Mode.TOKEN);
+        }
+        return distance;
+    }
+
+    /**
+     * Checking whether the targets are within 10 characters of the
+     * originals, which stops early for the more heavily edited ones.
+     */
+    @Benchmark
+    public int levenshteinWithin() {
+        int within = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            if (Levenshtein.isWithin(originalTargets.get(i), targets.get(i),
+                    Levenshtein.Mode.CHARACTER, 10)) {
+                within++;
+            }
+        }
+        return within;
+    }
+}
@@ -0,0 +1,98 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vistatec.ocelot.rules.DataCategoryField;
+import com.vistatec.ocelot.rules.Matchers;
+import com.vistatec.ocelot.rules.Rule;
+import com.vistatec.ocelot.rules.RuleConfiguration;
+import com.vistatec.ocelot.rules.RuleConfiguration.FilterMode;
+import com.vistatec.ocelot.rules.RuleMatcher;
+import com.vistatec.ocelot.rules.SegmentSelector;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+/**
+ * Filtering the segments of a document, as the segment view does whenever
+ * the filter rules change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({"1000", "10000"})
+    public int segmentCount;
+
+    @Param({"0.05", "0.5"})
+    public double metadataDensity;
+
+    @Param({"ALL_WITH_METADATA", "SELECTED_SEGMENTS"})
+    public FilterMode filterMode;
+
+    private File dir;
+    private List<OcelotSegment> segments;
+    private SegmentSelector selector;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkFiles.createTempDir();
+        segments = BenchmarkFiles.parseXliff12(
+                new SyntheticDocuments(segmentCount, 0, metadataDensity), dir);
+
+        RuleConfiguration ruleConfig = new RuleConfiguration();
+        addRule(ruleConfig, "Omissions",
+                new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("omission")));
+        addRule(ruleConfig, "Severe terminology",
+                new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("terminology|mistranslation")),
+                new RuleMatcher(DataCategoryField.LQI_SEVERITY, Matchers.numeric(75, 100)));
+        addRule(ruleConfig, "Reviewer 3",
+                new RuleMatcher(DataCategoryField.PROV_PERSON, Matchers.regex("Reviewer 3")));
+        ruleConfig.setFilterMode(filterMode);
+        selector = new SegmentSelector(ruleConfig);
+    }
+
+    private static void addRule(RuleConfiguration ruleConfig, String label,
+            RuleMatcher... matchers) {
+        Rule rule = new Rule(new ArrayList<RuleMatcher>(Arrays.asList(matchers)));
+        rule.setLabel(label);
+        ruleConfig.addRule(rule);
+        ruleConfig.enableRule(rule, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public int filter() {
+        int matched = 0;
+        for (OcelotSegment segment : segments) {
+            if (selector.matches(segment)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
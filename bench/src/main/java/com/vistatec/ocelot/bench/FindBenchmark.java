@@ -0,0 +1,83 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vistatec.ocelot.findrep.FindResult;
+import com.vistatec.ocelot.findrep.WordFinder;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+/**
+ * Finding all the occurrences of a word in a document, as the Find and
+ * Replace dialog does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FindBenchmark {
+
+    @Param({"1000", "10000"})
+    public int segmentCount;
+
+    @Param({"0", "4"})
+    public int tagDensity;
+
+    @Param({"true", "false"})
+    public boolean wholeWord;
+
+    private File dir;
+    private List<OcelotSegment> segments;
+    private String word;
+    private WordFinder sourceFinder, targetFinder;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkFiles.createTempDir();
+        SyntheticDocuments documents = new SyntheticDocuments(segmentCount, tagDensity, 0);
+        segments = BenchmarkFiles.parseXliff12(documents, dir);
+        word = documents.getWord(7);
+        sourceFinder = createFinder(WordFinder.SCOPE_SOURCE, Locale.ENGLISH);
+        targetFinder = createFinder(WordFinder.SCOPE_TARGET, Locale.FRENCH);
+    }
+
+    private WordFinder createFinder(int scope, Locale locale) {
+        WordFinder finder = new WordFinder();
+        finder.setScope(scope, locale);
+        finder.enableOption(WordFinder.WHOLE_WORD_OPTION, wholeWord);
+        return finder;
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public List<FindResult> findInSource() {
+        return sourceFinder.findWord(word, segments);
+    }
+
+    @Benchmark
+    public List<FindResult> findInTarget() {
+        return targetFinder.findWord(word, segments);
+    }
+}
@@ -0,0 +1,37 @@
+package com.vistatec.ocelot.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, taking the usual JMH command line options. Unless
+ * another result format is given with -rf, the results are written as JSON
+ * to jmh-result.json, or to the file given with -rff, so that runs of
+ * different builds can be compared.
+ * <p>
+ * Every benchmark of this package is run by default; a regular expression
+ * given on the command line selects some of them, eg. "RuleEvaluation" for
+ * {@link RuleEvaluationBenchmark}.
+ */
+public class OcelotBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+        if (cmdOptions.shouldList()) {
+            new Runner(cmdOptions).list();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF20Parser;
+
+/**
+ * Parsing XLIFF 2.0 files with deep change tracking. Run with
+ * {@code -prof gc} for the allocations per parse, and see
+ * {@link RevisionFootprint} for the memory kept per revision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RevisionBenchmark {
+
+    @Param({"1000", "10000"})
+    public int segmentCount;
+
+    @Param({"1", "10", "50"})
+    public int revisionDepth;
+
+    private File dir, xliff20;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkFiles.createTempDir();
+        xliff20 = new File(dir, "revisions20.xlf");
+        new SyntheticDocuments(segmentCount, 0, 0).withRevisions(revisionDepth)
+                .writeXliff20(xliff20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public List<OcelotSegment> parseXliff20() throws IOException {
+        return new OkapiXLIFF20Parser().parse(xliff20);
+    }
+}
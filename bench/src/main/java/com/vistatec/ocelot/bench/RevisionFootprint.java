@@ -0,0 +1,59 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF20Parser;
+
+/**
+ * Measures the heap kept by a parsed XLIFF 2.0 document for each change
+ * tracking revision, as the difference between documents with and without
+ * revisions divided by the number of revisions.
+ * <p>
+ * Usage: RevisionFootprint [segment count] [revision depth]
+ */
+public class RevisionFootprint {
+
+    public static void main(String[] args) throws IOException {
+        int segmentCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int revisionDepth = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        File dir = BenchmarkFiles.createTempDir();
+        try {
+            long withoutRevisions = retainedBytes(dir, segmentCount, 0);
+            long withRevisions = retainedBytes(dir, segmentCount, revisionDepth);
+            long revisions = (long) segmentCount * revisionDepth;
+            System.out.println(segmentCount + " segments, " + revisionDepth
+                    + " revisions each");
+            System.out.println("Without revisions: " + withoutRevisions / 1024 + " KiB");
+            System.out.println("With revisions:    " + withRevisions / 1024 + " KiB");
+            System.out.println("Per revision:      "
+                    + (withRevisions - withoutRevisions) / revisions + " bytes");
+        } finally {
+            BenchmarkFiles.delete(dir);
+        }
+    }
+
+    private static long retainedBytes(File dir, int segmentCount, int revisionDepth)
+            throws IOException {
+        File file = new File(dir, "footprint" + revisionDepth + ".xlf");
+        new SyntheticDocuments(segmentCount, 0, 0).withRevisions(revisionDepth)
+                .writeXliff20(file);
+        long before = usedHeap();
+        OkapiXLIFF20Parser parser = new OkapiXLIFF20Parser();
+        parser.parse(file);
+        long after = usedHeap();
+        // Keep the parsed document reachable until it has been measured
+        if (parser.getEvents().isEmpty()) {
+            throw new IllegalStateException("Nothing parsed from " + file);
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
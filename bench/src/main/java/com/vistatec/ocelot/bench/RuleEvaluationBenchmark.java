@@ -0,0 +1,112 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vistatec.ocelot.rules.DataCategoryField;
+import com.vistatec.ocelot.rules.Matchers;
+import com.vistatec.ocelot.rules.Rule;
+import com.vistatec.ocelot.rules.RuleEvaluationPlan;
+import com.vistatec.ocelot.rules.RuleMatcher;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+/**
+ * Matching segments against the filter rules one {@link Rule} at a time,
+ * compared with a compiled {@link RuleEvaluationPlan}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RuleEvaluationBenchmark {
+
+    @Param({"1000"})
+    public int segmentCount;
+
+    @Param({"0.5"})
+    public double metadataDensity;
+
+    private File dir;
+    private List<Rule> rules;
+    private RuleEvaluationPlan plan;
+    private List<OcelotSegment> segments;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkFiles.createTempDir();
+        segments = BenchmarkFiles.parseXliff12(
+                new SyntheticDocuments(segmentCount, 0, metadataDensity), dir);
+
+        rules = Arrays.asList(
+                rule(new RuleMatcher(DataCategoryField.MT_CONFIDENCE, Matchers.numeric(0, 75))),
+                rule(new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("omission")),
+                     new RuleMatcher(DataCategoryField.LQI_SEVERITY, Matchers.numeric(85, 100))),
+                rule(new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("terminology|mistranslation|omission"))),
+                rule(new RuleMatcher(DataCategoryField.PROV_TOOL, Matchers.regex("Google Translator's Toolkit"))),
+                rule(new RuleMatcher(DataCategoryField.PROV_ORG, Matchers.regex("^Org 1")),
+                     new RuleMatcher(DataCategoryField.PROV_PERSON, Matchers.regex("^Reviewer.*")),
+                     new RuleMatcher(DataCategoryField.PROV_TOOL, Matchers.regex("^Oc.*"))),
+                rule(new RuleMatcher(DataCategoryField.PROV_REVORG, Matchers.regex("^S.*")),
+                     new RuleMatcher(DataCategoryField.PROV_REVPERSON, Matchers.regex("^T.*")),
+                     new RuleMatcher(DataCategoryField.PROV_REVTOOL, Matchers.regex("^U.*"))),
+                rule(new RuleMatcher(DataCategoryField.PROV_PROVREF, Matchers.regex("^S.*"))));
+        plan = RuleEvaluationPlan.compile(rules);
+    }
+
+    private static Rule rule(RuleMatcher... matchers) {
+        return new Rule(new ArrayList<RuleMatcher>(Arrays.asList(matchers)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public int ruleMatches() {
+        int matched = 0;
+        for (OcelotSegment segment : segments) {
+            for (Rule rule : rules) {
+                if (rule.matches(segment)) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int planMatches() {
+        int matched = 0;
+        // Every rule is treated as enabled, as in the baseline
+        BitSet all = new BitSet();
+        all.set(0, plan.getRuleCount());
+        for (OcelotSegment segment : segments) {
+            if (plan.matchesAny(segment, all)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,278 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.io.Files;
+
+/**
+ * Generates XLIFF and TMX files of a given shape for the benchmarks. The
+ * content is generated from a fixed seed, so the same parameters always give
+ * the same files.
+ * <ul>
+ * <li>segment count: the number of translation units</li>
+ * <li>tag density: the number of inline tags per segment</li>
+ * <li>metadata density: the fraction of segments carrying ITS Localization
+ * Quality Issue and Provenance metadata</li>
+ * <li>revision depth: the number of change tracking revisions of each target
+ * in XLIFF 2.0</li>
+ * </ul>
+ */
+public class SyntheticDocuments {
+    private static final long SEED = 42;
+    private static final String[] SYLLABLES = {
+        "ba", "ce", "di", "fo", "gu", "ha", "je", "ki", "lo", "mu",
+        "na", "pe", "qui", "ro", "su", "ta", "ve", "wi", "xo", "za"
+    };
+    private static final String[] LQI_TYPES = {
+        "omission", "terminology", "mistranslation", "style", "grammar"
+    };
+    private static final int VOCABULARY_SIZE = 500;
+    private static final int MIN_WORDS = 6, MAX_WORDS = 24;
+
+    private final int segmentCount;
+    private final int tagDensity;
+    private final double metadataDensity;
+    private final List<String> vocabulary;
+    private double editRatio;
+    private int revisionDepth;
+
+    public SyntheticDocuments(int segmentCount, int tagDensity, double metadataDensity) {
+        this.segmentCount = segmentCount;
+        this.tagDensity = tagDensity;
+        this.metadataDensity = metadataDensity;
+        this.vocabulary = createVocabulary(new Random(SEED));
+    }
+
+    private static List<String> createVocabulary(Random random) {
+        List<String> words = new ArrayList<>(VOCABULARY_SIZE);
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 1 + random.nextInt(3);
+            for (int j = 0; j < syllables; j++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Adds Ocelot original targets to the XLIFF 1.2 files, differing from the
+     * targets by a fraction of their words, as if the targets had been edited.
+     */
+    public SyntheticDocuments withOriginalTargets(double editRatio) {
+        this.editRatio = editRatio;
+        return this;
+    }
+
+    /**
+     * Adds change tracking to the XLIFF 2.0 files, with a number of earlier
+     * versions of each target.
+     */
+    public SyntheticDocuments withRevisions(int revisionDepth) {
+        this.revisionDepth = revisionDepth;
+        return this;
+    }
+
+    /**
+     * @return a word from the generated vocabulary, for searching
+     */
+    public String getWord(int index) {
+        return vocabulary.get(index % vocabulary.size());
+    }
+
+    /**
+     * Returns a copy of a sentence with a fraction of its words replaced,
+     * as a post-edited version of it.
+     */
+    private String edit(String sentence, Random random) {
+        return edit(sentence, random, this.editRatio);
+    }
+
+    private String edit(String sentence, Random random, double editRatio) {
+        String[] words = sentence.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            if (random.nextDouble() < editRatio) {
+                words[i] = vocabulary.get(random.nextInt(vocabulary.size()));
+            }
+        }
+        StringBuilder edited = new StringBuilder();
+        for (String word : words) {
+            if (edited.length() > 0) {
+                edited.append(' ');
+            }
+            edited.append(word);
+        }
+        return edited.toString();
+    }
+
+    public void writeXliff12(File file) throws IOException {
+        Random random = new Random(SEED);
+        try (Writer out = Files.newWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<xliff xmlns=\"urn:oasis:names:tc:xliff:document:1.2\""
+                    + " xmlns:its=\"http://www.w3.org/2005/11/its\""
+                    + " xmlns:itsxlf=\"http://www.w3.org/ns/its-xliff/\""
+                    + " version=\"1.2\" its:version=\"2.0\">\n"
+                    + "<file original=\"synthetic.txt\" source-language=\"en\""
+                    + " target-language=\"fr\" datatype=\"plaintext\">\n<body>\n");
+            for (int i = 1; i <= segmentCount; i++) {
+                int words = words(random);
+                String source = taggedSentence(random, words, false);
+                String target = taggedSentence(random, words, false);
+                String originalTarget = editRatio > 0
+                        ? edit(target.replaceAll("<[^>]*>", ""), random) : null;
+                out.write("<trans-unit id=\"" + i + "\"");
+                if (random.nextDouble() < metadataDensity) {
+                    out.write(" its:locQualityIssueType=\""
+                            + LQI_TYPES[random.nextInt(LQI_TYPES.length)] + "\""
+                            + " its:locQualityIssueSeverity=\"" + random.nextInt(100) + "\""
+                            + " its:locQualityIssueComment=\"Comment " + i + "\""
+                            + " its:person=\"Reviewer " + (i % 7) + "\""
+                            + " its:org=\"Org " + (i % 3) + "\""
+                            + " its:tool=\"Ocelot\"");
+                }
+                out.write(">\n<source xml:lang=\"en\">" + source + "</source>\n"
+                        + "<target xml:lang=\"fr\" state=\"translated\">" + target
+                        + "</target>\n");
+                if (originalTarget != null) {
+                    out.write("<alt-trans tool-id=\"Ocelot\" origin=\"Ocelot\">\n"
+                            + "<source xml:lang=\"en\">" + source + "</source>\n"
+                            + "<target xml:lang=\"fr\">" + originalTarget + "</target>\n"
+                            + "</alt-trans>\n");
+                }
+                out.write("</trans-unit>\n");
+            }
+            out.write("</body>\n</file>\n</xliff>\n");
+        }
+    }
+
+    public void writeXliff20(File file) throws IOException {
+        Random random = new Random(SEED);
+        try (Writer out = Files.newWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<xliff xmlns=\"urn:oasis:names:tc:xliff:document:2.0\""
+                    + " xmlns:its=\"http://www.w3.org/2005/11/its\""
+                    + " xmlns:ctr=\"urn:oasis:names:tc:xliff:changetracking:2.0\""
+                    + " version=\"2.0\" srcLang=\"en\" trgLang=\"fr\">\n"
+                    + "<file id=\"f1\">\n");
+            for (int i = 1; i <= segmentCount; i++) {
+                int words = words(random);
+                String source = taggedSentence(random, words, true);
+                String target = taggedSentence(random, words, true);
+                if (random.nextDouble() < metadataDensity) {
+                    target = "<mrk id=\"m" + i + "\" type=\"its:any\""
+                            + " its:locQualityIssueType=\""
+                            + LQI_TYPES[random.nextInt(LQI_TYPES.length)] + "\""
+                            + " its:locQualityIssueSeverity=\"" + random.nextInt(100) + "\""
+                            + " its:person=\"Reviewer " + (i % 7) + "\">"
+                            + target + "</mrk>";
+                }
+                out.write("<unit id=\"u" + i + "\">\n");
+                if (revisionDepth > 0) {
+                    writeRevisions(out, target.replaceAll("<[^>]*>", ""), random);
+                }
+                out.write("<segment id=\"s" + i + "\">\n"
+                        + "<source>" + source + "</source>\n"
+                        + "<target>" + target + "</target>\n"
+                        + "</segment>\n</unit>\n");
+            }
+            out.write("</file>\n</xliff>\n");
+        }
+    }
+
+    /**
+     * Writes the target revisions of a unit, each an edit of the next one and
+     * a minute older, with the plain target as the current version.
+     */
+    private void writeRevisions(Writer out, String target, Random random) throws IOException {
+        out.write("<ctr:changeTrack>\n<ctr:revisions appliesTo=\"target\""
+                + " currentVersion=\"Rev" + revisionDepth + "\">\n");
+        String text = target;
+        for (int version = revisionDepth; version >= 1; version--) {
+            out.write("<ctr:revision version=\"Rev" + version + "\""
+                    + String.format(" datetime=\"2016-01-01T%02d:%02d:00Z\">",
+                            version / 60, version % 60)
+                    + "<ctr:item property=\"content\">" + text + "</ctr:item>"
+                    + "</ctr:revision>\n");
+            text = edit(text, random, 0.2);
+        }
+        out.write("</ctr:revisions>\n</ctr:changeTrack>\n");
+    }
+
+    /**
+     * Writes an English to French TMX with one translation unit per segment.
+     */
+    public void writeTmx(File file) throws IOException {
+        Random random = new Random(SEED);
+        try (Writer out = Files.newWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<tmx version=\"1.4\">\n"
+                    + "<header creationtool=\"Ocelot\" creationtoolversion=\"1\""
+                    + " segtype=\"sentence\" o-tmf=\"none\" adminlang=\"en\""
+                    + " srclang=\"en\" datatype=\"plaintext\"/>\n<body>\n");
+            for (int i = 1; i <= segmentCount; i++) {
+                int words = words(random);
+                out.write("<tu tuid=\"" + i + "\">\n"
+                        + "<tuv xml:lang=\"en\"><seg>" + sentence(random, words) + "</seg></tuv>\n"
+                        + "<tuv xml:lang=\"fr\"><seg>" + sentence(random, words) + "</seg></tuv>\n"
+                        + "</tu>\n");
+            }
+            out.write("</body>\n</tmx>\n");
+        }
+    }
+
+    private static int words(Random random) {
+        return MIN_WORDS + random.nextInt(MAX_WORDS - MIN_WORDS + 1);
+    }
+
+    private String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(vocabulary.get(random.nextInt(vocabulary.size())));
+        }
+        return sentence.toString();
+    }
+
+    /**
+     * A sentence with {@link #tagDensity} inline tags, alternating paired
+     * and standalone tags.
+     */
+    private String taggedSentence(Random random, int words, boolean xliff20) {
+        String[] parts = sentence(random, words).split(" ");
+        StringBuilder sentence = new StringBuilder();
+        int tags = Math.min(tagDensity, parts.length);
+        int tagId = 1;
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            // Spread the tags evenly over the words
+            boolean tagged = tags > 0 && i % Math.max(1, parts.length / tags) == 0
+                    && tagId <= tags;
+            if (!tagged) {
+                sentence.append(parts[i]);
+            } else if (tagId % 2 == 1) {
+                sentence.append(xliff20
+                        ? "<pc id=\"" + tagId + "\">" + parts[i] + "</pc>"
+                        : "<g id=\"" + tagId + "\">" + parts[i] + "</g>");
+                tagId++;
+            } else {
+                sentence.append(parts[i]).append(xliff20
+                        ? "<ph id=\"" + tagId + "\"/>"
+                        : "<x id=\"" + tagId + "\"/>");
+                tagId++;
+            }
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.CharSink;
+import com.google.common.io.CharStreams;
+import com.vistatec.ocelot.config.ConfigTransferService;
+import com.vistatec.ocelot.config.OcelotConfigService;
+import com.vistatec.ocelot.config.OcelotXmlConfigTransferService;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentAtom;
+import com.vistatec.ocelot.segment.model.TextAtom;
+import com.vistatec.ocelot.tm.TmMatch;
+import com.vistatec.ocelot.tm.okapi.OkapiTmManager;
+import com.vistatec.ocelot.tm.okapi.OkapiTmService;
+import com.vistatec.ocelot.tm.penalty.SimpleTmPenalizer;
+
+/**
+ * Fuzzy and concordance searches of a TM, as done when a segment is
+ * selected and from the concordance search box.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TmSearchBenchmark {
+    private static final int QUERY_COUNT = 100;
+
+    /** The number of translation units in the TM. */
+    @Param({"1000", "10000"})
+    public int tmSize;
+
+    private File dir;
+    private OkapiTmService tmService;
+    private List<List<SegmentAtom>> fuzzyQueries;
+    private List<List<SegmentAtom>> concordanceQueries;
+
+    @Setup
+    public void setup() throws Exception {
+        dir = BenchmarkFiles.createTempDir();
+        File tmDataDir = new File(dir, "data");
+        tmDataDir.mkdirs();
+        // Generated with the same seed as the queries, so that some of them
+        // have exact and fuzzy matches
+        new SyntheticDocuments(tmSize, 0, 0).writeTmx(new File(tmDataDir, "synthetic.tmx"));
+
+        OcelotConfigService cfgService = new OcelotConfigService(
+                new OcelotXmlConfigTransferService(ByteSource.empty(), new NullCharSink()));
+        OkapiTmManager tmManager = new OkapiTmManager(new File(dir, "tm"), cfgService, null);
+        tmManager.initializeNewTm("synthetic", tmDataDir);
+        tmService = new OkapiTmService(tmManager, new SimpleTmPenalizer(tmManager), cfgService);
+
+        SyntheticDocuments queries = new SyntheticDocuments(QUERY_COUNT, 0, 0);
+        fuzzyQueries = new ArrayList<>(QUERY_COUNT);
+        for (OcelotSegment segment : BenchmarkFiles.parseXliff12(queries, dir)) {
+            fuzzyQueries.add(segment.getSource().getAtoms());
+        }
+        concordanceQueries = new ArrayList<>(QUERY_COUNT);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            concordanceQueries.add(Collections.<SegmentAtom>singletonList(
+                    new TextAtom(queries.getWord(i))));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public int fuzzySearch() throws IOException {
+        int matches = 0;
+        for (List<SegmentAtom> query : fuzzyQueries) {
+            List<TmMatch> results = tmService.getFuzzyTermMatches(query);
+            matches += results.size();
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int concordanceSearch() throws IOException {
+        int matches = 0;
+        for (List<SegmentAtom> query : concordanceQueries) {
+            List<TmMatch> results = tmService.getConcordanceMatches(query);
+            matches += results.size();
+        }
+        return matches;
+    }
+
+    /**
+     * The configuration of the benchmark TM isn't kept.
+     */
+    private static class NullCharSink extends CharSink {
+        @Override
+        public Writer openStream() {
+            return CharStreams.nullWriter();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF12Parser;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF20Parser;
+
+/**
+ * Parsing XLIFF 1.2 and 2.0 files into Ocelot segments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XliffParseBenchmark {
+
+    @Param({"1000", "10000"})
+    public int segmentCount;
+
+    @Param({"0", "4"})
+    public int tagDensity;
+
+    @Param({"0", "0.25"})
+    public double metadataDensity;
+
+    private File dir, xliff12, xliff20;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkFiles.createTempDir();
+        SyntheticDocuments documents = new SyntheticDocuments(segmentCount,
+                tagDensity, metadataDensity);
+        xliff12 = new File(dir, "synthetic12.xlf");
+        documents.writeXliff12(xliff12);
+        xliff20 = new File(dir, "synthetic20.xlf");
+        documents.writeXliff20(xliff20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public List<OcelotSegment> parseXliff12() throws IOException {
+        return new OkapiXLIFF12Parser().parse(xliff12);
+    }
+
+    @Benchmark
+    public List<OcelotSegment> parseXliff20() throws IOException {
+        return new OkapiXLIFF20Parser().parse(xliff20);
+    }
+}
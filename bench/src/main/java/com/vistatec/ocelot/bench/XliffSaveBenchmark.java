@@ -0,0 +1,114 @@
+package com.vistatec.ocelot.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.eventbus.EventBus;
+import com.vistatec.ocelot.config.UserProvenance;
+import com.vistatec.ocelot.events.api.EventBusWrapper;
+import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF12Parser;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF12Writer;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF20Parser;
+import com.vistatec.ocelot.xliff.okapi.OkapiXLIFF20Writer;
+
+/**
+ * Saving parsed XLIFF 1.2 and 2.0 files, with and without first writing
+ * every segment back to the Okapi model as happens after edits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XliffSaveBenchmark {
+
+    @Param({"1000", "10000"})
+    public int segmentCount;
+
+    @Param({"0", "4"})
+    public int tagDensity;
+
+    @Param({"0", "0.25"})
+    public double metadataDensity;
+
+    private File dir, output;
+    private List<OcelotSegment> segments12, segments20;
+    private OkapiXLIFF12Writer writer12;
+    private OkapiXLIFF20Writer writer20;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkFiles.createTempDir();
+        output = new File(dir, "saved.xlf");
+        SyntheticDocuments documents = new SyntheticDocuments(segmentCount,
+                tagDensity, metadataDensity);
+        // Nobody listens to the events posted while writing
+        OcelotEventQueue eventQueue = new EventBusWrapper(new EventBus());
+        UserProvenance userProvenance = new UserProvenance(null, null, null);
+
+        File xliff12 = new File(dir, "synthetic12.xlf");
+        documents.writeXliff12(xliff12);
+        OkapiXLIFF12Parser parser12 = new OkapiXLIFF12Parser();
+        segments12 = parser12.parse(xliff12);
+        writer12 = new OkapiXLIFF12Writer(parser12, userProvenance, eventQueue);
+
+        File xliff20 = new File(dir, "synthetic20.xlf");
+        documents.writeXliff20(xliff20);
+        OkapiXLIFF20Parser parser20 = new OkapiXLIFF20Parser();
+        segments20 = parser20.parse(xliff20);
+        writer20 = new OkapiXLIFF20Writer(parser20, userProvenance, eventQueue);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(dir);
+    }
+
+    @Benchmark
+    public File saveXliff12() throws IOException {
+        writer12.save(output);
+        return output;
+    }
+
+    @Benchmark
+    public File updateAndSaveXliff12() throws IOException {
+        for (OcelotSegment segment : segments12) {
+            writer12.updateSegment(segment);
+        }
+        writer12.save(output);
+        return output;
+    }
+
+    @Benchmark
+    public File saveXliff20() throws IOException {
+        writer20.save(output);
+        return output;
+    }
+
+    @Benchmark
+    public File updateAndSaveXliff20() throws IOException {
+        for (OcelotSegment segment : segments20) {
+            writer20.updateSegment(segment);
+        }
+        writer20.save(output);
+        return output;
+    }
+}
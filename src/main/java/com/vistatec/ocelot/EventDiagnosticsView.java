@@ -0,0 +1,157 @@
+package com.vistatec.ocelot;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+import com.google.inject.Inject;
+import com.vistatec.ocelot.events.api.EventQueueMetrics;
+import com.vistatec.ocelot.events.api.EventQueueMetrics.Snapshot;
+import com.vistatec.ocelot.ui.ODialogPanel;
+
+/**
+ * Shows the event queue metrics, per event type and per subscriber.
+ */
+public class EventDiagnosticsView extends ODialogPanel implements ActionListener {
+    private static final long serialVersionUID = 1L;
+
+    private final EventQueueMetrics metrics;
+    private final SnapshotTableModel eventModel = new SnapshotTableModel("Event");
+    private final SnapshotTableModel subscriberModel =
+            new SnapshotTableModel("Subscriber");
+    private JButton refresh, reset, close;
+
+    @Inject
+    public EventDiagnosticsView(EventQueueMetrics metrics) {
+        super(new BorderLayout(10, 10));
+        this.metrics = metrics;
+        setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Events", createTable(eventModel));
+        tabs.addTab("Subscribers", createTable(subscriberModel));
+        add(tabs, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        reset = new JButton("Reset");
+        reset.addActionListener(this);
+        buttonPanel.add(reset);
+        refresh = new JButton("Refresh");
+        refresh.addActionListener(this);
+        buttonPanel.add(refresh);
+        close = new JButton("Close");
+        close.addActionListener(new DisposeDialogListener());
+        buttonPanel.add(close);
+        add(buttonPanel, BorderLayout.PAGE_END);
+
+        refresh();
+    }
+
+    private JScrollPane createTable(SnapshotTableModel model) {
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(300);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(800, 350));
+        return scrollPane;
+    }
+
+    @Override
+    public JButton getDefaultButton() {
+        return refresh;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == reset) {
+            metrics.reset();
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        eventModel.setSnapshots(metrics.getEventSnapshots());
+        subscriberModel.setSnapshots(metrics.getSubscriberSnapshots());
+    }
+
+    static class SnapshotTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] columnNames;
+        private List<Snapshot> snapshots = new ArrayList<Snapshot>();
+
+        SnapshotTableModel(String nameColumn) {
+            this.columnNames = new String[] { nameColumn, "Count",
+                    "Total (ms)", "Mean (us)", "p50 (us)",
+                    "p90 (us)", "p99 (us)", "Max (us)",
+                    "Cascade Depth" };
+        }
+
+        void setSnapshots(List<Snapshot> snapshots) {
+            this.snapshots = snapshots;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return snapshots.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Long.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Snapshot snapshot = snapshots.get(row);
+            switch (column) {
+            case 0:
+                return snapshot.getName();
+            case 1:
+                return snapshot.getCount();
+            case 2:
+                return TimeUnit.NANOSECONDS.toMillis(snapshot.getTotalNanos());
+            case 3:
+                return toMicros(snapshot.getMeanNanos());
+            case 4:
+                return toMicros(snapshot.getPercentileNanos(50));
+            case 5:
+                return toMicros(snapshot.getPercentileNanos(90));
+            case 6:
+                return toMicros(snapshot.getPercentileNanos(99));
+            case 7:
+                return toMicros(snapshot.getMaxNanos());
+            default:
+                return (long) snapshot.getMaxCascadeDepth();
+            }
+        }
+
+        private static long toMicros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
@@ -83,6 +83,7 @@ import org.apache.log4j.PropertyConfigurator;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.vistatec.ocelot.di.OcelotModule;
+import com.vistatec.ocelot.di.StartupTimer;
 import com.vistatec.ocelot.events.ConfigTmRequestEvent;
 import com.vistatec.ocelot.events.OcelotEditingEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -96,9 +97,13 @@ import com.vistatec.ocelot.plugins.PluginManagerView;
 import com.vistatec.ocelot.rules.FilterView;
 import com.vistatec.ocelot.segment.view.SegmentAttributeView;
 import com.vistatec.ocelot.segment.view.SegmentView;
+import com.vistatec.ocelot.services.SegmentService;
 import com.vistatec.ocelot.tm.gui.TmGuiManager;
 import com.vistatec.ocelot.ui.ODialogPanel;
 import com.vistatec.ocelot.ui.OcelotToolBar;
+import com.vistatec.ocelot.workspace.ProjectSearchView;
+import com.vistatec.ocelot.workspace.WorkspaceDocument;
+import com.vistatec.ocelot.workspace.WorkspaceStatsView;
 
 /**
  * Main UI Thread class. Handles menu and file operations
@@ -115,13 +120,15 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 	private JMenuBar menuBar;
 	private JMenu menuFile, menuView, menuExtensions, menuHelp, mnuEdit;
 	private JMenuItem menuOpenXLIFF, menuExit, menuAbout, menuRules, menuProv,
-	        menuSave, menuSaveAs, menuFindReplace;
+	        menuSave, menuSaveAs, menuClose, menuFindReplace, menuProjectSearch;
 	private JMenuItem menuPlugins;
-	private JCheckBoxMenuItem menuTgtDiff;
+	private JCheckBoxMenuItem menuTgtDiff, menuPropagateRepetitions;
 	private JMenuItem menuColumns;
 	private JMenuItem menuConfigTm;
 	private JMenuItem menuSaveAsTmx;
 	private JMenuItem menuLqiGrid;
+	private JMenuItem menuEventDiagnostics;
+	private JMenuItem menuWorkspaceStats;
 
     private OcelotToolBar toolBar;
 	private JFrame mainframe;
@@ -141,6 +148,7 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 	private final OcelotEventQueue eventQueue;
 	private final OcelotApp ocelotApp;
 	private final LQIGridController lqiGridController;
+	private final StartupTimer startupTimer;
 
 	private PlatformSupport platformSupport;
 
@@ -148,6 +156,8 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 	        InstantiationException, IllegalAccessException {
 		super(new BorderLayout());
 		this.ocelotScope = ocelotScope;
+		this.startupTimer = ocelotScope.getInstance(StartupTimer.class);
+		long start = startupTimer.start();
 		this.eventQueue = ocelotScope.getInstance(OcelotEventQueue.class);
 		eventQueue.registerListener(this);
 		this.ocelotApp = ocelotScope.getInstance(OcelotApp.class);
@@ -176,6 +186,7 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		eventQueue.registerListener(detailView);
 
 		add(setupMainPane(segView, segAttrView, detailView));
+		startupTimer.record("Main panel", start);
 	}
 
 	private Component setupMainPane(SegmentView segView,
@@ -270,6 +281,8 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 			tmGuiManager.saveAsTmx(mainframe);
 		} else if (e.getSource() == this.menuSave) {
 			save(ocelotApp.getOpenFile());
+		} else if (e.getSource() == this.menuClose) {
+			promptCloseXLIFFFile();
 		} else if (e.getSource() == this.menuTgtDiff) {
 			this.segmentView
 			        .setEnabledTargetDiff(this.menuTgtDiff.isSelected());
@@ -282,6 +295,25 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 			lqiGridController.displayLQIGrid();
 		} else if (e.getSource() == this.menuFindReplace) {
 			frController.displayDialog(mainframe);
+		} else if (e.getSource() == this.menuPropagateRepetitions) {
+			ocelotScope.getInstance(SegmentService.class).setPropagateRepetitions(
+			        this.menuPropagateRepetitions.isSelected());
+		} else if (e.getSource() == this.menuProjectSearch) {
+			ProjectSearchView projectSearchView = ocelotScope
+			        .getInstance(ProjectSearchView.class);
+			if (ocelotApp.hasOpenFile()) {
+				projectSearchView.setDirectory(ocelotApp.getOpenFile()
+				        .getAbsoluteFile().getParentFile());
+			}
+			showModelessDialog(projectSearchView, "Project Search");
+		} else if (e.getSource() == this.menuWorkspaceStats) {
+			showModelessDialog(
+			        ocelotScope.getInstance(WorkspaceStatsView.class),
+			        "Workspace Statistics");
+		} else if (e.getSource() == this.menuEventDiagnostics) {
+			showModelessDialog(
+			        ocelotScope.getInstance(EventDiagnosticsView.class),
+			        "Event Diagnostics");
 		}
 	}
 
@@ -293,28 +325,72 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		fd.dispose();
 
 		if (sourceFile != null) {
-			try {
-				ocelotApp.openFile(sourceFile);
-				this.setMainTitle(sourceFile.getName());
-				segmentView.reloadTable();
-
-				this.menuSave.setEnabled(true);
-				this.menuSaveAs.setEnabled(true);
-				this.menuSaveAsTmx.setEnabled(true);
-				this.toolBar.loadFontsAndSizes(ocelotApp.getFileSourceLang(), ocelotApp.getFileTargetLang());
-                this.toolBar.setSourceFont(segmentView.getSourceFont());
-                this.toolBar.setTargetFont(segmentView.getTargetFont());
-			} catch (FileNotFoundException ex) {
-				LOG.error(
-				        "Failed to parse file '" + sourceFile.getName() + "'",
-				        ex);
-			} catch (Exception e) {
-				String errorMsg = "Could not open " + sourceFile.getName();
-				LOG.error(errorMsg, e);
-				alertUser("XLIFF Parsing Error",
-				        errorMsg + ": " + e.getMessage());
+			openXLIFFFile(sourceFile);
+		}
+	}
+
+	private boolean openXLIFFFile(File sourceFile) {
+		try {
+			ocelotApp.openFile(sourceFile);
+			this.setMainTitle(sourceFile.getName());
+			segmentView.reloadTable();
+
+			this.menuSave.setEnabled(true);
+			this.menuSaveAs.setEnabled(true);
+			this.menuSaveAsTmx.setEnabled(true);
+			this.menuClose.setEnabled(true);
+			this.toolBar.loadFontsAndSizes(ocelotApp.getFileSourceLang(), ocelotApp.getFileTargetLang());
+            this.toolBar.setSourceFont(segmentView.getSourceFont());
+            this.toolBar.setTargetFont(segmentView.getTargetFont());
+		} catch (FileNotFoundException ex) {
+			LOG.error(
+			        "Failed to parse file '" + sourceFile.getName() + "'",
+			        ex);
+			return false;
+		} catch (Exception e) {
+			String errorMsg = "Could not open " + sourceFile.getName();
+			LOG.error(errorMsg, e);
+			alertUser("XLIFF Parsing Error",
+			        errorMsg + ": " + e.getMessage());
+			return false;
+		}
+		if (ocelotApp.getWorkspace().isChangedOnDisk(sourceFile)) {
+			// Only kept when it has unsaved changes
+			JOptionPane.showMessageDialog(mainframe, sourceFile.getName()
+			        + " has changed on disk since it was opened. Saving it"
+			        + " will overwrite those changes.", "File Changed",
+			        JOptionPane.WARNING_MESSAGE);
+		}
+		return true;
+	}
+
+	/**
+	 * Closes the open file, prompting to save it if it has unsaved changes.
+	 */
+	private void promptCloseXLIFFFile() {
+		if (!ocelotApp.hasOpenFile()) {
+			return;
+		}
+		if (ocelotApp.isFileDirty()) {
+			int rv = JOptionPane.showConfirmDialog(mainframe,
+			        "Would you like to save the changes to "
+			                + ocelotApp.getOpenFile().getName() + "?",
+			        "Save Unsaved Changes", JOptionPane.YES_NO_CANCEL_OPTION);
+			if (rv == JOptionPane.YES_OPTION) {
+				if (!save(ocelotApp.getOpenFile())) {
+					return;
+				}
+			} else if (rv != JOptionPane.NO_OPTION) {
+				return;
 			}
 		}
+		ocelotApp.closeFile();
+		mainframe.setTitle(APPNAME);
+		segmentView.reloadTable();
+		this.menuSave.setEnabled(false);
+		this.menuSaveAs.setEnabled(false);
+		this.menuSaveAsTmx.setEnabled(false);
+		this.menuClose.setEnabled(false);
 	}
 
 	private File promptSaveAs() {
@@ -368,27 +444,34 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 	}
 
 	/**
-	 * Exit handler. This should prompt to save unsaved data.
+	 * Exit handler. This should prompt to save unsaved data. Each file of the
+	 * workspace with unsaved changes is shown in turn before asking whether
+	 * to save it.
 	 */
 	public void handleApplicationExit() {
-		boolean canQuit = true;
-		if (ocelotApp.isFileDirty()) {
+		for (WorkspaceDocument doc : ocelotApp.getWorkspace().getDirtyDocuments()) {
+			File file = doc.getFile();
+			boolean open = ocelotApp.hasOpenFile()
+			        && file.equals(ocelotApp.getOpenFile().getAbsoluteFile());
+			if (!open && !openXLIFFFile(file)) {
+				return;
+			}
 			int rv = JOptionPane
 			        .showConfirmDialog(
 			                this,
-			                "You have unsaved changes. Would you like to save before exiting?",
+			                "You have unsaved changes in " + file.getName()
+			                        + ". Would you like to save before exiting?",
 			                "Save Unsaved Changes",
 			                JOptionPane.YES_NO_CANCEL_OPTION);
 			if (rv == JOptionPane.YES_OPTION) {
-				save(ocelotApp.getOpenFile());
+				if (!save(ocelotApp.getOpenFile())) {
+					return;
+				}
 			} else if (rv != JOptionPane.NO_OPTION) {
-				canQuit = false;
+				return;
 			}
-
-		}
-		if (canQuit) {
-			quitOcelot();
 		}
+		quitOcelot();
 	}
 
 	private void initializeMenuBar() {
@@ -422,6 +505,13 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		// TODO add accelerator
 		menuFile.add(menuSaveAsTmx);
 
+		menuClose = new JMenuItem("Close");
+		menuClose.setEnabled(false);
+		menuClose.addActionListener(this);
+		menuClose.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_W,
+		        getPlatformKeyMask()));
+		menuFile.add(menuClose);
+
 		menuProv = new JMenuItem("Profile");
 		menuProv.addActionListener(this);
 		menuProv.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_P,
@@ -436,6 +526,15 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		menuFindReplace = new JMenuItem("Find and Replace");
 		menuFindReplace.addActionListener(this);
 		mnuEdit.add(menuFindReplace);
+		menuProjectSearch = new JMenuItem("Search Project...");
+		menuProjectSearch.addActionListener(this);
+		mnuEdit.add(menuProjectSearch);
+		menuPropagateRepetitions = new JCheckBoxMenuItem(
+		        "Propagate Edits to Repetitions");
+		menuPropagateRepetitions.setSelected(ocelotScope.getInstance(
+		        SegmentService.class).isPropagateRepetitions());
+		menuPropagateRepetitions.addActionListener(this);
+		mnuEdit.add(menuPropagateRepetitions);
 		menuBar.add(mnuEdit);
 		
 		
@@ -458,6 +557,10 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		menuLqiGrid.addActionListener(this);
 		menuView.add(menuLqiGrid);
 
+		menuWorkspaceStats = new JMenuItem("Workspace Statistics");
+		menuWorkspaceStats.addActionListener(this);
+		menuView.add(menuWorkspaceStats);
+
 		menuRules = new JMenuItem("Filters");
 		menuRules.addActionListener(this);
 		menuRules.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L,
@@ -488,6 +591,10 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		menuAbout.addActionListener(this);
 		menuHelp.add(menuAbout);
 
+		menuEventDiagnostics = new JMenuItem("Event Diagnostics");
+		menuEventDiagnostics.addActionListener(this);
+		menuHelp.add(menuEventDiagnostics);
+
 		platformSupport.setMenuMnemonics(menuFile, menuView, menuExtensions, menuHelp);
 		mainframe.setJMenuBar(menuBar);
 	}
@@ -504,6 +611,7 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 
 	@Override
 	public void run() {
+		long start = startupTimer.start();
 		mainframe = new JFrame(APPNAME);
 		mainframe.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
 		mainframe.addWindowListener(new WindowAdapter() {
@@ -536,6 +644,8 @@ public class Ocelot extends JPanel implements Runnable, ActionListener,
 		lqiGridController.setOcelotMainFrame(mainframe);
 		tmConcordanceSplitPane.setDividerLocation(0.4);
 		addEditingListenerToTxtFields();
+		startupTimer.record("Main window", start);
+		startupTimer.logSummary("Ocelot started");
 	}
 
     private Dimension getUserDefinedWindowSize() {
@@ -42,6 +42,7 @@ import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.vistatec.ocelot.events.OpenFileEvent;
 import com.vistatec.ocelot.events.ProvenanceAddEvent;
+import com.vistatec.ocelot.events.RepetitionsUpdatedEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteEditEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -52,6 +53,7 @@ import com.vistatec.ocelot.segment.model.OcelotSegment;
 import com.vistatec.ocelot.services.EditDistanceReportService;
 import com.vistatec.ocelot.services.SegmentService;
 import com.vistatec.ocelot.services.XliffService;
+import com.vistatec.ocelot.workspace.Workspace;
 import com.vistatec.ocelot.xliff.XLIFFDocument;
 import com.vistatec.ocelot.xliff.freme.XliffFremeAnnotationWriter;
 
@@ -66,6 +68,7 @@ public class OcelotApp implements OcelotEventQueueListener {
     private final SegmentService segmentService;
     private final XliffService xliffService;
     private final EditDistanceReportService editDistService;
+    private final Workspace workspace;
     private XLIFFDocument openXliffFile;
 
     private File openFile;
@@ -73,12 +76,14 @@ public class OcelotApp implements OcelotEventQueueListener {
 
     @Inject
     public OcelotApp(OcelotEventQueue eventQueue, PluginManager pluginManager,
-            SegmentService segmentService, XliffService xliffService) {
+            SegmentService segmentService, XliffService xliffService,
+            EditDistanceReportService editDistService, Workspace workspace) {
         this.eventQueue = eventQueue;
         this.pluginManager = pluginManager;
         this.segmentService = segmentService;
         this.xliffService = xliffService;
-		this.editDistService = new EditDistanceReportService(segmentService);
+        this.editDistService = editDistService;
+        this.workspace = workspace;
     }
 
     public File getOpenFile() {
@@ -102,17 +107,31 @@ public class OcelotApp implements OcelotEventQueueListener {
         return fileDirty;
     }
 
+    public Workspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Opens a file, or switches back to it if it is still in the workspace,
+     * with any unsaved changes it had.
+     */
     public void openFile(File openFile) throws IOException, FileNotFoundException, XMLStreamException {
-        openXliffFile = xliffService.parse(openFile);
+        XLIFFDocument previous = workspace.getLoadedDocument(openFile);
+        openXliffFile = workspace.focus(openFile);
+        boolean loaded = openXliffFile == previous;
         segmentService.clearAllSegments();
         segmentService.setSegments(openXliffFile);
 
-        this.pluginManager.notifyOpenFile(openFile.getName(), openXliffFile.getSegments());
+        // The languages are needed by the plugins when the file is opened
         this.pluginManager.setSourceAndTargetLangs(openXliffFile.getSrcLocale().toString(), openXliffFile.getTgtLocale().toString());
-        this.pluginManager.enrichSegments(openXliffFile.getSegments());
+        this.pluginManager.notifyOpenFile(openFile.getName(), openXliffFile.getSegments());
+        if (!loaded) {
+            // Documents kept in the workspace have already been enriched
+            this.pluginManager.enrichSegments(openXliffFile.getSegments());
+        }
         this.openFile = openFile;
         hasOpenFile = true;
-        fileDirty = false;
+        fileDirty = workspace.isDirty(openFile);
         eventQueue.post(new OpenFileEvent(openFile.getName(), openXliffFile));
     }
 
@@ -137,10 +156,29 @@ public class OcelotApp implements OcelotEventQueueListener {
 XliffFremeAnnotationWriter annotationWriter = new XliffFremeAnnotationWriter();
 		annotationWriter.saveAnnotations(saveFile, segmentService);
         this.fileDirty = false;
-		editDistService.createEditDistanceReport(saveFile.getName());
+        // After Save As, the document is the one of the new file
+        workspace.markSaved(openXliffFile, saveFile);
+        this.openFile = saveFile;
+		editDistService.createEditDistanceReport(openXliffFile, saveFile.getName());
         pluginManager.notifySaveFile(filename);
     }
 
+    /**
+     * Closes the open file and removes it from the workspace, discarding any
+     * unsaved changes.
+     */
+    public void closeFile() {
+        if (!hasOpenFile) {
+            return;
+        }
+        segmentService.clearAllSegments();
+        workspace.close(openFile);
+        openXliffFile = null;
+        openFile = null;
+        hasOpenFile = false;
+        fileDirty = false;
+    }
+
     public String getFileSourceLang() {
         return openXliffFile.getSrcLocale().toString();
     }
@@ -152,16 +190,25 @@ XliffFremeAnnotationWriter annotationWriter = new XliffFremeAnnotationWriter();
     @Subscribe
     public void segmentEdit(SegmentEditEvent e) {
         this.fileDirty = true;
+        workspace.markDirty(e.getDocument());
+    }
+
+    @Subscribe
+    public void repetitionsUpdated(RepetitionsUpdatedEvent e) {
+        this.fileDirty = true;
+        workspace.markDirty(e.getDocument());
     }
 
     @Subscribe
     public void provenanceAdded(ProvenanceAddEvent e) {
         this.fileDirty = true;
+        workspace.markDirty(openXliffFile);
     }
 
     @Subscribe
     public void noteEdit(SegmentNoteEditEvent e) {
         this.fileDirty = true;
+        workspace.markDirty(e.getDocument());
     }
 
     public class ErrorAlertException extends Exception {
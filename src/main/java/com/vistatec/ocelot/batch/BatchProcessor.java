@@ -0,0 +1,215 @@
+package com.vistatec.ocelot.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vistatec.ocelot.config.ConfigService;
+import com.vistatec.ocelot.events.api.EventBusWrapper;
+import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.its.stats.model.ITSDocStats;
+import com.vistatec.ocelot.rules.Rule;
+import com.vistatec.ocelot.rules.RuleConfiguration;
+import com.vistatec.ocelot.segment.editdistance.EditDistance;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.RepetitionGroup;
+import com.vistatec.ocelot.services.EditDistanceReportService;
+import com.vistatec.ocelot.services.ITSDocStatsService;
+import com.vistatec.ocelot.services.OkapiXliffService;
+import com.vistatec.ocelot.services.SegmentService;
+import com.vistatec.ocelot.services.SegmentServiceImpl;
+import com.vistatec.ocelot.services.XliffService;
+import com.vistatec.ocelot.tm.TmMatch;
+import com.vistatec.ocelot.tm.TmService;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * Runs the Ocelot QA services over XLIFF files without a UI. Each file gets
+ * its own event queue and document services, so files are processed
+ * independently on a pool of workers; the rule configuration and the TMs are
+ * shared read-only.
+ */
+public class BatchProcessor {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchProcessor.class);
+
+    private static final String REPORT_FILE_NAME_SUFFIX = "-EditDistance.csv";
+
+    /**
+     * Notified of each processed file, on the thread that called
+     * {@link BatchProcessor#processAll}.
+     */
+    public interface Listener {
+        void fileProcessed(FileReport report);
+    }
+
+    private final ConfigService cfgService;
+    private final RuleConfiguration ruleConfig;
+    private final TmService tmService;
+    private final File reportDir;
+    private final ForkJoinPool statsPool = new ForkJoinPool();
+
+    /**
+     * @param tmService the TMs searched for leverage, or null
+     * @param reportDir where the edit distance reports are written, or null
+     * for none
+     */
+    public BatchProcessor(ConfigService cfgService, RuleConfiguration ruleConfig,
+            TmService tmService, File reportDir) {
+        this.cfgService = cfgService;
+        this.ruleConfig = ruleConfig;
+        this.tmService = tmService;
+        this.reportDir = reportDir;
+    }
+
+    /**
+     * Processes the files on a pool of workers.
+     * @return the number of files that couldn't be processed
+     */
+    public int processAll(List<File> files, int threads, Listener listener)
+            throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("ocelot-batch-%d")
+                        .setDaemon(true).build());
+        try {
+            CompletionService<FileReport> reports = new ExecutorCompletionService<>(workers);
+            for (final File file : files) {
+                reports.submit(new Callable<FileReport>() {
+                    @Override
+                    public FileReport call() {
+                        return process(file);
+                    }
+                });
+            }
+            int failures = 0;
+            for (int i = 0; i < files.size(); i++) {
+                FileReport report;
+                try {
+                    report = reports.take().get();
+                } catch (ExecutionException e) {
+                    // process() reports its own errors
+                    throw new IllegalStateException(e.getCause());
+                }
+                if (report.hasError()) {
+                    failures++;
+                }
+                listener.fileProcessed(report);
+            }
+            return failures;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Processes a single file. Errors are reported in the result rather than
+     * thrown, so that one bad file doesn't stop a batch.
+     */
+    public FileReport process(File file) {
+        FileReport report = new FileReport(file);
+        long start = System.currentTimeMillis();
+        try {
+            OcelotEventQueue eventQueue = new EventBusWrapper(new EventBus());
+            ITSDocStatsService statsService = new ITSDocStatsService(
+                    new ITSDocStats(), eventQueue, statsPool);
+            eventQueue.registerListener(statsService);
+            XliffService xliffService = new OkapiXliffService(cfgService, eventQueue);
+            SegmentService segmentService = new SegmentServiceImpl(eventQueue);
+
+            XLIFFDocument xliff = xliffService.parse(file);
+            try {
+                // Posts the statistics recalculation, handled synchronously
+                segmentService.setSegments(xliff);
+                List<OcelotSegment> segments = xliff.getSegments();
+                report.setSegmentCount(segments.size());
+                for (int i = 0; i < statsService.getNumStats(); i++) {
+                    report.addItsStats(statsService.getItsStatistic(i));
+                }
+                countRuleMatches(segments, report);
+
+                int editDistance = 0;
+                for (int distance : EditDistance.calcEditDistances(segments)) {
+                    editDistance += distance;
+                }
+                report.setEditDistance(editDistance);
+                if (reportDir != null) {
+                    File reportFile = new File(reportDir, getReportFileName(file));
+                    new EditDistanceReportService()
+                            .writeEditDistanceReport(xliff, file.getName(), reportFile);
+                    report.setEditDistanceReport(reportFile);
+                }
+                if (tmService != null) {
+                    searchTms(segments, segmentService, report);
+                }
+            } finally {
+                xliffService.close(xliff);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to process " + file, e);
+            report.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    private void countRuleMatches(List<OcelotSegment> segments, FileReport report) {
+        for (Rule rule : ruleConfig.getRules()) {
+            int matches = 0;
+            for (OcelotSegment segment : segments) {
+                if (rule.matches(segment)) {
+                    matches++;
+                }
+            }
+            report.setRuleMatches(rule.getLabel(), matches);
+        }
+    }
+
+    /**
+     * Searches the TMs once for each distinct source; repetitions get the
+     * score of the first segment of their group.
+     */
+    private void searchTms(List<OcelotSegment> segments, SegmentService segmentService,
+            FileReport report) throws IOException {
+        Map<RepetitionGroup, Float> groupScores = new IdentityHashMap<>();
+        for (OcelotSegment segment : segments) {
+            RepetitionGroup group = segmentService.getRepetitions(segment);
+            Float best = group != null ? groupScores.get(group) : null;
+            if (best == null) {
+                best = 0f;
+                for (TmMatch match : tmService.getFuzzyTermMatches(segment.getSource().getAtoms())) {
+                    best = Math.max(best, match.getMatchScore());
+                }
+                if (group != null) {
+                    groupScores.put(group, best);
+                }
+            }
+            report.addTmMatch(best);
+        }
+    }
+
+    /**
+     * Files with the same name may come from different directories, so the
+     * report names include a hash of the path.
+     */
+    private static String getReportFileName(File file) {
+        return String.format("%s-%08x%s", file.getName(),
+                file.getAbsolutePath().hashCode(), REPORT_FILE_NAME_SUFFIX);
+    }
+
+    public void shutdown() {
+        statsPool.shutdown();
+    }
+}
@@ -0,0 +1,177 @@
+package com.vistatec.ocelot.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+
+import com.vistatec.ocelot.its.stats.model.ITSStats;
+
+/**
+ * Results of the batch processing of one XLIFF file.
+ */
+public class FileReport {
+    /** TM leverage bands, by lowest match score. */
+    static final int[] LEVERAGE_BANDS = { 100, 95, 85, 75, 50 };
+
+    private final File file;
+    private int segmentCount;
+    private final List<ITSStats> itsStats = new ArrayList<>();
+    private final Map<String, Integer> ruleMatches = new LinkedHashMap<>();
+    private int editDistance;
+    private File editDistanceReport;
+    private Map<String, Integer> tmLeverage;
+    private long elapsedMillis;
+    private String error;
+
+    public FileReport(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    void setSegmentCount(int segmentCount) {
+        this.segmentCount = segmentCount;
+    }
+
+    public List<ITSStats> getItsStats() {
+        return Collections.unmodifiableList(itsStats);
+    }
+
+    void addItsStats(ITSStats stats) {
+        itsStats.add(stats);
+    }
+
+    /**
+     * @return the number of segments matching each filter rule, by rule label
+     */
+    public Map<String, Integer> getRuleMatches() {
+        return Collections.unmodifiableMap(ruleMatches);
+    }
+
+    void setRuleMatches(String ruleLabel, int count) {
+        ruleMatches.put(ruleLabel, count);
+    }
+
+    /**
+     * @return the total edit distance of the targets from the original targets
+     */
+    public int getEditDistance() {
+        return editDistance;
+    }
+
+    void setEditDistance(int editDistance) {
+        this.editDistance = editDistance;
+    }
+
+    public File getEditDistanceReport() {
+        return editDistanceReport;
+    }
+
+    void setEditDistanceReport(File editDistanceReport) {
+        this.editDistanceReport = editDistanceReport;
+    }
+
+    /**
+     * @return the number of segments by best TM match band, or null if the TMs
+     * weren't searched
+     */
+    public Map<String, Integer> getTmLeverage() {
+        return tmLeverage;
+    }
+
+    void addTmMatch(float bestScore) {
+        if (tmLeverage == null) {
+            tmLeverage = new LinkedHashMap<>();
+            for (int i = 0; i < LEVERAGE_BANDS.length; i++) {
+                tmLeverage.put(getBandLabel(i), 0);
+            }
+            tmLeverage.put("none", 0);
+        }
+        String band = "none";
+        for (int i = 0; i < LEVERAGE_BANDS.length; i++) {
+            if (bestScore >= LEVERAGE_BANDS[i]) {
+                band = getBandLabel(i);
+                break;
+            }
+        }
+        tmLeverage.put(band, tmLeverage.get(band) + 1);
+    }
+
+    private static String getBandLabel(int band) {
+        int low = LEVERAGE_BANDS[band];
+        return band == 0 ? Integer.toString(low) : low + "-" + (LEVERAGE_BANDS[band - 1] - 1);
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return why the file couldn't be processed, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    public boolean hasError() {
+        return error != null;
+    }
+
+    /**
+     * @return the report as a single line of JSON
+     */
+    public String toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("file", file.getPath());
+        if (error != null) {
+            node.put("error", error);
+        } else {
+            node.put("segments", segmentCount);
+            ArrayNode stats = node.putArray("itsStats");
+            for (ITSStats stat : itsStats) {
+                ObjectNode statNode = stats.addObject();
+                statNode.put("dataCategory", stat.getDataCategory());
+                statNode.put("type", stat.getType());
+                statNode.put("value", stat.getValue());
+                statNode.put("count", stat.getCount());
+            }
+            ObjectNode rules = node.putObject("ruleMatches");
+            for (Map.Entry<String, Integer> rule : ruleMatches.entrySet()) {
+                rules.put(rule.getKey(), rule.getValue());
+            }
+            node.put("editDistance", editDistance);
+            if (editDistanceReport != null) {
+                node.put("editDistanceReport", editDistanceReport.getPath());
+            }
+            if (tmLeverage != null) {
+                ObjectNode leverage = node.putObject("tmLeverage");
+                for (Map.Entry<String, Integer> band : tmLeverage.entrySet()) {
+                    leverage.put(band.getKey(), band.getValue());
+                }
+            }
+        }
+        node.put("elapsedMillis", elapsedMillis);
+        return node.toString();
+    }
+}
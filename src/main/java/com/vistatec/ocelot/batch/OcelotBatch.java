@@ -0,0 +1,179 @@
+package com.vistatec.ocelot.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.PropertyConfigurator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.CharSink;
+import com.google.common.io.Files;
+import com.vistatec.ocelot.config.DirectoryBasedConfigs;
+import com.vistatec.ocelot.config.OcelotConfigService;
+import com.vistatec.ocelot.config.OcelotXmlConfigTransferService;
+import com.vistatec.ocelot.rules.RuleConfiguration;
+import com.vistatec.ocelot.rules.RulesParser;
+import com.vistatec.ocelot.tm.TmService;
+import com.vistatec.ocelot.tm.okapi.OkapiTmManager;
+import com.vistatec.ocelot.tm.okapi.OkapiTmService;
+import com.vistatec.ocelot.tm.penalty.SimpleTmPenalizer;
+
+/**
+ * Command line entry point for processing XLIFF files without the UI.
+ * A line of JSON is written to reports.jsonl in the output directory for
+ * each file as it completes, along with its edit distance report.
+ */
+public class OcelotBatch {
+    private static final String USAGE =
+            "Usage: OcelotBatch [options] <file or directory>...\n"
+            + "  -o, --output <dir>   report directory (default: ocelot-reports)\n"
+            + "  -j, --threads <n>    number of files processed at once\n"
+            + "                       (default: number of processors)\n"
+            + "  -c, --config <dir>   Ocelot configuration directory\n"
+            + "                       (default: ~/.ocelot)\n"
+            + "  --tm                 search the configured TMs for leverage";
+
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_USAGE = 2;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        if (System.getProperty("log4j.configuration") == null) {
+            PropertyConfigurator.configure(OcelotBatch.class
+                    .getResourceAsStream("/log4j.properties"));
+        } else {
+            PropertyConfigurator.configure(System
+                    .getProperty("log4j.configuration"));
+        }
+
+        File outputDir = new File("ocelot-reports");
+        File configDir = new File(System.getProperty("user.home"), ".ocelot");
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean searchTms = false;
+        List<File> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-o") || arg.equals("--output")) {
+                    outputDir = new File(getValue(args, ++i, arg));
+                } else if (arg.equals("-j") || arg.equals("--threads")) {
+                    threads = Integer.parseInt(getValue(args, ++i, arg));
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("Invalid number of threads: " + threads);
+                    }
+                } else if (arg.equals("-c") || arg.equals("--config")) {
+                    configDir = new File(getValue(args, ++i, arg));
+                } else if (arg.equals("--tm")) {
+                    searchTms = true;
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    inputs.add(new File(arg));
+                }
+            }
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input files");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        List<File> files = new ArrayList<>();
+        for (File input : inputs) {
+            if (!input.exists()) {
+                System.err.println("No such file: " + input);
+                System.exit(EXIT_USAGE);
+            }
+            if (input.isDirectory()) {
+                collectXliffFiles(input, files);
+            } else {
+                files.add(input);
+            }
+        }
+        Collections.sort(files);
+        outputDir.mkdirs();
+
+        OcelotConfigService cfgService = loadConfigService(configDir);
+        RuleConfiguration ruleConfig = new RulesParser().loadConfig(
+                new DirectoryBasedConfigs(configDir).getRulesReader());
+        TmService tmService = null;
+        if (searchTms) {
+            OkapiTmManager tmManager = new OkapiTmManager(
+                    new File(configDir, "tm"), cfgService, null);
+            tmService = new OkapiTmService(tmManager,
+                    new SimpleTmPenalizer(tmManager), cfgService);
+        }
+
+        BatchProcessor processor = new BatchProcessor(cfgService, ruleConfig,
+                tmService, outputDir);
+        final ObjectMapper mapper = new ObjectMapper();
+        int failures;
+        try (final Writer reports = Files.newWriter(
+                new File(outputDir, "reports.jsonl"), Charset.forName("UTF-8"))) {
+            failures = processor.processAll(files, threads, new BatchProcessor.Listener() {
+                @Override
+                public void fileProcessed(FileReport report) {
+                    try {
+                        reports.write(report.toJson(mapper));
+                        reports.write('\n');
+                        reports.flush();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    System.out.println((report.hasError() ? "FAILED " : "OK     ")
+                            + report.getFile() + " (" + report.getElapsedMillis() + " ms)");
+                }
+            });
+        } finally {
+            processor.shutdown();
+        }
+        System.out.println(files.size() + " files processed, " + failures
+                + " failed; reports in " + outputDir);
+        System.exit(failures > 0 ? EXIT_FAILURES : 0);
+    }
+
+    private static String getValue(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+
+    /**
+     * Adds the .xlf and .xliff files in a directory and its subdirectories.
+     */
+    static void collectXliffFiles(File input, List<File> files) {
+        if (input.isDirectory()) {
+            File[] children = input.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    collectXliffFiles(child, files);
+                }
+            }
+        } else {
+            String name = input.getName().toLowerCase();
+            if (name.endsWith(".xlf") || name.endsWith(".xliff")) {
+                files.add(input);
+            }
+        }
+    }
+
+    private static OcelotConfigService loadConfigService(File configDir) throws Exception {
+        File configFile = new File(configDir, "ocelot_cfg.xml");
+        ByteSource configSource = !configFile.exists() ?
+                ByteSource.empty() :
+                Files.asByteSource(configFile);
+        CharSink configSink = Files.asCharSink(configFile,
+                Charset.forName("UTF-8"));
+        return new OcelotConfigService(new OcelotXmlConfigTransferService(
+                configSource, configSink));
+    }
+}
@@ -15,7 +15,9 @@ import com.vistatec.ocelot.config.xml.TmManagement.TmConfig.TmxFiles;
 import com.vistatec.ocelot.plugins.Plugin;
 
 /**
- * Service for reading/saving configuration values.
+ * Service for reading/saving configuration values. Its methods synchronize
+ * on the service; callers that need several calls to be atomic, or that
+ * use the returned configuration objects, hold the same lock.
  */
 public class OcelotConfigService implements ConfigService {
     private static final Logger LOG = LoggerFactory.getLogger(OcelotConfigService.class);
@@ -29,30 +31,30 @@ public class OcelotConfigService implements ConfigService {
     }
 
     @Override
-    public void saveConfig() throws ConfigTransferService.TransferException {
+    public synchronized void saveConfig() throws ConfigTransferService.TransferException {
         cfgXservice.save(config);
     }
 
     @Override
-    public boolean wasPluginEnabled(Plugin plugin) {
+    public synchronized boolean wasPluginEnabled(Plugin plugin) {
         PluginConfig pcfg = findPluginConfig(plugin);
         return pcfg.getEnabled();
     }
 
     @Override
-    public void enablePlugin(Plugin plugin, boolean enabled) {
+    public synchronized void enablePlugin(Plugin plugin, boolean enabled) {
         PluginConfig pcfg = findPluginConfig(plugin);
         pcfg.setEnabled(enabled);
     }
 
     @Override
-    public void savePluginEnabled(Plugin plugin, boolean enabled) throws ConfigTransferService.TransferException {
+    public synchronized void savePluginEnabled(Plugin plugin, boolean enabled) throws ConfigTransferService.TransferException {
         enablePlugin(plugin, enabled);
         cfgXservice.save(config);
     }
 
     @Override
-    public PluginConfig findPluginConfig(Plugin plugin) {
+    public synchronized PluginConfig findPluginConfig(Plugin plugin) {
         PluginConfig foundPluginConfig = null;
         for (PluginConfig pcfg : config.getPlugins()) {
             if (pcfg.matches(plugin)) {
@@ -68,14 +70,14 @@ public class OcelotConfigService implements ConfigService {
     }
 
     @Override
-    public UserProvenance getUserProvenance() {
+    public synchronized UserProvenance getUserProvenance() {
         return new UserProvenance(config.getUserProvenance().getRevPerson(),
                 config.getUserProvenance().getRevOrganization(),
                 config.getUserProvenance().getExternalReference());
     }
 
     @Override
-    public void saveUserProvenance(UserProvenance prov) throws ConfigTransferService.TransferException {
+    public synchronized void saveUserProvenance(UserProvenance prov) throws ConfigTransferService.TransferException {
         ProvenanceConfig pConfig = config.getUserProvenance();
         pConfig.setRevPerson(prov.getRevPerson());
         pConfig.setRevOrganization(prov.getRevOrg());
@@ -84,40 +86,40 @@ public class OcelotConfigService implements ConfigService {
     }
 
     @Override
-    public double getFuzzyThreshold() {
+    public synchronized double getFuzzyThreshold() {
         return config.getTmManagement().getFuzzyThreshold();
     }
 
     @Override
-    public void saveFuzzyThreshold(float threshold) throws ConfigTransferService.TransferException {
+    public synchronized void saveFuzzyThreshold(float threshold) throws ConfigTransferService.TransferException {
         config.getTmManagement().setFuzzyThreshold(threshold);
         cfgXservice.save(config);
     }
 
     @Override
-    public int getMaxResults() {
+    public synchronized int getMaxResults() {
         return config.getTmManagement().getMaxResults();
     }
 
     @Override
-    public void saveMaxResults(int maxResults) throws ConfigTransferService.TransferException {
+    public synchronized void saveMaxResults(int maxResults) throws ConfigTransferService.TransferException {
         config.getTmManagement().setMaxResults(maxResults);
         cfgXservice.save(config);
     }
 
     @Override
-    public List<TmManagement.TmConfig> getTms() {
+    public synchronized List<TmManagement.TmConfig> getTms() {
         return config.getTmManagement().getTms();
     }
 
     @Override
-    public void saveTms(List<TmManagement.TmConfig> tmConfig) throws ConfigTransferService.TransferException {
+    public synchronized void saveTms(List<TmManagement.TmConfig> tmConfig) throws ConfigTransferService.TransferException {
         config.getTmManagement().setTm(tmConfig);
         cfgXservice.save(config);
     }
 
     @Override
-    public TmManagement.TmConfig getTmConfig(String tmName) {
+    public synchronized TmManagement.TmConfig getTmConfig(String tmName) {
         for (TmManagement.TmConfig tm : config.getTmManagement().getTms()) {
             if (tm.getTmName().equals(tmName)) {
                 return tm;
@@ -127,7 +129,7 @@ public class OcelotConfigService implements ConfigService {
     }
 
     @Override
-    public void enableTm(String tmName, boolean enable) throws ConfigTransferService.TransferException {
+    public synchronized void enableTm(String tmName, boolean enable) throws ConfigTransferService.TransferException {
         TmManagement.TmConfig tmConfig = getTmConfig(tmName);
         if (tmConfig == null) {
             LOG.error("Missing TM configuration for '{}'", tmName);
@@ -138,13 +140,13 @@ public class OcelotConfigService implements ConfigService {
     }
 
     @Override
-    public void saveTmDataDir(TmManagement.TmConfig tm, String tmDataDir) throws ConfigTransferService.TransferException {
+    public synchronized void saveTmDataDir(TmManagement.TmConfig tm, String tmDataDir) throws ConfigTransferService.TransferException {
         tm.setTmDataDir(tmDataDir);
         cfgXservice.save(config);
     }
 
     @Override
-    public TmManagement.TmConfig createNewTmConfig(String tmName, boolean enabled, String tmDataDir) throws ConfigTransferService.TransferException {
+    public synchronized TmManagement.TmConfig createNewTmConfig(String tmName, boolean enabled, String tmDataDir) throws ConfigTransferService.TransferException {
         TmManagement.TmConfig newTmConfig = new TmManagement.TmConfig();
         newTmConfig.setTmName(tmName);
         newTmConfig.setEnabled(enabled);
@@ -154,7 +156,7 @@ public class OcelotConfigService implements ConfigService {
         return newTmConfig;
     }
     
-    public TmConfig createNewTmConfig(String tmName, boolean enabled, String tmDataDir,
+    public synchronized TmConfig createNewTmConfig(String tmName, boolean enabled, String tmDataDir,
 	        List<String> tmxFiles) throws TransferException {
 		TmManagement.TmConfig newTmConfig = new TmManagement.TmConfig();
 		newTmConfig.setTmName(tmName);
@@ -172,7 +174,7 @@ public class OcelotConfigService implements ConfigService {
     
 
 	@Override
-	public TmConfig createNewTmConfig(String tmName, boolean enabled,
+	public synchronized TmConfig createNewTmConfig(String tmName, boolean enabled,
 	        List<String> tmxFiles) throws TransferException {
 		TmManagement.TmConfig newTmConfig = new TmManagement.TmConfig();
 		newTmConfig.setTmName(tmName);
@@ -3,16 +3,23 @@ package com.vistatec.ocelot.di;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.EventBus;
+import com.google.common.base.Throwables;
 import com.google.common.io.ByteSource;
 import com.google.common.io.CharSink;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.AbstractModule;
 import com.google.inject.Scopes;
 import com.vistatec.ocelot.DefaultPlatformSupport;
@@ -27,8 +34,11 @@ import com.vistatec.ocelot.config.DirectoryBasedConfigs;
 import com.vistatec.ocelot.config.LQIXmlConfigTransferService;
 import com.vistatec.ocelot.config.LqiConfigService;
 import com.vistatec.ocelot.config.OcelotConfigService;
+import com.vistatec.ocelot.freme.gui.LinkImageLoader;
 import com.vistatec.ocelot.config.OcelotXmlConfigTransferService;
-import com.vistatec.ocelot.events.api.EventBusWrapper;
+import com.vistatec.ocelot.events.api.EventQueueMetrics;
+import com.vistatec.ocelot.events.api.EventQueueMetricsReporter;
+import com.vistatec.ocelot.events.api.LaneEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.findrep.FindAndReplaceController;
 import com.vistatec.ocelot.its.stats.model.ITSDocStats;
@@ -37,6 +47,7 @@ import com.vistatec.ocelot.lqi.constants.LQIConstants;
 import com.vistatec.ocelot.plugins.PluginManager;
 import com.vistatec.ocelot.rules.RuleConfiguration;
 import com.vistatec.ocelot.rules.RulesParser;
+import com.vistatec.ocelot.services.EditDistanceReportService;
 import com.vistatec.ocelot.services.ITSDocStatsService;
 import com.vistatec.ocelot.services.OkapiXliffService;
 import com.vistatec.ocelot.services.ProvenanceService;
@@ -51,6 +62,8 @@ import com.vistatec.ocelot.tm.okapi.OkapiTmManager;
 import com.vistatec.ocelot.tm.okapi.OkapiTmService;
 import com.vistatec.ocelot.tm.okapi.OkapiTmxWriter;
 import com.vistatec.ocelot.tm.penalty.SimpleTmPenalizer;
+import com.vistatec.ocelot.workspace.ProjectSearch;
+import com.vistatec.ocelot.workspace.Workspace;
 
 /**
  * Main Ocelot object dependency context module.
@@ -58,10 +71,20 @@ import com.vistatec.ocelot.tm.penalty.SimpleTmPenalizer;
 public class OcelotModule extends AbstractModule {
     private static final Logger LOG = LoggerFactory.getLogger(OcelotModule.class);
 
+    private final StartupTimer startupTimer = new StartupTimer();
+
+    /**
+     * Independent parts of the configuration (the config files, rules and
+     * plugins) are loaded in parallel, and TMs are verified in the
+     * background once the module has been configured.
+     */
     @Override
     protected void configure() {
-        OcelotEventQueue eventQueue = new EventBusWrapper(new EventBus());
+        bind(StartupTimer.class).toInstance(startupTimer);
+        LaneEventQueue eventQueue = new LaneEventQueue();
         bind(OcelotEventQueue.class).toInstance(eventQueue);
+        EventQueueMetrics eventMetrics = new EventQueueMetrics();
+        bind(EventQueueMetrics.class).toInstance(eventMetrics);
         ITSDocStats docStats = new ITSDocStats();
         bind(ITSDocStats.class).toInstance(docStats);
 
@@ -81,19 +104,69 @@ public class OcelotModule extends AbstractModule {
         TmGuiManager tmGuiManager = null;
         LQIGridController lqiGridController = null;
         FindAndReplaceController frController = null;
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(3,
+                new ThreadFactoryBuilder().setNameFormat("ocelot-startup-%d")
+                        .setDaemon(true).build());
         try {
-            File ocelotDir = new File(System.getProperty("user.home"), ".ocelot");
+            final File ocelotDir = new File(System.getProperty("user.home"), ".ocelot");
             ocelotDir.mkdirs();
+            setupEventMetrics(eventQueue, eventMetrics, ocelotDir);
 
-            Configs configs = new DirectoryBasedConfigs(ocelotDir);
+            final Configs configs = new DirectoryBasedConfigs(ocelotDir);
 
-            cfgService = setupConfigService(ocelotDir);
-			lqiCfgService = setupLQIConfigService(ocelotDir);
-            ruleConfig = new RulesParser().loadConfig(configs.getRulesReader());
+            Future<OcelotConfigService> cfgFuture = startupExecutor.submit(
+                    new Callable<OcelotConfigService>() {
+                @Override
+                public OcelotConfigService call() throws Exception {
+                    long start = startupTimer.start();
+                    OcelotConfigService service = setupConfigService(ocelotDir);
+                    startupTimer.record("Ocelot configuration", start);
+                    return service;
+                }
+            });
+            Future<LqiConfigService> lqiCfgFuture = startupExecutor.submit(
+                    new Callable<LqiConfigService>() {
+                @Override
+                public LqiConfigService call() throws Exception {
+                    long start = startupTimer.start();
+                    LqiConfigService service = setupLQIConfigService(ocelotDir);
+                    startupTimer.record("LQI configuration", start);
+                    return service;
+                }
+            });
+            Future<RuleConfiguration> ruleFuture = startupExecutor.submit(
+                    new Callable<RuleConfiguration>() {
+                @Override
+                public RuleConfiguration call() throws Exception {
+                    long start = startupTimer.start();
+                    RuleConfiguration rules = new RulesParser().loadConfig(
+                            configs.getRulesReader());
+                    startupTimer.record("Rules", start);
+                    return rules;
+                }
+            });
 
-            pluginManager = new PluginManager(cfgService, new File(ocelotDir, "plugins"), eventQueue);
-            pluginManager.discover();
-            eventQueue.registerListener(pluginManager);
+            cfgService = getStartupResult(cfgFuture);
+            // Plugins are configured with the enabled state saved in the
+            // config, but are otherwise independent of the other services
+            final PluginManager plugins = new PluginManager(cfgService,
+                    new File(ocelotDir, "plugins"), eventQueue);
+            plugins.setDiscoveryCache(new File(ocelotDir, "plugin_cache.properties"));
+            plugins.setEnrichmentCache(new File(ocelotDir, "freme_cache.json"));
+            LinkImageLoader.setInstance(new LinkImageLoader(
+                    new File(ocelotDir, "freme_images"),
+                    LinkImageLoader.DEFAULT_MEMORY_ENTRIES,
+                    LinkImageLoader.DEFAULT_THREADS));
+            Future<PluginManager> pluginFuture = startupExecutor.submit(
+                    new Callable<PluginManager>() {
+                @Override
+                public PluginManager call() throws Exception {
+                    long start = startupTimer.start();
+                    plugins.discover();
+                    startupTimer.record("Plugin discovery", start);
+                    return plugins;
+                }
+            });
 
             SegmentService segmentService = new SegmentServiceImpl(eventQueue);
             bind(SegmentService.class).toInstance(segmentService);
@@ -103,13 +176,16 @@ public class OcelotModule extends AbstractModule {
             tm.mkdirs();
             OkapiTmxWriter tmxWriter = new OkapiTmxWriter(segmentService);
             eventQueue.registerListener(tmxWriter);
-            tmManager = new OkapiTmManager(tm, cfgService, tmxWriter);
-            
+            long tmStart = startupTimer.start();
+            tmManager = new OkapiTmManager(tm, cfgService, tmxWriter, false);
+
             bind(OkapiTmManager.class).toInstance((OkapiTmManager) tmManager);
             penalizer = new SimpleTmPenalizer(tmManager);
             tmService = new OkapiTmService((OkapiTmManager)tmManager, penalizer, cfgService);
             tmGuiManager = new TmGuiManager(tmManager, tmService, eventQueue, cfgService);
-            
+            startupTimer.record("TM services", tmStart);
+
+            lqiCfgService = getStartupResult(lqiCfgFuture);
             lqiGridController = new LQIGridController(lqiCfgService, eventQueue,
                                                       platformSupport);
             eventQueue.registerListener(lqiGridController);
@@ -117,9 +193,17 @@ public class OcelotModule extends AbstractModule {
             
             frController = new FindAndReplaceController(eventQueue);
             eventQueue.registerListener(frController);
+
+            ruleConfig = getStartupResult(ruleFuture);
+            pluginManager = getStartupResult(pluginFuture);
+            eventQueue.registerListener(pluginManager);
+
+            startVerifyingTms((OkapiTmManager) tmManager);
         } catch (IOException | JAXBException | ConfigTransferService.TransferException ex) {
             LOG.error("Failed to initialize configuration", ex);
             System.exit(1);
+        } finally {
+            startupExecutor.shutdown();
         }
 
         bind(RuleConfiguration.class).toInstance(ruleConfig);
@@ -133,6 +217,75 @@ public class OcelotModule extends AbstractModule {
 		bindServices(eventQueue, cfgService, lqiCfgService, docStats);
     }
     
+    /**
+     * Wait for a startup task, rethrowing the configuration errors it may
+     * have failed with.
+     */
+    private static <T> T getStartupResult(Future<T> future) throws IOException,
+            JAXBException, ConfigTransferService.TransferException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during startup", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.propagateIfInstanceOf(cause, IOException.class);
+            Throwables.propagateIfInstanceOf(cause, JAXBException.class);
+            Throwables.propagateIfInstanceOf(cause,
+                    ConfigTransferService.TransferException.class);
+            throw Throwables.propagate(cause);
+        }
+    }
+
+    /**
+     * Verifying the TMs may rebuild their indexes, so do it in the
+     * background. TMs can't be searched until they have been verified.
+     */
+    private void startVerifyingTms(final OkapiTmManager tmManager) {
+        Thread verifier = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = startupTimer.start();
+                try {
+                    tmManager.verifyTms();
+                } catch (IOException | ConfigTransferService.TransferException e) {
+                    LOG.error("Failed to verify TMs", e);
+                }
+                startupTimer.record("TM verification", start);
+            }
+        }, "ocelot-tm-verification");
+        verifier.setDaemon(true);
+        verifier.start();
+    }
+
+    /**
+     * Event queue metrics are on unless -Docelot.eventMetrics=false. They
+     * are dumped every ocelot.eventMetrics.interval seconds (default 300).
+     */
+    private void setupEventMetrics(LaneEventQueue eventQueue,
+            EventQueueMetrics eventMetrics, File ocelotDir) {
+        if (!Boolean.valueOf(System.getProperty("ocelot.eventMetrics", "true"))) {
+            return;
+        }
+        eventQueue.setMetrics(eventMetrics);
+        long interval = 300;
+        String val = System.getProperty("ocelot.eventMetrics.interval");
+        if (val != null) {
+            try {
+                interval = Long.parseLong(val);
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring unparsable ocelot.eventMetrics.interval value '"
+                        + val + "'");
+            }
+        }
+        if (interval > 0) {
+            new EventQueueMetricsReporter(eventMetrics,
+                    new File(ocelotDir, "event_metrics.json"))
+                    .start(interval, TimeUnit.SECONDS);
+        }
+    }
+
     public static PlatformSupport getPlatformSupport() {
         String os = System.getProperty("os.name");
         if (os.startsWith("Mac")) {
@@ -159,7 +312,13 @@ public class OcelotModule extends AbstractModule {
         XliffService xliffService = new OkapiXliffService(cfgService, eventQueue);
         bind(XliffService.class).toInstance(xliffService);
         eventQueue.registerListener(xliffService);
+        Workspace workspace = new Workspace(xliffService);
+        bind(Workspace.class).toInstance(workspace);
+        bind(ProjectSearch.class).toInstance(new ProjectSearch(xliffService, workspace));
 
+        EditDistanceReportService editDistService = new EditDistanceReportService();
+        bind(EditDistanceReportService.class).toInstance(editDistService);
+        eventQueue.registerListener(editDistService);
     }
 
     private OcelotConfigService setupConfigService(File ocelotDir) throws ConfigTransferService.TransferException, JAXBException {
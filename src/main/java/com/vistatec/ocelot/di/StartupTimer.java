@@ -0,0 +1,67 @@
+package com.vistatec.ocelot.di;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records how long each phase of application startup took, and on which
+ * thread, so that the breakdown can be logged once the UI is up.
+ */
+public class StartupTimer {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupTimer.class);
+
+    private final long startNanos;
+    private final List<String> phases = new ArrayList<String>();
+
+    public StartupTimer() {
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return a start time to pass to {@link #record(String, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a phase that began at the given {@link #start()} time and has
+     * just ended.
+     */
+    public void record(String phase, long phaseStartNanos) {
+        long now = System.nanoTime();
+        String entry = String.format("%-28s %6d ms (ended at %6d ms, %s)",
+                phase, toMillis(now - phaseStartNanos), toMillis(now - startNanos),
+                Thread.currentThread().getName());
+        synchronized (phases) {
+            phases.add(entry);
+        }
+        LOG.debug("Startup: {}", entry);
+    }
+
+    public long getElapsedMillis() {
+        return toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Log all the phases recorded so far.
+     */
+    public void logSummary(String milestone) {
+        StringBuilder sb = new StringBuilder(milestone).append(" after ")
+                .append(getElapsedMillis()).append(" ms");
+        synchronized (phases) {
+            for (String phase : phases) {
+                sb.append("\n  ").append(phase);
+            }
+        }
+        LOG.info(sb.toString());
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,45 @@
+package com.vistatec.ocelot.events;
+
+import com.vistatec.ocelot.events.api.DispatchLane;
+import com.vistatec.ocelot.events.api.DispatchOn;
+import com.vistatec.ocelot.events.api.OcelotEvent;
+
+/**
+ * Progress of the FREME enrichment of the open document.
+ */
+@DispatchOn(DispatchLane.UI)
+public class EnrichmentProgressEvent implements OcelotEvent {
+
+	private final int total;
+
+	private final int enriched;
+
+	private final int failed;
+
+	private final boolean finished;
+
+	public EnrichmentProgressEvent(int total, int enriched, int failed,
+			boolean finished) {
+
+		this.total = total;
+		this.enriched = enriched;
+		this.failed = failed;
+		this.finished = finished;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getEnriched() {
+		return enriched;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+}
@@ -1,6 +1,14 @@
 package com.vistatec.ocelot.events;
 
-import com.vistatec.ocelot.events.api.OcelotEvent;
+import com.vistatec.ocelot.events.api.CoalescingEvent;
+import com.vistatec.ocelot.events.api.DispatchLane;
+import com.vistatec.ocelot.events.api.DispatchOn;
 
-public class ItsDocStatsChangedEvent implements OcelotEvent {
+@DispatchOn(DispatchLane.UI)
+public class ItsDocStatsChangedEvent implements CoalescingEvent {
+
+    @Override
+    public Object getCoalescingKey() {
+        return ItsDocStatsChangedEvent.class;
+    }
 }
@@ -1,18 +1,16 @@
 package com.vistatec.ocelot.events;
 
-import java.util.List;
-
 import com.vistatec.ocelot.events.api.OcelotEvent;
-import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 
 public class ItsDocStatsRemovedLqiEvent implements OcelotEvent {
-    private final List<OcelotSegment> segments;
+    private final LanguageQualityIssue lqi;
 
-    public ItsDocStatsRemovedLqiEvent(List<OcelotSegment> segments) {
-        this.segments = segments;
+    public ItsDocStatsRemovedLqiEvent(LanguageQualityIssue lqi) {
+        this.lqi = lqi;
     }
 
-    public List<OcelotSegment> getSegments() {
-        return this.segments;
+    public LanguageQualityIssue getLqi() {
+        return this.lqi;
     }
 }
@@ -0,0 +1,26 @@
+package com.vistatec.ocelot.events;
+
+import com.vistatec.ocelot.events.api.DispatchLane;
+import com.vistatec.ocelot.events.api.DispatchOn;
+import com.vistatec.ocelot.events.api.OcelotEvent;
+import com.vistatec.ocelot.its.stats.model.ITSDocStats;
+
+/**
+ * Signals that ITS metadata was removed from the document, eg. when
+ * enrichments are reset; carries the statistics of the removed metadata.
+ * <p>
+ * Delivered on the event dispatch thread, like
+ * {@link ItsDocStatsUpdateMetadataEvent}.
+ */
+@DispatchOn(DispatchLane.UI)
+public class ItsDocStatsRemovedMetadataEvent implements OcelotEvent {
+    private final ITSDocStats removedStats;
+
+    public ItsDocStatsRemovedMetadataEvent(ITSDocStats removedStats) {
+        this.removedStats = removedStats;
+    }
+
+    public ITSDocStats getRemovedStats() {
+        return this.removedStats;
+    }
+}
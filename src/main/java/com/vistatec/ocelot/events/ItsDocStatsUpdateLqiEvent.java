@@ -5,12 +5,28 @@ import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 
 public class ItsDocStatsUpdateLqiEvent implements OcelotEvent {
     private final LanguageQualityIssue lqi;
+    private final LanguageQualityIssue previousLqi;
 
     public ItsDocStatsUpdateLqiEvent(LanguageQualityIssue lqi) {
+        this(lqi, null);
+    }
+
+    /**
+     * @param lqi the added or edited issue
+     * @param previousLqi a copy of the issue as it was before it was
+     * edited, whose statistics are replaced; null for a new issue
+     */
+    public ItsDocStatsUpdateLqiEvent(LanguageQualityIssue lqi,
+            LanguageQualityIssue previousLqi) {
         this.lqi = lqi;
+        this.previousLqi = previousLqi;
     }
 
     public LanguageQualityIssue getLqi() {
         return this.lqi;
     }
+
+    public LanguageQualityIssue getPreviousLqi() {
+        return this.previousLqi;
+    }
 }
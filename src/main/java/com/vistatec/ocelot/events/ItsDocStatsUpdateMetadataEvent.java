@@ -0,0 +1,34 @@
+package com.vistatec.ocelot.events;
+
+import com.vistatec.ocelot.events.api.DispatchLane;
+import com.vistatec.ocelot.events.api.DispatchOn;
+import com.vistatec.ocelot.events.api.OcelotEvent;
+import com.vistatec.ocelot.its.stats.model.ITSDocStats;
+
+/**
+ * Signals that ITS metadata of the document changed, eg. when a batch of
+ * enrichments was converted to metadata; carries the statistics of the
+ * metadata as it was before and after the change.
+ * <p>
+ * Delivered on the event dispatch thread, where the other statistics
+ * changes are applied, as it is posted from the enrichment threads.
+ */
+@DispatchOn(DispatchLane.UI)
+public class ItsDocStatsUpdateMetadataEvent implements OcelotEvent {
+    private final ITSDocStats addedStats;
+    private final ITSDocStats removedStats;
+
+    public ItsDocStatsUpdateMetadataEvent(ITSDocStats addedStats,
+            ITSDocStats removedStats) {
+        this.addedStats = addedStats;
+        this.removedStats = removedStats;
+    }
+
+    public ITSDocStats getAddedStats() {
+        return this.addedStats;
+    }
+
+    public ITSDocStats getRemovedStats() {
+        return this.removedStats;
+    }
+}
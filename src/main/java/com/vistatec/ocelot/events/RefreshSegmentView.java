@@ -1,18 +1,55 @@
 package com.vistatec.ocelot.events;
 
-import com.vistatec.ocelot.events.api.OcelotEvent;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
-public class RefreshSegmentView implements OcelotEvent {
+import com.vistatec.ocelot.events.api.CoalescingEvent;
+import com.vistatec.ocelot.events.api.DispatchLane;
+import com.vistatec.ocelot.events.api.DispatchOn;
+
+@DispatchOn(DispatchLane.UI)
+public class RefreshSegmentView implements CoalescingEvent {
 	
 	private int segmentNumber;
 
+	private SortedSet<Integer> segmentNumbers;
+
+	/**
+	 * @param segmentNumber
+	 *            the segment to refresh, or -1 to refresh all of them
+	 */
 	public RefreshSegmentView(final int segmentNumber) {
 
 		this.segmentNumber = segmentNumber;
+		this.segmentNumbers = new TreeSet<Integer>(
+				Collections.singleton(segmentNumber));
+	}
+
+	/**
+	 * Refresh several segments at once, eg. a batch of enriched segments.
+	 */
+	public RefreshSegmentView(final Collection<Integer> segmentNumbers) {
+
+		this.segmentNumbers = new TreeSet<Integer>(segmentNumbers);
+		this.segmentNumber = this.segmentNumbers.first();
 	}
 
+	/**
+	 * @return the first segment to refresh
+	 */
 	public int getSegmentNumber() {
 		return segmentNumber;
 	}
 
+	public SortedSet<Integer> getSegmentNumbers() {
+		return Collections.unmodifiableSortedSet(segmentNumbers);
+	}
+
+	@Override
+	public Object getCoalescingKey() {
+		return segmentNumbers;
+	}
+
 }
@@ -0,0 +1,28 @@
+package com.vistatec.ocelot.events;
+
+import java.util.List;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * Signals that the target of an edited segment has been copied to its
+ * repetitions. The edited segment itself gets its own
+ * {@link SegmentEditEvent}; this event covers all the repetitions at once.
+ */
+public class RepetitionsUpdatedEvent extends SegmentEvent {
+    private final List<OcelotSegment> repetitions;
+
+    public RepetitionsUpdatedEvent(XLIFFDocument xliff, OcelotSegment segment,
+            List<OcelotSegment> repetitions) {
+        super(xliff, segment);
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * @return the segments whose target has been updated, in document order
+     */
+    public List<OcelotSegment> getRepetitions() {
+        return repetitions;
+    }
+}
@@ -6,13 +6,28 @@ import com.vistatec.ocelot.xliff.XLIFFDocument;
 
 public class SegmentTargetUpdateEvent extends SegmentEvent {
     private final SegmentVariant updatedTarget;
+    private final boolean confirmed;
 
     public SegmentTargetUpdateEvent(XLIFFDocument xliff, OcelotSegment segment, SegmentVariant updatedTarget) {
+        this(xliff, segment, updatedTarget, false);
+    }
+
+    /**
+     * @param confirmed whether the user has finished editing the target, in
+     *        which case it may be copied to the repetitions of the segment
+     */
+    public SegmentTargetUpdateEvent(XLIFFDocument xliff, OcelotSegment segment,
+            SegmentVariant updatedTarget, boolean confirmed) {
         super(xliff, segment);
         this.updatedTarget = updatedTarget;
+        this.confirmed = confirmed;
     }
 
     public SegmentVariant getUpdatedTarget() {
         return this.updatedTarget;
     }
+
+    public boolean isConfirmed() {
+        return confirmed;
+    }
 }
@@ -0,0 +1,27 @@
+package com.vistatec.ocelot.events;
+
+import com.vistatec.ocelot.events.api.OcelotEvent;
+
+/**
+ * Posted when the range of segments displayed in the segment view changes.
+ */
+public class SegmentsVisibleEvent implements OcelotEvent {
+
+	private final int firstSegmentNumber;
+
+	private final int lastSegmentNumber;
+
+	public SegmentsVisibleEvent(int firstSegmentNumber, int lastSegmentNumber) {
+
+		this.firstSegmentNumber = firstSegmentNumber;
+		this.lastSegmentNumber = lastSegmentNumber;
+	}
+
+	public int getFirstSegmentNumber() {
+		return firstSegmentNumber;
+	}
+
+	public int getLastSegmentNumber() {
+		return lastSegmentNumber;
+	}
+}
@@ -0,0 +1,16 @@
+package com.vistatec.ocelot.events.api;
+
+/**
+ * An event for which only one delivery is needed when several equivalent
+ * events are posted in quick succession, such as requests to refresh a
+ * view. While an event is waiting to be delivered on the
+ * {@link DispatchLane#UI} or {@link DispatchLane#BACKGROUND} lane, further
+ * events of the same class with an equal coalescing key are dropped.
+ */
+public interface CoalescingEvent extends OcelotEvent {
+
+    /**
+     * @return key identifying equivalent events of this class
+     */
+    public Object getCoalescingKey();
+}
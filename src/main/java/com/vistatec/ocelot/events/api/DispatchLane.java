@@ -0,0 +1,25 @@
+package com.vistatec.ocelot.events.api;
+
+/**
+ * The threads on which a {@link LaneEventQueue} delivers events to a
+ * subscriber.
+ */
+public enum DispatchLane {
+    /**
+     * Delivered on the posting thread before {@code post()} returns, in the
+     * same order as a synchronous {@link com.google.common.eventbus.EventBus}.
+     */
+    DIRECT,
+
+    /**
+     * Delivered on the Swing event dispatch thread; inline when posted from
+     * it, otherwise on the next turn of the event loop.
+     */
+    UI,
+
+    /**
+     * Delivered in posting order on a single background thread, so slow
+     * subscribers don't hold up the poster.
+     */
+    BACKGROUND;
+}
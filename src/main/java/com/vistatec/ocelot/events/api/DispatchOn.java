@@ -0,0 +1,21 @@
+package com.vistatec.ocelot.events.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the {@link DispatchLane} used by a {@link LaneEventQueue}. On an
+ * {@link OcelotEventQueueListener} class it applies to all of the
+ * listener's subscriber methods; on an {@link OcelotEvent} class it applies
+ * to every delivery of that event, and takes precedence over the listener.
+ * Subclasses inherit the lane of their superclass.
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DispatchOn {
+    DispatchLane value();
+}
@@ -0,0 +1,313 @@
+package com.vistatec.ocelot.events.api;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Counters and latency histograms for the events delivered by a
+ * {@link LaneEventQueue}, kept per event type and per subscriber method.
+ * <p>
+ * Recording a delivery only updates a few atomic counters, so the metrics
+ * are cheap enough to leave switched on. Latencies are counted in
+ * power-of-two buckets of microseconds, which makes the reported
+ * percentiles upper bounds accurate to within a factor of two.
+ */
+public class EventQueueMetrics {
+    static final int BUCKETS = 32;
+
+    private final ConcurrentMap<Class<?>, Stats> eventStats =
+            new ConcurrentHashMap<Class<?>, Stats>();
+    private final ConcurrentMap<Method, Stats> subscriberStats =
+            new ConcurrentHashMap<Method, Stats>();
+    private volatile long startTime = System.currentTimeMillis();
+
+    /**
+     * Record that an event was posted.
+     * @param cascadeDepth 0 for events posted from outside any subscriber,
+     * otherwise one more than the depth of the event whose subscriber
+     * posted it
+     */
+    public void eventPosted(Class<?> eventClass, int cascadeDepth) {
+        Stats stats = getStats(eventStats, eventClass,
+                eventClass.getSimpleName());
+        stats.count.incrementAndGet();
+        stats.updateMaxDepth(cascadeDepth);
+    }
+
+    /**
+     * Record the time a subscriber method took to handle an event.
+     */
+    public void eventHandled(Class<?> eventClass, Method subscriber,
+            int cascadeDepth, long nanos) {
+        getStats(eventStats, eventClass, eventClass.getSimpleName())
+                .addLatency(nanos);
+        Stats stats = getStats(subscriberStats, subscriber,
+                subscriber.getDeclaringClass().getSimpleName() + "."
+                + subscriber.getName() + "("
+                + subscriber.getParameterTypes()[0].getSimpleName() + ")");
+        stats.count.incrementAndGet();
+        stats.addLatency(nanos);
+        stats.updateMaxDepth(cascadeDepth);
+    }
+
+    private static <K> Stats getStats(ConcurrentMap<K, Stats> statsMap, K key,
+            String name) {
+        Stats stats = statsMap.get(key);
+        if (stats == null) {
+            statsMap.putIfAbsent(key, new Stats(name));
+            stats = statsMap.get(key);
+        }
+        return stats;
+    }
+
+    /**
+     * Statistics for each event type, the most time consuming first. The
+     * count is the number of times the event was posted, the latencies are
+     * those of its deliveries to individual subscribers.
+     */
+    public List<Snapshot> getEventSnapshots() {
+        return snapshot(eventStats.values());
+    }
+
+    /**
+     * Statistics for each subscriber method, the most time consuming first.
+     */
+    public List<Snapshot> getSubscriberSnapshots() {
+        return snapshot(subscriberStats.values());
+    }
+
+    private static List<Snapshot> snapshot(Iterable<Stats> statsList) {
+        List<Snapshot> snapshots = new ArrayList<Snapshot>();
+        for (Stats stats : statsList) {
+            snapshots.add(stats.snapshot());
+        }
+        Collections.sort(snapshots, new Comparator<Snapshot>() {
+            @Override
+            public int compare(Snapshot s1, Snapshot s2) {
+                return Long.compare(s2.getTotalNanos(), s1.getTotalNanos());
+            }
+        });
+        return snapshots;
+    }
+
+    public void reset() {
+        eventStats.clear();
+        subscriberStats.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * One line per event type and subscriber, for logging.
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder("Event queue metrics since ")
+                .append(new Date(startTime));
+        sb.append("\nEvents:");
+        for (Snapshot snapshot : getEventSnapshots()) {
+            sb.append("\n  ").append(snapshot);
+        }
+        sb.append("\nSubscribers:");
+        for (Snapshot snapshot : getSubscriberSnapshots()) {
+            sb.append("\n  ").append(snapshot);
+        }
+        return sb.toString();
+    }
+
+    public String toJson() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeJson(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    public void writeJson(Writer writer) throws IOException {
+        JsonGenerator json = new JsonFactory().createJsonGenerator(writer);
+        json.useDefaultPrettyPrinter();
+        json.writeStartObject();
+        json.writeNumberField("since", startTime);
+        json.writeNumberField("timestamp", System.currentTimeMillis());
+        writeSnapshots(json, "events", getEventSnapshots());
+        writeSnapshots(json, "subscribers", getSubscriberSnapshots());
+        json.writeEndObject();
+        json.flush();
+    }
+
+    private static void writeSnapshots(JsonGenerator json, String field,
+            List<Snapshot> snapshots) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (Snapshot snapshot : snapshots) {
+            json.writeStartObject();
+            json.writeStringField("name", snapshot.getName());
+            json.writeNumberField("count", snapshot.getCount());
+            json.writeNumberField("deliveries", snapshot.getDeliveries());
+            json.writeNumberField("totalMicros", toMicros(snapshot.getTotalNanos()));
+            json.writeNumberField("maxMicros", toMicros(snapshot.getMaxNanos()));
+            json.writeNumberField("p50Micros", toMicros(snapshot.getPercentileNanos(50)));
+            json.writeNumberField("p90Micros", toMicros(snapshot.getPercentileNanos(90)));
+            json.writeNumberField("p99Micros", toMicros(snapshot.getPercentileNanos(99)));
+            json.writeNumberField("maxCascadeDepth", snapshot.getMaxCascadeDepth());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Histogram bucket for a latency: bucket 0 holds latencies under 1
+     * microsecond, bucket n those under 2^n microseconds.
+     */
+    static int bucket(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static class Stats {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        void addLatency(long nanos) {
+            totalNanos.addAndGet(nanos);
+            histogram.incrementAndGet(bucket(nanos));
+            long max;
+            while (nanos > (max = maxNanos.get())
+                    && !maxNanos.compareAndSet(max, nanos)) {
+                // Retry
+            }
+        }
+
+        void updateMaxDepth(int depth) {
+            int max;
+            while (depth > (max = maxDepth.get())
+                    && !maxDepth.compareAndSet(max, depth)) {
+                // Retry
+            }
+        }
+
+        Snapshot snapshot() {
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = histogram.get(i);
+            }
+            return new Snapshot(name, count.get(), totalNanos.get(),
+                    maxNanos.get(), maxDepth.get(), buckets);
+        }
+    }
+
+    /**
+     * Point in time copy of the statistics for one event type or subscriber.
+     */
+    public static class Snapshot {
+        private final String name;
+        private final long count, totalNanos, maxNanos, deliveries;
+        private final int maxCascadeDepth;
+        private final long[] buckets;
+
+        Snapshot(String name, long count, long totalNanos, long maxNanos,
+                int maxCascadeDepth, long[] buckets) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.maxCascadeDepth = maxCascadeDepth;
+            this.buckets = buckets;
+            long deliveries = 0;
+            for (long bucketCount : buckets) {
+                deliveries += bucketCount;
+            }
+            this.deliveries = deliveries;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Number of timed subscriber invocations.
+         */
+        public long getDeliveries() {
+            return deliveries;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return deliveries > 0 ? totalNanos / deliveries : 0;
+        }
+
+        public int getMaxCascadeDepth() {
+            return maxCascadeDepth;
+        }
+
+        /**
+         * Upper bound of the latency below which the given percentage of
+         * deliveries completed, never more than the maximum latency seen.
+         */
+        public long getPercentileNanos(int percentile) {
+            if (deliveries == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(deliveries * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= threshold) {
+                    return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << i),
+                            maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": count=" + count + " deliveries=" + deliveries
+                    + " total=" + toMicros(totalNanos) + "us"
+                    + " p50=" + toMicros(getPercentileNanos(50)) + "us"
+                    + " p90=" + toMicros(getPercentileNanos(90)) + "us"
+                    + " p99=" + toMicros(getPercentileNanos(99)) + "us"
+                    + " max=" + toMicros(maxNanos) + "us"
+                    + " depth=" + maxCascadeDepth;
+        }
+    }
+}
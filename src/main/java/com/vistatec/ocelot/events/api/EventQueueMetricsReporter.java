@@ -0,0 +1,79 @@
+package com.vistatec.ocelot.events.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Periodically logs a summary of {@link EventQueueMetrics} and writes them
+ * as JSON to a file, replacing its previous contents.
+ */
+public class EventQueueMetricsReporter {
+    private static Logger LOG = Logger.getLogger(EventQueueMetricsReporter.class);
+
+    private final EventQueueMetrics metrics;
+    private final File jsonFile;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param jsonFile file to write the metrics to, or null to only log them
+     */
+    public EventQueueMetricsReporter(EventQueueMetrics metrics, File jsonFile) {
+        this.metrics = metrics;
+        this.jsonFile = jsonFile;
+    }
+
+    public synchronized void start(long period, TimeUnit unit) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("ocelot-event-metrics")
+                        .setDaemon(true).build());
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                report();
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    public void report() {
+        LOG.info(metrics.getSummary());
+        if (jsonFile != null) {
+            try {
+                writeJson();
+            } catch (IOException e) {
+                LOG.warn("Unable to write event queue metrics to " + jsonFile, e);
+            }
+        }
+    }
+
+    private void writeJson() throws IOException {
+        // Write to a temporary file first so readers never see a partial dump
+        File tmpFile = new File(jsonFile.getPath() + ".tmp");
+        try (Writer writer = Files.newWriter(tmpFile, Charset.forName("UTF-8"))) {
+            metrics.writeJson(writer);
+        }
+        if (!tmpFile.renameTo(jsonFile)) {
+            jsonFile.delete();
+            Files.move(tmpFile, jsonFile);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.vistatec.ocelot.events.api;
+
+import java.awt.Component;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Event queue that delivers each event to its subscribers on one of several
+ * {@link DispatchLane}s. Listeners are found and called the same way as by
+ * a Guava {@link com.google.common.eventbus.EventBus}: through their
+ * {@link Subscribe} methods, for the event's class and all its supertypes.
+ * <p>
+ * The lane for a delivery is taken from the {@link DispatchOn} annotation
+ * of the event class if it has one, and otherwise from the lane the
+ * listener was registered with: its own {@link DispatchOn} annotation,
+ * {@link DispatchLane#UI} for Swing components, or
+ * {@link DispatchLane#DIRECT}. Delivery on the direct lane, and on the UI
+ * lane when posting from the event dispatch thread, behaves exactly like
+ * the synchronous EventBus, including queueing events posted by
+ * subscribers until the current event has been delivered.
+ * <p>
+ * Deferred deliveries are dispatched as soon as their lane runs them, even
+ * when that happens while another event is being delivered on the same
+ * thread, as in the nested event loop of a modal dialog opened by a UI
+ * subscriber. Only events posted by the subscribers of a delivery wait for
+ * it to finish.
+ * <p>
+ * Deliveries of a {@link CoalescingEvent} on the UI and background lanes are
+ * always deferred, so that equivalent events posted before they are
+ * delivered (eg. within one frame on the event dispatch thread) are only
+ * delivered once.
+ * <p>
+ * When given {@link EventQueueMetrics}, the queue times every subscriber
+ * invocation and records how deeply events cascade, ie. how many
+ * subscribers posting further events led to each one being posted.
+ */
+public class LaneEventQueue implements OcelotEventQueue {
+    private static Logger LOG = Logger.getLogger(LaneEventQueue.class);
+
+    private static final Executor UI_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            SwingUtilities.invokeLater(command);
+        }
+    };
+
+    private final ConcurrentMap<Class<?>, Set<Subscriber>> subscribersByType =
+            new ConcurrentHashMap<Class<?>, Set<Subscriber>>();
+    private final ConcurrentMap<Class<?>, List<Method>> subscriberMethodCache =
+            new ConcurrentHashMap<Class<?>, List<Method>>();
+    private final ConcurrentMap<Class<?>, Set<Class<?>>> eventTypeCache =
+            new ConcurrentHashMap<Class<?>, Set<Class<?>>>();
+    private final ConcurrentMap<Class<?>, Optional<DispatchLane>> eventLaneCache =
+            new ConcurrentHashMap<Class<?>, Optional<DispatchLane>>();
+    private final Set<Object> pendingCoalescedEvents =
+            Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    private final ExecutorService backgroundExecutor;
+    private volatile EventQueueMetrics metrics;
+
+    /**
+     * Deliveries of the dispatch in progress on this thread, or null. Events
+     * posted by its subscribers are added to it.
+     */
+    private final ThreadLocal<Queue<Delivery>> dispatching =
+            new ThreadLocal<Queue<Delivery>>();
+    /** Cascade depth of the event being handled on this thread, or -1 */
+    private final ThreadLocal<int[]> handlingDepth = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] { -1 };
+        }
+    };
+
+    public LaneEventQueue() {
+        this(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("ocelot-events-background-%d")
+                .setDaemon(true).build()));
+    }
+
+    /**
+     * @param backgroundExecutor executor for the background lane; it should
+     * run tasks one at a time, in order, for events to stay ordered
+     */
+    public LaneEventQueue(ExecutorService backgroundExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Start or stop (with null) recording metrics for the events posted
+     * from now on.
+     */
+    public void setMetrics(EventQueueMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public EventQueueMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void post(OcelotEvent event) {
+        int depth = 0;
+        EventQueueMetrics metrics = this.metrics;
+        if (metrics != null) {
+            depth = handlingDepth.get()[0] + 1;
+            metrics.eventPosted(event.getClass(), depth);
+        }
+        DispatchLane eventLane = getEventLane(event.getClass());
+        boolean deferUI = event instanceof CoalescingEvent
+                || !SwingUtilities.isEventDispatchThread();
+        List<Subscriber> uiSubscribers = null, backgroundSubscribers = null;
+        Queue<Delivery> direct = null;
+
+        for (Class<?> eventType : getEventTypes(event.getClass())) {
+            Set<Subscriber> subscribers = subscribersByType.get(eventType);
+            if (subscribers == null) {
+                continue;
+            }
+            for (Subscriber subscriber : subscribers) {
+                DispatchLane lane = eventLane != null ? eventLane : subscriber.lane;
+                if (lane == DispatchLane.UI && deferUI) {
+                    if (uiSubscribers == null) {
+                        uiSubscribers = new ArrayList<Subscriber>();
+                    }
+                    uiSubscribers.add(subscriber);
+                } else if (lane == DispatchLane.BACKGROUND) {
+                    if (backgroundSubscribers == null) {
+                        backgroundSubscribers = new ArrayList<Subscriber>();
+                    }
+                    backgroundSubscribers.add(subscriber);
+                } else {
+                    if (direct == null) {
+                        direct = new ArrayDeque<Delivery>();
+                    }
+                    direct.offer(new Delivery(event, subscriber, depth));
+                }
+            }
+        }
+        if (uiSubscribers != null) {
+            postDeferred(DispatchLane.UI, UI_EXECUTOR, event, depth, uiSubscribers);
+        }
+        if (backgroundSubscribers != null) {
+            postDeferred(DispatchLane.BACKGROUND, backgroundExecutor, event,
+                    depth, backgroundSubscribers);
+        }
+        if (direct != null) {
+            Queue<Delivery> current = dispatching.get();
+            if (current != null) {
+                // Events posted by a subscriber wait for the current event
+                current.addAll(direct);
+            } else {
+                dispatch(direct);
+            }
+        }
+    }
+
+    private void postDeferred(DispatchLane lane, Executor executor,
+            final OcelotEvent event, final int depth,
+            final List<Subscriber> subscribers) {
+        final Object coalescingKey = event instanceof CoalescingEvent ?
+                Arrays.asList(lane, event.getClass(),
+                        ((CoalescingEvent) event).getCoalescingKey()) : null;
+        if (coalescingKey != null && !pendingCoalescedEvents.add(coalescingKey)) {
+            // An equivalent event is already waiting to be delivered
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (coalescingKey != null) {
+                        pendingCoalescedEvents.remove(coalescingKey);
+                    }
+                    Queue<Delivery> deliveries = new ArrayDeque<Delivery>();
+                    for (Subscriber subscriber : subscribers) {
+                        deliveries.offer(new Delivery(event, subscriber, depth));
+                    }
+                    // Not posted by the subscriber of any delivery in
+                    // progress, so it doesn't wait for one
+                    dispatch(deliveries);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Dropped event " + event + ", its dispatch lane is shut down");
+        }
+    }
+
+    private void dispatch(Queue<Delivery> deliveries) {
+        Queue<Delivery> outer = dispatching.get();
+        dispatching.set(deliveries);
+        try {
+            Delivery delivery;
+            while ((delivery = deliveries.poll()) != null) {
+                deliver(delivery);
+            }
+        } finally {
+            if (outer != null) {
+                dispatching.set(outer);
+            } else {
+                dispatching.remove();
+            }
+        }
+    }
+
+    private void deliver(Delivery delivery) {
+        EventQueueMetrics metrics = this.metrics;
+        if (metrics == null) {
+            delivery.subscriber.handle(delivery.event);
+            return;
+        }
+        int[] depth = handlingDepth.get();
+        int outerDepth = depth[0];
+        depth[0] = delivery.depth;
+        long start = System.nanoTime();
+        try {
+            delivery.subscriber.handle(delivery.event);
+        } finally {
+            metrics.eventHandled(delivery.event.getClass(),
+                    delivery.subscriber.method, delivery.depth,
+                    System.nanoTime() - start);
+            depth[0] = outerDepth;
+        }
+    }
+
+    @Override
+    public void registerListener(OcelotEventQueueListener listener) {
+        registerListener(listener, getListenerLane(listener));
+    }
+
+    /**
+     * Register a listener whose events are delivered on a specific lane,
+     * unless the event class selects its own.
+     */
+    public void registerListener(OcelotEventQueueListener listener,
+            DispatchLane lane) {
+        for (Method method : getSubscriberMethods(listener.getClass())) {
+            Class<?> eventType = method.getParameterTypes()[0];
+            Set<Subscriber> subscribers = subscribersByType.get(eventType);
+            if (subscribers == null) {
+                subscribersByType.putIfAbsent(eventType,
+                        new CopyOnWriteArraySet<Subscriber>());
+                subscribers = subscribersByType.get(eventType);
+            }
+            subscribers.add(new Subscriber(listener, method, lane));
+        }
+    }
+
+    @Override
+    public void unregisterListener(OcelotEventQueueListener listener) {
+        for (Method method : getSubscriberMethods(listener.getClass())) {
+            Set<Subscriber> subscribers = subscribersByType.get(
+                    method.getParameterTypes()[0]);
+            if (subscribers != null) {
+                subscribers.remove(new Subscriber(listener, method, null));
+            }
+        }
+    }
+
+    /**
+     * Stop the background lane once the events already posted to it have
+     * been delivered.
+     */
+    public void shutdown() {
+        backgroundExecutor.shutdown();
+    }
+
+    private static DispatchLane getListenerLane(OcelotEventQueueListener listener) {
+        DispatchOn dispatchOn = listener.getClass().getAnnotation(DispatchOn.class);
+        if (dispatchOn != null) {
+            return dispatchOn.value();
+        }
+        return listener instanceof Component ? DispatchLane.UI : DispatchLane.DIRECT;
+    }
+
+    private DispatchLane getEventLane(Class<?> eventClass) {
+        Optional<DispatchLane> lane = eventLaneCache.get(eventClass);
+        if (lane == null) {
+            DispatchOn dispatchOn = eventClass.getAnnotation(DispatchOn.class);
+            lane = Optional.fromNullable(dispatchOn != null ? dispatchOn.value() : null);
+            eventLaneCache.put(eventClass, lane);
+        }
+        return lane.orNull();
+    }
+
+    private Set<Class<?>> getEventTypes(Class<?> eventClass) {
+        Set<Class<?>> types = eventTypeCache.get(eventClass);
+        if (types == null) {
+            types = Collections.<Class<?>>unmodifiableSet(
+                    TypeToken.of(eventClass).getTypes().rawTypes());
+            eventTypeCache.put(eventClass, types);
+        }
+        return types;
+    }
+
+    /**
+     * Public single argument methods annotated with {@link Subscribe} in the
+     * listener class or any of its supertypes, as found by Guava.
+     */
+    private List<Method> getSubscriberMethods(Class<?> listenerClass) {
+        List<Method> methods = subscriberMethodCache.get(listenerClass);
+        if (methods == null) {
+            Map<List<Object>, Method> methodsBySignature = new HashMap<List<Object>, Method>();
+            for (Class<?> type : TypeToken.of(listenerClass).getTypes().rawTypes()) {
+                for (Method method : type.getMethods()) {
+                    if (method.isAnnotationPresent(Subscribe.class)
+                            && !method.isSynthetic()) {
+                        Class<?>[] parameterTypes = method.getParameterTypes();
+                        if (parameterTypes.length != 1) {
+                            throw new IllegalArgumentException("Method " + method
+                                    + " has @Subscribe annotation, but requires "
+                                    + parameterTypes.length
+                                    + " arguments.  Event subscriber methods "
+                                    + "must require a single argument.");
+                        }
+                        List<Object> signature = Arrays.<Object>asList(
+                                method.getName(), parameterTypes[0]);
+                        if (!methodsBySignature.containsKey(signature)) {
+                            method.setAccessible(true);
+                            methodsBySignature.put(signature, method);
+                        }
+                    }
+                }
+            }
+            methods = new ArrayList<Method>(methodsBySignature.values());
+            subscriberMethodCache.put(listenerClass, methods);
+        }
+        return methods;
+    }
+
+    private static class Delivery {
+        private final OcelotEvent event;
+        private final Subscriber subscriber;
+        private final int depth;
+
+        Delivery(OcelotEvent event, Subscriber subscriber, int depth) {
+            this.event = event;
+            this.subscriber = subscriber;
+            this.depth = depth;
+        }
+    }
+
+    private static class Subscriber {
+        private final Object target;
+        private final Method method;
+        private final DispatchLane lane;
+        private final boolean allowConcurrentEvents;
+
+        Subscriber(Object target, Method method, DispatchLane lane) {
+            this.target = target;
+            this.method = method;
+            this.lane = lane;
+            this.allowConcurrentEvents = method.isAnnotationPresent(
+                    AllowConcurrentEvents.class);
+        }
+
+        void handle(OcelotEvent event) {
+            try {
+                if (allowConcurrentEvents) {
+                    method.invoke(target, event);
+                } else {
+                    // Like the EventBus, don't call a subscriber from two
+                    // lanes at once unless it says that's safe
+                    synchronized (this) {
+                        method.invoke(target, event);
+                    }
+                }
+            } catch (InvocationTargetException e) {
+                LOG.error("Could not dispatch event " + event + " to "
+                        + method, e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new Error("Method became inaccessible: " + method, e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Subscriber)) return false;
+            Subscriber other = (Subscriber) o;
+            return target == other.target && method.equals(other.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(target) + method.hashCode();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.awt.Font;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -26,6 +27,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
 import com.vistatec.ocelot.segment.model.enrichment.LinkInfoData;
@@ -44,6 +46,12 @@ public class LinkEnrichmentFrame extends JDialog implements Runnable {
 	/** The dialog height. */
 	private static final int HEIGHT = 400;
 
+	/** The maximum width of the displayed image. */
+	private static final int IMAGE_WIDTH = WIDTH - 40;
+
+	/** The maximum height of the displayed image. */
+	private static final int IMAGE_HEIGHT = HEIGHT - 140;
+
 	/** The link enrichment. */
 	private LinkEnrichment enrichment;
 
@@ -96,18 +104,41 @@ public class LinkEnrichmentFrame extends JDialog implements Runnable {
 	}
 
 	/**
-	 * Gets the image panel.
+	 * Gets the image panel. The image is loaded in the background, and shown
+	 * once available.
 	 * 
 	 * @return the image panel.
 	 */
 	private JScrollPane getImagePanel() {
 
-		JLabel imageLabel = null;
-		if (enrichment.getImage() != null) {
+		final JLabel imageLabel = new JLabel();
+		imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+		if (enrichment.getImageURL() != null
+		        && enrichment.getImageURL().getValue() != null) {
+			imageLabel.setText("Loading Image...");
+			LinkImageLoader.Callback callback = new LinkImageLoader.Callback() {
 
-			imageLabel = new JLabel(new ImageIcon(enrichment.getImage()));
+				@Override
+				public void imageLoaded(String url, final BufferedImage image) {
+					SwingUtilities.invokeLater(new Runnable() {
+
+						@Override
+						public void run() {
+							if (image != null) {
+								imageLabel.setText(null);
+								imageLabel.setIcon(new ImageIcon(image));
+							} else {
+								imageLabel.setText("No Image");
+							}
+						}
+					});
+				}
+			};
+			LinkImageLoader.getInstance().load(
+			        enrichment.getImageURL().getValue(), IMAGE_WIDTH,
+			        IMAGE_HEIGHT, callback);
 		} else {
-			imageLabel = new JLabel("No Image");
+			imageLabel.setText("No Image");
 		}
 		JScrollPane pane = new JScrollPane(imageLabel);
 		return pane;
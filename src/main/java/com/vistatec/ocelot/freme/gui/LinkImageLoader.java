@@ -0,0 +1,374 @@
+package com.vistatec.ocelot.freme.gui;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Loads the images of the link enrichments when they are displayed. Images
+ * are downloaded in the background, decoded at the size they are displayed
+ * at, and kept in a bounded memory cache. The downloaded bytes are also
+ * stored in a disk cache, so that the images are not downloaded again in
+ * later sessions.
+ */
+public class LinkImageLoader {
+
+	/** The logger for this class. */
+	private static final Logger logger = Logger
+			.getLogger(LinkImageLoader.class);
+
+	/** Default number of decoded images kept in memory. */
+	public static final int DEFAULT_MEMORY_ENTRIES = 64;
+
+	/** Default number of concurrent downloads. */
+	public static final int DEFAULT_THREADS = 2;
+
+	/** The maximum number of redirects followed. */
+	private static final int MAX_REDIRECTS = 5;
+
+	/** The maximum size of a downloaded image. */
+	private static final int MAX_IMAGE_BYTES = 10 * 1024 * 1024;
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+	private static final int READ_TIMEOUT_MILLIS = 15000;
+
+	/** the instance. */
+	private static LinkImageLoader instance;
+
+	/**
+	 * Notified when an image has been loaded. It is called on a loader thread.
+	 */
+	public interface Callback {
+
+		/**
+		 * @param url
+		 *            the image URL
+		 * @param image
+		 *            the image, <code>null</code> if it could not be loaded
+		 */
+		void imageLoaded(String url, BufferedImage image);
+	}
+
+	/** The disk cache directory, <code>null</code> for no disk cache. */
+	private final File cacheDir;
+
+	/** The decoded images, least recently used first. */
+	private final Map<String, BufferedImage> images;
+
+	/** The callbacks waiting for an image being loaded, by image key. */
+	private final Map<String, List<Callback>> pending = new HashMap<String, List<Callback>>();
+
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cacheDir
+	 *            the disk cache directory, <code>null</code> for no disk cache
+	 * @param maxMemoryEntries
+	 *            the maximum number of decoded images kept in memory
+	 * @param threads
+	 *            the number of concurrent downloads
+	 */
+	public LinkImageLoader(File cacheDir, final int maxMemoryEntries,
+			int threads) {
+
+		this.cacheDir = cacheDir;
+		this.images = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, BufferedImage> eldest) {
+				return size() > maxMemoryEntries;
+			}
+		};
+		this.executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("ocelot-images-%d")
+						.setDaemon(true).build());
+	}
+
+	/**
+	 * Gets the instance. Unless another loader has been set, images are only
+	 * cached in memory.
+	 *
+	 * @return the instance.
+	 */
+	public static synchronized LinkImageLoader getInstance() {
+
+		if (instance == null) {
+			instance = new LinkImageLoader(null, DEFAULT_MEMORY_ENTRIES,
+					DEFAULT_THREADS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Sets the instance.
+	 *
+	 * @param loader
+	 *            the loader to be used.
+	 */
+	public static synchronized void setInstance(LinkImageLoader loader) {
+		instance = loader;
+	}
+
+	/**
+	 * Gets an image already in the memory cache.
+	 *
+	 * @return the image fitting in the given size, or <code>null</code> if it
+	 *         has not been loaded yet.
+	 */
+	public BufferedImage getCachedImage(String url, int maxWidth, int maxHeight) {
+		synchronized (images) {
+			return images.get(key(url, maxWidth, maxHeight));
+		}
+	}
+
+	/**
+	 * Loads an image scaled down to fit in the given size. The callback is
+	 * called at once if the image is in the memory cache, on a loader thread
+	 * otherwise.
+	 *
+	 * @param url
+	 *            the image URL
+	 * @param maxWidth
+	 *            the maximum width
+	 * @param maxHeight
+	 *            the maximum height
+	 * @param callback
+	 *            the callback notified with the image
+	 */
+	public void load(final String url, final int maxWidth,
+			final int maxHeight, Callback callback) {
+
+		final String key = key(url, maxWidth, maxHeight);
+		BufferedImage cached = getCachedImage(url, maxWidth, maxHeight);
+		if (cached != null) {
+			callback.imageLoaded(url, cached);
+			return;
+		}
+		synchronized (pending) {
+			List<Callback> waiting = pending.get(key);
+			if (waiting != null) {
+				waiting.add(callback);
+				return;
+			}
+			waiting = new ArrayList<Callback>();
+			waiting.add(callback);
+			pending.put(key, waiting);
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					BufferedImage image = null;
+					try {
+						image = scale(decode(getBytes(url), maxWidth, maxHeight),
+								maxWidth, maxHeight);
+						if (image != null) {
+							synchronized (images) {
+								images.put(key, image);
+							}
+						}
+					} catch (IOException e) {
+						logger.warn("Error while loading the image " + url
+								+ ": " + e.getMessage());
+					} catch (RuntimeException e) {
+						logger.error("Error while loading the image " + url, e);
+					}
+					notifyLoaded(key, url, image);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			notifyLoaded(key, url, null);
+		}
+	}
+
+	private void notifyLoaded(String key, String url, BufferedImage image) {
+		List<Callback> waiting;
+		synchronized (pending) {
+			waiting = pending.remove(key);
+		}
+		if (waiting != null) {
+			for (Callback callback : waiting) {
+				callback.imageLoaded(url, image);
+			}
+		}
+	}
+
+	/**
+	 * Drops the images in the memory cache.
+	 */
+	public void clearMemoryCache() {
+		synchronized (images) {
+			images.clear();
+		}
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private static String key(String url, int maxWidth, int maxHeight) {
+		return maxWidth + "x" + maxHeight + " " + url;
+	}
+
+	/**
+	 * Gets the image bytes from the disk cache, or downloads them.
+	 */
+	private byte[] getBytes(String url) throws IOException {
+
+		File cacheFile = null;
+		if (cacheDir != null) {
+			cacheFile = new File(cacheDir, Hashing.sha1()
+					.hashString(url, Charsets.UTF_8).toString());
+			if (cacheFile.isFile()) {
+				return Files.toByteArray(cacheFile);
+			}
+		}
+		byte[] bytes = download(url);
+		if (cacheFile != null) {
+			try {
+				cacheDir.mkdirs();
+				File tmpFile = new File(cacheDir, cacheFile.getName() + ".tmp");
+				Files.write(bytes, tmpFile);
+				if (!tmpFile.renameTo(cacheFile)) {
+					tmpFile.delete();
+				}
+			} catch (IOException e) {
+				logger.warn("Could not cache the image " + url, e);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Downloads the image bytes. Redirects are followed, also between HTTP
+	 * and HTTPS, which {@link HttpURLConnection} does not do.
+	 */
+	private static byte[] download(String urlString) throws IOException {
+
+		URL url = new URL(urlString);
+		for (int redirects = 0; redirects <= MAX_REDIRECTS; redirects++) {
+			URLConnection conn = url.openConnection();
+			conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+			conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+			if (conn instanceof HttpURLConnection) {
+				HttpURLConnection httpConn = (HttpURLConnection) conn;
+				httpConn.setInstanceFollowRedirects(false);
+				int status = httpConn.getResponseCode();
+				if (status >= 300 && status < 400) {
+					String location = httpConn.getHeaderField("Location");
+					httpConn.disconnect();
+					if (location == null) {
+						throw new IOException("Redirect without location");
+					}
+					url = new URL(url, location);
+					continue;
+				}
+				if (status != HttpURLConnection.HTTP_OK) {
+					httpConn.disconnect();
+					throw new IOException("HTTP status " + status);
+				}
+			}
+			try (InputStream in = conn.getInputStream()) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+					if (out.size() > MAX_IMAGE_BYTES) {
+						throw new IOException("Image larger than "
+								+ MAX_IMAGE_BYTES + " bytes");
+					}
+				}
+				return out.toByteArray();
+			}
+		}
+		throw new IOException("Too many redirects");
+	}
+
+	/**
+	 * Decodes an image, skipping source pixels when the image is much larger
+	 * than the given size, so that the full size image is never decoded.
+	 */
+	static BufferedImage decode(byte[] bytes, int maxWidth, int maxHeight)
+			throws IOException {
+
+		try (ImageInputStream in = ImageIO
+				.createImageInputStream(new ByteArrayInputStream(bytes))) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) {
+				throw new IOException("Unknown image format");
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true);
+				int subsampling = Math.max(1, Math.min(reader.getWidth(0)
+						/ maxWidth, reader.getHeight(0) / maxHeight));
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Scales an image down to fit in the given size, keeping its aspect
+	 * ratio.
+	 */
+	static BufferedImage scale(BufferedImage image, int maxWidth, int maxHeight) {
+
+		double ratio = Math.min((double) maxWidth / image.getWidth(),
+				(double) maxHeight / image.getHeight());
+		if (ratio >= 1) {
+			return image;
+		}
+		int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+		int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+		BufferedImage scaled = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = scaled.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+					RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, width, height, null);
+		} finally {
+			g.dispose();
+		}
+		return scaled;
+	}
+}
@@ -30,16 +30,22 @@ package com.vistatec.ocelot.its.stats.model;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.its.model.Provenance;
 import com.vistatec.ocelot.its.model.TerminologyMetaData;
 import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
 import com.vistatec.ocelot.its.stats.model.ProvenanceStats.Type;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
 
 /**
- * Collect and merge ITS metadata statistics for the document.
+ * Collect and merge ITS metadata statistics for the document.  Statistics
+ * are kept up to date incrementally: metadata is added and removed as it
+ * changes, and categories whose count drops to zero are dropped.
  */
 public class ITSDocStats {
     private List<ITSStats> stats = new ArrayList<ITSStats>();
@@ -59,54 +65,165 @@ public class ITSDocStats {
         statsMap.put(stat.getKey(), stat);
     }
 
+    private void remove(ITSStats stat) {
+        statsMap.remove(stat.getKey());
+        for (Iterator<ITSStats> iter = stats.iterator(); iter.hasNext();) {
+            if (iter.next() == stat) {
+                iter.remove();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Add the statistics for all of the ITS metadata of a segment.
+     */
+    public void addSegmentStats(OcelotSegment seg) {
+        for (LanguageQualityIssue lqi : seg.getLQI()) {
+            addLQIStats(lqi);
+        }
+        for (Provenance prov : seg.getProvenance()) {
+            addProvenanceStats(prov);
+        }
+        for (TextAnalysisMetaData ta : seg.getTextAnalysis()) {
+            addTextAnalysisStats(ta);
+        }
+        for (TerminologyMetaData term : seg.getTerms()) {
+            addTerminologyStats(term);
+        }
+    }
+
+    /**
+     * Merge another set of statistics into these, eg. the statistics
+     * gathered for part of the document.  The other statistics shouldn't
+     * be used afterwards, as their records may be taken over.
+     */
+    public void addAll(ITSDocStats other) {
+        for (ITSStats otherStats : other.getStats()) {
+            updateStats(otherStats);
+        }
+    }
+
+    public void addLQIStats(LanguageQualityIssue lqi) {
+        calcLQIStats(lqi, 1);
+    }
+
+    public void removeLQIStats(LanguageQualityIssue lqi) {
+        calcLQIStats(lqi, -1);
+    }
+
+    // The calc*Stats methods count into the existing record for a category
+    // where there is one, so no record is created per metadata item.
+    private void calcLQIStats(LanguageQualityIssue lqi, int delta) {
+        LanguageQualityIssueStats oldStats = (LanguageQualityIssueStats) statsMap
+                .get(LanguageQualityIssueStats.key(lqi.getType()));
+        if (oldStats != null) {
+            oldStats.addIssues(lqi.getSeverity(), delta);
+            removeIfEmpty(oldStats);
+        } else if (delta > 0) {
+            add(new LanguageQualityIssueStats(lqi));
+        }
+    }
+
     public void addProvenanceStats(Provenance prov) {
-        calcProvenanceStats(Type.person, prov.getPerson());
-        calcProvenanceStats(Type.org, prov.getOrg());
-        calcProvenanceStats(Type.tool, prov.getTool());
-        calcProvenanceStats(Type.revPerson, prov.getRevPerson());
-        calcProvenanceStats(Type.revOrg, prov.getRevOrg());
-        calcProvenanceStats(Type.revTool, prov.getRevTool());
+        calcProvenanceStats(prov, 1);
+    }
+
+    public void removeProvenanceStats(Provenance prov) {
+        calcProvenanceStats(prov, -1);
+    }
+
+    private void calcProvenanceStats(Provenance prov, int delta) {
+        calcProvenanceStats(Type.person, prov.getPerson(), delta);
+        calcProvenanceStats(Type.org, prov.getOrg(), delta);
+        calcProvenanceStats(Type.tool, prov.getTool(), delta);
+        calcProvenanceStats(Type.revPerson, prov.getRevPerson(), delta);
+        calcProvenanceStats(Type.revOrg, prov.getRevOrg(), delta);
+        calcProvenanceStats(Type.revTool, prov.getRevTool(), delta);
     }
-    
 
-    private void calcProvenanceStats(ProvenanceStats.Type type, String value) {
+    private void calcProvenanceStats(ProvenanceStats.Type type, String value,
+            int delta) {
         if (value != null) {
-            updateStats(new ProvenanceStats(type, value));
+            ProvenanceStats oldStats = (ProvenanceStats) statsMap
+                    .get(ProvenanceStats.key(type, value));
+            if (oldStats != null) {
+                oldStats.addCount(delta);
+                removeIfEmpty(oldStats);
+            } else if (delta > 0) {
+                add(new ProvenanceStats(type, value));
+            }
         }
     }
     
     
     public void addTextAnalysisStats(TextAnalysisMetaData ta){
+    	calcTaStats(ta, 1);
+    }
+
+    public void removeTextAnalysisStats(TextAnalysisMetaData ta){
+    	calcTaStats(ta, -1);
+    }
+
+    private void calcTaStats(TextAnalysisMetaData ta, int delta){
     	
-    	calcTaStats(TextAnalysisStats.Type.annotatorsRef, ta.getTaAnnotatorsRef());
-    	calcTaStats(TextAnalysisStats.Type.taClassRef, ta.getTaClassRef());
+    	calcTaStats(TextAnalysisStats.Type.annotatorsRef, ta.getTaAnnotatorsRef(), delta);
+    	calcTaStats(TextAnalysisStats.Type.taClassRef, ta.getTaClassRef(), delta);
     	if(ta.getTaConfidence() != null){
-    		calcTaStats(TextAnalysisStats.Type.taConfidence, String.valueOf(ta.getTaConfidence()));
+    		calcTaStats(TextAnalysisStats.Type.taConfidence, String.valueOf(ta.getTaConfidence()), delta);
     	}
-    	calcTaStats(TextAnalysisStats.Type.taIdentRef, ta.getTaIdentRef());
+    	calcTaStats(TextAnalysisStats.Type.taIdentRef, ta.getTaIdentRef(), delta);
     }
     
-    private void calcTaStats(TextAnalysisStats.Type type, String value){
+    private void calcTaStats(TextAnalysisStats.Type type, String value, int delta){
     	
     	if(value != null){
-    		updateStats(new TextAnalysisStats(type, value));
+    		TextAnalysisStats oldStats = (TextAnalysisStats) statsMap
+    				.get(TextAnalysisStats.key(type, value));
+    		if (oldStats != null) {
+    			oldStats.addCount(delta);
+    			removeIfEmpty(oldStats);
+    		} else if (delta > 0) {
+    			add(new TextAnalysisStats(type, value));
+    		}
     	}
     }
     
     public void addTerminologyStats(TerminologyMetaData term){
+    	calcTermStats(term, 1);
+    }
+
+    public void removeTerminologyStats(TerminologyMetaData term){
+    	calcTermStats(term, -1);
+    }
+
+    private void calcTermStats(TerminologyMetaData term, int delta){
     	
-    	calcTermStats(TerminologyStats.Type.term, term.getTerm());
-    	calcTermStats(TerminologyStats.Type.annotatorsRef, term.getAnnotatorsRef());
-    	calcTermStats(TerminologyStats.Type.domain, term.getSense());
+    	calcTermStats(TerminologyStats.Type.term, term.getTerm(), delta);
+    	calcTermStats(TerminologyStats.Type.annotatorsRef, term.getAnnotatorsRef(), delta);
+    	calcTermStats(TerminologyStats.Type.domain, term.getSense(), delta);
     }
     
-    private void calcTermStats(TerminologyStats.Type type, String value){
+    private void calcTermStats(TerminologyStats.Type type, String value, int delta){
     	
     	if(value != null){
-    		updateStats(new TerminologyStats(type, value));
+    		TerminologyStats oldStats = (TerminologyStats) statsMap
+    				.get(TerminologyStats.key(type, value));
+    		if (oldStats != null) {
+    			oldStats.addCount(delta);
+    			removeIfEmpty(oldStats);
+    		} else if (delta > 0) {
+    			add(new TerminologyStats(type, value));
+    		}
     	}
     }
 
+    private void removeIfEmpty(ITSStats stats) {
+        if (stats.getCount() <= 0) {
+            remove(stats);
+        }
+    }
+
     public void updateStats(ITSStats stats) {
         ITSStats oldStats = statsMap.get(stats.getKey());
         if (oldStats != null) {
@@ -116,4 +233,46 @@ public class ITSDocStats {
             add(stats);
         }
     }
+
+    /**
+     * Subtract a set of statistics from the matching category, removing
+     * the category altogether once nothing is left in it.  Statistics for
+     * a category that isn't present are ignored.
+     */
+    public void removeStats(ITSStats stats) {
+        ITSStats oldStats = statsMap.get(stats.getKey());
+        if (oldStats != null) {
+            oldStats.subtract(stats);
+            removeIfEmpty(oldStats);
+        }
+    }
+
+    /**
+     * Subtract every category of another set of document statistics, eg.
+     * the statistics for metadata that was removed from the document.
+     */
+    public void removeAll(ITSDocStats other) {
+        for (ITSStats otherStats : other.getStats()) {
+            removeStats(otherStats);
+        }
+    }
+
+    /**
+     * Check whether another set of document statistics has the same
+     * categories with the same values and counts, regardless of order.
+     */
+    public boolean hasSameStats(ITSDocStats other) {
+        if (statsMap.size() != other.statsMap.size()) {
+            return false;
+        }
+        for (ITSStats stat : stats) {
+            ITSStats otherStat = other.statsMap.get(stat.getKey());
+            if (otherStat == null
+                    || !Objects.equals(stat.getCount(), otherStat.getCount())
+                    || !Objects.equals(stat.getValue(), otherStat.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
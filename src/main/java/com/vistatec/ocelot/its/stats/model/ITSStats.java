@@ -45,6 +45,13 @@ public interface ITSStats {
      */
     public void combine(ITSStats stats);
 
+    /**
+     * Remove the specified stats object from this object, reversing an
+     * earlier {@link #combine(ITSStats)}.  Once the count reaches zero
+     * there are no more records in this category.
+     */
+    public void subtract(ITSStats stats);
+
     /**
      * Returns the field value for Data Category in the doc stats table.
      */
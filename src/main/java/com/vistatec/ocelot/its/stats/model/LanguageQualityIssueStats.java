@@ -28,7 +28,9 @@
  */
 package com.vistatec.ocelot.its.stats.model;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 
@@ -39,13 +41,17 @@ public class LanguageQualityIssueStats implements ITSStats {
     private String type;
     private double minRange = Double.POSITIVE_INFINITY,
                    maxRange = Double.NEGATIVE_INFINITY;
-    private Integer count = 1;
+    private int count = 1;
+    // Number of issues with each severity, so that the range can be
+    // narrowed again when issues are subtracted.
+    private final TreeMap<Double, Integer> severityCounts = new TreeMap<Double, Integer>();
 
     public LanguageQualityIssueStats() { }
 
     public LanguageQualityIssueStats(LanguageQualityIssue lqi) {
         this.type = lqi.getType();
         setRange(lqi.getSeverity());
+        severityCounts.put(lqi.getSeverity(), 1);
     }
 
     @Override
@@ -55,14 +61,65 @@ public class LanguageQualityIssueStats implements ITSStats {
 
     @Override
     public String getKey() {
-        return getClass().getName() + ":" + type;
+        return key(type);
+    }
+
+    static String key(String type) {
+        return LanguageQualityIssueStats.class.getName() + ":" + type;
     }
 
     @Override
     public void combine(ITSStats stats) {
-        setRange(((LanguageQualityIssueStats)stats).minRange);
-        setRange(((LanguageQualityIssueStats)stats).maxRange);
+        LanguageQualityIssueStats lqiStats = (LanguageQualityIssueStats)stats;
+        setRange(lqiStats.minRange);
+        setRange(lqiStats.maxRange);
         count += stats.getCount();
+        for (Map.Entry<Double, Integer> e : lqiStats.severityCounts.entrySet()) {
+            addSeverityCount(e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    public void subtract(ITSStats stats) {
+        LanguageQualityIssueStats lqiStats = (LanguageQualityIssueStats)stats;
+        count -= stats.getCount();
+        for (Map.Entry<Double, Integer> e : lqiStats.severityCounts.entrySet()) {
+            addSeverityCount(e.getKey(), -e.getValue());
+        }
+        resetRange();
+    }
+
+    /**
+     * Add issues with the given severity to these statistics, or remove
+     * them if the number of issues is negative.
+     */
+    void addIssues(double severity, int issues) {
+        count += issues;
+        addSeverityCount(severity, issues);
+        if (issues > 0) {
+            setRange(severity);
+        } else {
+            resetRange();
+        }
+    }
+
+    private void resetRange() {
+        minRange = Double.POSITIVE_INFINITY;
+        maxRange = Double.NEGATIVE_INFINITY;
+        if (!severityCounts.isEmpty()) {
+            setRange(severityCounts.firstKey());
+            setRange(severityCounts.lastKey());
+        }
+    }
+
+    private void addSeverityCount(double severity, int delta) {
+        Integer oldCount = severityCounts.get(severity);
+        int newCount = (oldCount != null ? oldCount : 0) + delta;
+        if (newCount > 0) {
+            severityCounts.put(severity, newCount);
+        } else {
+            severityCounts.remove(severity);
+        }
     }
 
     @Override
@@ -109,7 +166,7 @@ public class LanguageQualityIssueStats implements ITSStats {
         return type.equals(lqi.type) &&
                minRange == lqi.minRange &&
                maxRange == lqi.maxRange &&
-               Objects.equals(count, lqi.count);
+               count == lqi.count;
     }
 
     @Override
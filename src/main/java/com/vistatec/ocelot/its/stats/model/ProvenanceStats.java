@@ -36,7 +36,7 @@ import java.util.Objects;
 public class ProvenanceStats implements ITSStats {
     private Type displayType;
     private String value;
-    private Integer count = 1;
+    private int count = 1;
 
     public enum Type {
         person,
@@ -61,12 +61,21 @@ public class ProvenanceStats implements ITSStats {
      */
     @Override
     public String getKey() {
-        return getClass().getName() + ":" + displayType + ":" + value;
+        return key(displayType, value);
+    }
+
+    static String key(Type type, String value) {
+        return ProvenanceStats.class.getName() + ":" + type + ":" + value;
     }
 
     @Override
     public void combine(ITSStats stats) {
-        count++;
+        count += stats.getCount();
+    }
+
+    @Override
+    public void subtract(ITSStats stats) {
+        count -= stats.getCount();
     }
 
     @Override
@@ -98,6 +107,10 @@ public class ProvenanceStats implements ITSStats {
         this.count = count;
     }
 
+    void addCount(int delta) {
+        count += delta;
+    }
+
     public void setValue(String val) {
         this.value = val;
     }
@@ -109,7 +122,7 @@ public class ProvenanceStats implements ITSStats {
         ProvenanceStats prov = (ProvenanceStats)o;
         return Objects.equals(displayType, prov.displayType) &&
                Objects.equals(value, prov.value) &&
-               Objects.equals(count, prov.count);
+               count == prov.count;
     }
 
     @Override
@@ -6,7 +6,7 @@ public class TerminologyStats implements ITSStats {
 
 	private Type type;
 	private String value;
-	private Integer count = 1;
+	private int count = 1;
 	
 	public enum Type {
 		term,
@@ -25,12 +25,21 @@ public class TerminologyStats implements ITSStats {
 	
 	@Override
     public String getKey() {
-		return getClass().getName() + ":" + type + ":" + value;
+		return key(type, value);
     }
 
+	static String key(Type type, String value) {
+		return TerminologyStats.class.getName() + ":" + type + ":" + value;
+	}
+
 	@Override
     public void combine(ITSStats stats) {
-		count ++;
+		count += stats.getCount();
+    }
+
+	@Override
+    public void subtract(ITSStats stats) {
+		count -= stats.getCount();
     }
 
 	@Override
@@ -58,6 +67,10 @@ public class TerminologyStats implements ITSStats {
 		this.count = count;
     }
 
+	void addCount(int delta) {
+		count += delta;
+	}
+
 	  @Override
 	    public boolean equals(Object o) {
 	        if (o == this) return true;
@@ -4,7 +4,7 @@ import java.util.Objects;
 
 public class TextAnalysisStats implements ITSStats {
 
-	private Integer count = 1;
+	private int count = 1;
 	
 	private Type type;
 	
@@ -29,13 +29,21 @@ public class TextAnalysisStats implements ITSStats {
 	
 	@Override
     public String getKey() {
-		return getClass().getName() + ":" + type + ":" + value;
+		return key(type, value);
     }
 
+	static String key(Type type, String value) {
+		return TextAnalysisStats.class.getName() + ":" + type + ":" + value;
+	}
+
 	@Override
     public void combine(ITSStats stats) {
-	    count++;
-	    
+	    count += stats.getCount();
+    }
+
+	@Override
+    public void subtract(ITSStats stats) {
+	    count -= stats.getCount();
     }
 
 	@Override
@@ -64,6 +72,10 @@ public class TextAnalysisStats implements ITSStats {
 		
 		this.count = count;
     }
+
+	void addCount(int delta) {
+		count += delta;
+	}
 	
 	@Override
 	public boolean equals(Object o) {
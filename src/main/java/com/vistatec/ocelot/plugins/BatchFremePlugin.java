@@ -0,0 +1,42 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.List;
+
+import com.vistatec.ocelot.plugins.exception.FremeEnrichmentException;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+
+/**
+ * FREME plugin able to enrich several fragments with a single service call.
+ * Ocelot sends the fragments of a document in batches to plugins
+ * implementing this interface, and one at a time to other FREME plugins.
+ */
+public interface BatchFremePlugin extends FremePlugin {
+
+	/**
+	 * Enriches a batch of source fragments.
+	 *
+	 * @param plainTexts
+	 *            the fragments texts
+	 * @return the enrichments of each fragment, in the same order as the
+	 *         texts.
+	 * @throws FremeEnrichmentException
+	 *             if the batch can't be enriched. No enrichment of the batch
+	 *             is kept, and the whole batch may be sent again.
+	 */
+	List<List<Enrichment>> enrichSourceContents(final List<String> plainTexts)
+			throws FremeEnrichmentException;
+
+	/**
+	 * Enriches a batch of target fragments.
+	 *
+	 * @param plainTexts
+	 *            the fragments texts
+	 * @return the enrichments of each fragment, in the same order as the
+	 *         texts.
+	 * @throws FremeEnrichmentException
+	 *             if the batch can't be enriched. No enrichment of the batch
+	 *             is kept, and the whole batch may be sent again.
+	 */
+	List<List<Enrichment>> enrichTargetContents(final List<String> plainTexts)
+			throws FremeEnrichmentException;
+}
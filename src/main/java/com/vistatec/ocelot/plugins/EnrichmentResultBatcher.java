@@ -0,0 +1,129 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Collects the enrichment results produced by the FREME scheduler threads,
+ * and hands them over in batches, at most once per time slice. Applying a
+ * batch at once lets the segment view be refreshed and the document
+ * statistics be updated once per batch instead of once per fragment.
+ *
+ * @param <T>
+ *            the result type
+ */
+class EnrichmentResultBatcher<T> {
+
+	/** The logger for this class. */
+	private final Logger logger = Logger
+			.getLogger(EnrichmentResultBatcher.class);
+
+	/** Default time during which results are collected before a batch. */
+	public static final long DEFAULT_SLICE_MILLIS = 200;
+
+	/**
+	 * Applies a batch of results. Batches are handled one at a time, in the
+	 * order the results were added.
+	 */
+	interface Handler<T> {
+		void handle(List<T> batch);
+	}
+
+	private final long sliceMillis;
+	private final Handler<T> handler;
+	private final ConcurrentLinkedQueue<T> results = new ConcurrentLinkedQueue<T>();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final ScheduledExecutorService executor = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("ocelot-freme-results").setDaemon(true)
+					.build());
+
+	EnrichmentResultBatcher(long sliceMillis, Handler<T> handler) {
+		this.sliceMillis = sliceMillis;
+		this.handler = handler;
+	}
+
+	/**
+	 * Adds a result to the next batch, which is handled once the current time
+	 * slice is over.
+	 */
+	public void add(T result) {
+		results.add(result);
+		if (flushScheduled.compareAndSet(false, true)) {
+			try {
+				executor.schedule(new Runnable() {
+					@Override
+					public void run() {
+						flushScheduled.set(false);
+						flush();
+					}
+				}, sliceMillis, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// Shut down
+			}
+		}
+	}
+
+	/**
+	 * Handles the results added so far on the calling thread, without waiting
+	 * for the end of the time slice.
+	 */
+	public synchronized void flush() {
+		List<T> batch = new ArrayList<T>();
+		T result;
+		while ((result = results.poll()) != null) {
+			batch.add(result);
+		}
+		if (!batch.isEmpty()) {
+			try {
+				handler.handle(batch);
+			} catch (RuntimeException e) {
+				logger.error("Error while applying " + batch.size()
+						+ " enrichment results", e);
+			}
+		}
+	}
+
+	/**
+	 * Handles the results added so far, then runs a task, both on the batcher
+	 * thread. The caller doesn't wait for either.
+	 */
+	public void flushThen(final Runnable task) {
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					flush();
+					try {
+						task.run();
+					} catch (RuntimeException e) {
+						logger.error("Error after applying enrichment results", e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Shut down
+		}
+	}
+
+	/**
+	 * Drops the results not handled yet.
+	 */
+	public void clear() {
+		results.clear();
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
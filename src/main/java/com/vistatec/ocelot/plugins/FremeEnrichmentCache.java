@@ -0,0 +1,470 @@
+package com.vistatec.ocelot.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkInfoData;
+import com.vistatec.ocelot.segment.model.enrichment.TerminologyEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.TranslationEnrichment;
+
+/**
+ * Cache of the enrichments returned by the FREME services, so that a text
+ * already enriched, in this document or an earlier one, isn't sent again.
+ * <p>
+ * Entries are keyed by the fragment text, whether it is a source or a target,
+ * the language pair and the set of active FREME services. Whitespace
+ * characters in the text are all treated as spaces, which keeps the
+ * enrichment offsets valid. The least recently used entries are dropped
+ * beyond the maximum size. The cache is loaded from its file on first use,
+ * and saved by {@link #save()}.
+ * <p>
+ * Enrichments are stored serialized, and each lookup returns new enrichment
+ * objects. Link enrichments only carry the URL of their image.
+ */
+public class FremeEnrichmentCache {
+
+	/** The logger for this class. */
+	private final Logger logger = Logger.getLogger(FremeEnrichmentCache.class);
+
+	/** Default maximum number of cached texts. */
+	public static final int DEFAULT_MAX_ENTRIES = 20000;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final String NTRIPLES = "N-TRIPLES";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final File cacheFile;
+	private final LinkedHashMap<String, String> entries;
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+	private boolean loaded, modified;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cacheFile
+	 *            the file the cache is loaded from and saved to, or
+	 *            <code>null</code> to keep it in memory only.
+	 * @param maxEntries
+	 *            the maximum number of cached texts
+	 */
+	public FremeEnrichmentCache(File cacheFile, final int maxEntries) {
+		this.cacheFile = cacheFile;
+		this.entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Builds the cache key of a fragment.
+	 *
+	 * @param text
+	 *            the fragment text
+	 * @param target
+	 *            <code>true</code> for a target fragment
+	 * @param sourceLang
+	 *            the source language
+	 * @param targetLang
+	 *            the target language
+	 * @param services
+	 *            the active FREME services
+	 * @return the key.
+	 */
+	public static String key(String text, boolean target, String sourceLang,
+			String targetLang, Collection<Integer> services) {
+		StringBuilder key = new StringBuilder();
+		key.append(sourceLang).append('|').append(targetLang).append('|')
+				.append(new TreeSet<Integer>(services)).append('|')
+				.append(target ? 'T' : 'S').append('|');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			key.append(Character.isWhitespace(c) || Character.isSpaceChar(c) ? ' '
+					: c);
+		}
+		return Hashing.sha1().hashString(key, Charsets.UTF_8).toString();
+	}
+
+	/**
+	 * Gets the enrichments cached for a key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return new copies of the cached enrichments, or <code>null</code> if
+	 *         the key isn't cached.
+	 */
+	public List<Enrichment> get(String key) {
+		String value;
+		synchronized (this) {
+			ensureLoaded();
+			value = entries.get(key);
+		}
+		if (value != null) {
+			try {
+				List<Enrichment> enrichments = fromJson(mapper.readTree(value));
+				hits.incrementAndGet();
+				return enrichments;
+			} catch (IOException | RuntimeException e) {
+				logger.warn("Dropping unreadable cached enrichments", e);
+				remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Caches the enrichments of a fragment. Lists containing enrichment types
+	 * which can't be stored aren't cached.
+	 *
+	 * @param key
+	 *            the key
+	 * @param enrichments
+	 *            the enrichments
+	 * @return <code>true</code> if the enrichments have been cached.
+	 */
+	public boolean put(String key, List<Enrichment> enrichments) {
+		ArrayNode json = toJson(enrichments);
+		if (json == null) {
+			return false;
+		}
+		synchronized (this) {
+			ensureLoaded();
+			entries.put(key, json.toString());
+			modified = true;
+		}
+		return true;
+	}
+
+	private synchronized void remove(String key) {
+		if (entries.remove(key) != null) {
+			modified = true;
+		}
+	}
+
+	/**
+	 * Drops all the cached enrichments, and resets the hit rate.
+	 */
+	public synchronized void clear() {
+		loaded = true;
+		entries.clear();
+		modified = true;
+		hits.set(0);
+		misses.set(0);
+		logger.info("Enrichment cache cleared");
+	}
+
+	public synchronized int size() {
+		ensureLoaded();
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the ratio of lookups served by the cache since it was created or
+	 *         cleared.
+	 */
+	public double getHitRate() {
+		long h = hits.get(), total = h + misses.get();
+		return total > 0 ? (double) h / total : 0;
+	}
+
+	public String getSummary() {
+		return String.format("%d entries, %d hits, %d misses (%.1f%% hit rate)",
+				size(), getHits(), getMisses(), getHitRate() * 100);
+	}
+
+	/**
+	 * Writes the cache to its file, if it has changed.
+	 */
+	public synchronized void save() {
+		if (cacheFile == null || !modified) {
+			return;
+		}
+		ObjectNode root = mapper.createObjectNode();
+		root.put("version", FORMAT_VERSION);
+		ObjectNode entriesNode = root.putObject("entries");
+		// Least recently used first, which is the order they are loaded in
+		for (Map.Entry<String, String> e : entries.entrySet()) {
+			try {
+				entriesNode.put(e.getKey(), mapper.readTree(e.getValue()));
+			} catch (IOException ex) {
+				// Can't happen, the value was written by toJson()
+				throw new IllegalStateException(ex);
+			}
+		}
+		File tmpFile = new File(cacheFile.getPath() + ".tmp");
+		try {
+			mapper.writeValue(tmpFile, root);
+			if (!tmpFile.renameTo(cacheFile)) {
+				cacheFile.delete();
+				Files.move(tmpFile, cacheFile);
+			}
+			modified = false;
+		} catch (IOException e) {
+			logger.warn("Unable to save the enrichment cache " + cacheFile, e);
+		}
+	}
+
+	private void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (cacheFile == null || !cacheFile.isFile()) {
+			return;
+		}
+		try {
+			JsonNode root = mapper.readTree(cacheFile);
+			if (root.path("version").asInt() != FORMAT_VERSION) {
+				logger.info("Ignoring enrichment cache with an old format");
+				modified = true;
+				return;
+			}
+			Iterator<Map.Entry<String, JsonNode>> it = root.path("entries")
+					.getFields();
+			while (it.hasNext()) {
+				Map.Entry<String, JsonNode> e = it.next();
+				entries.put(e.getKey(), e.getValue().toString());
+			}
+			logger.debug("Loaded " + entries.size() + " cached enrichments");
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Ignoring unreadable enrichment cache " + cacheFile, e);
+			entries.clear();
+			modified = true;
+		}
+	}
+
+	/**
+	 * @return the JSON representation of the enrichments, or
+	 *         <code>null</code> if some can't be stored.
+	 */
+	private ArrayNode toJson(List<Enrichment> enrichments) {
+		ArrayNode array = mapper.createArrayNode();
+		for (Enrichment enrichment : enrichments) {
+			ObjectNode node = array.addObject();
+			node.put("start", enrichment.getOffsetStartIdx());
+			node.put("end", enrichment.getOffsetEndIdx());
+			node.put("disabled", enrichment.isDisabled());
+			if (enrichment instanceof EntityEnrichment) {
+				EntityEnrichment entity = (EntityEnrichment) enrichment;
+				node.put("type", Enrichment.ENTITY_TYPE);
+				node.put("entityURL", entity.getEntityURL());
+				node.put("annotator", entity.getAnnotatorRef());
+			} else if (enrichment instanceof LinkEnrichment) {
+				LinkEnrichment link = (LinkEnrichment) enrichment;
+				node.put("type", Enrichment.LINK_TYPE);
+				node.put("referenceEntity", link.getReferenceEntity());
+				putInfo(node, "entityName", link.getEntityName());
+				putInfo(node, "shortDescription", link.getShortDescription());
+				putInfo(node, "longDescription", link.getLongDescription());
+				putInfo(node, "imageURL", link.getImageURL());
+				putInfo(node, "homePage", link.getHomePage());
+				putInfo(node, "wikiPage", link.getWikiPage());
+				if (link.getInfoList() != null) {
+					ArrayNode infoList = node.putArray("infoList");
+					for (LinkInfoData info : link.getInfoList()) {
+						ObjectNode infoNode = infoList.addObject();
+						infoNode.put("propName", info.getPropName());
+						infoNode.put("label", info.getLabel());
+						infoNode.put("value", info.getValue());
+						infoNode.put("unit", info.getUnitOfMeasure());
+						infoNode.put("dataType", info.getDataType() != null ? info
+								.getDataType().getName() : null);
+					}
+				}
+				if (link.getContext() != null) {
+					ObjectNode context = node.putObject("context");
+					for (Map.Entry<String, String> e : link.getContext()
+							.entrySet()) {
+						context.put(e.getKey(), e.getValue());
+					}
+				}
+			} else if (enrichment instanceof TerminologyEnrichment) {
+				TerminologyEnrichment term = (TerminologyEnrichment) enrichment;
+				node.put("type", Enrichment.TERMINOLOGY_TYPE);
+				node.put("termInfoRef", term.getTermInfoRef());
+				node.put("sense", term.getSense());
+				node.put("definition", term.getDefinition());
+				node.put("sourceTerm", term.getSourceTerm());
+				node.put("targetTerm", term.getTargetTerm());
+				node.put("annotator", term.getAnnotator());
+				if (term.getTermTriples() != null) {
+					Model model = ModelFactory.createDefaultModel();
+					model.add(term.getTermTriples());
+					StringWriter triples = new StringWriter();
+					model.write(triples, NTRIPLES);
+					node.put("termTriples", triples.toString());
+				}
+			} else if (enrichment instanceof TranslationEnrichment) {
+				TranslationEnrichment translation = (TranslationEnrichment) enrichment;
+				node.put("type", Enrichment.TRANSLATION_TYPE);
+				node.put("translation", translation.getTranslation());
+				node.put("language", translation.getLanguage());
+			} else {
+				return null;
+			}
+		}
+		return array;
+	}
+
+	private static void putInfo(ObjectNode node, String field, LinkInfoData info) {
+		if (info != null) {
+			ObjectNode infoNode = node.putObject(field);
+			infoNode.put("propName", info.getPropName());
+			infoNode.put("value", info.getValue());
+		}
+	}
+
+	private static List<Enrichment> fromJson(JsonNode array) throws IOException {
+		List<Enrichment> enrichments = new ArrayList<Enrichment>();
+		for (JsonNode node : array) {
+			String type = node.path("type").asText();
+			int start = node.path("start").asInt();
+			int end = node.path("end").asInt();
+			Enrichment enrichment;
+			if (Enrichment.ENTITY_TYPE.equals(type)) {
+				EntityEnrichment entity = new EntityEnrichment(
+						text(node, "entityURL"));
+				entity.setAnnotatorRef(text(node, "annotator"));
+				enrichment = entity;
+			} else if (Enrichment.LINK_TYPE.equals(type)) {
+				LinkEnrichment link = new LinkEnrichment(start, end);
+				link.setReferenceEntity(text(node, "referenceEntity"));
+				JsonNode info = node.path("entityName");
+				if (!info.isMissingNode()) {
+					link.setEntityName(text(info, "value"), text(info, "propName"));
+				}
+				info = node.path("shortDescription");
+				if (!info.isMissingNode()) {
+					link.setShortDescription(text(info, "value"),
+							text(info, "propName"));
+				}
+				info = node.path("longDescription");
+				if (!info.isMissingNode()) {
+					link.setLongDescription(text(info, "value"),
+							text(info, "propName"));
+				}
+				info = node.path("imageURL");
+				if (!info.isMissingNode()) {
+					link.setImageURL(text(info, "value"), text(info, "propName"));
+				}
+				info = node.path("homePage");
+				if (!info.isMissingNode()) {
+					link.setHomePage(text(info, "value"), text(info, "propName"));
+				}
+				info = node.path("wikiPage");
+				if (!info.isMissingNode()) {
+					link.setWikiPage(text(info, "value"), text(info, "propName"));
+				}
+				if (node.has("infoList")) {
+					List<LinkInfoData> infoList = new ArrayList<LinkInfoData>();
+					for (JsonNode infoNode : node.path("infoList")) {
+						LinkInfoData data = new LinkInfoData(text(infoNode,
+								"propName"), text(infoNode, "label"),
+								dataType(text(infoNode, "dataType")), text(
+										infoNode, "unit"));
+						data.setValue(text(infoNode, "value"));
+						infoList.add(data);
+					}
+					link.setInfoList(infoList);
+				}
+				if (node.has("context")) {
+					Map<String, String> context = new LinkedHashMap<String, String>();
+					Iterator<Map.Entry<String, JsonNode>> it = node.path(
+							"context").getFields();
+					while (it.hasNext()) {
+						Map.Entry<String, JsonNode> e = it.next();
+						context.put(e.getKey(), e.getValue().asText());
+					}
+					link.setContext(context);
+				}
+				enrichment = link;
+			} else if (Enrichment.TERMINOLOGY_TYPE.equals(type)) {
+				TerminologyEnrichment term = new TerminologyEnrichment();
+				term.setTermInfoRef(text(node, "termInfoRef"));
+				term.setSense(text(node, "sense"));
+				term.setDefinition(text(node, "definition"));
+				term.setSourceTerm(text(node, "sourceTerm"));
+				term.setTargetTerm(text(node, "targetTerm"));
+				term.setAnnotator(text(node, "annotator"));
+				String triples = text(node, "termTriples");
+				if (triples != null) {
+					Model model = ModelFactory.createDefaultModel();
+					model.read(new StringReader(triples), null, NTRIPLES);
+					List<Statement> statements = model.listStatements().toList();
+					term.setTermTriples(statements);
+				}
+				enrichment = term;
+			} else if (Enrichment.TRANSLATION_TYPE.equals(type)) {
+				TranslationEnrichment translation = new TranslationEnrichment(
+						"char=" + start + "," + end);
+				translation.setTranslation(text(node, "translation"));
+				translation.setLanguage(text(node, "language"));
+				enrichment = translation;
+			} else {
+				throw new IOException("Unknown enrichment type " + type);
+			}
+			enrichment.setOffsetStartIdx(start);
+			enrichment.setOffsetEndIdx(end);
+			enrichment.setDisabled(node.path("disabled").asBoolean());
+			enrichments.add(enrichment);
+		}
+		return enrichments;
+	}
+
+	private static String text(JsonNode node, String field) {
+		JsonNode value = node.get(field);
+		return value == null || value.isNull() ? null : value.asText();
+	}
+
+	private static Class<?> dataType(String name) throws IOException {
+		if (name == null) {
+			return String.class;
+		}
+		for (Class<?> type : new Class<?>[] { String.class, Date.class,
+				Integer.class, Float.class }) {
+			if (type.getName().equals(name)) {
+				return type;
+			}
+		}
+		throw new IOException("Unknown link info type " + name);
+	}
+}
@@ -0,0 +1,507 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vistatec.ocelot.plugins.exception.FremeEnrichmentException;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+
+/**
+ * Schedules the calls to a FREME plugin needed to enrich the fragments of a
+ * document.
+ * <p>
+ * At most a fixed number of calls run at the same time, whatever the size of
+ * the document. Pending fragments are sent in batches of source or target
+ * fragments, as a single call to a {@link BatchFremePlugin} or one call per
+ * fragment to other plugins. The fragments of the visible segments are sent
+ * first, followed by the rest in segment order. A call failing with a
+ * {@link FremeEnrichmentException} is retried with an exponential backoff,
+ * up to a maximum number of attempts. All the pending fragments can be
+ * cancelled at any time.
+ *
+ * @param <F>
+ *            the fragment type
+ */
+class FremeEnrichmentScheduler<F extends FremeEnrichmentScheduler.Fragment> {
+
+	/** The logger for this class. */
+	private final Logger logger = Logger
+			.getLogger(FremeEnrichmentScheduler.class);
+
+	/** Default number of plugin calls running at the same time. */
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+	/** Default maximum number of fragments per call. */
+	public static final int DEFAULT_BATCH_SIZE = 20;
+
+	/** Default maximum number of calls for a fragment. */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/** Default delay before the first retry of a failed call. */
+	public static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+
+	/** Maximum delay between retries. */
+	private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+	/**
+	 * A piece of text to be enriched.
+	 */
+	interface Fragment {
+
+		int getSegNumber();
+
+		String getText();
+
+		boolean isTarget();
+	}
+
+	/**
+	 * Receives the enrichment results, on the scheduler threads.
+	 */
+	interface Listener<F> {
+
+		void fragmentEnriched(F fragment, List<Enrichment> enrichments);
+
+		/**
+		 * Called when a fragment has used up its attempts, or the plugin
+		 * failed in an unexpected way.
+		 */
+		void fragmentFailed(F fragment, Exception e);
+
+		/**
+		 * Called after each call, and once all the fragments submitted have
+		 * been enriched, have failed or have been cancelled. It must not
+		 * block.
+		 */
+		void progressChanged(Progress progress);
+	}
+
+	private final int concurrency;
+	private final int batchSize;
+	private final int maxAttempts;
+	private final long retryDelayMillis;
+	private final Listener<F> listener;
+	private final ExecutorService workers;
+	private final ScheduledExecutorService retrier;
+
+	/** Pending source and target fragments, by segment number. */
+	private final TreeMap<Integer, Pending> sourceQueue = new TreeMap<Integer, Pending>();
+	private final TreeMap<Integer, Pending> targetQueue = new TreeMap<Integer, Pending>();
+
+	private int firstVisible = -1, lastVisible = -1;
+	private int running;
+	/** Incremented by cancellation, to discard the calls in progress. */
+	private int generation;
+	private int total, enriched, failed;
+
+	FremeEnrichmentScheduler(Listener<F> listener) {
+		this(DEFAULT_CONCURRENCY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_ATTEMPTS,
+				DEFAULT_RETRY_DELAY_MILLIS, listener);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param concurrency
+	 *            the maximum number of plugin calls running at the same time
+	 * @param batchSize
+	 *            the maximum number of fragments per call
+	 * @param maxAttempts
+	 *            the maximum number of calls for a fragment
+	 * @param retryDelayMillis
+	 *            the delay before the first retry, doubled on each retry
+	 * @param listener
+	 *            the listener
+	 */
+	FremeEnrichmentScheduler(int concurrency, int batchSize, int maxAttempts,
+			long retryDelayMillis, Listener<F> listener) {
+		this.concurrency = Math.max(1, concurrency);
+		this.batchSize = Math.max(1, batchSize);
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.retryDelayMillis = retryDelayMillis;
+		this.listener = listener;
+		this.workers = Executors.newFixedThreadPool(this.concurrency,
+				new ThreadFactoryBuilder().setNameFormat("ocelot-freme-%d")
+						.setDaemon(true).build());
+		this.retrier = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+						.setNameFormat("ocelot-freme-retry").setDaemon(true)
+						.build());
+	}
+
+	/**
+	 * Queues fragments to be enriched by a plugin. A fragment replaces any
+	 * fragment of the same segment and side still waiting to be sent.
+	 */
+	public synchronized void submit(FremePlugin plugin,
+			Collection<? extends F> fragments) {
+		for (F fragment : fragments) {
+			Pending previous = queueFor(fragment.isTarget()).put(
+					fragment.getSegNumber(), new Pending(plugin, fragment));
+			if (previous == null) {
+				total++;
+			}
+		}
+		dispatch();
+	}
+
+	/**
+	 * Sets the range of segment numbers currently displayed, whose fragments
+	 * are sent before the others.
+	 */
+	public synchronized void setVisibleSegments(int first, int last) {
+		this.firstVisible = first;
+		this.lastVisible = last;
+	}
+
+	/**
+	 * Drops the pending fragments, and the results of the calls in progress.
+	 */
+	public synchronized void cancel() {
+		if (total == 0) {
+			return;
+		}
+		logger.info("Cancelling enrichment after " + (enriched + failed)
+				+ " of " + total + " fragments");
+		generation++;
+		sourceQueue.clear();
+		targetQueue.clear();
+		listener.progressChanged(new Progress(total, enriched, failed, true,
+				true));
+		total = enriched = failed = 0;
+	}
+
+	/**
+	 * @return true if some fragments are waiting or being enriched.
+	 */
+	public synchronized boolean isBusy() {
+		return total > 0;
+	}
+
+	public void shutdown() {
+		synchronized (this) {
+			generation++;
+			sourceQueue.clear();
+			targetQueue.clear();
+			total = enriched = failed = 0;
+		}
+		workers.shutdownNow();
+		retrier.shutdownNow();
+	}
+
+	private TreeMap<Integer, Pending> queueFor(boolean target) {
+		return target ? targetQueue : sourceQueue;
+	}
+
+	private synchronized void dispatch() {
+		while (running < concurrency) {
+			final List<Pending> batch = takeBatch();
+			if (batch.isEmpty()) {
+				break;
+			}
+			running++;
+			try {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						runBatch(batch);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// Shut down
+				running--;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Takes the next fragments to be sent: visible ones first, then in
+	 * segment order. The fragments of a batch are all sources or all targets,
+	 * for the same plugin.
+	 */
+	private List<Pending> takeBatch() {
+		List<Pending> batch = new ArrayList<Pending>();
+		TreeMap<Integer, Pending> queue = nextQueue();
+		if (queue == null) {
+			return batch;
+		}
+		if (firstVisible >= 0 && lastVisible >= firstVisible) {
+			take(queue.subMap(firstVisible, true, lastVisible, true), batch);
+		}
+		take(queue, batch);
+		return batch;
+	}
+
+	private void take(NavigableMap<Integer, Pending> queue, List<Pending> batch) {
+		Iterator<Map.Entry<Integer, Pending>> it = queue.entrySet().iterator();
+		while (it.hasNext() && batch.size() < batchSize) {
+			Pending p = it.next().getValue();
+			if (batch.isEmpty() || batch.get(0).plugin == p.plugin) {
+				batch.add(p);
+				it.remove();
+			}
+		}
+	}
+
+	private TreeMap<Integer, Pending> nextQueue() {
+		Integer source = firstKey(sourceQueue), target = firstKey(targetQueue);
+		if (source == null && target == null) {
+			return null;
+		} else if (source == null) {
+			return targetQueue;
+		} else if (target == null) {
+			return sourceQueue;
+		}
+		boolean sourceVisible = isVisible(source), targetVisible = isVisible(target);
+		if (sourceVisible != targetVisible) {
+			return sourceVisible ? sourceQueue : targetQueue;
+		}
+		return source <= target ? sourceQueue : targetQueue;
+	}
+
+	/**
+	 * @return the first visible segment number in the queue, or the first
+	 *         one if none is visible.
+	 */
+	private Integer firstKey(TreeMap<Integer, Pending> queue) {
+		if (queue.isEmpty()) {
+			return null;
+		}
+		if (firstVisible >= 0) {
+			Integer key = queue.ceilingKey(firstVisible);
+			if (key != null && key <= lastVisible) {
+				return key;
+			}
+		}
+		return queue.firstKey();
+	}
+
+	private boolean isVisible(int segNumber) {
+		return segNumber >= firstVisible && segNumber <= lastVisible;
+	}
+
+	private void runBatch(List<Pending> batch) {
+		try {
+			FremePlugin plugin = batch.get(0).plugin;
+			boolean target = batch.get(0).fragment.isTarget();
+			if (plugin instanceof BatchFremePlugin) {
+				enrichBatch((BatchFremePlugin) plugin, target, batch);
+			} else {
+				for (Pending p : batch) {
+					enrichFragment(plugin, target, p);
+				}
+			}
+		} finally {
+			synchronized (this) {
+				running--;
+				reportProgress();
+				dispatch();
+			}
+		}
+	}
+
+	private void enrichBatch(BatchFremePlugin plugin, boolean target,
+			List<Pending> batch) {
+		List<String> texts = new ArrayList<String>(batch.size());
+		for (Pending p : batch) {
+			texts.add(p.fragment.getText());
+		}
+		List<List<Enrichment>> results;
+		try {
+			results = target ? plugin.enrichTargetContents(texts) : plugin
+					.enrichSourceContents(texts);
+			if (results == null || results.size() != batch.size()) {
+				throw new FremeEnrichmentException(new IllegalStateException(
+						"Expected " + batch.size() + " results, got "
+								+ (results == null ? null : results.size())));
+			}
+		} catch (FremeEnrichmentException e) {
+			logger.warn("Error while enriching " + batch.size()
+					+ " fragments", e);
+			for (Pending p : batch) {
+				retryOrFail(p, e);
+			}
+			return;
+		} catch (RuntimeException e) {
+			for (Pending p : batch) {
+				fail(p, e);
+			}
+			return;
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			succeed(batch.get(i), results.get(i));
+		}
+	}
+
+	private void enrichFragment(FremePlugin plugin, boolean target, Pending p) {
+		if (p.generation != currentGeneration()) {
+			return;
+		}
+		try {
+			String text = p.fragment.getText();
+			succeed(p, target ? plugin.enrichTargetContent(text) : plugin
+					.enrichSourceContent(text));
+		} catch (FremeEnrichmentException e) {
+			logger.warn("Error while enriching the fragment of segment "
+					+ p.fragment.getSegNumber(), e);
+			retryOrFail(p, e);
+		} catch (RuntimeException e) {
+			fail(p, e);
+		}
+	}
+
+	private synchronized int currentGeneration() {
+		return generation;
+	}
+
+	private void succeed(Pending p, List<Enrichment> enrichments) {
+		if (p.generation != currentGeneration()) {
+			return;
+		}
+		try {
+			listener.fragmentEnriched(p.fragment, enrichments);
+		} catch (RuntimeException e) {
+			logger.error("Error while applying the enrichments of segment "
+					+ p.fragment.getSegNumber(), e);
+		}
+		synchronized (this) {
+			if (p.generation == generation) {
+				enriched++;
+			}
+		}
+	}
+
+	private void fail(Pending p, Exception e) {
+		if (p.generation != currentGeneration()) {
+			return;
+		}
+		logger.error("Failed to enrich the fragment of segment "
+				+ p.fragment.getSegNumber(), e);
+		listener.fragmentFailed(p.fragment, e);
+		synchronized (this) {
+			if (p.generation == generation) {
+				failed++;
+			}
+		}
+	}
+
+	private void retryOrFail(final Pending p, Exception e) {
+		if (p.attempts >= maxAttempts) {
+			fail(p, e);
+			return;
+		}
+		long delay = Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis
+				<< Math.min(p.attempts - 1, 16));
+		p.attempts++;
+		try {
+			retrier.schedule(new Runnable() {
+				@Override
+				public void run() {
+					requeue(p);
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ex) {
+			// Shut down
+		}
+	}
+
+	private synchronized void requeue(Pending p) {
+		if (p.generation != generation) {
+			return;
+		}
+		TreeMap<Integer, Pending> queue = queueFor(p.fragment.isTarget());
+		if (queue.containsKey(p.fragment.getSegNumber())) {
+			// Superseded by a newer fragment for the same segment
+			enriched++;
+			reportProgress();
+		} else {
+			queue.put(p.fragment.getSegNumber(), p);
+			dispatch();
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock.
+	 */
+	private void reportProgress() {
+		if (total == 0) {
+			return;
+		}
+		boolean finished = enriched + failed >= total;
+		listener.progressChanged(new Progress(total, enriched, failed,
+				finished, false));
+		if (finished) {
+			total = enriched = failed = 0;
+		}
+	}
+
+	private class Pending {
+		private final FremePlugin plugin;
+		private final F fragment;
+		private final int generation;
+		private int attempts = 1;
+
+		Pending(FremePlugin plugin, F fragment) {
+			this.plugin = plugin;
+			this.fragment = fragment;
+			this.generation = FremeEnrichmentScheduler.this.generation;
+		}
+	}
+
+	/**
+	 * Progress of the fragments submitted since the scheduler was last idle.
+	 */
+	static class Progress {
+		private final int total, enriched, failed;
+		private final boolean finished, cancelled;
+
+		Progress(int total, int enriched, int failed, boolean finished,
+				boolean cancelled) {
+			this.total = total;
+			this.enriched = enriched;
+			this.failed = failed;
+			this.finished = finished;
+			this.cancelled = cancelled;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		public int getEnriched() {
+			return enriched;
+		}
+
+		public int getFailed() {
+			return failed;
+		}
+
+		public boolean isFinished() {
+			return finished;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public String toString() {
+			return (enriched + failed) + "/" + total + " fragments, " + failed
+					+ " failed" + (cancelled ? " (cancelled)" : "");
+		}
+	}
+}
@@ -21,6 +21,10 @@ public class FremeMenu extends JMenu {
 	public static final int FILTER_MENU = 1;
 	
 	public static final int ENRICH_MENU = 2;
+
+	public static final int CANCEL_MENU = 3;
+
+	public static final int CLEAR_CACHE_MENU = 4;
 	
 	/** The entity service menu item. */
 	private FremeEServiceMenuItem mnuEEntityService;
@@ -43,6 +47,12 @@ public class FremeMenu extends JMenu {
 	/** The Enrich menu item. */
 	private FremeMenuItem mnuEnrich;
 
+	/** The Cancel Enrichment menu item. */
+	private FremeMenuItem mnuCancelEnrich;
+
+	/** The Clear Enrichment Cache menu item. */
+	private FremeMenuItem mnuClearCache;
+
 	/**
 	 * Constructor.
 	 * 
@@ -101,6 +111,16 @@ public class FremeMenu extends JMenu {
 		mnuEnrich = new FremeMenuItem("Enrich Segments", ENRICH_MENU);
 		mnuEnrich.addActionListener(actionListener);
 		add(mnuEnrich);
+
+		mnuCancelEnrich = new FremeMenuItem("Cancel Enrichment", CANCEL_MENU);
+		mnuCancelEnrich.setEnabled(false);
+		mnuCancelEnrich.addActionListener(actionListener);
+		add(mnuCancelEnrich);
+
+		mnuClearCache = new FremeMenuItem("Clear Enrichment Cache",
+		        CLEAR_CACHE_MENU);
+		mnuClearCache.addActionListener(actionListener);
+		add(mnuClearCache);
 		
 		mnuConfigPipeline = new FremeMenuItem("Freme Pipeline Configuration", CONFIG_MENU);
 		mnuConfigPipeline.addActionListener(actionListener);
@@ -110,6 +130,24 @@ public class FremeMenu extends JMenu {
 	public void setEnrichMenuEnabled(boolean enabled){
 		
 		mnuEnrich.setEnabled(enabled);
+		mnuCancelEnrich.setEnabled(!enabled);
+		if (enabled) {
+			mnuCancelEnrich.setText("Cancel Enrichment");
+		}
+	}
+
+	/**
+	 * Shows the enrichment progress in the Cancel Enrichment menu item.
+	 * 
+	 * @param done
+	 *            the number of fragments enriched or failed
+	 * @param total
+	 *            the number of fragments to be enriched
+	 */
+	public void setEnrichmentProgress(int done, int total) {
+
+		mnuCancelEnrich.setText("Cancel Enrichment (" + done + "/" + total
+				+ ")");
 	}
 
 }
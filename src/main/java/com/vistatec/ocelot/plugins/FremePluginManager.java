@@ -6,14 +6,17 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
@@ -24,11 +27,15 @@ import org.apache.log4j.Logger;
 
 import com.vistatec.ocelot.events.DisplayLeftComponentEvent;
 import com.vistatec.ocelot.events.EnrichingStartedStoppedEvent;
-import com.vistatec.ocelot.events.ItsDocStatsRecalculateEvent;
+import com.vistatec.ocelot.events.EnrichmentProgressEvent;
+import com.vistatec.ocelot.events.ItsDocStatsRemovedMetadataEvent;
+import com.vistatec.ocelot.events.ItsDocStatsUpdateMetadataEvent;
 import com.vistatec.ocelot.events.RefreshSegmentView;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.its.model.EnrichmentMetaData;
-import com.vistatec.ocelot.plugins.exception.FremeEnrichmentException;
+import com.vistatec.ocelot.its.model.TerminologyMetaData;
+import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
+import com.vistatec.ocelot.its.stats.model.ITSDocStats;
 import com.vistatec.ocelot.plugins.exception.UnknownServiceException;
 import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
@@ -36,20 +43,20 @@ import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
 import com.vistatec.ocelot.xliff.freme.EnrichmentConverter;
 
 /**
- * Class managing calls to the FREME Plugin. It provides a pool of threads
- * invoking FREME services for Ocelot fragments.
+ * Class managing calls to the FREME Plugin. The Ocelot fragments are sent to
+ * the FREME services by a {@link FremeEnrichmentScheduler}, running at most
+ * <code>ocelot.freme.concurrency</code> calls of
+ * <code>ocelot.freme.batchSize</code> fragments at the same time. Fragments
+ * whose text has already been enriched are served by a
+ * {@link FremeEnrichmentCache} instead. The results are applied in batches
+ * by an {@link EnrichmentResultBatcher}, so that the segment view and the
+ * document statistics are updated once per batch.
  */
 public class FremePluginManager {
 
 	/** The logger for this class. */
 	private final Logger logger = Logger.getLogger(FremePluginManager.class);
 
-	/** Ideal segments number per call. */
-	private static final int SEGNUM_PER_CALL = 20;
-
-	/** Maximum number of threads allowed in the pool. */
-	private static final int MAX_THREAD_NUM = 10;
-
 	public static final int OVERRIDE_ENRICHMENTS = 0;
 
 	public static final int MERGE_ENRICHMENTS = 1;
@@ -57,12 +64,45 @@ public class FremePluginManager {
 	/** The Ocelot event queue. */
 	private OcelotEventQueue eventQueue;
 
-	/** The executor service. */
-	private ExecutorService executor;
+	/** The scheduler of the calls to the FREME plugin. */
+	private final FremeEnrichmentScheduler<VariantWrapper> scheduler;
+
+	/** The enrichments already returned by the FREME plugin. */
+	private FremeEnrichmentCache cache = new FremeEnrichmentCache(null,
+			FremeEnrichmentCache.DEFAULT_MAX_ENTRIES);
+
+	/**
+	 * Fragments waiting for the enrichment of an identical fragment, by cache
+	 * key.
+	 */
+	private final Map<String, List<VariantWrapper>> duplicates =
+			new HashMap<String, List<VariantWrapper>>();
+
+	/** The FREME plugin the last fragments were sent to. */
+	private volatile FremePlugin lastPlugin;
+
+	/** The active FREME services, all turned on in the FREME menu at first. */
+	private final Set<Integer> activeServices = Collections
+			.synchronizedSet(new HashSet<Integer>(Arrays.asList(
+					FremePlugin.EENTITY_SERVICE, FremePlugin.ELINK_SERVICE,
+					FremePlugin.ETERMINOLOGY, FremePlugin.ETRANSLATION)));
+
+	/** The source language. */
+	private String sourceLang;
+
+	/** The target language. */
+	private String targetLang;
 
 	/** List of segments currently opened in Ocelot. */
 	private List<OcelotSegment> segments;
 
+	/** The segments currently opened in Ocelot, by segment number. */
+	private Map<Integer, OcelotSegment> segmentsByNumber = Collections
+			.emptyMap();
+
+	/** Collects the enrichment results to be applied. */
+	private final EnrichmentResultBatcher<EnrichedFragment> results;
+
 	/** States if the FREME plugin is enriching. */
 	private boolean enriching;
 
@@ -81,11 +121,22 @@ public class FremePluginManager {
 	public FremePluginManager(final OcelotEventQueue eventQueue) {
 
 		this.eventQueue = eventQueue;
-		createExecutor();
-	}
-
-	private void createExecutor() {
-		executor = Executors.newFixedThreadPool(MAX_THREAD_NUM);
+		this.scheduler = new FremeEnrichmentScheduler<VariantWrapper>(
+				Integer.getInteger("ocelot.freme.concurrency",
+						FremeEnrichmentScheduler.DEFAULT_CONCURRENCY),
+				Integer.getInteger("ocelot.freme.batchSize",
+						FremeEnrichmentScheduler.DEFAULT_BATCH_SIZE),
+				FremeEnrichmentScheduler.DEFAULT_MAX_ATTEMPTS,
+				FremeEnrichmentScheduler.DEFAULT_RETRY_DELAY_MILLIS,
+				new FremeEnricher());
+		this.results = new EnrichmentResultBatcher<EnrichedFragment>(
+				EnrichmentResultBatcher.DEFAULT_SLICE_MILLIS,
+				new EnrichmentResultBatcher.Handler<EnrichedFragment>() {
+					@Override
+					public void handle(List<EnrichedFragment> batch) {
+						applyResults(batch);
+					}
+				});
 	}
 
 	/**
@@ -95,9 +146,50 @@ public class FremePluginManager {
 	 *            the segments list.
 	 */
 	public void setSegments(List<OcelotSegment> segments) {
+		Map<Integer, OcelotSegment> bySegNumber = new HashMap<Integer, OcelotSegment>();
+		if (segments != null) {
+			for (OcelotSegment segment : segments) {
+				bySegNumber.put(segment.getSegmentNumber(), segment);
+			}
+		}
+		this.segmentsByNumber = bySegNumber;
 		this.segments = segments;
 	}
 
+	/**
+	 * Sets the enrichment cache.
+	 * 
+	 * @param cache
+	 *            the enrichment cache.
+	 */
+	public void setEnrichmentCache(FremeEnrichmentCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Drops all the cached enrichments, so that all fragments are sent to the
+	 * FREME plugin again.
+	 */
+	public void clearEnrichmentCache() {
+		cache.clear();
+		cache.save();
+	}
+
+	/**
+	 * Sets the languages of the document, which are part of the enrichment
+	 * cache keys.
+	 * 
+	 * @param sourceLang
+	 *            the source language
+	 * @param targetLang
+	 *            the target language
+	 */
+	public void setSourceAndTargetLanguages(String sourceLang,
+			String targetLang) {
+		this.sourceLang = sourceLang;
+		this.targetLang = targetLang;
+	}
+
 	/**
 	 * Enriches the segments opened in Ocelot by invoking the FREME plugin.
 	 * 
@@ -111,41 +203,121 @@ public class FremePluginManager {
 				resetSegments();
 			}
 			logger.info("Enriching Ocelot segments...");
-			List<VariantWrapper> fragments = getFragments(segments);
-			Collections.sort(fragments, new FragmentsComparator());
-			List<VariantWrapper> fragmentsToDelete = new ArrayList<VariantWrapper>();
-			int threadNum = findThreadNum(fragments.size());
-			VariantWrapper[][] fragmentsArrays = new VariantWrapper[threadNum][(int) Math
-					.ceil((double) fragments.size() / threadNum)];
-			int j = 0;
-			for (int i = 0; i < fragments.size(); i = i + threadNum) {
-
-				for (int arrayIdx = 0; arrayIdx < threadNum; arrayIdx++) {
-
-					if (i + arrayIdx < fragments.size()) {
-						fragmentsArrays[arrayIdx][j] = fragments.get(i
-								+ arrayIdx);
-						fragmentsToDelete.add(fragments.get(i + arrayIdx));
-					}
+			enrichFragments(fremePlugin, getFragments(segments));
+		}
+
+	}
+
+	/**
+	 * Applies the cached enrichments, and sends the other fragments to the
+	 * FREME plugin. Only one of several identical fragments is sent.
+	 */
+	private void enrichFragments(FremePlugin fremePlugin,
+			List<VariantWrapper> fragments) {
+
+		lastPlugin = fremePlugin;
+		Set<Integer> services;
+		synchronized (activeServices) {
+			services = new HashSet<Integer>(activeServices);
+		}
+		List<VariantWrapper> toSend = new ArrayList<VariantWrapper>();
+		int cachedCount = 0;
+		synchronized (duplicates) {
+			for (VariantWrapper frag : fragments) {
+				String key = FremeEnrichmentCache.key(frag.getText(),
+						frag.isTarget(), sourceLang, targetLang, services);
+				frag.setCacheKey(key);
+				List<Enrichment> enrichments = cache.get(key);
+				if (enrichments != null) {
+					results.add(new EnrichedFragment(frag, enrichments));
+					cachedCount++;
+				} else if (duplicates.containsKey(key)) {
+					duplicates.get(key).add(frag);
+				} else {
+					duplicates.put(key, new ArrayList<VariantWrapper>());
+					toSend.add(frag);
 				}
-				j++;
-			}
-			System.out.println("Fragments size = " + fragments.size());
-			int count = 0;
-			for (int i = 0; i < fragmentsArrays.length; i++) {
-				count += fragmentsArrays[i].length;
 			}
-			System.out.println("Total fragments for FREME = " + count);
-			fragments.removeAll(fragmentsToDelete);
-			System.out.println(fragments.size());
+		}
+		if (cachedCount > 0) {
+			logger.info(cachedCount + " of " + fragments.size()
+					+ " fragments enriched from the cache");
+			results.flush();
+		}
+		if (!toSend.isEmpty()) {
 			eventQueue.post(new EnrichingStartedStoppedEvent(
 					EnrichingStartedStoppedEvent.STARTED));
-			addTasksToExecutor(fragmentsArrays, fremePlugin);
-			WaitingThread waitingThread = new WaitingThread(executor, segments,
-					eventQueue);
-			waitingThread.start();
+			scheduler.submit(fremePlugin, toSend);
 		}
+	}
 
+	/**
+	 * Applies a batch of enrichment results. The statistics of the Text
+	 * Analysis and Terminology metadata of the segments involved are taken
+	 * before and after the change, and the difference is posted as a single
+	 * statistics update, together with a single view refresh.
+	 */
+	private void applyResults(List<EnrichedFragment> batch) {
+
+		Set<OcelotSegment> changed = Collections
+				.newSetFromMap(new IdentityHashMap<OcelotSegment, Boolean>());
+		Set<Integer> segNumbers = new HashSet<Integer>();
+		ITSDocStats removedStats = new ITSDocStats();
+		for (EnrichedFragment result : batch) {
+			OcelotSegment segment = getSegmentBySegNum(result.fragment
+					.getSegNumber());
+			if (segment != null && changed.add(segment)) {
+				addEnrichmentStats(segment, removedStats);
+			}
+		}
+		for (EnrichedFragment result : batch) {
+			if (result.enrichments != null) {
+				applyEnrichments(result.fragment, result.enrichments);
+			} else {
+				result.fragment.getVariant().setSentToFreme(true);
+			}
+			segNumbers.add(result.fragment.getSegNumber());
+		}
+		ITSDocStats addedStats = new ITSDocStats();
+		for (OcelotSegment segment : changed) {
+			addEnrichmentStats(segment, addedStats);
+		}
+		if (!changed.isEmpty()) {
+			eventQueue.post(new ItsDocStatsUpdateMetadataEvent(addedStats,
+					removedStats));
+		}
+		eventQueue.post(new RefreshSegmentView(segNumbers));
+	}
+
+	/**
+	 * Sets the enrichments of a fragment's variant, and converts them to ITS
+	 * meta data.
+	 */
+	private void applyEnrichments(VariantWrapper frag,
+			List<Enrichment> enrichments) {
+
+		String sourceTarget = frag.isTarget() ? EnrichmentMetaData.TARGET
+				: EnrichmentMetaData.SOURCE;
+		frag.getVariant().setSentToFreme(true);
+		frag.getVariant().setEnrichments(new HashSet<Enrichment>(enrichments));
+		frag.getVariant().setEnriched(true);
+		OcelotSegment segment = getSegmentBySegNum(frag.getSegNumber());
+		if (segment != null) {
+			EnrichmentConverter.convertEnrichment2ITSMetaData(segment,
+					frag.getVariant(), sourceTarget);
+		}
+	}
+
+	/**
+	 * @return the fragments that were waiting for the enrichment of the given
+	 *         fragment.
+	 */
+	private List<VariantWrapper> takeDuplicates(VariantWrapper frag) {
+		synchronized (duplicates) {
+			List<VariantWrapper> waiting = duplicates.remove(frag.getCacheKey());
+			return waiting != null ? waiting : Collections
+					.<VariantWrapper> emptyList();
+		}
 	}
 
 	/**
@@ -154,25 +326,49 @@ public class FremePluginManager {
 	private void resetSegments() {
 
 		logger.debug("Resetting segments before enrichment.");
+		ITSDocStats removedStats = new ITSDocStats();
 		for (OcelotSegment segment : segments) {
 
 			if (segment.getSource() instanceof BaseSegmentVariant) {
-				resetVariant(segment, (BaseSegmentVariant) segment.getSource());
+				resetVariant(segment, (BaseSegmentVariant) segment.getSource(),
+						removedStats);
 
 			}
 			if (segment.getTarget() != null
 					&& segment.getTarget() instanceof BaseSegmentVariant) {
-				resetVariant(segment, (BaseSegmentVariant) segment.getTarget());
+				resetVariant(segment, (BaseSegmentVariant) segment.getTarget(),
+						removedStats);
 			}
 		}
 		eventQueue.post(new RefreshSegmentView(-1));
-		eventQueue.post(new ItsDocStatsRecalculateEvent(segments));
+		eventQueue.post(new ItsDocStatsRemovedMetadataEvent(removedStats));
 	}
 
-	private void resetVariant(OcelotSegment segment, BaseSegmentVariant variant) {
+	/**
+	 * Removes the enrichments of a variant, collecting the statistics of the
+	 * Text Analysis and Terminology metadata removed from the segment.
+	 */
+	private void resetVariant(OcelotSegment segment,
+			BaseSegmentVariant variant, ITSDocStats removedStats) {
 
+		addEnrichmentStats(segment, removedStats);
 		EnrichmentConverter.removeEnrichmentMetaData(segment, variant);
 		variant.clearEnrichments();
+		for (TextAnalysisMetaData ta : segment.getTextAnalysis()) {
+			removedStats.removeTextAnalysisStats(ta);
+		}
+		for (TerminologyMetaData term : segment.getTerms()) {
+			removedStats.removeTerminologyStats(term);
+		}
+	}
+
+	private void addEnrichmentStats(OcelotSegment segment, ITSDocStats stats) {
+		for (TextAnalysisMetaData ta : segment.getTextAnalysis()) {
+			stats.addTextAnalysisStats(ta);
+		}
+		for (TerminologyMetaData term : segment.getTerms()) {
+			stats.addTerminologyStats(term);
+		}
 	}
 
 	/**
@@ -189,7 +385,9 @@ public class FremePluginManager {
 			int segNumber, boolean target, int action) {
 
 		if (action == OVERRIDE_ENRICHMENTS) {
-			resetVariant(getSegmentBySegNum(segNumber), variant);
+			ITSDocStats removedStats = new ITSDocStats();
+			resetVariant(getSegmentBySegNum(segNumber), variant, removedStats);
+			eventQueue.post(new ItsDocStatsRemovedMetadataEvent(removedStats));
 		} else {
 			variant.setEnriched(false);
 		}
@@ -198,48 +396,73 @@ public class FremePluginManager {
 		VariantWrapper wrapper = new VariantWrapper(variant,
 				variant.getDisplayText(), segNumber, target);
 		if (wrapper.getText() != null && !wrapper.getText().isEmpty()) {
-			eventQueue.post(new EnrichingStartedStoppedEvent(
-					EnrichingStartedStoppedEvent.STARTED));
-			addTasksToExecutor(new VariantWrapper[][] { { wrapper } },
-					fremePlugin);
-			WaitingThread waitingThread = new WaitingThread(executor, segments,
-					eventQueue);
-			waitingThread.start();
+			enrichFragments(fremePlugin, Collections.singletonList(wrapper));
 		}
 	}
 
-	private OcelotSegment getSegmentBySegNum(int segNumber) {
+	/**
+	 * Enriches the targets of several segments at once, eg. repetitions
+	 * whose target has just been copied. Their previous enrichments are
+	 * removed with a single statistics update and a single view refresh.
+	 * 
+	 * @param fremePlugin
+	 *            the freme plugin
+	 * @param segments
+	 *            the segments whose target is enriched
+	 */
+	public void enrichTargets(FremePlugin fremePlugin,
+			List<OcelotSegment> segments) {
 
-		OcelotSegment segment = null;
-		int i = 0;
-		while (i < segments.size() && segment == null) {
-			if (segments.get(i).getSegmentNumber() == segNumber) {
-				segment = segments.get(i);
+		ITSDocStats removedStats = new ITSDocStats();
+		SortedSet<Integer> segNumbers = new TreeSet<Integer>();
+		List<VariantWrapper> fragments = new ArrayList<VariantWrapper>();
+		for (OcelotSegment segment : segments) {
+			if (!(segment.getTarget() instanceof BaseSegmentVariant)) {
+				continue;
+			}
+			BaseSegmentVariant variant = (BaseSegmentVariant) segment
+					.getTarget();
+			resetVariant(segment, variant, removedStats);
+			segNumbers.add(segment.getSegmentNumber());
+			String text = variant.getDisplayText();
+			if (text != null && !text.isEmpty()) {
+				fragments.add(new VariantWrapper(variant, text, segment
+						.getSegmentNumber(), true));
 			}
-			i++;
 		}
-		return segment;
+		if (segNumbers.isEmpty()) {
+			return;
+		}
+		eventQueue.post(new ItsDocStatsRemovedMetadataEvent(removedStats));
+		eventQueue.post(new RefreshSegmentView(segNumbers));
+		logger.info("Enriching the targets of " + segNumbers.size()
+				+ " segments...");
+		if (!fragments.isEmpty()) {
+			enrichFragments(fremePlugin, fragments);
+		}
 	}
 
 	/**
-	 * Finds the optimal threads number depending on the number of segments to
-	 * be enriched.
-	 * 
-	 * @param segmentsSize
-	 *            the number of segments
-	 * @return the optimal threads number.
+	 * Sends the fragments of the segments in the given range before the
+	 * others.
 	 */
-	private int findThreadNum(int segmentsSize) {
-		int threadNum = 2;
-		boolean found = false;
-		while (!found) {
-			if (segmentsSize / threadNum <= SEGNUM_PER_CALL) {
-				found = true;
-			} else {
-				threadNum++;
-			}
+	public void setVisibleSegments(int firstSegNumber, int lastSegNumber) {
+		scheduler.setVisibleSegments(firstSegNumber, lastSegNumber);
+	}
+
+	/**
+	 * Cancels the enrichment in progress. The fragments already enriched keep
+	 * their enrichments.
+	 */
+	public void cancelEnrichment() {
+		scheduler.cancel();
+		synchronized (duplicates) {
+			duplicates.clear();
 		}
-		return threadNum;
+	}
+
+	private OcelotSegment getSegmentBySegNum(int segNumber) {
+		return segmentsByNumber.get(segNumber);
 	}
 
 	/**
@@ -283,10 +506,6 @@ public class FremePluginManager {
 		return fragments;
 	}
 
-	ExecutorService getexecutor() {
-		return executor;
-	}
-
 	List<OcelotSegment> getSegments() {
 		return segments;
 	}
@@ -325,17 +544,6 @@ public class FremePluginManager {
 		return enriching;
 	}
 
-	private synchronized void addTasksToExecutor(
-			VariantWrapper[][] fragmentsArrays, FremePlugin fremePlugin) {
-		if (executor.isShutdown()) {
-			createExecutor();
-		}
-		for (int i = 0; i < fragmentsArrays.length; i++) {
-			executor.execute(new FremeEnricher(fragmentsArrays[i], fremePlugin,
-					eventQueue, segments));
-		}
-	}
-
 	public JMenu getFremeMenu(final FremePlugin fremePlugin) {
 
 		if (fremeMenu == null) {
@@ -352,6 +560,10 @@ public class FremePluginManager {
 						} else if (menuItem.getMenuType() == FremeMenu.FILTER_MENU) {
 							eventQueue.post(new DisplayLeftComponentEvent(
 									fremePlugin.getCategoryFilterPanel()));
+						} else if (menuItem.getMenuType() == FremeMenu.CANCEL_MENU) {
+							cancelEnrichment();
+						} else if (menuItem.getMenuType() == FremeMenu.CLEAR_CACHE_MENU) {
+							clearEnrichmentCache();
 						} else if (menuItem.getMenuType() == FremeMenu.ENRICH_MENU) {
 							if (existEnrichments()) {
 								Window containerWindow = SwingUtilities
@@ -385,9 +597,11 @@ public class FremePluginManager {
 							if (e.getStateChange() == ItemEvent.SELECTED) {
 								fremePlugin.turnOnService(menuItem
 										.getServiceType());
+								activeServices.add(menuItem.getServiceType());
 							} else {
 								fremePlugin.turnOffService(menuItem
 										.getServiceType());
+								activeServices.remove(menuItem.getServiceType());
 							}
 						} 
 					} catch (UnknownServiceException exc) {
@@ -472,72 +686,88 @@ public class FremePluginManager {
 		}
 	}
 
-}
-
-class WaitingThread extends Thread {
-
-	private ExecutorService executor;
-
-	private List<OcelotSegment> segments;
-
-	private OcelotEventQueue eventQueue;
-
-	public WaitingThread(ExecutorService executor,
-			List<OcelotSegment> segments, OcelotEventQueue eventQueue) {
-		this.eventQueue = eventQueue;
-		this.executor = executor;
-		this.segments = segments;
-	}
+	/**
+	 * Applies the enrichments returned by the FREME plugin to the variants, and
+	 * reports the enrichment progress.
+	 */
+	private class FremeEnricher implements
+			FremeEnrichmentScheduler.Listener<VariantWrapper> {
+
+		@Override
+		public void fragmentEnriched(VariantWrapper frag,
+				List<Enrichment> enrichments) {
+
+			boolean cached = cache.put(frag.getCacheKey(), enrichments);
+			results.add(new EnrichedFragment(frag, enrichments));
+			List<VariantWrapper> toSend = new ArrayList<VariantWrapper>();
+			for (VariantWrapper duplicate : takeDuplicates(frag)) {
+				// Each variant gets its own copy of the enrichments
+				List<Enrichment> copy = cached ? cache.get(duplicate
+						.getCacheKey()) : null;
+				if (copy != null) {
+					results.add(new EnrichedFragment(duplicate, copy));
+				} else {
+					toSend.add(duplicate);
+				}
+			}
+			if (!toSend.isEmpty()) {
+				scheduler.submit(lastPlugin, toSend);
+			}
+		}
 
-	@Override
-	public void run() {
+		@Override
+		public void fragmentFailed(VariantWrapper frag, Exception e) {
 
-		synchronized (executor) {
-			executor.shutdown();
-		}
-		try {
-			executor.awaitTermination(5, TimeUnit.MINUTES);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			results.add(new EnrichedFragment(frag, null));
+			for (VariantWrapper duplicate : takeDuplicates(frag)) {
+				results.add(new EnrichedFragment(duplicate, null));
+			}
 		}
-		eventQueue.post(new ItsDocStatsRecalculateEvent(segments));
-		eventQueue.post(new EnrichingStartedStoppedEvent(
-				EnrichingStartedStoppedEvent.STOPPED));
 
-		System.out.println("-----------------------------------");
-		System.out.println("---------ENRICHED SEGMENTS---------");
-		System.out.println("-----------------------------------");
-		int count = 0;
-		for (OcelotSegment segment : segments) {
-			if (((BaseSegmentVariant) segment.getSource()).isEnriched()
-					&& ((BaseSegmentVariant) segment.getTarget()).isEnriched()) {
-				System.out.println(segment.getSegmentNumber());
-				count++;
+		@Override
+		public void progressChanged(FremeEnrichmentScheduler.Progress progress) {
+
+			eventQueue.post(new EnrichmentProgressEvent(progress.getTotal(),
+					progress.getEnriched(), progress.getFailed(), progress
+							.isFinished()));
+			if (progress.isFinished()) {
+				logger.info("Enrichment finished: " + progress
+						+ ". Enrichment cache: " + cache.getSummary());
+				synchronized (duplicates) {
+					// Left over by fragments replaced before being sent
+					duplicates.clear();
+				}
+				if (progress.isCancelled()) {
+					results.clear();
+				}
+				// Called with the scheduler locked, possibly on the EDT, so
+				// the remaining results and the cache file are handled later
+				results.flushThen(new Runnable() {
+					@Override
+					public void run() {
+						eventQueue.post(new EnrichingStartedStoppedEvent(
+								EnrichingStartedStoppedEvent.STOPPED));
+						cache.save();
+					}
+				});
 			}
 		}
-
-		System.out.println("TOTAL: " + count);
 	}
 
-}
+	/**
+	 * The enrichments returned for a fragment, <code>null</code> if the
+	 * fragment could not be enriched.
+	 */
+	private static class EnrichedFragment {
 
-/**
- * Comparator for fragments. A fragment is smaller than another one, if its text
- * is shorter than the other's text.
- */
-class FragmentsComparator implements Comparator<VariantWrapper> {
+		private final VariantWrapper fragment;
 
-	@Override
-	public int compare(VariantWrapper o1, VariantWrapper o2) {
+		private final List<Enrichment> enrichments;
 
-		int retValue = 0;
-		if (o1.getText().length() > o2.getText().length()) {
-			retValue = 1;
-		} else if (o1.getText().length() < o2.getText().length()) {
-			retValue = -1;
+		EnrichedFragment(VariantWrapper fragment, List<Enrichment> enrichments) {
+			this.fragment = fragment;
+			this.enrichments = enrichments;
 		}
-		return retValue;
 	}
 
 }
@@ -545,7 +775,7 @@ class FragmentsComparator implements Comparator<VariantWrapper> {
 /**
  * Wrapper class for variant objects.
  */
-class VariantWrapper {
+class VariantWrapper implements FremeEnrichmentScheduler.Fragment {
 
 	/** The variant. */
 	private BaseSegmentVariant variant;
@@ -558,6 +788,9 @@ class VariantWrapper {
 
 	private boolean target;
 
+	/** The key of the fragment in the enrichment cache. */
+	private String cacheKey;
+
 	/**
 	 * Constructor.
 	 * 
@@ -590,6 +823,7 @@ class VariantWrapper {
 	 * 
 	 * @return the text.
 	 */
+	@Override
 	public String getText() {
 		return text;
 	}
@@ -599,119 +833,23 @@ class VariantWrapper {
 	 * 
 	 * @return the segment number.
 	 */
+	@Override
 	public int getSegNumber() {
 		return segNumber;
 	}
 
+	@Override
 	public boolean isTarget() {
 		return target;
 	}
 
-}
-
-/**
- * Runnable class performing the enrichment of an array of variants.
- */
-class FremeEnricher implements Runnable {
-
-	/** The logger for this class. */
-	private final Logger logger = Logger.getLogger(FremeEnricher.class);
-
-	/** The array of variants. */
-	private VariantWrapper[] variants;
-
-	/** The FREME plugin. */
-	private FremePlugin fremePlugin;
-
-	/** The event queue. */
-	private OcelotEventQueue eventQueue;
-
-	private List<OcelotSegment> segments;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param variants
-	 *            the array of variants to be enriched.
-	 * @param fremePlugin
-	 *            the FREME plugin
-	 * @param eventQueue
-	 *            the event queue
-	 */
-	public FremeEnricher(final VariantWrapper[] variants,
-			FremePlugin fremePlugin, OcelotEventQueue eventQueue,
-			List<OcelotSegment> segments) {
-		this.variants = variants;
-		this.fremePlugin = fremePlugin;
-		this.eventQueue = eventQueue;
-		this.segments = segments;
+	public String getCacheKey() {
+		return cacheKey;
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see java.lang.Runnable#run()
-	 */
-	@Override
-	public void run() {
-
-		logger.debug("Enriching " + variants.length + " variants");
-		for (VariantWrapper frag : variants) {
-			if (frag != null) {
-				try {
-					List<Enrichment> enrichments = null;
-					String sourceTarget = null;
-					frag.getVariant().setSentToFreme(true);
-					if (frag.isTarget()) {
-						enrichments = fremePlugin.enrichTargetContent(frag
-								.getText());
-						sourceTarget = EnrichmentMetaData.TARGET;
-					} else {
-						enrichments = fremePlugin.enrichSourceContent(frag
-								.getText());
-						sourceTarget = EnrichmentMetaData.SOURCE;
-					}
-					frag.getVariant().setEnrichments(
-							new HashSet<Enrichment>(enrichments));
-					frag.getVariant().setEnriched(true);
-					OcelotSegment segment = findSegmentBySegNumber(frag
-							.getSegNumber());
-					if (segment != null) {
-						EnrichmentConverter.convertEnrichment2ITSMetaData(
-								segment, frag.getVariant(), sourceTarget);
-					}
-
-				} catch (FremeEnrichmentException e) {
-					logger.error("Error while enriching the variant "
-							+ frag.getVariant().getDisplayText(), e);
-				} finally {
-					eventQueue
-					.post(new RefreshSegmentView(frag.getSegNumber()));
-				}
-			}
-		}
-
+	public void setCacheKey(String cacheKey) {
+		this.cacheKey = cacheKey;
 	}
 
-	/**
-	 * Finds the segment having the specified segment number.
-	 * 
-	 * @param segNum
-	 *            the segment number.
-	 * @return the Ocelot segment.
-	 */
-	private OcelotSegment findSegmentBySegNumber(int segNum) {
-
-		OcelotSegment segment = null;
-		Iterator<OcelotSegment> segmIt = segments.iterator();
-		OcelotSegment currSegm = null;
-		while (segmIt.hasNext() && segment == null) {
-			currSegm = segmIt.next();
-			if (currSegm.getSegmentNumber() == segNum) {
-				segment = currSegm;
-			}
-		}
-		return segment;
-	}
+}
 
-}
\ No newline at end of file
@@ -0,0 +1,277 @@
+package com.vistatec.ocelot.plugins;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Finds the plugin classes in plugin jars, and remembers them between runs.
+ * <p>
+ * Plugins are found, in order of preference, from:
+ * <ul>
+ * <li>{@link java.util.ServiceLoader} provider files in the jar, eg.
+ * <code>META-INF/services/com.vistatec.ocelot.plugins.SegmentPlugin</code>
+ * listing the implementing classes;</li>
+ * <li>an <code>Ocelot-Plugins</code> attribute in the jar manifest, listing
+ * the plugin classes separated by commas or spaces;</li>
+ * <li>loading every class in the jar and checking if it implements a plugin
+ * interface, for older plugins that declare neither.</li>
+ * </ul>
+ * The result for each jar is cached, keyed by its path, size and
+ * modification time, and the cache can be saved to a properties file.
+ */
+public class PluginJarIndex {
+	private static Logger LOG = LoggerFactory.getLogger(PluginJarIndex.class);
+
+	public static final String MANIFEST_ATTRIBUTE = "Ocelot-Plugins";
+	private static final String SERVICES_DIR = "META-INF/services/";
+
+	/**
+	 * Plugin interfaces, in the order classes are checked against them.
+	 */
+	static final List<Class<? extends Plugin>> PLUGIN_TYPES = Arrays
+	        .<Class<? extends Plugin>> asList(ITSPlugin.class,
+	                SegmentPlugin.class, ReportPlugin.class,
+	                FremePlugin.class, QualityPlugin.class);
+
+	private static final Splitter CLASS_LIST_SPLITTER = Splitter
+	        .onPattern("[,\\s]+").omitEmptyStrings().trimResults();
+
+	private final File cacheFile;
+	private final Properties cache = new Properties();
+	private boolean modified;
+
+	/**
+	 * @param cacheFile
+	 *            properties file the index is loaded from and saved to, or
+	 *            null to only cache jars in memory
+	 */
+	public PluginJarIndex(File cacheFile) {
+		this.cacheFile = cacheFile;
+		if (cacheFile != null && cacheFile.isFile()) {
+			try (InputStream is = new FileInputStream(cacheFile)) {
+				cache.load(is);
+			} catch (IOException e) {
+				LOG.warn("Ignoring unreadable plugin cache " + cacheFile, e);
+				cache.clear();
+			}
+		}
+	}
+
+	/**
+	 * Find the plugin classes in a jar.
+	 *
+	 * @param loader
+	 *            class loader that can load the jar's classes, used if the
+	 *            jar doesn't declare its plugins
+	 * @return the plugin class names, mapped to the plugin interface they
+	 *         implement, in the order they were found
+	 */
+	public Map<String, Class<? extends Plugin>> getPluginClasses(File jar,
+	        ClassLoader loader) throws IOException {
+		String key = jar.getAbsolutePath();
+		String stamp = jar.length() + "|" + jar.lastModified() + "|";
+		String cached = cache.getProperty(key);
+		if (cached != null && cached.startsWith(stamp)) {
+			Map<String, Class<? extends Plugin>> plugins = parse(cached
+			        .substring(stamp.length()));
+			if (plugins != null) {
+				return plugins;
+			}
+		}
+
+		Map<String, Class<? extends Plugin>> plugins;
+		try (JarFile jarFile = new JarFile(jar)) {
+			plugins = readServiceFiles(jarFile);
+			if (plugins.isEmpty()) {
+				plugins = readManifest(jarFile, loader);
+			}
+			if (plugins.isEmpty()) {
+				LOG.info("Plugin jar " + jar + " doesn't declare its plugins,"
+				        + " scanning all its classes");
+				plugins = scanClasses(jarFile, loader);
+			}
+		}
+		cache.setProperty(key, stamp + format(plugins));
+		modified = true;
+		return plugins;
+	}
+
+	/**
+	 * Forget jars that no longer exist, and write the index to its cache file
+	 * if it has changed.
+	 */
+	public void save() {
+		for (String path : cache.stringPropertyNames()) {
+			if (!new File(path).isFile()) {
+				cache.remove(path);
+				modified = true;
+			}
+		}
+		if (cacheFile == null || !modified) {
+			return;
+		}
+		try (OutputStream os = new FileOutputStream(cacheFile)) {
+			cache.store(os, "Ocelot plugin index");
+			modified = false;
+		} catch (IOException e) {
+			LOG.warn("Unable to save plugin cache " + cacheFile, e);
+		}
+	}
+
+	private Map<String, Class<? extends Plugin>> readServiceFiles(
+	        JarFile jarFile) throws IOException {
+		Map<String, Class<? extends Plugin>> plugins = new LinkedHashMap<String, Class<? extends Plugin>>();
+		for (Class<? extends Plugin> type : PLUGIN_TYPES) {
+			JarEntry entry = jarFile.getJarEntry(SERVICES_DIR + type.getName());
+			if (entry == null) {
+				continue;
+			}
+			try (BufferedReader reader = new BufferedReader(
+			        new InputStreamReader(jarFile.getInputStream(entry), "UTF-8"))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int comment = line.indexOf('#');
+					if (comment >= 0) {
+						line = line.substring(0, comment);
+					}
+					line = line.trim();
+					if (!line.isEmpty() && !plugins.containsKey(line)) {
+						plugins.put(line, type);
+					}
+				}
+			}
+		}
+		return plugins;
+	}
+
+	private Map<String, Class<? extends Plugin>> readManifest(JarFile jarFile,
+	        ClassLoader loader) throws IOException {
+		Map<String, Class<? extends Plugin>> plugins = new LinkedHashMap<String, Class<? extends Plugin>>();
+		Manifest manifest = jarFile.getManifest();
+		String classList = manifest == null ? null : manifest
+		        .getMainAttributes().getValue(
+		                new Attributes.Name(MANIFEST_ATTRIBUTE));
+		if (classList == null) {
+			return plugins;
+		}
+		for (String name : CLASS_LIST_SPLITTER.split(classList)) {
+			Class<? extends Plugin> type = getPluginType(name, loader);
+			if (type != null) {
+				plugins.put(name, type);
+			} else {
+				LOG.warn("Class " + name + " listed in the " + MANIFEST_ATTRIBUTE
+				        + " manifest attribute of " + jarFile.getName()
+				        + " is not a plugin");
+			}
+		}
+		return plugins;
+	}
+
+	private Map<String, Class<? extends Plugin>> scanClasses(JarFile jarFile,
+	        ClassLoader loader) {
+		Map<String, Class<? extends Plugin>> plugins = new LinkedHashMap<String, Class<? extends Plugin>>();
+		Enumeration<JarEntry> e = jarFile.entries();
+		while (e.hasMoreElements()) {
+			String name = e.nextElement().getName();
+			if (name.endsWith(".class")) {
+				name = convertFileNameToClass(name);
+				Class<? extends Plugin> type = getPluginType(name, loader);
+				if (type != null) {
+					plugins.put(name, type);
+				}
+			}
+		}
+		return plugins;
+	}
+
+	/**
+	 * @return the plugin interface the class implements, or null if it isn't
+	 *         an instantiable plugin class
+	 */
+	private static Class<? extends Plugin> getPluginType(String name,
+	        ClassLoader loader) {
+		try {
+			Class<?> clazz = Class.forName(name, false, loader);
+			// Skip non-instantiable classes
+			if (clazz.isInterface()
+			        || Modifier.isAbstract(clazz.getModifiers())) {
+				return null;
+			}
+			for (Class<? extends Plugin> type : PLUGIN_TYPES) {
+				if (type.isAssignableFrom(clazz)) {
+					return type;
+				}
+			}
+		} catch (ClassNotFoundException | LinkageError ex) {
+			LOG.warn("Unable to load class " + name + ": " + ex);
+		}
+		return null;
+	}
+
+	// Convert file name to a java class name
+	private static String convertFileNameToClass(String filename) {
+		String s = filename.substring(0, filename.length() - 6);
+		return s.replace('/', '.');
+	}
+
+	private static String format(Map<String, Class<? extends Plugin>> plugins) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Class<? extends Plugin>> e : plugins.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(e.getValue().getSimpleName()).append('=')
+			        .append(e.getKey());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the cached plugins, or null if the entry refers to an unknown
+	 *         plugin type
+	 */
+	private static Map<String, Class<? extends Plugin>> parse(String value) {
+		Map<String, Class<? extends Plugin>> plugins = new LinkedHashMap<String, Class<? extends Plugin>>();
+		for (String entry : CLASS_LIST_SPLITTER.split(value)) {
+			int i = entry.indexOf('=');
+			Class<? extends Plugin> type = i < 0 ? null : getType(entry
+			        .substring(0, i));
+			if (type == null) {
+				return null;
+			}
+			plugins.put(entry.substring(i + 1), type);
+		}
+		return plugins;
+	}
+
+	private static Class<? extends Plugin> getType(String simpleName) {
+		for (Class<? extends Plugin> type : PLUGIN_TYPES) {
+			if (type.getSimpleName().equals(simpleName)) {
+				return type;
+			}
+		}
+		return null;
+	}
+}
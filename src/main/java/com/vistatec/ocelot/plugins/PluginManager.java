@@ -35,20 +35,19 @@ import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarInputStream;
 
 import javax.swing.JFrame;
@@ -63,13 +62,16 @@ import com.google.common.eventbus.Subscribe;
 import com.vistatec.ocelot.config.ConfigService;
 import com.vistatec.ocelot.config.ConfigTransferService;
 import com.vistatec.ocelot.events.EnrichingStartedStoppedEvent;
+import com.vistatec.ocelot.events.EnrichmentProgressEvent;
 import com.vistatec.ocelot.events.EnrichmentViewEvent;
 import com.vistatec.ocelot.events.LQIAdditionEvent;
 import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIRemoveEvent;
+import com.vistatec.ocelot.events.RepetitionsUpdatedEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentTargetEnterEvent;
 import com.vistatec.ocelot.events.SegmentTargetExitEvent;
+import com.vistatec.ocelot.events.SegmentsVisibleEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
 import com.vistatec.ocelot.freme.gui.EnrichmentFrame;
@@ -78,6 +80,7 @@ import com.vistatec.ocelot.its.model.Provenance;
 import com.vistatec.ocelot.plugins.ReportPlugin.ReportException;
 import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentSnapshot;
 import com.vistatec.ocelot.services.SegmentService;
 
 /**
@@ -96,7 +99,7 @@ public class PluginManager implements OcelotEventQueueListener {
         private List<String> fremePluginClassNames = new ArrayList<String>();
         private List<String> qualityPluginClassNames = new ArrayList<String>();
 	private HashMap<ITSPlugin, Boolean> itsPlugins;
-	private HashMap<SegmentPlugin, Boolean> segPlugins;
+	private Map<SegmentPlugin, Boolean> segPlugins;
 	private HashMap<ReportPlugin, Boolean> reportPlugins;
         private HashMap<FremePlugin, Boolean> fremePlugins;
 	private FremePluginManager fremeManager;
@@ -104,17 +107,50 @@ public class PluginManager implements OcelotEventQueueListener {
 	private File pluginDir;
 	private final ConfigService cfgService;
 	private QualityPluginManager qualityPluginManager;
+	private PluginJarIndex jarIndex = new PluginJarIndex(null);
+	private final SegmentPluginRunner segPluginRunner;
 
 	public PluginManager(ConfigService cfgService, File pluginDir,
 			OcelotEventQueue eventQueue) {
 		this.itsPlugins = new HashMap<ITSPlugin, Boolean>();
-		this.segPlugins = new HashMap<SegmentPlugin, Boolean>();
+		// Segment plugins may be disabled from their runner's threads
+		this.segPlugins = new ConcurrentHashMap<SegmentPlugin, Boolean>();
 		this.reportPlugins = new HashMap<ReportPlugin, Boolean>();
                 this.fremePlugins = new HashMap<FremePlugin, Boolean>();
 		this.fremeManager = new FremePluginManager(eventQueue);
 		this.cfgService = cfgService;
 		this.pluginDir = pluginDir;
 		qualityPluginManager = new QualityPluginManager();
+		this.segPluginRunner = new SegmentPluginRunner();
+		segPluginRunner.setSuspensionListener(new SegmentPluginRunner.SuspensionListener() {
+			@Override
+			public void pluginSuspended(SegmentPlugin plugin,
+			        SegmentPluginRunner.PluginStats stats) {
+				// Disabled for this session only, the saved setting is kept
+				segPlugins.put(plugin, false);
+				LOG.warn("Disabled segment plugin '" + plugin.getPluginName()
+				        + "' for exceeding its latency budget: " + stats);
+			}
+		});
+	}
+
+	/**
+	 * Remember the plugins found in each jar in the given file, so that
+	 * unchanged jars don't need to be read again on the next discovery.
+	 */
+	public void setDiscoveryCache(File cacheFile) {
+		this.jarIndex = new PluginJarIndex(cacheFile);
+	}
+
+	/**
+	 * Keep the enrichments returned by the FREME plugin in the given file, so
+	 * that texts already enriched aren't sent again. The cache holds up to
+	 * ocelot.freme.cacheSize texts.
+	 */
+	public void setEnrichmentCache(File cacheFile) {
+		fremeManager.setEnrichmentCache(new FremeEnrichmentCache(cacheFile,
+				Integer.getInteger("ocelot.freme.cacheSize",
+						FremeEnrichmentCache.DEFAULT_MAX_ENTRIES)));
 	}
 
 	public File getPluginDir() {
@@ -195,6 +231,9 @@ public class PluginManager implements OcelotEventQueueListener {
 		} else if (plugin instanceof SegmentPlugin) {
 			SegmentPlugin segPlugin = (SegmentPlugin) plugin;
 			segPlugins.put(segPlugin, enabled);
+			if (enabled) {
+				segPluginRunner.resume(segPlugin);
+			}
 		} else if (plugin instanceof ReportPlugin) {
 			ReportPlugin reportPlugin = (ReportPlugin) plugin;
 			reportPlugins.put(reportPlugin, enabled);
@@ -251,6 +290,14 @@ public class PluginManager implements OcelotEventQueueListener {
 		}
 	}
 
+	/**
+	 * Latency and failure counts of a segment plugin's callbacks.
+	 */
+	public SegmentPluginRunner.PluginStats getSegmentPluginStats(
+	        SegmentPlugin plugin) {
+		return segPluginRunner.getStats(plugin);
+	}
+
 	/**
 	 * SegmentPlugin handler for beginning a target segment edit.
 	 * 
@@ -258,15 +305,19 @@ public class PluginManager implements OcelotEventQueueListener {
 	 */
 	@Subscribe
 	public void notifySegmentTargetEnter(SegmentTargetEnterEvent event) {
-		OcelotSegment seg = event.getSegment();
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+		OcelotSegment snapshot = null;
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onSegmentTargetEnter(seg);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on segment target enter", e);
+				if (snapshot == null) {
+					snapshot = SegmentSnapshot.of(event.getSegment());
 				}
+				final OcelotSegment seg = snapshot;
+				segPluginRunner.execute(segPlugin, "segment target enter", new Runnable() {
+					@Override
+					public void run() {
+						segPlugin.onSegmentTargetEnter(seg);
+					}
+				});
 			}
 		}
 	}
@@ -278,15 +329,19 @@ public class PluginManager implements OcelotEventQueueListener {
 	 */
 	@Subscribe
 	public void notifySegmentTargetExit(SegmentTargetExitEvent event) {
-		OcelotSegment seg = event.getSegment();
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+		OcelotSegment snapshot = null;
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onSegmentTargetExit(seg);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on segment target exit", e);
+				if (snapshot == null) {
+					snapshot = SegmentSnapshot.of(event.getSegment());
 				}
+				final OcelotSegment seg = snapshot;
+				segPluginRunner.execute(segPlugin, "segment target exit", new Runnable() {
+					@Override
+					public void run() {
+						segPlugin.onSegmentTargetExit(seg);
+					}
+				});
 			}
 		}
 	}
@@ -302,15 +357,15 @@ public class PluginManager implements OcelotEventQueueListener {
 		}
 	}
 
-	public void notifyOpenFile(String filename, List<OcelotSegment> segments) {
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+	public void notifyOpenFile(final String filename, List<OcelotSegment> segments) {
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onFileOpen(filename);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on file open", e);
-				}
+				segPluginRunner.execute(segPlugin, "file open", new Runnable() {
+					@Override
+					public void run() {
+						segPlugin.onFileOpen(filename);
+					}
+				});
 			}
 		}
 		if(isReportPluginEnabled()){
@@ -320,15 +375,15 @@ public class PluginManager implements OcelotEventQueueListener {
 		qualityPluginManager.initOpenedFileSettings(segments);
 	}
 
-	public void notifySaveFile(String filename) {
-		for (SegmentPlugin segPlugin : segPlugins.keySet()) {
+	public void notifySaveFile(final String filename) {
+		for (final SegmentPlugin segPlugin : segPlugins.keySet()) {
 			if (isEnabled(segPlugin)) {
-				try {
-					segPlugin.onFileSave(filename);
-				} catch (Exception e) {
-					LOG.error("Segment plugin '" + segPlugin.getPluginName()
-					        + "' threw an exception on file save", e);
-				}
+				segPluginRunner.execute(segPlugin, "file save", new Runnable() {
+					@Override
+					public void run() {
+						segPlugin.onFileSave(filename);
+					}
+				});
 			}
 		}
 	}
@@ -363,6 +418,7 @@ public class PluginManager implements OcelotEventQueueListener {
 		for (File f : jarFiles) {
 			scanJar(f);
 		}
+		jarIndex.save();
 
 		for (String s : itsPluginClassNames) {
 			try {
@@ -472,96 +528,35 @@ public class PluginManager implements OcelotEventQueueListener {
 
 	void scanJar(final File file) {
 		try {
-			Enumeration<JarEntry> e = new JarFile(file).entries();
-			while (e.hasMoreElements()) {
-				JarEntry entry = e.nextElement();
-				String name = entry.getName();
-				if (name.endsWith(".class")) {
-					name = convertFileNameToClass(name);
-					try {
-						Class<?> clazz = Class
-						        .forName(name, false, classLoader);
-						// Skip non-instantiable classes
-						if (clazz.isInterface()
-						        || Modifier.isAbstract(clazz.getModifiers())) {
-							continue;
-						}
-						if (ITSPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (itsPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								itsPluginClassNames.add(name);
-							}
-						} else if (SegmentPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (segPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								segPluginClassNames.add(name);
-							}
-						} else 
-						if (ReportPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (reportPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								reportPluginClassNames.add(name);
-							} }else if (FremePlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (fremePluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-										.println("Warning: found multiple implementations of plugin class "
-												+ name);
-							} else {
-								fremePluginClassNames.add(name);
-							} }
-						else if (QualityPlugin.class.isAssignableFrom(clazz)) {
-							// It's a plugin! Just store the name for now
-							// since we will need to reinstantiate it later with
-							// the
-							// real classloader (I think)
-							if (qualityPluginClassNames.contains(name)) {
-								// TODO: log this
-								System.out
-								        .println("Warning: found multiple implementations of plugin class "
-								                + name);
-							} else {
-								qualityPluginClassNames.add(name);
-							}
-						}
-					} catch (ClassNotFoundException ex) {
-						// XXX shouldn't happen?
-						System.out.println("Warning: " + ex.getMessage());
-					}
+			Map<String, Class<? extends Plugin>> plugins = jarIndex
+			        .getPluginClasses(file, classLoader);
+			for (Entry<String, Class<? extends Plugin>> plugin : plugins
+			        .entrySet()) {
+				// Just store the name for now since we will need to
+				// reinstantiate it later with the real classloader (I think)
+				Class<? extends Plugin> type = plugin.getValue();
+				if (type == ITSPlugin.class) {
+					addPluginClassName(itsPluginClassNames, plugin.getKey());
+				} else if (type == SegmentPlugin.class) {
+					addPluginClassName(segPluginClassNames, plugin.getKey());
+				} else if (type == ReportPlugin.class) {
+					addPluginClassName(reportPluginClassNames, plugin.getKey());
+				} else if (type == FremePlugin.class) {
+					addPluginClassName(fremePluginClassNames, plugin.getKey());
+				} else if (type == QualityPlugin.class) {
+					addPluginClassName(qualityPluginClassNames, plugin.getKey());
 				}
 			}
-			
 		} catch (IOException e) {
-			// XXX Log this and continue
-			e.printStackTrace();
+			LOG.error("Unable to read plugin jar " + file, e);
+		}
+	}
+
+	private void addPluginClassName(List<String> classNames, String name) {
+		if (classNames.contains(name)) {
+			LOG.warn("Found multiple implementations of plugin class " + name);
+		} else {
+			classNames.add(name);
 		}
 	}
 
@@ -572,12 +567,6 @@ public class PluginManager implements OcelotEventQueueListener {
 		return rv;
 	}
 
-	// Convert file name to a java class name
-	private String convertFileNameToClass(String filename) {
-		String s = filename.substring(0, filename.length() - 6);
-		return s.replace('/', '.');
-	}
-
 	static class JarFilenameFilter implements FilenameFilter {
 		@Override
 		public boolean accept(File dir, String filename) {
@@ -610,6 +599,26 @@ public class PluginManager implements OcelotEventQueueListener {
 				.setContextMenuItemEnabled(event.getAction() == EnrichingStartedStoppedEvent.STOPPED);
 	}
 
+	@Subscribe
+	public void handleEnrichmentProgressEvent(EnrichmentProgressEvent event) {
+
+		if (fremePlugins.isEmpty() || event.isFinished()) {
+			return;
+		}
+		FremeMenu fremeMenu = (FremeMenu) fremeManager
+				.getFremeMenu(fremePlugins.keySet().iterator().next());
+		if (fremeMenu != null) {
+			fremeMenu.setEnrichmentProgress(
+					event.getEnriched() + event.getFailed(), event.getTotal());
+		}
+	}
+
+	@Subscribe
+	public void handleSegmentsVisibleEvent(SegmentsVisibleEvent event) {
+		fremeManager.setVisibleSegments(event.getFirstSegmentNumber(),
+				event.getLastSegmentNumber());
+	}
+
 	public void enrichSegments(List<OcelotSegment> segments) {
 
 		fremeManager.setSegments(segments);
@@ -618,6 +627,8 @@ public class PluginManager implements OcelotEventQueueListener {
 
 	public void setSourceAndTargetLangs(String sourceLang, String targetLang) {
 
+		qualityPluginManager.setSourceLocale(Locale.forLanguageTag(sourceLang
+				.replace('_', '-')));
 		if (fremePlugins != null && !fremePlugins.isEmpty()) {
 			int dashIdx = sourceLang.indexOf("-");
 			if (dashIdx != -1) {
@@ -629,6 +640,7 @@ public class PluginManager implements OcelotEventQueueListener {
 			}
 			fremePlugins.keySet().iterator().next()
 					.setSourceAndTargetLanguages(sourceLang, targetLang);
+			fremeManager.setSourceAndTargetLanguages(sourceLang, targetLang);
 		}
 	}
 
@@ -652,6 +664,22 @@ public class PluginManager implements OcelotEventQueueListener {
 		}
 	}
 
+	/**
+	 * Enriches the targets copied to repetitions as one batch. They all have
+	 * the same text, so FREME is only called once for them.
+	 */
+	@Subscribe
+	public void repetitionsUpdated(RepetitionsUpdatedEvent e) {
+		if (fremePlugins != null && !fremePlugins.isEmpty()) {
+			Entry<FremePlugin, Boolean> fremeEntry = fremePlugins.entrySet()
+					.iterator().next();
+			if (fremeEntry.getValue()) {
+				fremeManager.enrichTargets(fremeEntry.getKey(),
+						e.getRepetitions());
+			}
+		}
+	}
+
 	public void enrichVariant(BaseSegmentVariant variant, int segmentNumber,
 			boolean target, int action) {
 
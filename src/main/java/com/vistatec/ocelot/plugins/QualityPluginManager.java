@@ -3,7 +3,6 @@ package com.vistatec.ocelot.plugins;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,6 +25,7 @@ import com.vistatec.ocelot.plugins.exception.EvaluationOnTheFlyFailedException;
 import com.vistatec.ocelot.plugins.exception.NoAuditProfileLoadedException;
 import com.vistatec.ocelot.plugins.exception.QualityEvaluationException;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.WordCounter;
 
 public class QualityPluginManager implements ActionListener {
 
@@ -42,6 +42,9 @@ public class QualityPluginManager implements ActionListener {
 
 	private JFrame ocelotMainFrame;
 
+	/** Counts the source words of the opened documents. */
+	private WordCounter wordCounter = new WordCounter(Locale.ENGLISH);
+
 	public QualityPluginManager() {
 
 		this.qualityPlugins = new HashMap<QualityPlugin, Boolean>();
@@ -450,21 +453,29 @@ public class QualityPluginManager implements ActionListener {
 		return plugin;
 	}
 
+	/**
+	 * Sets the source locale of the opened document, used to count its words.
+	 * 
+	 * @param sourceLocale
+	 *            the source locale
+	 */
+	public void setSourceLocale(Locale sourceLocale) {
+		wordCounter = new WordCounter(sourceLocale);
+	}
+
 	public void initOpenedFileSettings(List<OcelotSegment> segments) {
 
 		if (!qualityPlugins.isEmpty()) {
 			QualityPlugin plugin = qualityPlugins.keySet().iterator().next();
 			if (plugin != null && segments != null) {
-				StringBuilder sourceText = new StringBuilder();
 				List<LanguageQualityIssue> lqiList = new ArrayList<LanguageQualityIssue>();
 				for (OcelotSegment seg : segments) {
-					sourceText.append(seg.getSource().getDisplayText());
-					sourceText.append(" ");
 					if (seg.getLQI() != null) {
 						lqiList.addAll(seg.getLQI());
 					}
 				}
-				int sampleSize = countWords(sourceText.toString());
+				// Each segment counts its source words once and keeps the count
+				int sampleSize = wordCounter.countSourceWords(segments);
 				try {
 					plugin.documentOpened(sampleSize, lqiList, segments);
 				} catch (QualityEvaluationException e) {
@@ -499,33 +510,6 @@ public class QualityPluginManager implements ActionListener {
 		                JOptionPane.ERROR_MESSAGE);
 	}
 
-	private int countWords(String text) {
-		int wordCount = 0;
-		BreakIterator iterator = BreakIterator.getWordInstance(Locale.ENGLISH);
-		iterator.setText(text);
-		int lastBoundary = 0;
-		int boundary = iterator.first();
-		while (boundary != BreakIterator.DONE) {
-			for (int i = lastBoundary; i < boundary; i++) {
-				if (Character.isLetter(text.codePointAt(i))) {
-					wordCount++;
-					break;
-				}
-			}
-			lastBoundary = boundary;
-			boundary = iterator.next();
-		}
-		if (lastBoundary < text.length()) {
-			for (int i = lastBoundary; i < text.length(); i++) {
-				if (Character.isLetter(text.codePointAt(i))) {
-					wordCount++;
-					break;
-				}
-			}
-		}
-		return wordCount;
-	}
-
 	// public void setSampleSize(int sampleSize) {
 	// this.sampleSize = sampleSize;
 	// qualityPlugins.keySet().iterator().next().initEvaluationOnTheFly(sampleSize,
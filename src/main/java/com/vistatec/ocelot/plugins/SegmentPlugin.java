@@ -33,18 +33,27 @@ import com.vistatec.ocelot.segment.model.OcelotSegment;
 /**
  * Segment Plugins are notified when a user enters/exits a target segment edit
  * and when a user opens/saves a file.
+ * <p>
+ * Callbacks are not called on the event dispatch thread. Each plugin has
+ * its own thread, which calls it in the order of the user's actions; see
+ * {@link SegmentPluginRunner}. A callback that takes longer than the latency
+ * budget is interrupted, and a plugin that does so repeatedly is disabled
+ * for the session. Plugins that update Swing components must do so through
+ * {@link javax.swing.SwingUtilities#invokeLater(Runnable)}.
  */
 public interface SegmentPlugin extends Plugin {
 
     /**
      * Called when a segment's target becomes editable.
-     * @param seg 
+     * @param seg read-only snapshot of the segment when it was entered; it
+     * doesn't change with later edits, and can't be changed
      */
     public void onSegmentTargetEnter(OcelotSegment seg);
 
     /**
      * Called when a segment's target has finished editing.
-     * @param seg 
+     * @param seg read-only snapshot of the segment when it was exited; it
+     * doesn't change with later edits, and can't be changed
      */
     public void onSegmentTargetExit(OcelotSegment seg);
 
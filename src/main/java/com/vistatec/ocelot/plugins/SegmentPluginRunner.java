@@ -0,0 +1,327 @@
+package com.vistatec.ocelot.plugins;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs {@link SegmentPlugin} callbacks away from the caller's thread, so that
+ * a slow plugin can't hold up segment navigation.
+ * <p>
+ * Each plugin has its own single thread, so its callbacks are delivered one
+ * at a time in the order they were submitted (eg. a segment's target enter
+ * always before its target exit), independently of other plugins. A
+ * callback that runs longer than the latency budget is interrupted, and a
+ * plugin that overruns its budget too many times is suspended: its pending
+ * callbacks are dropped and no more are delivered until it is resumed.
+ */
+public class SegmentPluginRunner {
+	private static Logger LOG = LoggerFactory.getLogger(SegmentPluginRunner.class);
+
+	public static final long DEFAULT_LATENCY_BUDGET_MILLIS = 2000;
+	public static final int DEFAULT_MAX_OVERRUNS = 3;
+
+	/**
+	 * Notified, on a runner thread, when a plugin is suspended.
+	 */
+	public interface SuspensionListener {
+		void pluginSuspended(SegmentPlugin plugin, PluginStats stats);
+	}
+
+	private final long latencyBudgetMillis;
+	private final int maxOverruns;
+	private final ConcurrentMap<SegmentPlugin, PluginLane> lanes =
+	        new ConcurrentHashMap<SegmentPlugin, PluginLane>();
+	private final ScheduledExecutorService watchdog = Executors
+	        .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+	                .setNameFormat("ocelot-plugin-watchdog").setDaemon(true)
+	                .build());
+	private volatile SuspensionListener suspensionListener;
+
+	public SegmentPluginRunner() {
+		this(DEFAULT_LATENCY_BUDGET_MILLIS, DEFAULT_MAX_OVERRUNS);
+	}
+
+	/**
+	 * @param latencyBudgetMillis
+	 *            time after which a callback is interrupted
+	 * @param maxOverruns
+	 *            number of interrupted callbacks after which a plugin is
+	 *            suspended
+	 */
+	public SegmentPluginRunner(long latencyBudgetMillis, int maxOverruns) {
+		this.latencyBudgetMillis = latencyBudgetMillis;
+		this.maxOverruns = maxOverruns;
+	}
+
+	public void setSuspensionListener(SuspensionListener listener) {
+		this.suspensionListener = listener;
+	}
+
+	/**
+	 * Queue a callback for the plugin, unless it is suspended.
+	 *
+	 * @param callback
+	 *            callback name, for logging
+	 */
+	public void execute(SegmentPlugin plugin, final String callback,
+	        final Runnable task) {
+		final PluginLane lane = getLane(plugin);
+		if (lane.suspended) {
+			return;
+		}
+		try {
+			lane.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					lane.run(callback, task);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Suspended or shut down while submitting
+		}
+	}
+
+	public boolean isSuspended(SegmentPlugin plugin) {
+		PluginLane lane = lanes.get(plugin);
+		return lane != null && lane.suspended;
+	}
+
+	/**
+	 * Deliver callbacks to a suspended plugin again, with its overrun count
+	 * reset.
+	 */
+	public void resume(SegmentPlugin plugin) {
+		PluginLane lane = lanes.get(plugin);
+		if (lane != null && lane.suspended) {
+			lanes.replace(plugin, lane, new PluginLane(plugin, lane));
+		}
+	}
+
+	public PluginStats getStats(SegmentPlugin plugin) {
+		PluginLane lane = lanes.get(plugin);
+		return lane != null ? lane.snapshot() : new PluginStats(0, 0, 0, 0, 0,
+		        false);
+	}
+
+	/**
+	 * Wait for the callbacks already queued for the plugin to complete.
+	 *
+	 * @return false if they didn't complete within the timeout
+	 */
+	public boolean awaitIdle(SegmentPlugin plugin, long timeout, TimeUnit unit)
+	        throws InterruptedException {
+		PluginLane lane = lanes.get(plugin);
+		if (lane == null || lane.suspended) {
+			return true;
+		}
+		final Object done = new Object();
+		final boolean[] finished = new boolean[1];
+		try {
+			lane.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (done) {
+						finished[0] = true;
+						done.notifyAll();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			return true;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (done) {
+			while (!finished[0]) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(done, remaining);
+			}
+		}
+		return true;
+	}
+
+	public void shutdown() {
+		for (PluginLane lane : lanes.values()) {
+			lane.executor.shutdown();
+		}
+		watchdog.shutdown();
+	}
+
+	private PluginLane getLane(SegmentPlugin plugin) {
+		PluginLane lane = lanes.get(plugin);
+		if (lane == null) {
+			PluginLane newLane = new PluginLane(plugin, null);
+			lane = lanes.putIfAbsent(plugin, newLane);
+			if (lane == null) {
+				lane = newLane;
+			} else {
+				newLane.executor.shutdown();
+			}
+		}
+		return lane;
+	}
+
+	private class PluginLane {
+		private final SegmentPlugin plugin;
+		private final ExecutorService executor;
+		private final AtomicLong calls, failures, overruns, totalNanos, maxNanos;
+		private final AtomicInteger recentOverruns = new AtomicInteger();
+		private volatile boolean suspended;
+
+		/**
+		 * @param previous
+		 *            lane of a resumed plugin, whose statistics are kept
+		 */
+		PluginLane(SegmentPlugin plugin, PluginLane previous) {
+			this.plugin = plugin;
+			this.executor = Executors.newSingleThreadExecutor(
+			        new ThreadFactoryBuilder()
+			                .setNameFormat("ocelot-plugin-" + plugin.getPluginName()
+			                        .replace("%", "%%"))
+			                .setDaemon(true).build());
+			calls = new AtomicLong(previous != null ? previous.calls.get() : 0);
+			failures = new AtomicLong(previous != null ? previous.failures.get() : 0);
+			overruns = new AtomicLong(previous != null ? previous.overruns.get() : 0);
+			totalNanos = new AtomicLong(previous != null ? previous.totalNanos.get() : 0);
+			maxNanos = new AtomicLong(previous != null ? previous.maxNanos.get() : 0);
+		}
+
+		void run(final String callback, Runnable task) {
+			if (suspended) {
+				return;
+			}
+			final Thread thread = Thread.currentThread();
+			final boolean[] done = new boolean[1];
+			ScheduledFuture<?> timer = watchdog.schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (done) {
+						if (!done[0]) {
+							overrun(callback, thread);
+						}
+					}
+				}
+			}, latencyBudgetMillis, TimeUnit.MILLISECONDS);
+			long start = System.nanoTime();
+			try {
+				task.run();
+			} catch (Exception e) {
+				failures.incrementAndGet();
+				LOG.error("Segment plugin '" + plugin.getPluginName()
+				        + "' threw an exception on " + callback, e);
+			} finally {
+				timer.cancel(false);
+				synchronized (done) {
+					done[0] = true;
+				}
+				// Don't let an interrupt meant for this callback leak into
+				// the next one
+				Thread.interrupted();
+				long nanos = System.nanoTime() - start;
+				calls.incrementAndGet();
+				totalNanos.addAndGet(nanos);
+				long max;
+				while (nanos > (max = maxNanos.get())
+				        && !maxNanos.compareAndSet(max, nanos)) {
+					// Retry
+				}
+			}
+		}
+
+		private void overrun(String callback, Thread thread) {
+			overruns.incrementAndGet();
+			LOG.warn("Segment plugin '" + plugin.getPluginName() + "' took over "
+			        + latencyBudgetMillis + " ms on " + callback
+			        + ", interrupting it");
+			if (recentOverruns.incrementAndGet() >= maxOverruns && !suspended) {
+				suspended = true;
+				executor.shutdownNow();
+				LOG.warn("Suspending segment plugin '" + plugin.getPluginName()
+				        + "' after " + maxOverruns + " callbacks over budget");
+				SuspensionListener listener = suspensionListener;
+				if (listener != null) {
+					listener.pluginSuspended(plugin, snapshot());
+				}
+			} else {
+				thread.interrupt();
+			}
+		}
+
+		PluginStats snapshot() {
+			return new PluginStats(calls.get(), failures.get(), overruns.get(),
+			        totalNanos.get(), maxNanos.get(), suspended);
+		}
+	}
+
+	/**
+	 * Latency and failure counts of one plugin's callbacks.
+	 */
+	public static class PluginStats {
+		private final long calls, failures, overruns, totalNanos, maxNanos;
+		private final boolean suspended;
+
+		PluginStats(long calls, long failures, long overruns, long totalNanos,
+		        long maxNanos, boolean suspended) {
+			this.calls = calls;
+			this.failures = failures;
+			this.overruns = overruns;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.suspended = suspended;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		/**
+		 * Number of callbacks that ran over the latency budget.
+		 */
+		public long getOverruns() {
+			return overruns;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public long getMeanNanos() {
+			return calls > 0 ? totalNanos / calls : 0;
+		}
+
+		public boolean isSuspended() {
+			return suspended;
+		}
+
+		@Override
+		public String toString() {
+			return "calls=" + calls + " failures=" + failures + " overruns="
+			        + overruns + " mean=" + TimeUnit.NANOSECONDS.toMillis(getMeanNanos())
+			        + "ms max=" + TimeUnit.NANOSECONDS.toMillis(maxNanos) + "ms"
+			        + (suspended ? " (suspended)" : "");
+		}
+	}
+}
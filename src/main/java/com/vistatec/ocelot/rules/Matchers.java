@@ -63,6 +63,10 @@ public class Matchers {
 			pattern = getPattern(s);
 		}
 
+		Pattern getPattern() {
+			return pattern;
+		}
+
 		private Pattern getPattern(String s) {
 			try {
 				return Pattern.compile(s);
@@ -140,6 +144,10 @@ public class Matchers {
 		    this.upperBound = d;
 		}
 
+		boolean isConfigured() {
+		    return lowerBound != -1 && upperBound != -1;
+		}
+
 		@Override
 		public void setPattern(String pattern) {
 			Values v = getValues(pattern);
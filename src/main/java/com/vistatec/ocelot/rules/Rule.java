@@ -45,6 +45,7 @@ public class Rule {
     private boolean enabled = false;
     private String label;
     private DataCategoryFlag flag = new DataCategoryFlag();
+    private int version = 0;
 
     public Rule(List<RuleMatcher> matchers) {
         this.matchers = matchers;
@@ -55,6 +56,15 @@ public class Rule {
 
     public void addRuleMatcher(RuleMatcher matcher) {
         this.matchers.add(matcher);
+        version++;
+    }
+
+    /**
+     * Incremented whenever a matcher is added, so that a compiled
+     * {@link RuleEvaluationPlan} can tell that it is out of date.
+     */
+    int getVersion() {
+        return version;
     }
 
     public String getLabel() {
@@ -120,8 +130,9 @@ public class Rule {
         if (matchers.isEmpty()) {
             return false;
         }
+        Map<DataCategoryField, Object> values = its.getFieldValues();
         for (RuleMatcher matcher : matchers) {
-            if (!matches(matcher, its)) {
+            if (!matches(matcher, values)) {
                 return false;
             }
         }
@@ -134,15 +145,12 @@ public class Rule {
      * piece of metadata.
      */
     boolean matches(RuleMatcher matcher, ITSMetadata its) {
-        Map<DataCategoryField, Object> values = its.getFieldValues();
-        for (Map.Entry<DataCategoryField, Object> e : values.entrySet()) {
-            if (matcher.getField().equals(e.getKey())) {
-                if (matcher.matches(e.getValue())) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return matches(matcher, its.getFieldValues());
+    }
+
+    private boolean matches(RuleMatcher matcher, Map<DataCategoryField, Object> values) {
+        return values.containsKey(matcher.getField())
+                && matcher.matches(values.get(matcher.getField()));
     }
 
     @Override
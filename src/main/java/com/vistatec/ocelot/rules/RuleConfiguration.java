@@ -33,6 +33,7 @@ import com.vistatec.ocelot.segment.model.OcelotSegment;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -50,6 +51,7 @@ public class RuleConfiguration {
             new EnumMap<StateQualifier, StateQualifierRule>(StateQualifier.class);
     protected FilterMode filterMode = FilterMode.ALL;
     protected StateQualifierMode stateQualifierMode = StateQualifierMode.ALL;
+    private RuleEvaluationPlan evaluationPlan;
 
     public enum FilterMode {
         ALL,
@@ -100,6 +102,17 @@ public class RuleConfiguration {
         }
     }
 
+    /**
+     * Return the compiled form of the current rules, recompiling it if rules
+     * or matchers have been added or removed since it was last built.
+     */
+    public synchronized RuleEvaluationPlan getEvaluationPlan() {
+        if (evaluationPlan == null || !evaluationPlan.isCurrent(ruleOrdering)) {
+            evaluationPlan = RuleEvaluationPlan.compile(ruleOrdering);
+        }
+        return evaluationPlan;
+    }
+
     /**
      * Return a list of all rules in the order they're defined.
      * @return list of Rule objects
@@ -159,13 +172,10 @@ public class RuleConfiguration {
      * @return
      */
     public DataCategoryFlag getFlagForMetadata(ITSMetadata its) {
-        for (int pos = ruleOrdering.size() - 1; pos >= 0; pos--) {
-            Rule r = ruleOrdering.get(pos);
-            if (r.matches(its)) {
-                return r.getFlag();
-            }
-        }
-        return null;
+        RuleEvaluationPlan plan = getEvaluationPlan();
+        BitSet matches = plan.matchingRules(its);
+        int pos = matches.previousSetBit(plan.getRuleCount() - 1);
+        return pos >= 0 ? plan.getRule(pos).getFlag() : null;
     }
 
     /**
@@ -175,10 +185,20 @@ public class RuleConfiguration {
      */
     public ITSMetadata getTopDataCategory(OcelotSegment seg, int flagCol) {
         LinkedList<ITSMetadata> displayFlags = new LinkedList<ITSMetadata>();
-        for (int pos = ruleOrdering.size()-1; pos >= 0; pos--) {
-            Rule r = ruleOrdering.get(pos);
-            List<ITSMetadata> itsMatches = r.displayMatches(seg);
-            for (ITSMetadata its : itsMatches) {
+        RuleEvaluationPlan plan = getEvaluationPlan();
+        List<ITSMetadata> segMetadata = seg.getITSMetadata();
+        // Evaluate every rule against each piece of metadata only once
+        List<BitSet> segMatches = new ArrayList<BitSet>(segMetadata.size());
+        for (ITSMetadata its : segMetadata) {
+            segMatches.add(plan.matchingRules(its));
+        }
+        for (int pos = plan.getRuleCount()-1; pos >= 0; pos--) {
+            Rule r = plan.getRule(pos);
+            for (int i = 0; i < segMetadata.size(); i++) {
+                if (!segMatches.get(i).get(pos)) {
+                    continue;
+                }
+                ITSMetadata its = segMetadata.get(i);
                 its.setFlag(r.getFlag());
                 if (!displayFlags.contains(its)) {
                     displayFlags.add(its);
@@ -190,7 +210,7 @@ public class RuleConfiguration {
             }
         }
 
-        for (ITSMetadata its : seg.getITSMetadata()) {
+        for (ITSMetadata its : segMetadata) {
             if (!displayFlags.contains(its)) {
                 displayFlags.add(its);
                 if (displayFlags.size() > flagCol) {
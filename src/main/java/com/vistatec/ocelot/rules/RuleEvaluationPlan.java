@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2015, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.rules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.vistatec.ocelot.its.model.ITSMetadata;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+/**
+ * Compiled form of a list of {@link Rule}s.
+ * <p>
+ * Every {@link RuleMatcher} is assigned an index, and the matchers of a rule
+ * occupy a contiguous range of indices. Matchers are grouped by the
+ * {@link DataCategoryField} they test, so the field values of a piece of
+ * metadata are extracted once and each field is tested against all of the
+ * rules that reference it in one pass:
+ * <ul>
+ * <li>regexes that are plain literals or alternations of literals are
+ * resolved with a single hash lookup per field;</li>
+ * <li>numeric ranges are tested on primitive doubles;</li>
+ * <li>any other matcher is called as-is.</li>
+ * </ul>
+ * A rule matches a piece of metadata if every index in its range was
+ * satisfied, which gives the same result as {@link Rule#matches(ITSMetadata)}.
+ * <p>
+ * Plans are immutable and may be shared between threads. A plan is a snapshot:
+ * use {@link #isCurrent(List)} to check whether the rules it was compiled from
+ * have changed since.
+ */
+public class RuleEvaluationPlan {
+
+    private final List<Rule> rules;
+    private final int[] ruleVersions;
+    private final int[] ruleStart;
+    private final int[] ruleEnd;
+    private final FieldPlan[] fieldPlans;
+
+    private RuleEvaluationPlan(List<Rule> rules, int[] ruleVersions,
+            int[] ruleStart, int[] ruleEnd, FieldPlan[] fieldPlans) {
+        this.rules = rules;
+        this.ruleVersions = ruleVersions;
+        this.ruleStart = ruleStart;
+        this.ruleEnd = ruleEnd;
+        this.fieldPlans = fieldPlans;
+    }
+
+    public static RuleEvaluationPlan compile(List<Rule> rules) {
+        List<Rule> snapshot = new ArrayList<Rule>(rules);
+        int[] versions = new int[snapshot.size()];
+        int[] start = new int[snapshot.size()];
+        int[] end = new int[snapshot.size()];
+        Map<DataCategoryField, FieldPlan.Builder> builders =
+                new EnumMap<DataCategoryField, FieldPlan.Builder>(DataCategoryField.class);
+
+        int index = 0;
+        for (int ruleIndex = 0; ruleIndex < snapshot.size(); ruleIndex++) {
+            Rule rule = snapshot.get(ruleIndex);
+            versions[ruleIndex] = rule.getVersion();
+            start[ruleIndex] = index;
+            for (RuleMatcher matcher : rule.matchers) {
+                FieldPlan.Builder builder = builders.get(matcher.getField());
+                if (builder == null) {
+                    builder = new FieldPlan.Builder(matcher.getField());
+                    builders.put(matcher.getField(), builder);
+                }
+                builder.add(index, ruleIndex, matcher.getMatcher());
+                index++;
+            }
+            end[ruleIndex] = index;
+        }
+
+        FieldPlan[] fieldPlans = new FieldPlan[builders.size()];
+        int i = 0;
+        for (FieldPlan.Builder builder : builders.values()) {
+            fieldPlans[i++] = builder.build();
+        }
+        return new RuleEvaluationPlan(snapshot, versions, start, end, fieldPlans);
+    }
+
+    /**
+     * @return true if this plan was compiled from exactly these rules, in this
+     * order, and none of them has had matchers added since.
+     */
+    public boolean isCurrent(List<Rule> currentRules) {
+        if (currentRules.size() != rules.size()) {
+            return false;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = currentRules.get(i);
+            if (rule != rules.get(i) || rule.getVersion() != ruleVersions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    public Rule getRule(int ruleIndex) {
+        return rules.get(ruleIndex);
+    }
+
+    /**
+     * @return the indices of all rules that have {@link Rule#getEnabled()}
+     * set.
+     */
+    public BitSet enabledRules() {
+        BitSet enabled = new BitSet(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).getEnabled()) {
+                enabled.set(i);
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * Find the rules that match a piece of metadata.
+     * @param its metadata to test
+     * @return indices of all matching rules
+     */
+    public BitSet matchingRules(ITSMetadata its) {
+        return matchingRules(its, null);
+    }
+
+    /**
+     * Find the rules that match a piece of metadata, considering only a
+     * subset of the rules.
+     * @param its metadata to test
+     * @param ruleMask indices of the rules to test, or null for all rules
+     * @return indices of the matching rules within the mask
+     */
+    public BitSet matchingRules(ITSMetadata its, BitSet ruleMask) {
+        BitSet result = new BitSet(rules.size());
+        if (ruleMask != null && ruleMask.isEmpty()) {
+            return result;
+        }
+        BitSet satisfied = satisfiedMatchers(its.getFieldValues(), ruleMask);
+        for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+            if (ruleMask != null && !ruleMask.get(ruleIndex)) {
+                continue;
+            }
+            // Rules with no matchers match nothing
+            int start = ruleStart[ruleIndex], end = ruleEnd[ruleIndex];
+            if (start < end && satisfied.nextClearBit(start) >= end) {
+                result.set(ruleIndex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if any of the rules in the mask matches some piece of
+     * metadata in the segment.
+     */
+    public boolean matchesAny(OcelotSegment segment, BitSet ruleMask) {
+        if (ruleMask.isEmpty()) {
+            return false;
+        }
+        for (ITSMetadata its : segment.getITSMetadata()) {
+            if (!matchingRules(its, ruleMask).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BitSet satisfiedMatchers(Map<DataCategoryField, Object> values,
+            BitSet ruleMask) {
+        BitSet satisfied = new BitSet();
+        for (FieldPlan fieldPlan : fieldPlans) {
+            // Absent fields never match, as in Rule#matches(RuleMatcher, ITSMetadata)
+            if (values.containsKey(fieldPlan.field)) {
+                fieldPlan.evaluate(values.get(fieldPlan.field), ruleMask, satisfied);
+            }
+        }
+        return satisfied;
+    }
+
+    /**
+     * All of the matchers that test a single field.
+     */
+    static class FieldPlan {
+        private final DataCategoryField field;
+        private final Map<String, int[]> literals;
+        private final int[] rangeIndices;
+        private final double[] lowerBounds, upperBounds;
+        private final int[] otherIndices, otherRules;
+        private final DataCategoryField.Matcher[] otherMatchers;
+
+        private FieldPlan(Builder b) {
+            this.field = b.field;
+            this.literals = new HashMap<String, int[]>();
+            for (Map.Entry<String, List<Integer>> e : b.literals.entrySet()) {
+                literals.put(e.getKey(), toArray(e.getValue()));
+            }
+            this.rangeIndices = toArray(b.rangeIndices);
+            this.lowerBounds = new double[b.ranges.size()];
+            this.upperBounds = new double[b.ranges.size()];
+            for (int i = 0; i < b.ranges.size(); i++) {
+                lowerBounds[i] = b.ranges.get(i).getLowerBound();
+                upperBounds[i] = b.ranges.get(i).getUpperBound();
+            }
+            this.otherIndices = toArray(b.otherIndices);
+            this.otherRules = toArray(b.otherRules);
+            this.otherMatchers = b.others.toArray(
+                    new DataCategoryField.Matcher[b.others.size()]);
+        }
+
+        void evaluate(Object value, BitSet ruleMask, BitSet satisfied) {
+            if (value instanceof String) {
+                int[] hits = literals.get(value);
+                if (hits != null) {
+                    for (int index : hits) {
+                        satisfied.set(index);
+                    }
+                }
+            }
+            // NumericMatcher only accepts Integer and Double values
+            if (rangeIndices.length > 0
+                    && (value instanceof Integer || value instanceof Double)) {
+                double v = ((Number) value).doubleValue();
+                for (int i = 0; i < rangeIndices.length; i++) {
+                    double lower = lowerBounds[i], upper = upperBounds[i];
+                    if (lower == upper ? v == lower : (v >= lower && v < upper)) {
+                        satisfied.set(rangeIndices[i]);
+                    }
+                }
+            }
+            for (int i = 0; i < otherIndices.length; i++) {
+                if (ruleMask != null && !ruleMask.get(otherRules[i])) {
+                    continue;
+                }
+                if (otherMatchers[i].matches(value)) {
+                    satisfied.set(otherIndices[i]);
+                }
+            }
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        static class Builder {
+            private final DataCategoryField field;
+            private final Map<String, List<Integer>> literals =
+                    new HashMap<String, List<Integer>>();
+            private final List<Integer> rangeIndices = new ArrayList<Integer>();
+            private final List<Matchers.NumericMatcher> ranges =
+                    new ArrayList<Matchers.NumericMatcher>();
+            private final List<Integer> otherIndices = new ArrayList<Integer>();
+            private final List<Integer> otherRules = new ArrayList<Integer>();
+            private final List<DataCategoryField.Matcher> others =
+                    new ArrayList<DataCategoryField.Matcher>();
+
+            Builder(DataCategoryField field) {
+                this.field = field;
+            }
+
+            void add(int index, int ruleIndex, DataCategoryField.Matcher matcher) {
+                if (matcher instanceof Matchers.RegexMatcher) {
+                    Set<String> alternatives = literalAlternatives(
+                            ((Matchers.RegexMatcher) matcher).getPattern());
+                    if (alternatives != null) {
+                        for (String literal : alternatives) {
+                            List<Integer> indices = literals.get(literal);
+                            if (indices == null) {
+                                indices = new ArrayList<Integer>();
+                                literals.put(literal, indices);
+                            }
+                            indices.add(index);
+                        }
+                        return;
+                    }
+                } else if (matcher instanceof Matchers.NumericMatcher
+                        && ((Matchers.NumericMatcher) matcher).isConfigured()) {
+                    rangeIndices.add(index);
+                    ranges.add((Matchers.NumericMatcher) matcher);
+                    return;
+                }
+                // Anything else, including unconfigured matchers that should
+                // throw, is evaluated by the matcher itself
+                otherIndices.add(index);
+                otherRules.add(ruleIndex);
+                others.add(matcher);
+            }
+
+            FieldPlan build() {
+                return new FieldPlan(this);
+            }
+        }
+    }
+
+    private static final String REGEX_METACHARACTERS = "\\[]{}()*+?.^$|";
+
+    /**
+     * If a regex can only ever fully match a fixed set of strings - because it
+     * is a literal, or an alternation of literals, optionally anchored and/or
+     * wrapped in a single group - return those strings.
+     * @return the set of strings matched, or null if the pattern uses any other
+     * regex syntax
+     */
+    static Set<String> literalAlternatives(Pattern pattern) {
+        if (pattern == null || pattern.flags() != 0) {
+            return null;
+        }
+        String body = stripAnchors(pattern.pattern());
+        if (body.startsWith("(?:") && body.endsWith(")")) {
+            body = body.substring(3, body.length() - 1);
+        } else if (body.startsWith("(") && body.endsWith(")")) {
+            body = body.substring(1, body.length() - 1);
+        }
+        Set<String> alternatives = new LinkedHashSet<String>();
+        for (String alternative : body.split("\\|", -1)) {
+            alternative = stripAnchors(alternative);
+            if (!isLiteral(alternative)) {
+                return null;
+            }
+            alternatives.add(alternative);
+        }
+        return alternatives;
+    }
+
+    private static String stripAnchors(String s) {
+        if (s.startsWith("^")) {
+            s = s.substring(1);
+        }
+        if (s.endsWith("$") && !s.endsWith("\\$")) {
+            s = s.substring(0, s.length() - 1);
+        }
+        return s;
+    }
+
+    private static boolean isLiteral(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (REGEX_METACHARACTERS.indexOf(s.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -49,6 +49,10 @@ public class RuleMatcher {
 		return field;
 	}
 	
+	DataCategoryField.Matcher getMatcher() {
+		return matcher;
+	}
+
 	public boolean matches(Object o) {
 		return matcher.matches(o);
 	}
@@ -60,12 +60,8 @@ public class SegmentSelector {
         case ALL_WITH_METADATA:
             return s.getITSMetadata().size() > 0;
         case SELECTED_SEGMENTS:
-            for (Rule r : ruleConfig.getRules()) {
-                if (r.getEnabled() && r.matches(s)) {
-                    return true;
-                }
-            }
-            break;
+            RuleEvaluationPlan plan = ruleConfig.getEvaluationPlan();
+            return plan.matchesAny(s, plan.enabledRules());
         }
         return false;
     }
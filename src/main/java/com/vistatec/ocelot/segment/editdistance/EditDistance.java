@@ -30,10 +30,19 @@ package com.vistatec.ocelot.segment.editdistance;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
 import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch.Diff;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
 import com.vistatec.ocelot.segment.model.SegmentVariant;
 import com.vistatec.ocelot.segment.view.SegmentTextCell;
 
@@ -42,6 +51,13 @@ import com.vistatec.ocelot.segment.view.SegmentTextCell;
  * original for segments.
  */
 public class EditDistance {
+    /** Below this number of segments, distances are not split across threads. */
+    private static final int PARALLEL_THRESHOLD = 500;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private static ExecutorService executor;
+
     public static ArrayList<String> styleTextDifferences(SegmentVariant target, SegmentVariant original) {
         DiffMatchPatch dmp = new DiffMatchPatch();
         ArrayList<String> styledDiff = new ArrayList<String>();
@@ -65,8 +81,93 @@ public class EditDistance {
         return styledDiff;
     }
 
+    /**
+     * @return the number of characters inserted, deleted or substituted to
+     * get from the original target to the target
+     */
     public static int calcEditDistance(SegmentVariant target, SegmentVariant tgtOriginal) {
-        DiffMatchPatch dmp = new DiffMatchPatch();
-        return dmp.diffLevenshtein(dmp.diffMain(tgtOriginal.getDisplayText(), target.getDisplayText()));
+        return Levenshtein.distance(tgtOriginal.getDisplayText(), target.getDisplayText());
+    }
+
+    /**
+     * Gets the edit distances of the segments, for a whole document report.
+     * Segments keep their distance until their target changes, and large
+     * documents are computed in parallel.
+     */
+    public static int[] calcEditDistances(final List<OcelotSegment> segments) {
+        final int[] distances = new int[segments.size()];
+        computeInChunks(segments.size(), new Chunk() {
+            @Override
+            public void compute(int start, int end) {
+                // Documents keep their segments in linked lists, so they are
+                // walked rather than indexed
+                ListIterator<OcelotSegment> iter = segments.listIterator(start);
+                for (int i = start; i < end; i++) {
+                    distances[i] = iter.next().getEditDistance();
+                }
+            }
+        });
+        return distances;
+    }
+
+    /**
+     * Computes the edit distance of each target from the original target at
+     * the same index, in parallel for large numbers of texts.
+     */
+    public static int[] calcEditDistances(final List<String> originals, final List<String> targets) {
+        if (originals.size() != targets.size()) {
+            throw new IllegalArgumentException("Expected as many targets as original targets");
+        }
+        final int[] distances = new int[targets.size()];
+        computeInChunks(targets.size(), new Chunk() {
+            @Override
+            public void compute(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    distances[i] = Levenshtein.distance(originals.get(i), targets.get(i));
+                }
+            }
+        });
+        return distances;
+    }
+
+    private interface Chunk {
+        void compute(int start, int end);
+    }
+
+    private static void computeInChunks(int size, final Chunk chunk) {
+        if (size < PARALLEL_THRESHOLD || THREADS == 1) {
+            chunk.compute(0, size);
+            return;
+        }
+        int chunkSize = (size + THREADS - 1) / THREADS;
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            final int from = start, to = Math.min(start + chunkSize, size);
+            chunks.add(getExecutor().submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    chunk.compute(from, to);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : chunks) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing edit distances", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while computing edit distances", e.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("ocelot-editdistance-%d").setDaemon(true).build());
+        }
+        return executor;
     }
 }
@@ -0,0 +1,240 @@
+package com.vistatec.ocelot.segment.editdistance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Levenshtein distance using Myers' bit-parallel algorithm, in Hyyrö's
+ * formulation. Each column of the distance matrix is held as bit vectors of
+ * vertical deltas, so a pattern of up to 64 symbols is processed a machine
+ * word at a time; longer patterns are split into blocks of 64.
+ * <p>
+ * Distances are counted either in UTF-16 characters, as the diff of the
+ * segment texts does, or in tokens: runs of letters and digits, and single
+ * punctuation characters.
+ */
+public class Levenshtein {
+    public enum Mode {
+        CHARACTER, TOKEN
+    }
+
+    /** Symbols below this get their masks from an array rather than a map. */
+    private static final int DIRECT_SYMBOLS = 128;
+
+    private Levenshtein() {
+    }
+
+    public static int distance(String from, String to) {
+        return distance(from, to, Mode.CHARACTER);
+    }
+
+    public static int distance(String from, String to, Mode mode) {
+        return distance(from, to, mode, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Computes the distance, giving up as soon as it is known to be more than
+     * a maximum.
+     * @return the distance, or {@code maxDistance + 1} if it is more than
+     * {@code maxDistance}
+     */
+    public static int distance(String from, String to, Mode mode, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Negative maximum distance: " + maxDistance);
+        }
+        if (mode == Mode.TOKEN) {
+            Map<String, Integer> ids = new HashMap<>();
+            return distance(tokenIds(from, ids), tokenIds(to, ids), maxDistance);
+        }
+        return distance(chars(from), chars(to), maxDistance);
+    }
+
+    public static boolean isWithin(String from, String to, Mode mode, int maxDistance) {
+        return distance(from, to, mode, maxDistance) <= maxDistance;
+    }
+
+    static int[] chars(String text) {
+        int[] symbols = new int[text.length()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = text.charAt(i);
+        }
+        return symbols;
+    }
+
+    /**
+     * Splits the text into tokens, replacing each one with an id shared by
+     * equal tokens. Whitespace only separates tokens.
+     */
+    static int[] tokenIds(String text, Map<String, Integer> ids) {
+        List<Integer> symbols = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            int end = i + Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                while (end < text.length() && Character.isLetterOrDigit(text.codePointAt(end))) {
+                    end += Character.charCount(text.codePointAt(end));
+                }
+            }
+            if (!Character.isWhitespace(codePoint)) {
+                String token = text.substring(i, end);
+                Integer id = ids.get(token);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(token, id);
+                }
+                symbols.add(id);
+            }
+            i = end;
+        }
+        int[] result = new int[symbols.size()];
+        for (int j = 0; j < result.length; j++) {
+            result[j] = symbols.get(j);
+        }
+        return result;
+    }
+
+    static int distance(int[] a, int[] b, int maxDistance) {
+        // Edits are usually local, so most of both texts is a common prefix
+        // and suffix, which doesn't change the distance
+        int start = 0, aEnd = a.length, bEnd = b.length;
+        while (start < aEnd && start < bEnd && a[start] == b[start]) {
+            start++;
+        }
+        while (aEnd > start && bEnd > start && a[aEnd - 1] == b[bEnd - 1]) {
+            aEnd--;
+            bEnd--;
+        }
+        // The shorter sequence is the pattern, so that it takes fewer blocks
+        int[] pattern = a, text = b;
+        int m = aEnd - start, n = bEnd - start;
+        if (m > n) {
+            pattern = b;
+            text = a;
+            int swap = m;
+            m = n;
+            n = swap;
+        }
+        if (n - m > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (m == 0) {
+            return n;
+        }
+        return m <= 64
+                ? distanceSingleWord(pattern, text, start, m, n, maxDistance)
+                : distanceBlocks(pattern, text, start, m, n, maxDistance);
+    }
+
+    private static int distanceSingleWord(int[] pattern, int[] text, int start, int m, int n,
+            int maxDistance) {
+        PatternMasks peq = new PatternMasks(pattern, start, m, 1);
+        long pv = -1L, mv = 0L;
+        long last = 1L << (m - 1);
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            long eq = peq.get(text[start + j], 0);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // The first row of the matrix increases by one in each column
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            // Each remaining column lowers the distance by one at most
+            if (score - (n - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score;
+    }
+
+    private static int distanceBlocks(int[] pattern, int[] text, int start, int m, int n,
+            int maxDistance) {
+        int blocks = (m + 63) >>> 6;
+        PatternMasks peq = new PatternMasks(pattern, start, m, blocks);
+        long[] pvs = new long[blocks], mvs = new long[blocks];
+        Arrays.fill(pvs, -1L);
+        long last = 1L << ((m - 1) & 63);
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            int symbol = text[start + j];
+            // Horizontal delta carried into each block from the one above
+            int hin = 1;
+            for (int block = 0; block < blocks; block++) {
+                long eq = peq.get(symbol, block);
+                long pv = pvs[block], mv = mvs[block];
+                long xv = eq | mv;
+                if (hin < 0) {
+                    eq |= 1L;
+                }
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                long high = block == blocks - 1 ? last : Long.MIN_VALUE;
+                int hout = (ph & high) != 0 ? 1 : (mh & high) != 0 ? -1 : 0;
+                ph <<= 1;
+                mh <<= 1;
+                if (hin < 0) {
+                    mh |= 1L;
+                } else if (hin > 0) {
+                    ph |= 1L;
+                }
+                pvs[block] = mh | ~(xv | ph);
+                mvs[block] = ph & xv;
+                hin = hout;
+            }
+            score += hin;
+            if (score - (n - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * For each symbol, the bit mask of its positions in the pattern.
+     */
+    private static class PatternMasks {
+        private final int blocks;
+        private final long[] direct;
+        private final Map<Integer, long[]> others = new HashMap<>();
+
+        PatternMasks(int[] pattern, int start, int length, int blocks) {
+            this.blocks = blocks;
+            this.direct = new long[DIRECT_SYMBOLS * blocks];
+            for (int i = 0; i < length; i++) {
+                int symbol = pattern[start + i];
+                long bit = 1L << (i & 63);
+                if (symbol < DIRECT_SYMBOLS) {
+                    direct[symbol * blocks + (i >>> 6)] |= bit;
+                } else {
+                    long[] masks = others.get(symbol);
+                    if (masks == null) {
+                        masks = new long[blocks];
+                        others.put(symbol, masks);
+                    }
+                    masks[i >>> 6] |= bit;
+                }
+            }
+        }
+
+        long get(int symbol, int block) {
+            if (symbol < DIRECT_SYMBOLS) {
+                return direct[symbol * blocks + block];
+            }
+            long[] masks = others.get(symbol);
+            return masks != null ? masks[block] : 0L;
+        }
+    }
+}
@@ -30,6 +30,7 @@ package com.vistatec.ocelot.segment.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import com.vistatec.ocelot.its.model.ITSMetadata;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
@@ -48,11 +49,9 @@ import com.vistatec.ocelot.segment.model.okapi.Notes;
 public abstract class BaseSegment implements OcelotSegment {
     protected final int segmentNumber;
     protected final SegmentVariant source;
-    protected SegmentVariant target, originalTarget;
-    protected boolean setOriginalTarget = false;
+    protected volatile SegmentVariant target, originalTarget;
+    protected volatile boolean setOriginalTarget = false;
 
-    protected boolean dirtyEditDistance = true;
-    protected int editDistance;
     protected Notes notes;
 
     protected boolean dirtyTargetDiff = true;
@@ -65,6 +64,10 @@ public abstract class BaseSegment implements OcelotSegment {
     private boolean addedOcelotProvenance = false;
     protected final List<OtherITSMetadata> otherITSList = new ArrayList<>();
 
+    private volatile SourceWordCount sourceWordCount;
+    // Read by workspace stats on worker threads while the EDT edits
+    private volatile CachedEditDistance editDistance;
+
     public BaseSegment(int segmentNumber, SegmentVariant source,
             SegmentVariant target, SegmentVariant originalTarget) {
         this.segmentNumber = segmentNumber;
@@ -89,6 +92,18 @@ public abstract class BaseSegment implements OcelotSegment {
         return this.source;
     }
 
+    @Override
+    public int getSourceWordCount(WordCounter counter) {
+        // The source isn't edited, so the count only depends on the locale
+        SourceWordCount count = sourceWordCount;
+        if (count == null || !count.locale.equals(counter.getLocale())) {
+            count = new SourceWordCount(counter.getLocale(),
+                    counter.countWords(source.getDisplayText()));
+            sourceWordCount = count;
+        }
+        return count.words;
+    }
+
     @Override
     public SegmentVariant getTarget() {
         return this.target;
@@ -133,7 +148,6 @@ public abstract class BaseSegment implements OcelotSegment {
                 setOriginalTarget(target);
             }
             target = updatedTarget;
-            dirtyEditDistance = true;
             dirtyTargetDiff = true;
             return true;
         } else {
@@ -162,12 +176,20 @@ public abstract class BaseSegment implements OcelotSegment {
 
     @Override
     public int getEditDistance() {
-        if (dirtyEditDistance) {
-            editDistance = hasOriginalTarget() ?
-                EditDistance.calcEditDistance(getTarget(), getOriginalTarget()) : 0;
-            dirtyEditDistance = false;
+        if (!hasOriginalTarget()) {
+            return 0;
+        }
+        // The cached distance is only used for the variants it was computed
+        // from, so a target replaced during the computation isn't missed
+        SegmentVariant target = this.target, originalTarget = this.originalTarget;
+        CachedEditDistance cached = editDistance;
+        if (cached == null || cached.target != target
+                || cached.originalTarget != originalTarget) {
+            cached = new CachedEditDistance(target, originalTarget,
+                    EditDistance.calcEditDistance(target, originalTarget));
+            editDistance = cached;
         }
-        return editDistance;
+        return cached.distance;
     }
 
     @Override
@@ -290,4 +312,25 @@ public abstract class BaseSegment implements OcelotSegment {
         return its;
     }
 
+    private static class CachedEditDistance {
+        private final SegmentVariant target, originalTarget;
+        private final int distance;
+
+        CachedEditDistance(SegmentVariant target, SegmentVariant originalTarget,
+                int distance) {
+            this.target = target;
+            this.originalTarget = originalTarget;
+            this.distance = distance;
+        }
+    }
+
+    private static class SourceWordCount {
+        private final Locale locale;
+        private final int words;
+
+        SourceWordCount(Locale locale, int words) {
+            this.locale = locale;
+            this.words = words;
+        }
+    }
 }
@@ -27,8 +27,23 @@ protected List<HighlightData> highlightDataList;
     
     protected int currentHighlightedIndex = -1;
 
+	private int contentVersion;
+
 	protected abstract void setAtoms(List<SegmentAtom> atoms);
 
+	/**
+	 * Incremented whenever the text, codes or highlighting of this variant
+	 * change, so views can tell whether styled content they built from it
+	 * is still current.
+	 */
+	public int getContentVersion() {
+		return contentVersion;
+	}
+
+	protected void contentChanged() {
+		contentVersion++;
+	}
+
 	List<SegmentAtom> getAtomsForRange(int start, int length) {
 		List<SegmentAtom> atomsForRange = Lists.newArrayList();
 		int index = 0;
@@ -206,6 +221,7 @@ protected List<HighlightData> highlightDataList;
 			}
 		}
 		setAtoms(cleanedAtoms);
+		contentChanged();
 	}
 
 	/**
@@ -288,6 +304,7 @@ protected List<HighlightData> highlightDataList;
 		}
 
 		setAtoms(mergeNeighboringTextAtoms(newAtoms));
+		contentChanged();
 	}
 
 	/**
@@ -329,10 +346,12 @@ protected List<HighlightData> highlightDataList;
  public void clearHighlightedText(){
     	highlightDataList = null;
     	currentHighlightedIndex = -1;
+    	contentChanged();
     }
 
  public void setHighlightDataList(List<HighlightData> highlightDataList) {
     	this.highlightDataList = highlightDataList;
+    	contentChanged();
     }
     
     public List<HighlightData> getHighlightDataList(){
@@ -344,6 +363,7 @@ protected List<HighlightData> highlightDataList;
     		highlightDataList = new ArrayList<HighlightData>(); 
     	}
     	highlightDataList.add(highlightData);
+    	contentChanged();
     }
     
     public void removeHighlightData(int atomIndex, int startIndex, int endIndex){
@@ -357,11 +377,13 @@ protected List<HighlightData> highlightDataList;
     			}
     		}
     		highlightDataList.remove(hdToDelete);
+    		contentChanged();
     	}
     }
     
  public void setCurrentHighlightedIndex(int currentHighlightedIndex){
     	this.currentHighlightedIndex = currentHighlightedIndex;
+    	contentChanged();
     }
     
     public int getCurrentHighlightedIndex(){
@@ -405,6 +427,7 @@ protected List<HighlightData> highlightDataList;
 			}
 			highlightDataList.remove(currentHighlightedIndex);
 			currentHighlightedIndex = -1;
+			contentChanged();
 		}
     }
 	public Set<Enrichment> getEnirchments() {
@@ -58,6 +58,14 @@ public interface OcelotSegment {
 
     public SegmentVariant getSource();
     public SegmentVariant getTarget();
+
+    /**
+     * Number of words in the source. The count is kept until it is requested
+     * for another locale.
+     * @param counter counter for the locale of the source
+     * @return the number of words in the source text
+     */
+    public int getSourceWordCount(WordCounter counter);
     public SegmentVariant getOriginalTarget();
     
     public String getTuId();
@@ -0,0 +1,36 @@
+package com.vistatec.ocelot.segment.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Segments of a document whose sources are the same once normalized, in
+ * document order. See {@link RepetitionIndex}.
+ */
+public class RepetitionGroup {
+    private final List<OcelotSegment> segments;
+
+    RepetitionGroup(List<OcelotSegment> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+    }
+
+    public List<OcelotSegment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return the first segment of the group in the document
+     */
+    public OcelotSegment getFirst() {
+        return segments.get(0);
+    }
+
+    public int size() {
+        return segments.size();
+    }
+
+    @Override
+    public String toString() {
+        return segments.size() + " x '" + getFirst().getSource().getDisplayText() + "'";
+    }
+}
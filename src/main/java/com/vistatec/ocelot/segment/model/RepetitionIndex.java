@@ -0,0 +1,141 @@
+package com.vistatec.ocelot.segment.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the segments of a document that repeat the same source, so that
+ * work done on one of them can be shared with the others. Sources are
+ * compared after collapsing runs of whitespace; codes are compared by their
+ * ID and display form, so repetitions may differ in the content of their
+ * codes.
+ */
+public class RepetitionIndex {
+    public static final RepetitionIndex EMPTY = new RepetitionIndex(
+            Collections.<RepetitionGroup>emptyList());
+
+    // Mark the codes in a key with private use characters, which don't appear
+    // in segment text in practice.
+    private static final char CODE_START = '\uE000';
+    private static final char CODE_END = '\uE001';
+
+    private final List<RepetitionGroup> groups;
+    private final Map<Integer, RepetitionGroup> groupsBySegmentNumber =
+            new HashMap<Integer, RepetitionGroup>();
+
+    private RepetitionIndex(List<RepetitionGroup> groups) {
+        this.groups = Collections.unmodifiableList(groups);
+        for (RepetitionGroup group : groups) {
+            for (OcelotSegment segment : group.getSegments()) {
+                groupsBySegmentNumber.put(segment.getSegmentNumber(), group);
+            }
+        }
+    }
+
+    /**
+     * Groups the segments with the same source. Segments without a
+     * repetition, or with an empty source, aren't kept.
+     */
+    public static RepetitionIndex build(List<OcelotSegment> segments) {
+        Map<String, List<OcelotSegment>> bySource =
+                new LinkedHashMap<String, List<OcelotSegment>>();
+        for (OcelotSegment segment : segments) {
+            String key = key(segment.getSource());
+            if (key.isEmpty()) {
+                continue;
+            }
+            List<OcelotSegment> same = bySource.get(key);
+            if (same == null) {
+                same = new ArrayList<OcelotSegment>(1);
+                bySource.put(key, same);
+            }
+            same.add(segment);
+        }
+        List<RepetitionGroup> groups = new ArrayList<RepetitionGroup>();
+        for (List<OcelotSegment> same : bySource.values()) {
+            if (same.size() > 1) {
+                groups.add(new RepetitionGroup(same));
+            }
+        }
+        return new RepetitionIndex(groups);
+    }
+
+    /**
+     * @return the groups of repeated segments, in the document order of their
+     * first segment
+     */
+    public List<RepetitionGroup> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return the group of a segment, or null if its source isn't repeated
+     */
+    public RepetitionGroup getGroup(OcelotSegment segment) {
+        return groupsBySegmentNumber.get(segment.getSegmentNumber());
+    }
+
+    /**
+     * @return the number of segments that belong to a group
+     */
+    public int getRepeatedSegmentCount() {
+        return groupsBySegmentNumber.size();
+    }
+
+    /**
+     * @return the normalized form of a source under which repetitions are
+     * grouped
+     */
+    static String key(SegmentVariant source) {
+        StringBuilder key = new StringBuilder();
+        boolean space = false;
+        for (SegmentAtom atom : source.getAtoms()) {
+            if (atom instanceof CodeAtom) {
+                CodeAtom code = (CodeAtom) atom;
+                if (space && key.length() > 0) {
+                    key.append(' ');
+                }
+                key.append(CODE_START).append(code.getId()).append(' ')
+                        .append(code.getData()).append(CODE_END);
+                space = false;
+                continue;
+            }
+            String text = atom.getData();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    space = true;
+                } else {
+                    if (space && key.length() > 0) {
+                        key.append(' ');
+                    }
+                    space = false;
+                    key.append(c);
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return whether two sources have the same codes, including their
+     * content, so that a target for one can be used for the other
+     */
+    public static boolean hasSameCodes(SegmentVariant source1, SegmentVariant source2) {
+        return codes(source1).equals(codes(source2));
+    }
+
+    private static List<CodeAtom> codes(SegmentVariant variant) {
+        List<CodeAtom> codes = new ArrayList<CodeAtom>();
+        for (SegmentAtom atom : variant.getAtoms()) {
+            if (atom instanceof CodeAtom) {
+                codes.add((CodeAtom) atom);
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,275 @@
+package com.vistatec.ocelot.segment.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.vistatec.ocelot.its.model.ITSMetadata;
+import com.vistatec.ocelot.its.model.LanguageQualityIssue;
+import com.vistatec.ocelot.its.model.OtherITSMetadata;
+import com.vistatec.ocelot.its.model.Provenance;
+import com.vistatec.ocelot.its.model.TerminologyMetaData;
+import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
+import com.vistatec.ocelot.rules.StateQualifier;
+import com.vistatec.ocelot.segment.editdistance.EditDistance;
+import com.vistatec.ocelot.segment.model.okapi.Note;
+import com.vistatec.ocelot.segment.model.okapi.Notes;
+
+/**
+ * Read-only copy of a segment as it was when the snapshot was taken, for
+ * code running on other threads while the segment keeps being edited on
+ * the event dispatch thread. Methods that would change the segment throw
+ * {@link UnsupportedOperationException}.
+ */
+public class SegmentSnapshot implements OcelotSegment {
+    private final int segmentNumber;
+    private final String tuId;
+    private final SegmentVariant source, target, originalTarget;
+    private final boolean hasOriginalTarget, hasOcelotProvenance, editable;
+    private final StateQualifier stateQualifier;
+    private final Notes notes;
+    private final List<LanguageQualityIssue> lqis;
+    private final List<Provenance> provenance;
+    private final List<TextAnalysisMetaData> textAnalysis;
+    private final List<TerminologyMetaData> terms;
+    private final List<OtherITSMetadata> otherITSMetadata;
+
+    private SegmentSnapshot(OcelotSegment segment) {
+        this.segmentNumber = segment.getSegmentNumber();
+        this.tuId = segment.getTuId();
+        this.source = copy(segment.getSource());
+        this.target = copy(segment.getTarget());
+        this.originalTarget = copy(segment.getOriginalTarget());
+        this.hasOriginalTarget = segment.hasOriginalTarget();
+        this.hasOcelotProvenance = segment.hasOcelotProvenance();
+        this.editable = segment.isEditable();
+        this.stateQualifier = segment.getStateQualifier();
+        this.notes = new Notes();
+        if (segment.getNotes() != null) {
+            for (Note note : segment.getNotes()) {
+                notes.add(new Note(note.getId(), note.getContent()));
+            }
+        }
+        this.lqis = copy(segment.getLQI());
+        this.provenance = copy(segment.getProvenance());
+        this.textAnalysis = copy(segment.getTextAnalysis());
+        this.terms = copy(segment.getTerms());
+        this.otherITSMetadata = copy(segment.getOtherITSMetadata());
+    }
+
+    /**
+     * Copies a segment. It must be called on the thread that edits the
+     * segment, usually the event dispatch thread.
+     */
+    public static SegmentSnapshot of(OcelotSegment segment) {
+        return segment instanceof SegmentSnapshot ?
+                (SegmentSnapshot) segment : new SegmentSnapshot(segment);
+    }
+
+    private static SegmentVariant copy(SegmentVariant variant) {
+        return variant != null ? variant.createCopy() : null;
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+        return list != null ?
+                Collections.unmodifiableList(new ArrayList<T>(list)) :
+                Collections.<T>emptyList();
+    }
+
+    @Override
+    public int getSegmentNumber() {
+        return segmentNumber;
+    }
+
+    @Override
+    public SegmentVariant getSource() {
+        return source;
+    }
+
+    @Override
+    public SegmentVariant getTarget() {
+        return target;
+    }
+
+    @Override
+    public int getSourceWordCount(WordCounter counter) {
+        return counter.countWords(source.getDisplayText());
+    }
+
+    @Override
+    public SegmentVariant getOriginalTarget() {
+        return originalTarget;
+    }
+
+    @Override
+    public String getTuId() {
+        return tuId;
+    }
+
+    @Override
+    public boolean hasOriginalTarget() {
+        return hasOriginalTarget;
+    }
+
+    @Override
+    public List<String> getTargetDiff() {
+        return hasOriginalTarget ?
+                EditDistance.styleTextDifferences(target, originalTarget) :
+                Collections.<String>emptyList();
+    }
+
+    @Override
+    public int getEditDistance() {
+        return hasOriginalTarget ?
+                EditDistance.calcEditDistance(target, originalTarget) : 0;
+    }
+
+    /**
+     * @return a copy of the notes; changing it doesn't change the segment
+     */
+    @Override
+    public Notes getNotes() {
+        return notes;
+    }
+
+    @Override
+    public List<LanguageQualityIssue> getLQI() {
+        return lqis;
+    }
+
+    @Override
+    public List<Provenance> getProvenance() {
+        return provenance;
+    }
+
+    @Override
+    public List<TextAnalysisMetaData> getTextAnalysis() {
+        return textAnalysis;
+    }
+
+    @Override
+    public List<TerminologyMetaData> getTerms() {
+        return terms;
+    }
+
+    @Override
+    public boolean hasOcelotProvenance() {
+        return hasOcelotProvenance;
+    }
+
+    @Override
+    public List<OtherITSMetadata> getOtherITSMetadata() {
+        return otherITSMetadata;
+    }
+
+    @Override
+    public List<ITSMetadata> getITSMetadata() {
+        List<ITSMetadata> its = new ArrayList<>();
+        its.addAll(lqis);
+        its.addAll(provenance);
+        its.addAll(otherITSMetadata);
+        its.addAll(textAnalysis);
+        its.addAll(terms);
+        return its;
+    }
+
+    @Override
+    public boolean isEditable() {
+        return editable;
+    }
+
+    @Override
+    public StateQualifier getStateQualifier() {
+        return stateQualifier;
+    }
+
+    @Override
+    public void setOriginalTarget(SegmentVariant originalTarget) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean updateTarget(SegmentVariant updatedTarget) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean resetTarget() {
+        throw readOnly();
+    }
+
+    @Override
+    public void setNotes(Notes notes) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addLQI(LanguageQualityIssue lqi) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addAllLQI(List<LanguageQualityIssue> lqis) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeLQI(LanguageQualityIssue removeLQI) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addProvenance(Provenance prov) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addAllProvenance(List<Provenance> provs) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addTextAnalysis(TextAnalysisMetaData ta) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addAllTextAnalysis(List<TextAnalysisMetaData> tas) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeTextAnalysis(TextAnalysisMetaData ta) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addTerm(TerminologyMetaData term) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addAllTerms(List<TerminologyMetaData> terms) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeTerm(TerminologyMetaData term) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setOcelotProvenance(boolean flag) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addAllOtherITSMetadata(List<OtherITSMetadata> otherITS) {
+        throw readOnly();
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Segment " + segmentNumber
+                + " is a read-only snapshot");
+    }
+}
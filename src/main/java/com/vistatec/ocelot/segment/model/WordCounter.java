@@ -0,0 +1,110 @@
+package com.vistatec.ocelot.segment.model;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Counts words using the word boundaries of a locale. A word is a run
+ * between two boundaries that contains at least one letter.
+ */
+public class WordCounter {
+    /** Below this number of segments, counting is not split across threads. */
+    private static final int PARALLEL_THRESHOLD = 500;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private static ExecutorService executor;
+
+    private final Locale locale;
+
+    public WordCounter(Locale locale) {
+        this.locale = locale != null ? locale : Locale.ENGLISH;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public int countWords(String text) {
+        // BreakIterators aren't thread-safe, so each count gets its own
+        BreakIterator iterator = BreakIterator.getWordInstance(locale);
+        iterator.setText(text);
+        int wordCount = 0;
+        int start = iterator.first();
+        for (int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
+            if (containsLetter(text, start, end)) {
+                wordCount++;
+            }
+        }
+        return wordCount;
+    }
+
+    private static boolean containsLetter(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (Character.isLetter(text.codePointAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sums the source word counts of the segments. Segments count their words
+     * once and keep the count until their source changes, and large documents
+     * are counted in parallel.
+     */
+    public int countSourceWords(List<OcelotSegment> segments) {
+        if (segments.size() < PARALLEL_THRESHOLD || THREADS == 1) {
+            return sum(segments);
+        }
+        int chunkSize = (segments.size() + THREADS - 1) / THREADS;
+        List<Future<Integer>> counts = new ArrayList<>();
+        for (int start = 0; start < segments.size(); start += chunkSize) {
+            final List<OcelotSegment> chunk = segments.subList(start,
+                    Math.min(start + chunkSize, segments.size()));
+            counts.add(getExecutor().submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return sum(chunk);
+                }
+            }));
+        }
+        int total = 0;
+        try {
+            for (Future<Integer> count : counts) {
+                total += count.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting words", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while counting words", e.getCause());
+        }
+        return total;
+    }
+
+    private int sum(List<OcelotSegment> segments) {
+        int total = 0;
+        for (OcelotSegment segment : segments) {
+            total += segment.getSourceWordCount(this);
+        }
+        return total;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("ocelot-wordcount-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+}
@@ -1,20 +1,11 @@
 package com.vistatec.ocelot.segment.model.enrichment;
 
-import java.awt.Image;
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.imageio.ImageIO;
-
-import org.apache.log4j.Logger;
-
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.NodeIterator;
 import com.hp.hpl.jena.rdf.model.RDFNode;
@@ -202,14 +193,11 @@ public abstract class ELinkEnrichmentsConstants {
 			} else {
 				imageURL = imageNode.asLiteral().getString();
 			}
-			Image image = downloadImage(imageURL);
-			if (image != null) {
-				linkEnrichment.setImage(image);
-				linkEnrichment.setImageURL(imageURL,
-				        ELinkEnrichmentsConstants.SMALL_IMAGE_PROP);
-			}
+			// The image is only downloaded when it is displayed
+			linkEnrichment.setImageURL(imageURL,
+			        ELinkEnrichmentsConstants.SMALL_IMAGE_PROP);
 		}
-		if (linkEnrichment.getImage() == null) {
+		if (linkEnrichment.getImageURL() == null) {
 			imageNodeIt = linkModel.listObjectsOfProperty(entityRes, linkModel
 			        .createProperty(ELinkEnrichmentsConstants.IMAGE_PROP));
 			if (imageNodeIt.hasNext()) {
@@ -220,12 +208,8 @@ public abstract class ELinkEnrichmentsConstants {
 				} else {
 					imageURL = imageNode.asLiteral().getString();
 				}
-				Image image = downloadImage(imageURL);
-				if (image != null) {
-					linkEnrichment.setImage(image);
-					linkEnrichment.setImageURL(imageURL,
-					        ELinkEnrichmentsConstants.IMAGE_PROP);
-				}
+				linkEnrichment.setImageURL(imageURL,
+				        ELinkEnrichmentsConstants.IMAGE_PROP);
 			}
 		}
 		NodeIterator wikiNodeIt = linkModel
@@ -278,41 +262,4 @@ public abstract class ELinkEnrichmentsConstants {
 		}
 		linkEnrichment.setInfoList(enrichmentInfo);
 	}
-
-	/**
-	 * Downloads an image from a specific URL. If the URL is redirecting to
-	 * another, it follows the URL chain till the image is found.
-	 * 
-	 * @param imagUrl
-	 *            the image URL
-	 * @return the image
-	 */
-	public static Image downloadImage(String imagUrl) {
-
-		Image image = null;
-		try {
-			URL url = new URL(imagUrl);
-			while (image == null && url != null) {
-				image = ImageIO.read(url);
-				if (image == null) {
-					HttpURLConnection conn = (HttpURLConnection) url
-					        .openConnection();
-					HttpURLConnection.setFollowRedirects(false);
-					String urlStr = conn.getHeaderField("Location");
-					if (urlStr != null) {
-						url = new URL(urlStr);
-					} else {
-						url = null;
-					}
-				}
-			}
-		} catch (MalformedURLException e) {
-			Logger.getLogger(ELinkEnrichmentsConstants.class).error(
-			        "Error in the image URL: " + imagUrl, e);
-		} catch (IOException e) {
-			Logger.getLogger(ELinkEnrichmentsConstants.class).error(
-			        "Error while downloading the image with URL " + imagUrl, e);
-		}
-		return image;
-	}
 }
@@ -1,6 +1,5 @@
 package com.vistatec.ocelot.segment.model.enrichment;
 
-import java.awt.Image;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -41,9 +40,6 @@ public class LinkEnrichment extends Enrichment {
 	/** The image URL. */
 	private LinkInfoData imageURL;
 
-	/** The image. */
-	private Image image;
-
 	/** The homepage link. */
 	private LinkInfoData homePage;
 
@@ -180,25 +176,6 @@ public class LinkEnrichment extends Enrichment {
 		this.infoList = infoList;
 	}
 
-	/**
-	 * Gets the image.
-	 * 
-	 * @return the image.
-	 */
-	public Image getImage() {
-		return image;
-	}
-
-	/**
-	 * Sets the image.
-	 * 
-	 * @param image
-	 *            the image.
-	 */
-	public void setImage(Image image) {
-		this.image = image;
-	}
-
 	/**
 	 * Gets the home page and wikipedia links.
 	 * 
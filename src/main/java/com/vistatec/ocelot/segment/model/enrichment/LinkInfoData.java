@@ -131,6 +131,15 @@ public class LinkInfoData {
 		this.value = value;
 	}
 
+	/**
+	 * Gets the data type.
+	 * 
+	 * @return the data type.
+	 */
+	public Class<?> getDataType() {
+		return type;
+	}
+
 	/**
 	 * Gets the unit of measure.
 	 * 
@@ -181,6 +181,7 @@ public class FragmentVariant extends BaseSegmentVariant {
     public void updateSegmentAtoms(Segment okapiSegment) {
         this.segmentAtoms = parseSegmentAtoms(isTarget ?
                 okapiSegment.getTarget() : okapiSegment.getSource());
+        contentChanged();
     }
 
     @Override
@@ -232,6 +233,7 @@ public class FragmentVariant extends BaseSegmentVariant {
     public void setContent(SegmentVariant variant) {
         FragmentVariant copy = (FragmentVariant) variant;
         this.segmentAtoms = copy.copyAtoms();
+        contentChanged();
     }
 
 	@Override
@@ -274,6 +276,7 @@ public class FragmentVariant extends BaseSegmentVariant {
 					}
 				}
 			}
+			contentChanged();
 		}
 	}
     
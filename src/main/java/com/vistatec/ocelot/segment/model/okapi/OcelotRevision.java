@@ -1,33 +1,26 @@
 package com.vistatec.ocelot.segment.model.okapi;
 
-import java.text.ParseException;
 import java.util.Date;
 
 import net.sf.okapi.lib.xliff2.changeTracking.Item;
 import net.sf.okapi.lib.xliff2.changeTracking.Revision;
 
-import com.ibm.icu.text.SimpleDateFormat;
-
 /**
  * This class represents a revision of an Okapi Fragment.
  */
 public class OcelotRevision {
 
-	/** pattern for the <code>datetime</code> field. */
-	private static final String DATETIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ssX";
-
-	/** Date formatter. */
-	private final SimpleDateFormat dateFormatter = new SimpleDateFormat(
-	        DATETIME_PATTERN);
-
 	/** the version of this revision. */
 	private String version;
 
 //	/** The author of this revision. */
 //	private String author;
 
-	/** The date and time when this revision has been created. */
-	private String datetime;
+	/**
+	 * The date and time when this revision has been created, in milliseconds
+	 * since the epoch, or {@link RevisionDates#UNKNOWN}.
+	 */
+	private long datetime = RevisionDates.UNKNOWN;
 
 	/** The display text for this revision. */
 	private String text;
@@ -43,7 +36,7 @@ public class OcelotRevision {
 		
 		version = okapiRevision.getVersion();
 //		author = okapiRevision.getAuthor();
-		datetime = okapiRevision.getDatetime();
+		datetime = RevisionDates.parse(okapiRevision.getDatetime());
 		text = item.getText();
 //		fragment = item.getFragment();
     }
@@ -93,7 +86,7 @@ public class OcelotRevision {
 	 *         pattern <code>yyyy-MM-dd'T'HH:mm:ssX</code>.
 	 */
 	public String getDatetimeAsString() {
-		return datetime;
+		return RevisionDates.format(datetime);
 	}
 
 	/**
@@ -104,7 +97,7 @@ public class OcelotRevision {
 	 *            pattern <code>yyyy-MM-dd'T'HH:mm:ssX</code>..
 	 */
 	public void setDatetime(String datetime) {
-		this.datetime = datetime;
+		this.datetime = RevisionDates.parse(datetime);
 	}
 
 	/**
@@ -113,16 +106,7 @@ public class OcelotRevision {
 	 * @return the date and time when the revision has been created.
 	 */
 	public Date getDatetimeAsDate() {
-		Date date = null;
-		if (datetime != null) {
-			try {
-				date = dateFormatter.parse(datetime);
-			} catch (ParseException e) {
-				// TODO handle exception
-				e.printStackTrace();
-			}
-		}
-		return date;
+		return datetime != RevisionDates.UNKNOWN ? new Date(datetime) : null;
 	}
 
 	/**
@@ -134,10 +118,20 @@ public class OcelotRevision {
 	public void setDatetime(Date date) {
 
 		if (date != null) {
-			datetime = dateFormatter.format(date);
+			datetime = date.getTime();
 		}
 	}
 
+	/**
+	 * Gets the date and time when the revision has been created.
+	 * 
+	 * @return the milliseconds since the epoch, or
+	 *         {@link RevisionDates#UNKNOWN} if the revision has no valid date.
+	 */
+	public long getDatetime() {
+		return datetime;
+	}
+
 	/**
 	 * Gets the revision text.
 	 * 
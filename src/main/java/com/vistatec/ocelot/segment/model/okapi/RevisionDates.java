@@ -0,0 +1,55 @@
+package com.vistatec.ocelot.segment.model.okapi;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Converts the datetimes of XLIFF 2.0 change tracking revisions to and from
+ * milliseconds since the epoch. Date formats aren't thread-safe, so each
+ * thread gets its own.
+ */
+public class RevisionDates {
+
+	/** pattern for the revision <code>datetime</code> attribute. */
+	public static final String DATETIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ssX";
+
+	/** A missing or unreadable datetime, older than any other. */
+	public static final long UNKNOWN = Long.MIN_VALUE;
+
+	private static final ThreadLocal<SimpleDateFormat> FORMAT = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return new SimpleDateFormat(DATETIME_PATTERN);
+		}
+	};
+
+	private RevisionDates() {
+	}
+
+	/**
+	 * @return the datetime in milliseconds, or {@link #UNKNOWN}
+	 */
+	public static long parse(String datetime) {
+		if (datetime == null || datetime.isEmpty()) {
+			return UNKNOWN;
+		}
+		try {
+			return FORMAT.get().parse(datetime).getTime();
+		} catch (ParseException e) {
+			return UNKNOWN;
+		}
+	}
+
+	/**
+	 * @return the datetime formatted for a revision, or null if it is
+	 *         {@link #UNKNOWN}
+	 */
+	public static String format(long millis) {
+		return millis != UNKNOWN ? FORMAT.get().format(new Date(millis)) : null;
+	}
+
+	public static String now() {
+		return format(System.currentTimeMillis());
+	}
+}
@@ -66,6 +66,7 @@ public class TextContainerVariant extends OkapiSegmentVariant {
     public void setContent(SegmentVariant variant) {
         TextContainerVariant other = (TextContainerVariant)variant;
         tc.setContent(other.getTextContainer().getUnSegmentedContentCopy());
+        contentChanged();
     }
 
     public TextContainer getTextContainer() {
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2015, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.segment.view;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Insets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.swing.UIManager;
+
+import com.vistatec.ocelot.SegmentViewColumn;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+/**
+ * Cache of the measured height of each segment's text in each column of the
+ * {@link SegmentView}, along with the font metrics needed to estimate the
+ * height of text that hasn't been measured yet.
+ * <p>
+ * Measured heights are only valid for the column width and font they were
+ * measured with; when either changes, the heights for that column are
+ * dropped. Otherwise entries are only removed when a segment is edited.
+ * All access is expected to be on the event dispatch thread.
+ */
+class RowHeightCache {
+
+    private final Map<SegmentViewColumn, ColumnHeights> columns =
+            new EnumMap<SegmentViewColumn, ColumnHeights>(SegmentViewColumn.class);
+    private final Map<Font, TextLayoutMetrics> metrics =
+            new HashMap<Font, TextLayoutMetrics>();
+    private SegmentTextCell measuringCell;
+
+    /**
+     * @return the cached height, or -1 if the text has not been measured at
+     * this width and font.
+     */
+    int getHeight(OcelotSegment seg, SegmentViewColumn col, int width, Font font) {
+        ColumnHeights heights = columns.get(col);
+        if (heights == null || !heights.isFor(width, font)) {
+            return -1;
+        }
+        Integer height = heights.heights.get(seg);
+        return height != null ? height : -1;
+    }
+
+    /**
+     * Measure the preferred height of some text at a given width and font
+     * and cache it for this segment and column.
+     */
+    int measure(OcelotSegment seg, SegmentViewColumn col, String text,
+            int width, Font font) {
+        int height = measure(text, width, font);
+        ColumnHeights heights = columns.get(col);
+        if (heights == null || !heights.isFor(width, font)) {
+            heights = new ColumnHeights(width, font);
+            columns.put(col, heights);
+        }
+        heights.heights.put(seg, height);
+        return height;
+    }
+
+    /**
+     * Estimate the height of some text at a given width and font without
+     * laying it out, by wrapping its advance width into lines.
+     */
+    int estimate(String text, int width, Font font) {
+        TextLayoutMetrics m = getMetrics(font);
+        int available = Math.max(1, width - m.horizontalInsets);
+        int lines = 0;
+        int lineStart = 0;
+        while (true) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            String line = text.substring(lineStart,
+                    lineEnd >= 0 ? lineEnd : text.length());
+            int lineWidth = m.fontMetrics.stringWidth(line);
+            lines += Math.max(1, (lineWidth + available - 1) / available);
+            if (lineEnd < 0) {
+                break;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return m.singleLineHeight + (lines - 1) * m.lineHeight;
+    }
+
+    /**
+     * Forget all measurements for a segment, eg. because it was edited.
+     */
+    void invalidate(OcelotSegment seg) {
+        for (ColumnHeights heights : columns.values()) {
+            heights.heights.remove(seg);
+        }
+    }
+
+    /**
+     * Forget all measurements for a column, eg. because the way its content
+     * is displayed has changed.
+     */
+    void invalidate(SegmentViewColumn col) {
+        columns.remove(col);
+    }
+
+    void clear() {
+        columns.clear();
+    }
+
+    private int measure(String text, int width, Font font) {
+        if (measuringCell == null) {
+            measuringCell = SegmentTextCell.createDummyCell();
+            measuringCell.setBorder(UIManager
+                    .getBorder("Table.focusCellHighlightBorder"));
+        }
+        measuringCell.setFont(font);
+        measuringCell.setText(text);
+        // Need to set width to force text area to calculate a pref height
+        measuringCell.setSize(new Dimension(width, Short.MAX_VALUE));
+        return measuringCell.getPreferredSize().height;
+    }
+
+    private TextLayoutMetrics getMetrics(Font font) {
+        TextLayoutMetrics m = metrics.get(font);
+        if (m == null) {
+            int singleLine = measure("1", Short.MAX_VALUE, font);
+            int twoLines = measure("1\n1", Short.MAX_VALUE, font);
+            Insets insets = measuringCell.getInsets();
+            m = new TextLayoutMetrics(measuringCell.getFontMetrics(font),
+                    singleLine, twoLines - singleLine,
+                    insets.left + insets.right);
+            metrics.put(font, m);
+        }
+        return m;
+    }
+
+    private static class ColumnHeights {
+        private final int width;
+        private final Font font;
+        private final Map<OcelotSegment, Integer> heights =
+                new IdentityHashMap<OcelotSegment, Integer>();
+
+        ColumnHeights(int width, Font font) {
+            this.width = width;
+            this.font = font;
+        }
+
+        boolean isFor(int width, Font font) {
+            return this.width == width && this.font.equals(font);
+        }
+    }
+
+    private static class TextLayoutMetrics {
+        private final FontMetrics fontMetrics;
+        private final int singleLineHeight, lineHeight, horizontalInsets;
+
+        TextLayoutMetrics(FontMetrics fontMetrics, int singleLineHeight,
+                int lineHeight, int horizontalInsets) {
+            this.fontMetrics = fontMetrics;
+            this.singleLineHeight = singleLineHeight;
+            this.lineHeight = lineHeight;
+            this.horizontalInsets = horizontalInsets;
+        }
+    }
+}
@@ -218,6 +218,25 @@ public class SegmentTextCell extends JTextPane {
         }
     }
 
+    /**
+     * Replace the contents of this cell with new styled text, reusing the
+     * existing document rather than creating a new cell.
+     * @param v the variant the text belongs to, or null for a target diff
+     * @param styledText alternating text and style name entries
+     */
+    public void resetTextPane(SegmentVariant v, List<String> styledText) {
+        // Detach the old variant first so the removal isn't applied to it
+        this.v = null;
+        StyledDocument doc = this.getStyledDocument();
+        try {
+            doc.remove(0, doc.getLength());
+        } catch (BadLocationException ex) {
+            LOG.error(ex);
+        }
+        this.v = v;
+        setTextPane(styledText);
+    }
+
     public SegmentVariant getVariant() {
         return this.v;
     }
@@ -39,8 +39,10 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ContainerEvent;
 import java.awt.event.ContainerListener;
 import java.awt.event.FocusEvent;
@@ -51,6 +53,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.EventObject;
 import java.util.List;
 
@@ -69,9 +72,11 @@ import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
 import javax.swing.RowFilter;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.event.CellEditorListener;
 import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.event.TableColumnModelEvent;
@@ -104,6 +109,7 @@ import com.vistatec.ocelot.events.LQISelectionEvent;
 import com.vistatec.ocelot.events.OcelotEditingEvent;
 import com.vistatec.ocelot.events.OpenFileEvent;
 import com.vistatec.ocelot.events.RefreshSegmentView;
+import com.vistatec.ocelot.events.RepetitionsUpdatedEvent;
 import com.vistatec.ocelot.events.ReplaceDoneEvent;
 import com.vistatec.ocelot.events.ReplaceEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
@@ -114,6 +120,7 @@ import com.vistatec.ocelot.events.SegmentTargetExitEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.events.SegmentTargetUpdateFromMatchEvent;
+import com.vistatec.ocelot.events.SegmentsVisibleEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
 import com.vistatec.ocelot.findrep.FindResult;
@@ -146,6 +153,14 @@ public class SegmentView extends JScrollPane implements RuleListener,
 
 	private static Logger LOG = Logger.getLogger(SegmentView.class);
 
+	/** Columns whose content determines the height of a row. */
+	private static final SegmentViewColumn[] TEXT_COLUMNS = { SegNum, Source,
+	        Target, Original };
+	/** Rows above and below the viewport that are always measured exactly. */
+	private static final int VISIBLE_ROW_MARGIN = 20;
+	/** Delay between, and maximum duration of, row height refinement slices. */
+	private static final int REFINE_INTERVAL_MS = 20, REFINE_SLICE_MS = 10;
+
 	protected SegmentTableModel segmentTableModel;
 	protected SegmentViewTable sourceTargetTable;
 	private TableColumnModel tableColumnModel;
@@ -166,21 +181,42 @@ public class SegmentView extends JScrollPane implements RuleListener,
 
 	private int editingRow = -1;
 
+	/** Segment numbers range last reported by postVisibleSegments(). */
+	private int firstVisibleSegNum = -1, lastVisibleSegNum = -1;
+
         private List<Integer> highlightedSegments;
 	private BaseSegmentVariant currHLVariant;
 
+	private final RowHeightCache rowHeightCache = new RowHeightCache();
+	private final StyledCellCache styledCells = new StyledCellCache();
+
 	/**
 	 * Table implementation that recalculates row heights when doLayout() is
 	 * called. To try to minimize redraw time, we avoid recalculating the whole
 	 * table unless recalculateAllRowHeights() has been called since the last
 	 * call to doLayout().
+	 * <p>
+	 * Even then, only the rows near the viewport are measured. Every other
+	 * row gets its height from the {@link RowHeightCache}, or an estimate if
+	 * it hasn't been measured at the current column widths and fonts yet. The
+	 * estimated rows are then measured a slice at a time by a timer, so the
+	 * table stays responsive while a large file is opened or re-filtered.
 	 */
 	class SegmentViewTable extends JTable {
 		private static final long serialVersionUID = 1L;
 		private boolean requireFullRecalc = false;
+		// View rows whose current height is only an estimate
+		private final BitSet estimatedRows = new BitSet();
+		private final Timer refineTimer;
 
 		SegmentViewTable(AbstractTableModel model) {
 			super(model);
+			refineTimer = new Timer(REFINE_INTERVAL_MS, new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					refineEstimatedRows();
+				}
+			});
 		}
 
 		@Override
@@ -192,21 +228,81 @@ public class SegmentView extends JScrollPane implements RuleListener,
 			// produces a noticeable UI flicker.)
 			super.doLayout();
 			int updatedRowCount = 0;
-			for (int row = 0; row < getRowCount(); row++) {
-				if (requireFullRecalc || editingRow == row) {
-					updateRowHeight(row, getIntercellSpacing().height);
-					updatedRowCount++;
+			if (requireFullRecalc) {
+				estimatedRows.clear();
+				for (int row = 0; row < getRowCount(); row++) {
+					if (!updateRowHeight(row, getIntercellSpacing().height,
+					        true)) {
+						estimatedRows.set(row);
+					}
+				}
+				updatedRowCount = getRowCount();
+				requireFullRecalc = false;
+				measureVisibleRows();
+				if (!estimatedRows.isEmpty()) {
+					refineTimer.restart();
 				}
+			} else if (editingRow >= 0 && editingRow < getRowCount()) {
+				updateRowHeight(editingRow, getIntercellSpacing().height, false);
+				updatedRowCount++;
 			}
-			requireFullRecalc = false;
 			LOG.trace("doLayout() took " + (System.currentTimeMillis() - start)
-			        + "ms for " + updatedRowCount + " rows");
+			        + "ms for " + updatedRowCount + " rows, "
+			        + estimatedRows.cardinality() + " estimated");
 		}
 
 		// Dirty the whole layout
 		public void recalculateAllRowHeights() {
 			this.requireFullRecalc = true;
 		}
+
+		/**
+		 * Replace estimated heights with measured ones for the rows in and
+		 * around the viewport.
+		 */
+		void measureVisibleRows() {
+			if (estimatedRows.isEmpty()) {
+				return;
+			}
+			Rectangle visible = getVisibleRect();
+			int first = rowAtPoint(new Point(0, visible.y));
+			int last = rowAtPoint(new Point(0, visible.y + visible.height - 1));
+			first = Math.max(0, (first < 0 ? 0 : first) - VISIBLE_ROW_MARGIN);
+			last = Math.min(getRowCount() - 1,
+			        (last < 0 ? getRowCount() - 1 : last) + VISIBLE_ROW_MARGIN);
+			for (int row = estimatedRows.nextSetBit(first); row >= 0
+			        && row <= last; row = estimatedRows.nextSetBit(row + 1)) {
+				measureRow(row);
+			}
+		}
+
+		/**
+		 * Measure estimated rows until this time slice is used up, visible
+		 * rows first.
+		 */
+		private void refineEstimatedRows() {
+			long deadline = System.currentTimeMillis() + REFINE_SLICE_MS;
+			measureVisibleRows();
+			int row = estimatedRows.nextSetBit(0);
+			while (row >= 0 && System.currentTimeMillis() < deadline) {
+				measureRow(row);
+				row = estimatedRows.nextSetBit(row + 1);
+			}
+			if (estimatedRows.isEmpty()) {
+				refineTimer.stop();
+			}
+		}
+
+		private void measureRow(int row) {
+			if (row < getRowCount()) {
+				updateRowHeight(row, getIntercellSpacing().height, false);
+			}
+			estimatedRows.clear(row);
+		}
+
+		void rowMeasured(int row) {
+			estimatedRows.clear(row);
+		}
 	}
 
 	@Inject
@@ -232,6 +328,8 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		isSourceBidi = LocaleId.isBidirectional(e.getDocument().getSrcLocale());
 		isTargetBidi = LocaleId.isBidirectional(e.getDocument().getTgtLocale());
 		xliff = e.getDocument();
+		rowHeightCache.clear();
+		styledCells.clear();
 	}
 
 	@Subscribe
@@ -495,9 +593,46 @@ public class SegmentView extends JScrollPane implements RuleListener,
 
 		sourceTargetTable.addMouseListener(new SegmentPopupMenuListener());
 		setViewportView(sourceTargetTable);
+		getViewport().addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				// Scrolling may bring rows with estimated heights into view
+				sourceTargetTable.measureVisibleRows();
+				postVisibleSegments();
+			}
+		});
 		addEditingListeners(sourceTargetTable);
 	}
 
+	/**
+	 * Let other components, eg. the FREME enrichment, know which segments are
+	 * displayed when the range changes.
+	 */
+	private void postVisibleSegments() {
+		Rectangle visible = sourceTargetTable.getVisibleRect();
+		int firstRow = sourceTargetTable.rowAtPoint(new Point(0, visible.y));
+		int lastRow = sourceTargetTable.rowAtPoint(new Point(0, visible.y
+		        + visible.height - 1));
+		if (firstRow < 0) {
+			return;
+		}
+		if (lastRow < 0) {
+			lastRow = sourceTargetTable.getRowCount() - 1;
+		}
+		int first = Integer.MAX_VALUE, last = -1;
+		for (int row = firstRow; row <= lastRow; row++) {
+			int segNum = segmentTableModel.getSegment(
+			        sort.convertRowIndexToModel(row)).getSegmentNumber();
+			first = Math.min(first, segNum);
+			last = Math.max(last, segNum);
+		}
+		if (first != firstVisibleSegNum || last != lastVisibleSegNum) {
+			firstVisibleSegNum = first;
+			lastVisibleSegNum = last;
+			eventQueue.post(new SegmentsVisibleEvent(first, last));
+		}
+	}
+
 	private void configureColumns() {
 		for (SegmentViewColumn col : SegmentViewColumn.values()) {
 			configureColumn(col, segmentTableModel.getIndexForColumn(col));
@@ -631,7 +766,13 @@ public class SegmentView extends JScrollPane implements RuleListener,
 
 	private void updateTableRow(int row) {
 		segmentTableModel.fireTableRowsUpdated(row, row);
-		updateRowHeight(row, sourceTargetTable.getIntercellSpacing().height);
+		OcelotSegment seg = segmentTableModel.getSegment(sort
+		        .convertRowIndexToModel(row));
+		rowHeightCache.invalidate(seg);
+		styledCells.invalidate(seg);
+		updateRowHeight(row, sourceTargetTable.getIntercellSpacing().height,
+		        false);
+		sourceTargetTable.rowMeasured(row);
 	}
 
 	public void requestFocusTable() {
@@ -653,27 +794,75 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		});
 	}
 
-	private void updateRowHeight(int row, int intercellHeight) {
+	/**
+	 * Set the height of a row from the cached height of each of its text
+	 * columns, measuring any that aren't cached.
+	 * @param allowEstimate if true, estimate the height of uncached columns
+	 * instead of measuring them
+	 * @return false if the height is only an estimate
+	 */
+	private boolean updateRowHeight(int row, int intercellHeight,
+	        boolean allowEstimate) {
 		if (row == editingRow) {
 			adjustEditorInitialSize(row);
-			return;
+			return true;
 		}
 		int modelRow = sort.convertRowIndexToModel(row);
+		OcelotSegment segment = segmentTableModel.getSegment(modelRow);
 		FontMetrics font = sourceTargetTable.getFontMetrics(sourceTargetTable
 		        .getFont());
 		int rowHeight = font.getHeight();
-		rowHeight = getColumnHeight(SegNum, row, "1", rowHeight,
-		        sourceTargetTable.getFont());
-		OcelotSegment segment = segmentTableModel.getSegment(modelRow);
-		Font sourceFont = getFontForColumn(Source);
-		rowHeight = getColumnHeight(Source, row, segment.getSource()
-		        .getDisplayText(), rowHeight, sourceFont);
-		Font targetFont = getFontForColumn(Target);
-		rowHeight = getColumnHeight(Target, row, segment.getTarget()
-		        .getDisplayText(), rowHeight, targetFont);
-		rowHeight = getColumnHeight(Original, row,
-		        getOriginalTargetText(modelRow), rowHeight, targetFont);
-		sourceTargetTable.setRowHeight(row, rowHeight + intercellHeight);
+		boolean exact = true;
+		for (SegmentViewColumn col : TEXT_COLUMNS) {
+			if (!segmentTableModel.isColumnEnabled(col)) {
+				continue;
+			}
+			Font colFont = col == SegNum ? sourceTargetTable.getFont()
+			        : getFontForColumn(col);
+			int width = tableColumnModel.getColumn(
+			        segmentTableModel.getIndexForColumn(col)).getWidth();
+			int height = rowHeightCache.getHeight(segment, col, width, colFont);
+			if (height < 0 && allowEstimate) {
+				height = rowHeightCache.estimate(
+				        getEstimatedColumnText(col, segment), width, colFont);
+				exact = false;
+			} else if (height < 0) {
+				height = rowHeightCache.measure(segment, col,
+				        getColumnText(col, segment, modelRow), width, colFont);
+			}
+			rowHeight = Math.max(rowHeight, height);
+		}
+		if (sourceTargetTable.getRowHeight(row) != rowHeight + intercellHeight) {
+			sourceTargetTable.setRowHeight(row, rowHeight + intercellHeight);
+		}
+		return exact;
+	}
+
+	private String getColumnText(SegmentViewColumn col, OcelotSegment segment,
+	        int modelRow) {
+		switch (col) {
+		case Source:
+			return segment.getSource().getDisplayText();
+		case Target:
+			return segment.getTarget().getDisplayText();
+		case Original:
+			return getOriginalTargetText(modelRow);
+		default:
+			return "1";
+		}
+	}
+
+	/**
+	 * Text to estimate a column's height from. This avoids computing the
+	 * target diff, which can be as expensive as measuring the cell.
+	 */
+	private String getEstimatedColumnText(SegmentViewColumn col,
+	        OcelotSegment segment) {
+		if (col == Original) {
+			return segment.getOriginalTarget() != null ? segment
+			        .getOriginalTarget().getDisplayText() : "";
+		}
+		return getColumnText(col, segment, -1);
 	}
 
 	private void adjustEditorInitialSize(int row) {
@@ -720,25 +909,6 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		}
 	}
 
-	private int getColumnHeight(SegmentViewColumn colData, int viewRow,
-	        String text, int previousHeight, Font font) {
-		if (!segmentTableModel.isColumnEnabled(colData)) {
-			return previousHeight;
-		}
-		SegmentTextCell segmentCell = SegmentTextCell.createDummyCell();
-		segmentCell.setBorder(UIManager
-		        .getBorder("Table.focusCellHighlightBorder"));
-		segmentCell.setFont(font);
-		int col = segmentTableModel.getIndexForColumn(colData);
-		int width = sourceTargetTable.getColumnModel().getColumn(col)
-		        .getWidth();
-		segmentCell.setText(text);
-		// Need to set width to force text area to calculate a pref height
-		segmentCell.setSize(new Dimension(width, sourceTargetTable
-		        .getRowHeight(viewRow)));
-		return Math.max(previousHeight, segmentCell.getPreferredSize().height);
-	}
-
 	public OcelotSegment getSelectedSegment() {
 		OcelotSegment selectedSeg = null;
 		if (sourceTargetTable.getSelectedRow() >= 0) {
@@ -771,6 +941,7 @@ public class SegmentView extends JScrollPane implements RuleListener,
 
 	public void setEnabledTargetDiff(boolean enabled) {
 		this.enabledTargetDiff = enabled;
+		rowHeightCache.invalidate(Original);
 		reloadTable();
 	}
 
@@ -778,10 +949,20 @@ public class SegmentView extends JScrollPane implements RuleListener,
 	public void updateSegmentView(RefreshSegmentView event) {
 		try {
 			synchronized (segmentTableModel) {
-				if (segmentTableModel.getRowCount() > 0) {
-					segmentTableModel.fireTableRowsUpdated(
-					        event.getSegmentNumber() - 1,
-					        event.getSegmentNumber() - 1);
+				int rowCount = segmentTableModel.getRowCount();
+				if (rowCount > 0 && event.getSegmentNumber() <= 0) {
+					segmentTableModel.fireTableRowsUpdated(0, rowCount - 1);
+				} else if (rowCount > 0) {
+					// One notification per run of consecutive segments
+					int first = -1, last = -1;
+					for (int segNum : event.getSegmentNumbers()) {
+						if (segNum != last + 1) {
+							fireSegmentsUpdated(first, last);
+							first = segNum;
+						}
+						last = segNum;
+					}
+					fireSegmentsUpdated(first, last);
 				} else {
 					segmentTableModel.fireTableDataChanged();
 				}
@@ -791,6 +972,14 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		}
 	}
 
+	private void fireSegmentsUpdated(int firstSegNum, int lastSegNum) {
+		int rowCount = segmentTableModel.getRowCount();
+		if (firstSegNum > 0 && firstSegNum <= rowCount) {
+			segmentTableModel.fireTableRowsUpdated(firstSegNum - 1,
+			        Math.min(lastSegNum, rowCount) - 1);
+		}
+	}
+
 	public Font getSourceFont() {
 
 		Font font = null;
@@ -858,8 +1047,25 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		requestFocusTable();
 	}
 
+	@Subscribe
+	public void notifyRepetitionsUpdated(RepetitionsUpdatedEvent event) {
+		int rowCount = segmentTableModel.getRowCount();
+		for (OcelotSegment seg : event.getRepetitions()) {
+			// Segment numbers follow the model rows, see fireSegmentsUpdated
+			int modelRow = seg.getSegmentNumber() - 1;
+			if (modelRow >= 0 && modelRow < rowCount) {
+				int row = sort.convertRowIndexToView(modelRow);
+				if (row >= 0) {
+					updateTableRow(row);
+				}
+			}
+		}
+	}
+
 	@Subscribe
 	public void notifySegmentTargetReset(SegmentTargetResetEvent event) {
+		rowHeightCache.invalidate(event.getSegment());
+		styledCells.invalidate(event.getSegment());
 		segmentTableModel.fireTableDataChanged();
 		sourceTargetTable.recalculateAllRowHeights();
 	}
@@ -921,49 +1127,59 @@ public class SegmentView extends JScrollPane implements RuleListener,
 	 */
 	public class SegmentTextRenderer implements TableCellRenderer {
 
+		private final SegmentTextCell emptyCell = SegmentTextCell.createCell();
+
 		@Override
 		public Component getTableCellRendererComponent(JTable jtable, Object o,
 		        boolean isSelected, boolean hasFocus, int row, int col) {
-			SegmentTextCell renderTextPane = SegmentTextCell.createCell();
-			if (segmentTableModel.getRowCount() > row) {
-				OcelotSegment seg = segmentTableModel.getSegment(sort
-				        .convertRowIndexToModel(row));
-				SegmentVariant v = null;
-				if (segmentTableModel.getSegmentSourceColumnIndex() == col) {
-					v = seg.getSource();
-					renderTextPane.setBidi(isSourceBidi);
-				} else if (segmentTableModel.getSegmentTargetColumnIndex() == col) {
-					v = seg.getTarget();
-					renderTextPane.setBidi(isTargetBidi);
-				} else if (segmentTableModel
-				        .getSegmentTargetOriginalColumnIndex() == col) {
-					renderTextPane.setBidi(isTargetBidi);
-					if (!enabledTargetDiff) {
-						v = seg.getOriginalTarget();
-					}
-				}
-				if (v != null) {
-					renderTextPane.setVariant(v, false);
-				} else {
-					renderTextPane.setTargetDiff(seg.getTargetDiff());
+			if (segmentTableModel.getRowCount() <= row) {
+				return emptyCell;
+			}
+			OcelotSegment seg = segmentTableModel.getSegment(sort
+			        .convertRowIndexToModel(row));
+			SegmentVariant v = null;
+			boolean isBidi = false;
+			if (segmentTableModel.getSegmentSourceColumnIndex() == col) {
+				v = seg.getSource();
+				isBidi = isSourceBidi;
+			} else if (segmentTableModel.getSegmentTargetColumnIndex() == col) {
+				v = seg.getTarget();
+				isBidi = isTargetBidi;
+			} else if (segmentTableModel
+			        .getSegmentTargetOriginalColumnIndex() == col) {
+				isBidi = isTargetBidi;
+				if (!enabledTargetDiff) {
+					v = seg.getOriginalTarget();
 				}
-				Color background = isSelected ? seg.isEditable() ? jtable
-				        .getSelectionBackground() : Color.LIGHT_GRAY : jtable
-				        .getBackground();
-
-				Color foreground = seg.isEditable() ? isSelected ? jtable
-				        .getSelectionForeground() : jtable.getForeground()
-				        : Color.GRAY;
-
-				renderTextPane.setBackground(background);
-				renderTextPane.setForeground(foreground);
-				renderTextPane.setBorder(hasFocus ? UIManager
-				        .getBorder("Table.focusCellHighlightBorder") : jtable
-				        .getBorder());
 			}
+			SegmentTextCell renderTextPane = v != null ?
+			        styledCells.getVariantCell(v, getCellFont(), isBidi) :
+			        styledCells.getTargetDiffCell(seg, getCellFont(), isBidi);
+
+			Color background = isSelected ? seg.isEditable() ? jtable
+			        .getSelectionBackground() : Color.LIGHT_GRAY : jtable
+			        .getBackground();
+
+			Color foreground = seg.isEditable() ? isSelected ? jtable
+			        .getSelectionForeground() : jtable.getForeground()
+			        : Color.GRAY;
+
+			renderTextPane.setBackground(background);
+			renderTextPane.setForeground(foreground);
+			renderTextPane.setBorder(hasFocus ? UIManager
+			        .getBorder("Table.focusCellHighlightBorder") : jtable
+			        .getBorder());
 
 			return renderTextPane;
 		}
+
+		/**
+		 * @return the font to render text with, or null to leave the cell's
+		 * default font
+		 */
+		protected Font getCellFont() {
+			return null;
+		}
 	}
 
 	public class SegmentTextFontRenderer extends SegmentTextRenderer {
@@ -976,14 +1192,8 @@ public class SegmentView extends JScrollPane implements RuleListener,
 		}
 
 		@Override
-		public Component getTableCellRendererComponent(JTable jtable, Object o,
-		        boolean isSelected, boolean hasFocus, int row, int col) {
-
-			Component component = super.getTableCellRendererComponent(jtable,
-			        o, isSelected, hasFocus, row, col);
-
-			component.setFont(font);
-			return component;
+		protected Font getCellFont() {
+			return font;
 		}
 
 		public Font getFont() {
@@ -1229,7 +1439,7 @@ public class SegmentView extends JScrollPane implements RuleListener,
 			int row = sourceTargetTable.getSelectedRow();
 			eventQueue.post(new SegmentTargetExitEvent(xliff, seg));
 			eventQueue.post(new SegmentTargetUpdateEvent(xliff, seg,
-			        updatedTarget));
+			        updatedTarget, true));
 			postSegmentSelection(seg);
 			editingRow = -1;
 			updateTableRow(row);
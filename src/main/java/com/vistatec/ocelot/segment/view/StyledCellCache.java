@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2015, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.segment.view;
+
+import java.awt.ComponentOrientation;
+import java.awt.Font;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.vistatec.ocelot.segment.model.BaseSegmentVariant;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+
+/**
+ * Pool of the {@link SegmentTextCell}s used to render segment text in the
+ * {@link SegmentView}. Each cell keeps the styled document it was last
+ * filled with, along with the content version and font it was built for,
+ * so repainting text that hasn't changed reuses the laid-out cell instead
+ * of building a new document.
+ * <p>
+ * The pool is bounded; once it is full, the least recently rendered cell
+ * is recycled for new content. All access is expected to be on the event
+ * dispatch thread.
+ */
+class StyledCellCache {
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final Map<CellKey, CachedCell> cells;
+    private final Deque<SegmentTextCell> spareCells = new ArrayDeque<SegmentTextCell>();
+
+    StyledCellCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    StyledCellCache(int capacity) {
+        this.capacity = capacity;
+        this.cells = new LinkedHashMap<CellKey, CachedCell>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CellKey, CachedCell> eldest) {
+                if (size() > StyledCellCache.this.capacity) {
+                    spareCells.push(eldest.getValue().cell);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return a cell showing the styled text of a variant
+     */
+    SegmentTextCell getVariantCell(SegmentVariant v, Font font, boolean isBidi) {
+        CachedCell cached = getCachedCell(new CellKey(v, false));
+        int version = getContentVersion(v);
+        if (!cached.isFor(v, version, null, 0)) {
+            cached.cell.resetTextPane(v, v.getStyleData(false));
+            cached.setContent(v, version, null, 0);
+        }
+        cached.prepare(font, isBidi);
+        return cached.cell;
+    }
+
+    /**
+     * @return a cell showing the differences between the target and the
+     * original target of a segment
+     */
+    SegmentTextCell getTargetDiffCell(OcelotSegment seg, Font font, boolean isBidi) {
+        CachedCell cached = getCachedCell(new CellKey(seg, true));
+        SegmentVariant target = seg.getTarget();
+        SegmentVariant original = seg.getOriginalTarget();
+        int targetVersion = getContentVersion(target);
+        int originalVersion = getContentVersion(original);
+        if (!cached.isFor(target, targetVersion, original, originalVersion)) {
+            cached.cell.resetTextPane(null, seg.getTargetDiff());
+            cached.setContent(target, targetVersion, original, originalVersion);
+        }
+        cached.prepare(font, isBidi);
+        return cached.cell;
+    }
+
+    /**
+     * Drop the cells holding any text of a segment, eg. because it was
+     * edited in a way that isn't reflected in its content versions.
+     */
+    void invalidate(OcelotSegment seg) {
+        remove(new CellKey(seg.getSource(), false));
+        remove(new CellKey(seg.getTarget(), false));
+        remove(new CellKey(seg.getOriginalTarget(), false));
+        remove(new CellKey(seg, true));
+    }
+
+    void clear() {
+        for (CachedCell cached : cells.values()) {
+            spareCells.push(cached.cell);
+        }
+        cells.clear();
+    }
+
+    int size() {
+        return cells.size();
+    }
+
+    private CachedCell getCachedCell(CellKey key) {
+        CachedCell cached = cells.get(key);
+        if (cached == null) {
+            SegmentTextCell cell = spareCells.poll();
+            cached = new CachedCell(cell != null ? cell : SegmentTextCell.createCell());
+            cells.put(key, cached);
+        }
+        return cached;
+    }
+
+    private void remove(CellKey key) {
+        CachedCell cached = cells.remove(key);
+        if (cached != null) {
+            spareCells.push(cached.cell);
+        }
+    }
+
+    /**
+     * Variants that don't track a content version are never considered
+     * current, so their text is restyled on every render.
+     */
+    private static int getContentVersion(SegmentVariant v) {
+        return v instanceof BaseSegmentVariant ?
+                ((BaseSegmentVariant) v).getContentVersion() : -1;
+    }
+
+    /**
+     * Identity of the variant or segment a cell shows; variants define
+     * equality by their text, which isn't enough to share a cell.
+     */
+    private static class CellKey {
+        private final Object content;
+        private final boolean targetDiff;
+
+        CellKey(Object content, boolean targetDiff) {
+            this.content = content;
+            this.targetDiff = targetDiff;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CellKey)) return false;
+            CellKey other = (CellKey) o;
+            return content == other.content && targetDiff == other.targetDiff;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(content) + (targetDiff ? 1 : 0);
+        }
+    }
+
+    private static class CachedCell {
+        private final SegmentTextCell cell;
+        private SegmentVariant variant, diffOriginal;
+        private int version = -1, diffOriginalVersion = -1;
+
+        CachedCell(SegmentTextCell cell) {
+            this.cell = cell;
+        }
+
+        boolean isFor(SegmentVariant variant, int version,
+                SegmentVariant diffOriginal, int diffOriginalVersion) {
+            return version >= 0 && this.variant == variant
+                    && this.version == version
+                    && this.diffOriginal == diffOriginal
+                    && this.diffOriginalVersion == diffOriginalVersion;
+        }
+
+        void setContent(SegmentVariant variant, int version,
+                SegmentVariant diffOriginal, int diffOriginalVersion) {
+            this.variant = variant;
+            this.version = version;
+            this.diffOriginal = diffOriginal;
+            this.diffOriginalVersion = diffOriginalVersion;
+        }
+
+        /**
+         * Only touch the font and orientation when they change, as either
+         * forces the text to be laid out again.
+         */
+        void prepare(Font font, boolean isBidi) {
+            if (font != null && !font.equals(cell.getFont())) {
+                cell.setFont(font);
+            }
+            ComponentOrientation orientation = isBidi ?
+                    ComponentOrientation.RIGHT_TO_LEFT :
+                    ComponentOrientation.LEFT_TO_RIGHT;
+            if (!orientation.equals(cell.getComponentOrientation())) {
+                cell.setComponentOrientation(orientation);
+            }
+        }
+    }
+}
@@ -1,49 +1,140 @@
 package com.vistatec.ocelot.services;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Ticker;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vistatec.ocelot.events.OpenFileEvent;
+import com.vistatec.ocelot.events.SegmentTargetEnterEvent;
+import com.vistatec.ocelot.events.SegmentTargetExitEvent;
+import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
+import com.vistatec.ocelot.segment.editdistance.EditDistance;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.WordCounter;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
 
-public class EditDistanceReportService {
+/**
+ * Writes the post-editing effort of a document as CSV: the edit distance of
+ * each target from its original target, the distance relative to the length
+ * of the texts, word counts and the time spent editing each segment, followed
+ * by the total and percentiles of the distances.
+ * <p>
+ * Reports created on save are written in the background from a snapshot of
+ * the targets, so that saving doesn't wait for them.
+ */
+public class EditDistanceReportService implements OcelotEventQueueListener {
+	private static final Logger LOG = Logger.getLogger(EditDistanceReportService.class);
 
 	private static final String SEPARATOR = ",";
 	private static final String LINE_SEPARATOR = "\n";
 	private static final String REPORT_FILE_NAME_SUFFIX = "-EditDistance.csv";
 	private static final String REPORT_DIR = System.getProperty("user.home") + "/" + "Ocelot Reports";
-	private SegmentService segmentService;
-	
-	
-	public EditDistanceReportService(SegmentService segmentService) {
-		
-		this.segmentService = segmentService;
+	static final int[] PERCENTILES = { 50, 90, 95, 100 };
+
+	private static ExecutorService reportExecutor;
+
+	private final Ticker ticker;
+	/** Nanoseconds spent in the target of each segment, by segment number. */
+	private final Map<Integer, Long> timeInSegment = new ConcurrentHashMap<Integer, Long>();
+	private int enteredSegment = -1;
+	private long enteredAt;
+
+	public EditDistanceReportService() {
+		this(Ticker.systemTicker());
 	}
-	
-	public void createEditDistanceReport(String fileName){
-		FileWriter writer = null;
-		try {
-			checkAndCreateReportDir();
-			File file = new File(REPORT_DIR, getReportFileName(fileName));
-			writer = new FileWriter(file);
-			writeFileInfo(writer, fileName);
-			writeColumnsName(writer);
-			writeSegmentsInfo(writer);
-			writer.flush();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} finally {
-			if(writer != null){
+
+	EditDistanceReportService(Ticker ticker) {
+		this.ticker = ticker;
+	}
+
+	@Subscribe
+	public synchronized void openFile(OpenFileEvent e) {
+		timeInSegment.clear();
+		enteredSegment = -1;
+	}
+
+	@Subscribe
+	public synchronized void enterSegmentTarget(SegmentTargetEnterEvent e) {
+		enteredSegment = e.getSegment().getSegmentNumber();
+		enteredAt = ticker.read();
+	}
+
+	@Subscribe
+	public synchronized void exitSegmentTarget(SegmentTargetExitEvent e) {
+		int segmentNumber = e.getSegment().getSegmentNumber();
+		if (segmentNumber != enteredSegment) {
+			return;
+		}
+		Long time = timeInSegment.get(segmentNumber);
+		timeInSegment.put(segmentNumber, (time != null ? time : 0) + ticker.read() - enteredAt);
+		enteredSegment = -1;
+	}
+
+	/**
+	 * @return the time spent in the target of a segment so far
+	 */
+	public long getTimeInSegment(int segmentNumber, TimeUnit unit) {
+		Long time = timeInSegment.get(segmentNumber);
+		return time != null ? unit.convert(time, TimeUnit.NANOSECONDS) : 0;
+	}
+
+	/**
+	 * Starts writing the report of a saved document to the Ocelot Reports
+	 * directory. Only the snapshot of the targets is taken on the calling
+	 * thread.
+	 * @return the report file, when it has been written
+	 */
+	public Future<File> createEditDistanceReport(XLIFFDocument xliff, final String fileName) {
+		final Snapshot snapshot = new Snapshot(xliff);
+		return getReportExecutor().submit(new Callable<File>() {
+			@Override
+			public File call() throws IOException {
 				try {
-					writer.close();
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+					checkAndCreateReportDir();
+					File reportFile = new File(REPORT_DIR, getReportFileName(fileName));
+					write(snapshot, fileName, reportFile);
+					return reportFile;
+				} catch (IOException | RuntimeException e) {
+					// Nobody waits for the report, so its errors are only logged
+					LOG.error("Failed to write the edit distance report of " + fileName, e);
+					throw e;
 				}
 			}
+		});
+	}
+	
+	/**
+	 * Writes the edit distance report of a document to a given file.
+	 */
+	public void writeEditDistanceReport(XLIFFDocument xliff, String fileName, File reportFile) throws IOException {
+		write(new Snapshot(xliff), fileName, reportFile);
+	}
+
+	private void write(Snapshot snapshot, String fileName, File reportFile) throws IOException {
+		try (Writer writer = new BufferedWriter(Files.newWriter(reportFile, StandardCharsets.UTF_8))) {
+			writeFileInfo(writer, fileName);
+			writeColumnsName(writer);
+			writeSegmentsInfo(writer, snapshot);
 		}
-		
 	}
 	
 	private String getReportFileName(String xlifFileName){
@@ -51,18 +142,31 @@ public class EditDistanceReportService {
 		return xlifFileName + System.currentTimeMillis() + REPORT_FILE_NAME_SUFFIX;
 	}
 	
-	private void writeSegmentsInfo(FileWriter writer) throws IOException{
+	private void writeSegmentsInfo(Writer writer, Snapshot snapshot) throws IOException{
 		
-		OcelotSegment segment = null;
+		int[] distances = EditDistance.calcEditDistances(snapshot.originalTargets, snapshot.targets);
+		double[] normalized = new double[distances.length];
+		WordCounter sourceCounter = new WordCounter(snapshot.sourceLocale);
+		WordCounter targetCounter = new WordCounter(snapshot.targetLocale);
 		int total = 0;
-		for(int i = 0; i<segmentService.getNumSegments(); i++){
+		for(int i = 0; i<distances.length; i++){
 			
-			segment = segmentService.getSegment(i);
+			OcelotSegment segment = snapshot.segments.get(i);
+			String target = snapshot.targets.get(i);
+			normalized[i] = normalize(distances[i], snapshot.originalTargets.get(i), target);
 			writer.append(String.valueOf(segment.getSegmentNumber()));
 			writer.append(SEPARATOR);
-			writer.append(String.valueOf(segment.getEditDistance()));
+			writer.append(String.valueOf(distances[i]));
+			writer.append(SEPARATOR);
+			writer.append(formatRatio(normalized[i]));
+			writer.append(SEPARATOR);
+			writer.append(String.valueOf(segment.getSourceWordCount(sourceCounter)));
+			writer.append(SEPARATOR);
+			writer.append(String.valueOf(targetCounter.countWords(target)));
+			writer.append(SEPARATOR);
+			writer.append(String.format(Locale.ROOT, "%.1f", snapshot.times[i] / 1000.0));
 			writer.append(LINE_SEPARATOR);
-			total += segment.getEditDistance();
+			total += distances[i];
 		}
 		
 		writer.append("");
@@ -73,6 +177,50 @@ public class EditDistanceReportService {
 		writer.append(SEPARATOR);
 		writer.append(String.valueOf(total));
 		writer.append(LINE_SEPARATOR);
+
+		writer.append(LINE_SEPARATOR);
+		writer.append("Percentile");
+		writer.append(SEPARATOR);
+		writer.append("Edit Distance");
+		writer.append(SEPARATOR);
+		writer.append("Normalized Edit Distance");
+		writer.append(LINE_SEPARATOR);
+		Arrays.sort(distances);
+		Arrays.sort(normalized);
+		for (int percentile : PERCENTILES) {
+			writer.append(String.valueOf(percentile));
+			writer.append(SEPARATOR);
+			if (distances.length > 0) {
+				int rank = percentileRank(percentile, distances.length);
+				writer.append(String.valueOf(distances[rank]));
+				writer.append(SEPARATOR);
+				writer.append(formatRatio(normalized[rank]));
+			} else {
+				writer.append(SEPARATOR);
+			}
+			writer.append(LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * @return the distance relative to the longer of the two texts, from 0
+	 * for no change to 1 for a complete rewrite
+	 */
+	static double normalize(int distance, String originalTarget, String target) {
+		int length = Math.max(originalTarget.length(), target.length());
+		return length > 0 ? (double) distance / length : 0;
+	}
+
+	/**
+	 * @return the index of the nearest-rank percentile in a sorted array
+	 */
+	static int percentileRank(int percentile, int length) {
+		int rank = (int) Math.ceil(percentile / 100.0 * length);
+		return Math.max(0, rank - 1);
+	}
+
+	private static String formatRatio(double ratio) {
+		return String.format(Locale.ROOT, "%.4f", ratio);
 	}
 	
 	private void checkAndCreateReportDir(){
@@ -83,15 +231,23 @@ public class EditDistanceReportService {
 		}
 	}
 	
-	private void writeColumnsName(FileWriter writer) throws IOException{
+	private void writeColumnsName(Writer writer) throws IOException{
 		
 		writer.append("Seg#");
 		writer.append(SEPARATOR);
 		writer.append("Edit Distance");
+		writer.append(SEPARATOR);
+		writer.append("Normalized Edit Distance");
+		writer.append(SEPARATOR);
+		writer.append("Source Words");
+		writer.append(SEPARATOR);
+		writer.append("Target Words");
+		writer.append(SEPARATOR);
+		writer.append("Time (s)");
 		writer.append(LINE_SEPARATOR);
 	}
 	
-	private void writeFileInfo(FileWriter writer, String fileName) throws IOException{
+	private void writeFileInfo(Writer writer, String fileName) throws IOException{
 		
 		writer.append("File");
 		writer.append(SEPARATOR);
@@ -99,4 +255,45 @@ public class EditDistanceReportService {
 		writer.append(LINE_SEPARATOR);
 		
 	}
+
+	private static synchronized ExecutorService getReportExecutor() {
+		if (reportExecutor == null) {
+			reportExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("ocelot-editdistance-report-%d").setDaemon(true).build());
+		}
+		return reportExecutor;
+	}
+
+	/**
+	 * The texts of a document at the time of the report. Targets may be
+	 * edited while the report is written, but sources don't change, so the
+	 * source word counts are still taken from the segments.
+	 */
+	private class Snapshot {
+		final List<OcelotSegment> segments = new ArrayList<OcelotSegment>();
+		final List<String> targets = new ArrayList<String>();
+		final List<String> originalTargets = new ArrayList<String>();
+		final long[] times;
+		final Locale sourceLocale, targetLocale;
+
+		Snapshot(XLIFFDocument xliff) {
+			for (OcelotSegment segment : xliff.getSegments()) {
+				String target = segment.getTarget().getDisplayText();
+				segments.add(segment);
+				targets.add(target);
+				originalTargets.add(segment.hasOriginalTarget()
+						? segment.getOriginalTarget().getDisplayText() : target);
+			}
+			times = new long[segments.size()];
+			for (int i = 0; i < times.length; i++) {
+				times[i] = getTimeInSegment(segments.get(i).getSegmentNumber(), TimeUnit.MILLISECONDS);
+			}
+			sourceLocale = toLocale(xliff.getSrcLocale().toString());
+			targetLocale = toLocale(xliff.getTgtLocale().toString());
+		}
+	}
+
+	private static Locale toLocale(String localeId) {
+		return Locale.forLanguageTag(localeId.replace('_', '-'));
+	}
 }
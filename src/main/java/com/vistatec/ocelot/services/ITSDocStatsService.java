@@ -1,5 +1,13 @@
 package com.vistatec.ocelot.services;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.log4j.Logger;
+
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.vistatec.ocelot.events.ItsDocStatsAddedProvEvent;
@@ -8,20 +16,31 @@ import com.vistatec.ocelot.events.ItsDocStatsChangedEvent;
 import com.vistatec.ocelot.events.ItsDocStatsClearEvent;
 import com.vistatec.ocelot.events.ItsDocStatsRecalculateEvent;
 import com.vistatec.ocelot.events.ItsDocStatsRemovedLqiEvent;
+import com.vistatec.ocelot.events.ItsDocStatsRemovedMetadataEvent;
+import com.vistatec.ocelot.events.ItsDocStatsUpdateMetadataEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.its.model.Provenance;
-import com.vistatec.ocelot.its.model.TerminologyMetaData;
-import com.vistatec.ocelot.its.model.TextAnalysisMetaData;
 import com.vistatec.ocelot.its.stats.model.ITSDocStats;
 import com.vistatec.ocelot.its.stats.model.ITSStats;
-import com.vistatec.ocelot.its.stats.model.LanguageQualityIssueStats;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
 
+/**
+ * Maintains the document's ITS statistics.  Changes to the document's
+ * metadata are applied as deltas; recalculating everything from the
+ * segments is only done when a document is opened, or as an explicit
+ * consistency check.  Large documents are then split into chunks of
+ * segments whose statistics are gathered in parallel and merged.
+ */
 public class ITSDocStatsService implements OcelotEventQueueListener {
+    private static Logger LOG = Logger.getLogger(ITSDocStatsService.class);
+
+    static final int STATS_CHUNK_SIZE = 500;
+
     private final ITSDocStats itsDocStats;
     private final OcelotEventQueue eventQueue;
+    private ForkJoinPool statsPool;
 
     @Inject
     public ITSDocStatsService(ITSDocStats itsDocStats, OcelotEventQueue eventQueue) {
@@ -29,6 +48,16 @@ public class ITSDocStatsService implements OcelotEventQueueListener {
         this.eventQueue = eventQueue;
     }
 
+    /**
+     * @param statsPool the pool recalculations are run on, shared by
+     * services that would otherwise each create their own
+     */
+    public ITSDocStatsService(ITSDocStats itsDocStats, OcelotEventQueue eventQueue,
+            ForkJoinPool statsPool) {
+        this(itsDocStats, eventQueue);
+        this.statsPool = statsPool;
+    }
+
     public int getNumStats() {
         return this.itsDocStats.getStats().size();
     }
@@ -39,34 +68,118 @@ public class ITSDocStatsService implements OcelotEventQueueListener {
 
     @Subscribe
     public void updateLQIStats(ItsDocStatsUpdateLqiEvent e) {
-        LanguageQualityIssue lqi = e.getLqi();
-        itsDocStats.updateStats(new LanguageQualityIssueStats(lqi));
+        LanguageQualityIssue previousLqi = e.getPreviousLqi();
+        if (previousLqi != null) {
+            itsDocStats.removeLQIStats(previousLqi);
+        }
+        itsDocStats.addLQIStats(e.getLqi());
         eventQueue.post(new ItsDocStatsChangedEvent());
     }
 
     @Subscribe
     public void removeLQIStats(ItsDocStatsRemovedLqiEvent e) {
-        eventQueue.post(new ItsDocStatsRecalculateEvent(e.getSegments()));
+        itsDocStats.removeLQIStats(e.getLqi());
+        eventQueue.post(new ItsDocStatsChangedEvent());
+    }
+
+    @Subscribe
+    public void removeMetadataStats(ItsDocStatsRemovedMetadataEvent e) {
+        itsDocStats.removeAll(e.getRemovedStats());
+        eventQueue.post(new ItsDocStatsChangedEvent());
+    }
+
+    @Subscribe
+    public void updateMetadataStats(ItsDocStatsUpdateMetadataEvent e) {
+        itsDocStats.removeAll(e.getRemovedStats());
+        itsDocStats.addAll(e.getAddedStats());
+        eventQueue.post(new ItsDocStatsChangedEvent());
     }
 
     @Subscribe
     public void recalculateStats(ItsDocStatsRecalculateEvent e) {
+        ITSDocStats stats = calculateStats(e.getSegments(), STATS_CHUNK_SIZE);
         itsDocStats.clear();
-        for (OcelotSegment seg : e.getSegments()) {
-            for (LanguageQualityIssue lqi : seg.getLQI()) {
-                itsDocStats.updateStats(new LanguageQualityIssueStats(lqi));
-            }
-            for (Provenance prov : seg.getProvenance()) {
-                itsDocStats.addProvenanceStats(prov);
-            }
-            for(TextAnalysisMetaData ta: seg.getTextAnalysis()){
-            	itsDocStats.addTextAnalysisStats(ta);
+        itsDocStats.addAll(stats);
+        eventQueue.post(new ItsDocStatsChangedEvent());
+    }
+
+    /**
+     * Consistency check for the incrementally maintained statistics:
+     * recalculate them from the segments and compare. Any difference is
+     * logged and the recalculated statistics are used from then on.
+     * @return whether the statistics were consistent
+     */
+    public boolean verifyStats(List<OcelotSegment> segments) {
+        ITSDocStats expected = calculateStats(segments, STATS_CHUNK_SIZE);
+        if (itsDocStats.hasSameStats(expected)) {
+            return true;
+        }
+        LOG.warn("ITS document statistics were out of date, recalculating");
+        itsDocStats.clear();
+        itsDocStats.addAll(expected);
+        eventQueue.post(new ItsDocStatsChangedEvent());
+        return false;
+    }
+
+    /**
+     * Gather the statistics for a list of segments. Lists longer than a
+     * chunk are reduced in parallel; the partial statistics are merged in
+     * document order, so the result is the same as a sequential pass.
+     */
+    ITSDocStats calculateStats(List<OcelotSegment> segments, int chunkSize) {
+        if (!(segments instanceof RandomAccess)) {
+            segments = new ArrayList<>(segments);
+        }
+        SegmentStatsTask task = new SegmentStatsTask(segments, 0,
+                segments.size(), chunkSize);
+        if (segments.size() <= chunkSize) {
+            return task.computeChunk();
+        }
+        return getStatsPool().invoke(task);
+    }
+
+    private synchronized ForkJoinPool getStatsPool() {
+        if (statsPool == null) {
+            statsPool = new ForkJoinPool();
+        }
+        return statsPool;
+    }
+
+    private static class SegmentStatsTask extends RecursiveTask<ITSDocStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<OcelotSegment> segments;
+        private final int start, end, chunkSize;
+
+        SegmentStatsTask(List<OcelotSegment> segments, int start, int end,
+                int chunkSize) {
+            this.segments = segments;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected ITSDocStats compute() {
+            if (end - start <= chunkSize) {
+                return computeChunk();
             }
-            for(TerminologyMetaData term: seg.getTerms()){
-            	itsDocStats.addTerminologyStats(term);
+            int mid = (start + end) >>> 1;
+            SegmentStatsTask first = new SegmentStatsTask(segments, start, mid, chunkSize);
+            SegmentStatsTask second = new SegmentStatsTask(segments, mid, end, chunkSize);
+            second.fork();
+            ITSDocStats stats = first.compute();
+            stats.addAll(second.join());
+            return stats;
+        }
+
+        ITSDocStats computeChunk() {
+            ITSDocStats stats = new ITSDocStats();
+            for (int i = start; i < end; i++) {
+                stats.addSegmentStats(segments.get(i));
             }
+            return stats;
         }
-        eventQueue.post(new ItsDocStatsChangedEvent());
     }
     
 
@@ -31,19 +31,24 @@ package com.vistatec.ocelot.services;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
 import com.vistatec.ocelot.xliff.XLIFFFactory;
 import com.vistatec.ocelot.xliff.XLIFFDocument;
+import com.vistatec.ocelot.xliff.XLIFFHead;
 import com.vistatec.ocelot.xliff.XLIFFParser;
 import com.vistatec.ocelot.xliff.XLIFFVersion;
 import com.vistatec.ocelot.xliff.XLIFFWriter;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 import javax.xml.stream.XMLStreamException;
 
 import com.google.common.eventbus.Subscribe;
 import com.vistatec.ocelot.config.ConfigService;
+import com.vistatec.ocelot.events.RepetitionsUpdatedEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteEditEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
@@ -71,6 +76,14 @@ public class OkapiXliffService implements XliffService {
     }
     
 
+    @Subscribe
+    public void updateRepetitions(RepetitionsUpdatedEvent e) {
+        XLIFFWriter writer = getDoc(e.getDocument()).getWriter();
+        for (OcelotSegment repetition : e.getRepetitions()) {
+            writer.updateSegment(repetition);
+        }
+    }
+
     @Subscribe
     public void updateNotes(SegmentNoteEditEvent e ) {
         getDoc(e.getDocument()).getWriter().updateNotes(e.getSegment());
@@ -85,9 +98,18 @@ public class OkapiXliffService implements XliffService {
 
     @Override
     public XLIFFDocument parse(File xliffFile) throws IOException, XMLStreamException {
-        XLIFFVersion version = xliffFactory.detectXLIFFVersion(xliffFile);
-        XLIFFParser newParser = xliffFactory.newXLIFFParser(version);
-        List<OcelotSegment> xliffSegments = newParser.parse(xliffFile);
+        // The file is read once: the version and languages come from its
+        // buffered head, which the parser then reads again from memory.
+        XLIFFVersion version;
+        XLIFFParser newParser;
+        List<OcelotSegment> xliffSegments;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xliffFile),
+                XLIFFHead.HEAD_SIZE)) {
+            XLIFFHead head = XLIFFHead.read(in);
+            version = head.getVersion();
+            newParser = xliffFactory.newXLIFFParser(version);
+            xliffSegments = newParser.parse(in, head);
+        }
 
         XLIFFParser xliffParser = newParser;
         XLIFFWriter segmentWriter = xliffFactory.newXLIFFWriter(xliffParser,
@@ -103,4 +125,9 @@ public class OkapiXliffService implements XliffService {
         okapiFile.getWriter().save(dest);
     }
 
+    @Override
+    public void close(XLIFFDocument xliffFile) {
+        getDoc(xliffFile).getParser().close();
+    }
+
 }
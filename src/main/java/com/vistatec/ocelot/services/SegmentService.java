@@ -1,6 +1,8 @@
 package com.vistatec.ocelot.services;
 
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.RepetitionGroup;
+import com.vistatec.ocelot.segment.model.RepetitionIndex;
 import com.vistatec.ocelot.xliff.XLIFFDocument;
 
 import com.vistatec.ocelot.events.LQIAdditionEvent;
@@ -31,4 +33,22 @@ public interface SegmentService extends OcelotEventQueueListener {
     public void removeLQI(LQIRemoveEvent e);
 
     public void clearAllSegments();
+
+    /**
+     * @return the repeated segments of the current document
+     */
+    public RepetitionIndex getRepetitionIndex();
+
+    /**
+     * @return the repetitions of a segment, including itself, or null if its
+     * source isn't repeated
+     */
+    public RepetitionGroup getRepetitions(OcelotSegment seg);
+
+    /**
+     * Sets whether confirmed target edits are copied to the repetitions of
+     * the segment that still have the same target it had.
+     */
+    public void setPropagateRepetitions(boolean propagate);
+    public boolean isPropagateRepetitions();
 }
@@ -28,6 +28,9 @@
  */
 package com.vistatec.ocelot.services;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.vistatec.ocelot.segment.model.OcelotSegment;
 
 import com.google.common.eventbus.Subscribe;
@@ -42,6 +45,7 @@ import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIModificationEvent;
 import com.vistatec.ocelot.events.LQIRemoveEvent;
 import com.vistatec.ocelot.events.ProvenanceAddEvent;
+import com.vistatec.ocelot.events.RepetitionsUpdatedEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteEditEvent;
 import com.vistatec.ocelot.events.SegmentNoteUpdatedEvent;
@@ -50,6 +54,8 @@ import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.its.model.Provenance;
+import com.vistatec.ocelot.segment.model.RepetitionGroup;
+import com.vistatec.ocelot.segment.model.RepetitionIndex;
 import com.vistatec.ocelot.segment.model.SegmentVariant;
 import com.vistatec.ocelot.xliff.XLIFFDocument;
 
@@ -60,6 +66,8 @@ import com.vistatec.ocelot.xliff.XLIFFDocument;
 public class SegmentServiceImpl implements SegmentService {
     // TODO: remove segments (data) from service implementation
     private XLIFFDocument xliff;
+    private RepetitionIndex repetitions = RepetitionIndex.EMPTY;
+    private boolean propagateRepetitions = true;
     private final OcelotEventQueue eventQueue;
 
     @Inject
@@ -80,17 +88,70 @@ public class SegmentServiceImpl implements SegmentService {
     @Override
     public void setSegments(XLIFFDocument xliff) {
         this.xliff = xliff;
+        this.repetitions = RepetitionIndex.build(xliff.getSegments());
         eventQueue.post(new ItsDocStatsRecalculateEvent(xliff.getSegments()));
     }
 
+    @Override
+    public RepetitionIndex getRepetitionIndex() {
+        return repetitions;
+    }
+
+    @Override
+    public RepetitionGroup getRepetitions(OcelotSegment seg) {
+        return repetitions.getGroup(seg);
+    }
+
+    @Override
+    public void setPropagateRepetitions(boolean propagate) {
+        this.propagateRepetitions = propagate;
+    }
+
+    @Override
+    public boolean isPropagateRepetitions() {
+        return propagateRepetitions;
+    }
+
     @Subscribe
     @Override
     public void updateSegmentTarget(SegmentTargetUpdateEvent e) {
         OcelotSegment seg = e.getSegment();
         SegmentVariant updatedTarget = e.getUpdatedTarget();
+        String previousTarget = seg.getTarget() != null ? seg.getTarget().getDisplayText() : null;
         boolean updatedSeg = seg.updateTarget(updatedTarget);
         if (updatedSeg) {
             eventQueue.post(new SegmentEditEvent(xliff, seg));
+            if (propagateRepetitions && e.isConfirmed()) {
+                propagateTarget(seg, previousTarget);
+            }
+        }
+    }
+
+    /**
+     * Copies the new target of a segment to its repetitions that still have
+     * its previous target, and posts a single event for all of them. Only
+     * repetitions whose codes are the same, including their content, are
+     * updated, since the target carries the codes of the edited segment.
+     */
+    private void propagateTarget(OcelotSegment seg, String previousTarget) {
+        RepetitionGroup group = repetitions.getGroup(seg);
+        if (group == null || previousTarget == null) {
+            return;
+        }
+        List<OcelotSegment> updated = new ArrayList<>();
+        for (OcelotSegment repetition : group.getSegments()) {
+            if (repetition == seg || !repetition.isEditable()
+                    || repetition.getTarget() == null
+                    || !previousTarget.equals(repetition.getTarget().getDisplayText())
+                    || !RepetitionIndex.hasSameCodes(seg.getSource(), repetition.getSource())) {
+                continue;
+            }
+            if (repetition.updateTarget(seg.getTarget().createCopy())) {
+                updated.add(repetition);
+            }
+        }
+        if (!updated.isEmpty()) {
+            eventQueue.post(new RepetitionsUpdatedEvent(xliff, seg, updated));
         }
     }
     
@@ -134,13 +195,14 @@ public class SegmentServiceImpl implements SegmentService {
 
         OcelotSegment seg = e.getSegment();
         LanguageQualityIssue segmentLQI = e.getSegmentLQI();
+        LanguageQualityIssue previousLQI = new LanguageQualityIssue(segmentLQI);
         segmentLQI.setType(editedLQI.getType());
         segmentLQI.setComment(editedLQI.getComment());
         segmentLQI.setSeverity(editedLQI.getSeverity());
         segmentLQI.setProfileReference(editedLQI.getProfileReference());
         segmentLQI.setEnabled(editedLQI.isEnabled());
 
-        eventQueue.post(new ItsDocStatsUpdateLqiEvent(segmentLQI));
+        eventQueue.post(new ItsDocStatsUpdateLqiEvent(segmentLQI, previousLQI));
         eventQueue.post(new SegmentEditEvent(xliff, seg));
         eventQueue.post(new LQIModificationEvent(segmentLQI, seg));
     }
@@ -151,7 +213,7 @@ public class SegmentServiceImpl implements SegmentService {
         OcelotSegment seg = e.getSegment();
         LanguageQualityIssue lqi = e.getLQI();
         seg.removeLQI(lqi);
-        eventQueue.post(new ItsDocStatsRemovedLqiEvent(xliff.getSegments()));
+        eventQueue.post(new ItsDocStatsRemovedLqiEvent(lqi));
         eventQueue.post(new SegmentEditEvent(xliff, seg));
         eventQueue.post(new LQIModificationEvent(lqi, seg));
     }
@@ -169,6 +231,8 @@ public class SegmentServiceImpl implements SegmentService {
 
     @Override
     public void clearAllSegments() {
+        xliff = null;
+        repetitions = RepetitionIndex.EMPTY;
         eventQueue.post(new ItsDocStatsClearEvent());
     }
 }
@@ -18,4 +18,10 @@ public interface XliffService extends OcelotEventQueueListener {
 
     public void save(XLIFFDocument xliffFile, File dest) throws FileNotFoundException, IOException;
 
+    /**
+     * Releases the resources of a document that is no longer used, such as
+     * temporary files. The document can't be saved afterwards.
+     */
+    public void close(XLIFFDocument xliffFile);
+
 }
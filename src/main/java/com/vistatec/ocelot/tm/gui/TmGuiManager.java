@@ -121,6 +121,8 @@ public class TmGuiManager implements OcelotEventQueueListener {
 	
 	@Subscribe
     public void updateSegmentView(RefreshSegmentView event){
-		matchController.update(event.getSegmentNumber());
+		for (int segmentNumber : event.getSegmentNumbers()) {
+			matchController.update(segmentNumber);
+		}
 	}
 }
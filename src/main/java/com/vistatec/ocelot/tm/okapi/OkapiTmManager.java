@@ -4,10 +4,12 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.okapi.tm.pensieve.seeker.PensieveSeeker;
 import net.sf.okapi.tm.pensieve.writer.PensieveWriter;
@@ -34,27 +36,65 @@ public class OkapiTmManager implements TmManager {
 	private static final Logger LOG = LoggerFactory
 	        .getLogger(OkapiTmManager.class);
 	private final File tmRootDir;
+	/**
+	 * Accessed only while holding its monitor, as TMs can be verified on a
+	 * background thread while they are searched or managed from the UI.
+	 */
 	private final ConfigService cfgService;
 	private final TmTmxWriter tmxWriter;
+	/** Configured TMs that are not searchable until they have been verified */
+	private final Set<String> unverifiedTms = Collections
+	        .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
 	public OkapiTmManager(File tmDir, ConfigService cfgService,
 	        TmTmxWriter tmxWriter) throws IOException,
 	        ConfigTransferService.TransferException {
+		this(tmDir, cfgService, tmxWriter, true);
+	}
+
+	/**
+	 * @param verifyNow
+	 *            if false, the configured TMs are not searched until
+	 *            {@link #verifyTms()} has been called, eg. on a background
+	 *            thread, as it may have to rebuild their indexes.
+	 */
+	public OkapiTmManager(File tmDir, ConfigService cfgService,
+	        TmTmxWriter tmxWriter, boolean verifyNow) throws IOException,
+	        ConfigTransferService.TransferException {
 		this.tmRootDir = tmDir;
 		this.cfgService = cfgService;
 		this.tmxWriter = tmxWriter;
-		discover();
+		if (verifyNow) {
+			verifyTms();
+		} else {
+			for (TmConfig tm : getTmConfigs()) {
+				unverifiedTms.add(tm.getTmName());
+			}
+		}
 	}
 
-	private void discover() throws IOException,
+	/**
+	 * Remove the configuration of TMs whose data is missing, regenerate
+	 * missing Pensieve indexes, and create TMs for any unconfigured TM
+	 * directories.
+	 */
+	public void verifyTms() throws IOException,
 	        ConfigTransferService.TransferException {
 		Set<String> configuredTms = new HashSet<>();
 
-		List<TmConfig> tms = new ArrayList<TmManagement.TmConfig>(this.cfgService.getTms());
-		for (TmManagement.TmConfig tm : tms) {
-			if (verifyExistingTm(tm)) {
-				configuredTms.add(tm.getTmName());
+		try {
+			for (TmManagement.TmConfig tm : getTmConfigs()) {
+				boolean verified;
+				synchronized (this) {
+					verified = verifyExistingTm(tm);
+				}
+				if (verified) {
+					configuredTms.add(tm.getTmName());
+				}
+				unverifiedTms.remove(tm.getTmName());
 			}
+		} finally {
+			unverifiedTms.clear();
 		}
 
 		for (String tmName : this.tmRootDir.list()) {
@@ -65,6 +105,18 @@ public class OkapiTmManager implements TmManager {
 		}
 	}
 
+	private TmConfig getTmConfig(String tmName) {
+		synchronized (cfgService) {
+			return cfgService.getTmConfig(tmName);
+		}
+	}
+
+	private List<TmConfig> getTmConfigs() {
+		synchronized (cfgService) {
+			return new ArrayList<TmManagement.TmConfig>(this.cfgService.getTms());
+		}
+	}
+
 	/**
 	 * If TM config points to a non-existent directory for the root or data,
 	 * delete the configuration; otherwise generate Pensieve index if missing.
@@ -126,11 +178,11 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	@Override
-	public void initializeNewTm(String tmName, File tmDataDir)
+	public synchronized void initializeNewTm(String tmName, File tmDataDir)
 	        throws IOException, ConfigTransferService.TransferException {
 		LOG.debug("Creating new TM '{}' with data directory '{}'", tmName,
 		        tmDataDir.getAbsolutePath());
-		if (cfgService.getTmConfig(tmName) != null) {
+		if (getTmConfig(tmName) != null) {
 			String errorMsg = "TM '"
 			        + tmName
 			        + "' already exists, cannot create a new TM with data dir '"
@@ -142,8 +194,10 @@ public class OkapiTmManager implements TmManager {
 		if (tmDataDir.exists()) {
 			File[] tmxFiles = tmDataDir.listFiles();
 			if (tmxFiles != null && tmxFiles.length > 0) {
-				cfgService.createNewTmConfig(tmName, true,
-				        tmDataDir.getAbsolutePath());
+				synchronized (cfgService) {
+					cfgService.createNewTmConfig(tmName, true,
+					        tmDataDir.getAbsolutePath());
+				}
 				for (File tmx : tmxFiles) {
 					indexTmx(tmName, tmx);
 				}
@@ -162,14 +216,14 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	@Override
-	public void initializeNewTm(String tmName, File[] tmxFiles)
+	public synchronized void initializeNewTm(String tmName, File[] tmxFiles)
 	        throws IOException, TransferException {
 
 		if (tmxFiles != null && tmxFiles.length > 0) {
 			File tmDataDir = new File(tmxFiles[0].getParent());
 			LOG.debug("Creating new TM '{}' with data directory '{}'", tmName,
 			        tmDataDir.getAbsolutePath());
-			if (cfgService.getTmConfig(tmName) != null) {
+			if (getTmConfig(tmName) != null) {
 				String errorMsg = "TM '"
 				        + tmName
 				        + "' already exists, cannot create a new TM with data dir '"
@@ -182,8 +236,10 @@ public class OkapiTmManager implements TmManager {
 				for(File tmxFile: tmxFiles){
 					configTmxFiles.add(tmxFile.getName());
 				}
-				cfgService.createNewTmConfig(tmName, true,
-				        tmDataDir.getAbsolutePath(), configTmxFiles);
+				synchronized (cfgService) {
+					cfgService.createNewTmConfig(tmName, true,
+					        tmDataDir.getAbsolutePath(), configTmxFiles);
+				}
 				for (File tmx : tmxFiles) {
 					indexTmx(tmName, tmx);
 				}
@@ -207,9 +263,9 @@ public class OkapiTmManager implements TmManager {
 	// }
 
 	@Override
-	public void deleteTm(String tmName) throws IOException,
+	public synchronized void deleteTm(String tmName) throws IOException,
 	        ConfigTransferService.TransferException {
-		TmManagement.TmConfig config = cfgService.getTmConfig(tmName);
+		TmManagement.TmConfig config = getTmConfig(tmName);
 		if (config == null) {
 			throw new IOException("'" + tmName + "' missing TM configuration!");
 		}
@@ -231,9 +287,11 @@ public class OkapiTmManager implements TmManager {
 
 	private void removeTmConfig(TmManagement.TmConfig config)
 	        throws ConfigTransferService.TransferException {
-		List<TmManagement.TmConfig> configs = cfgService.getTms();
-		configs.remove(config);
-		cfgService.saveConfig();
+		synchronized (cfgService) {
+			List<TmManagement.TmConfig> configs = cfgService.getTms();
+			configs.remove(config);
+			cfgService.saveConfig();
+		}
 	}
 
 	private void deleteDefaultTmDataDirectory(String tmName) throws IOException {
@@ -282,9 +340,9 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	@Override
-	public void regenerateTm(String tmName) throws IOException {
+	public synchronized void regenerateTm(String tmName) throws IOException {
 		deletePensieveIndex(tmName);
-		TmManagement.TmConfig config = cfgService.getTmConfig(tmName);
+		TmManagement.TmConfig config = getTmConfig(tmName);
 		File tmDataDir = new File(config.getTmDataDir());
 		for (File tmx : tmDataDir.listFiles()) {
 			indexTmx(tmName, tmx);
@@ -307,9 +365,9 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	@Override
-	public void changeTmDataDir(String tmName, File tmDataDir)
+	public synchronized void changeTmDataDir(String tmName, File tmDataDir)
 	        throws IOException, ConfigTransferService.TransferException {
-		TmManagement.TmConfig tmConfig = cfgService.getTmConfig(tmName);
+		TmManagement.TmConfig tmConfig = getTmConfig(tmName);
 		if (tmConfig == null) {
 			throw new IOException("TM '" + tmName + "' does not exist!");
 		}
@@ -321,7 +379,9 @@ public class OkapiTmManager implements TmManager {
 			for (File tmxFile : tmDataDir.listFiles()) {
 				indexTmx(tmName, tmxFile);
 			}
-			cfgService.saveTmDataDir(tmConfig, tmDataDir.getAbsolutePath());
+			synchronized (cfgService) {
+				cfgService.saveTmDataDir(tmConfig, tmDataDir.getAbsolutePath());
+			}
 		}
 		LOG.debug(
 		        "Setting TM data directory to itself '{} to {}', doing nothing",
@@ -329,13 +389,13 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	@Override
-	public void importTmx(String tmName, File tmx) throws IOException {
+	public synchronized void importTmx(String tmName, File tmx) throws IOException {
 		if (!tmx.exists()) {
 			throw new IOException("File '" + tmx.getAbsolutePath()
 			        + "' does not exist");
 		}
 
-		TmManagement.TmConfig config = cfgService.getTmConfig(tmName);
+		TmManagement.TmConfig config = getTmConfig(tmName);
 		File tmDataDir = new File(
 		        (config == null) ? constructDefaultTmDataDir(tmName)
 		                : config.getTmDataDir());
@@ -358,8 +418,10 @@ public class OkapiTmManager implements TmManager {
 
 		if (config == null) {
 			try {
-				cfgService.createNewTmConfig(tmName, true,
-				        tmDataDir.getAbsolutePath());
+				synchronized (cfgService) {
+					cfgService.createNewTmConfig(tmName, true,
+					        tmDataDir.getAbsolutePath());
+				}
 			} catch (ConfigTransferService.TransferException e) {
 				String errorMsg = "Failed to create new TM configuration for '"
 				        + tmName + "' when importing file '"
@@ -394,7 +456,7 @@ public class OkapiTmManager implements TmManager {
 	 */
 	private DirectoryWrapper loadTm(String tmName) throws IOException,
 	        ConfigTransferService.TransferException {
-		if (cfgService.getTmConfig(tmName) == null) {
+		if (getTmConfig(tmName) == null) {
 			throw new IOException(tmName + " is missing a TM configuration!");
 		}
 
@@ -404,11 +466,15 @@ public class OkapiTmManager implements TmManager {
 	}
 
 	/**
-	 * Return searchable TMs, in the TmConfig list order.
+	 * Return searchable TMs, in the TmConfig list order. TMs still waiting to
+	 * be verified are skipped.
 	 */
 	Iterator<TmPair> getSeekers() throws IOException {
 		List<TmPair> seekers = new ArrayList<>();
-		for (TmManagement.TmConfig tm : this.cfgService.getTms()) {
+		for (TmManagement.TmConfig tm : getTmConfigs()) {
+			if (unverifiedTms.contains(tm.getTmName())) {
+				continue;
+			}
 			try {
 				DirectoryWrapper luceneIndex = loadTm(tm.getTmName());
 				seekers.add(new TmPair(tm.getTmName(), new PensieveSeeker(
@@ -423,18 +489,20 @@ public class OkapiTmManager implements TmManager {
 
 	@Override
 	public List<TmManagement.TmConfig> fetchTms() {
-		return cfgService.getTms();
+		return getTmConfigs();
 	}
 
 	@Override
 	public TmManagement.TmConfig fetchTm(String tmName) {
-		return cfgService.getTmConfig(tmName);
+		return getTmConfig(tmName);
 	}
 
 	@Override
 	public void saveTmOrdering(List<TmManagement.TmConfig> orderedTms)
 	        throws ConfigTransferService.TransferException {
-		cfgService.saveTms(orderedTms);
+		synchronized (cfgService) {
+			cfgService.saveTms(orderedTms);
+		}
 	}
 
 	/**
@@ -88,6 +88,7 @@ public class PensieveTmMatch implements TmMatch {
         public void setContent(SegmentVariant variant) {
             PensieveSegmentVariant copy = (PensieveSegmentVariant) variant.createCopy();
             this.atoms = copy.getAtoms();
+            contentChanged();
         }
 
     }
@@ -0,0 +1,49 @@
+package com.vistatec.ocelot.workspace;
+
+import java.io.File;
+
+/**
+ * Statistics of one file of the workspace.
+ */
+public class DocumentStats {
+    private final File file;
+    private final int segmentCount;
+    private final int sourceWordCount;
+    private final int editDistance;
+    private final int lqiCount;
+
+    DocumentStats(File file, int segmentCount, int sourceWordCount, int editDistance,
+            int lqiCount) {
+        this.file = file;
+        this.segmentCount = segmentCount;
+        this.sourceWordCount = sourceWordCount;
+        this.editDistance = editDistance;
+        this.lqiCount = lqiCount;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getSourceWordCount() {
+        return sourceWordCount;
+    }
+
+    /**
+     * @return the total edit distance of the targets from the original targets
+     */
+    public int getEditDistance() {
+        return editDistance;
+    }
+
+    /**
+     * @return the number of Localization Quality Issues in the segments
+     */
+    public int getLqiCount() {
+        return lqiCount;
+    }
+}
@@ -0,0 +1,118 @@
+package com.vistatec.ocelot.workspace;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * The texts of the segments of one XLIFF file, kept so that it can be
+ * searched again without parsing it. The character trigrams of the texts
+ * are recorded in a bit set, which lets a search skip the files that can't
+ * contain the query.
+ */
+class FileIndex {
+    private static final int TRIGRAM_BITS = 1 << 16;
+
+    private final File file;
+    private final long lastModified;
+    private final long length;
+    private final int[] segmentNumbers;
+    private final String[] sources;
+    private final String[] targets;
+    private final String[] lowerSources;
+    private final String[] lowerTargets;
+    private final BitSet trigrams = new BitSet(TRIGRAM_BITS);
+
+    /**
+     * @param lastModified the modification time of the file when it was parsed
+     * @param length the length of the file when it was parsed
+     */
+    FileIndex(File file, long lastModified, long length, XLIFFDocument xliff) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.length = length;
+        List<OcelotSegment> segments = xliff.getSegments();
+        int size = segments.size();
+        segmentNumbers = new int[size];
+        sources = new String[size];
+        targets = new String[size];
+        lowerSources = new String[size];
+        lowerTargets = new String[size];
+        int i = 0;
+        for (OcelotSegment segment : segments) {
+            segmentNumbers[i] = segment.getSegmentNumber();
+            sources[i] = segment.getSource().getDisplayText();
+            targets[i] = segment.getTarget() != null ? segment.getTarget().getDisplayText() : "";
+            lowerSources[i] = sources[i].toLowerCase(Locale.ROOT);
+            lowerTargets[i] = targets[i].toLowerCase(Locale.ROOT);
+            addTrigrams(lowerSources[i]);
+            addTrigrams(lowerTargets[i]);
+            i++;
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int getSegmentCount() {
+        return segmentNumbers.length;
+    }
+
+    /**
+     * @return whether the file hasn't changed since it was indexed
+     */
+    boolean isCurrent() {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+
+    /**
+     * @param lowerQuery the query, in lower case
+     * @param searchTargets whether to search the targets rather than the
+     *        sources
+     * @return the segments containing the query, in document order
+     */
+    List<ProjectMatch> find(String lowerQuery, boolean searchTargets) {
+        List<ProjectMatch> matches = new ArrayList<ProjectMatch>();
+        if (!mightContain(lowerQuery)) {
+            return matches;
+        }
+        String[] texts = searchTargets ? lowerTargets : lowerSources;
+        for (int i = 0; i < texts.length; i++) {
+            if (texts[i].contains(lowerQuery)) {
+                matches.add(new ProjectMatch(file, segmentNumbers[i], sources[i], targets[i]));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return false if some trigram of the query appears in no text of the
+     * file; true doesn't mean that the file contains it
+     */
+    boolean mightContain(String lowerQuery) {
+        for (int i = 0; i + 3 <= lowerQuery.length(); i++) {
+            if (!trigrams.get(trigram(lowerQuery, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addTrigrams(String text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.set(trigram(text, i));
+        }
+    }
+
+    private static int trigram(String text, int start) {
+        int hash = (text.charAt(start) * 31 + text.charAt(start + 1)) * 31
+                + text.charAt(start + 2);
+        return hash & (TRIGRAM_BITS - 1);
+    }
+}
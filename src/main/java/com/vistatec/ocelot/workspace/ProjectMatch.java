@@ -0,0 +1,48 @@
+package com.vistatec.ocelot.workspace;
+
+import java.io.File;
+
+/**
+ * A segment found by a concordance search across a project directory.
+ */
+public class ProjectMatch {
+    private final File file;
+    private final int segmentNumber;
+    private final String source;
+    private final String target;
+
+    ProjectMatch(File file, int segmentNumber, String source, String target) {
+        this.file = file;
+        this.segmentNumber = segmentNumber;
+        this.source = source;
+        this.target = target;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getSegmentNumber() {
+        return segmentNumber;
+    }
+
+    /**
+     * @return the display text of the source
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the display text of the target, or an empty string if the
+     * segment has no target
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return file.getName() + "#" + segmentNumber + ": " + source + " / " + target;
+    }
+}
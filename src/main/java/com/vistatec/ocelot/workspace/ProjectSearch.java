@@ -0,0 +1,218 @@
+package com.vistatec.ocelot.workspace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vistatec.ocelot.XliffFileFilter;
+import com.vistatec.ocelot.services.XliffService;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * Concordance search across all the XLIFF files of a project directory. Each
+ * file is parsed once into a {@link FileIndex}, which is reused by later
+ * searches until the file changes. Files are indexed and searched in
+ * parallel, and the matches of each file are passed to the
+ * {@link ProjectSearchListener} as soon as it has been searched.
+ * <p>
+ * Files loaded in the {@link Workspace} are indexed from their parsed
+ * document rather than parsed again, and files with unsaved changes are
+ * searched as they are being edited.
+ */
+public class ProjectSearch {
+    private static final Logger LOG = Logger.getLogger(ProjectSearch.class);
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private static ExecutorService executor;
+
+    private final XliffService xliffService;
+    private final Workspace workspace;
+    private final ConcurrentMap<File, FileIndex> indexes =
+            new ConcurrentHashMap<File, FileIndex>();
+
+    public ProjectSearch(XliffService xliffService, Workspace workspace) {
+        this.xliffService = xliffService;
+        this.workspace = workspace;
+    }
+
+    /**
+     * Starts searching the XLIFF files of a directory and its subdirectories
+     * for a text, ignoring case.
+     *
+     * @param searchTargets whether to search the targets rather than the
+     *        sources
+     * @return the search, which can be cancelled
+     */
+    public Search search(final File directory, String text, final boolean searchTargets,
+            final ProjectSearchListener listener) {
+        final Search search = new Search();
+        final String query = text.toLowerCase(Locale.ROOT);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                List<File> files = listFiles(directory);
+                if (files.isEmpty()) {
+                    listener.searchFinished(0);
+                    return;
+                }
+                AtomicInteger remaining = new AtomicInteger(files.size());
+                AtomicInteger searched = new AtomicInteger();
+                for (File file : files) {
+                    getExecutor().execute(new FileSearch(search, file, query,
+                            searchTargets, listener, remaining, searched));
+                }
+            }
+        });
+        return search;
+    }
+
+    private class FileSearch implements Runnable {
+        private final Search search;
+        private final File file;
+        private final String query;
+        private final boolean searchTargets;
+        private final ProjectSearchListener listener;
+        private final AtomicInteger remaining, searched;
+
+        FileSearch(Search search, File file, String query, boolean searchTargets,
+                ProjectSearchListener listener, AtomicInteger remaining,
+                AtomicInteger searched) {
+            this.search = search;
+            this.file = file;
+            this.query = query;
+            this.searchTargets = searchTargets;
+            this.listener = listener;
+            this.remaining = remaining;
+            this.searched = searched;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!search.isCancelled()) {
+                    List<ProjectMatch> matches = getIndex(file).find(query, searchTargets);
+                    searched.incrementAndGet();
+                    if (!matches.isEmpty() && !search.isCancelled()) {
+                        listener.matchesFound(matches);
+                    }
+                }
+            } catch (IOException | XMLStreamException | RuntimeException e) {
+                LOG.warn("Could not search " + file, e);
+            } finally {
+                if (remaining.decrementAndGet() == 0) {
+                    listener.searchFinished(searched.get());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of a file, parsing it if it hasn't been indexed yet
+     * or has changed since, unless it is loaded in the workspace
+     */
+    FileIndex getIndex(File file) throws IOException, XMLStreamException {
+        // Edits replace the segment targets rather than changing them, so
+        // the loaded documents can be read while they are being edited
+        XLIFFDocument loaded = workspace.getLoadedDocument(file);
+        if (loaded != null && workspace.isDirty(file)) {
+            // Not kept, as the unsaved changes keep changing
+            return new FileIndex(file, -1, -1, loaded);
+        }
+        FileIndex index = indexes.get(file);
+        if (index == null || !index.isCurrent()) {
+            long lastModified = file.lastModified();
+            long length = file.length();
+            if (loaded != null && !workspace.isChangedOnDisk(file)) {
+                index = new FileIndex(file, lastModified, length, loaded);
+            } else {
+                XLIFFDocument xliff = xliffService.parse(file);
+                try {
+                    index = new FileIndex(file, lastModified, length, xliff);
+                } finally {
+                    xliffService.close(xliff);
+                }
+            }
+            indexes.put(file, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return the number of files whose index is kept
+     */
+    public int getIndexedFileCount() {
+        return indexes.size();
+    }
+
+    public void clearIndexes() {
+        indexes.clear();
+    }
+
+    /**
+     * @return the XLIFF files of a directory and its subdirectories, sorted
+     * by path
+     */
+    public static List<File> listFiles(File directory) {
+        List<File> files = new ArrayList<File>();
+        addFiles(directory.getAbsoluteFile(), files);
+        return files;
+    }
+
+    private static void addFiles(File directory, List<File> files) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        XliffFileFilter filter = new XliffFileFilter();
+        for (File child : children) {
+            if (child.isDirectory()) {
+                addFiles(child, files);
+            } else if (filter.accept(directory, child.getName())) {
+                files.add(child);
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("ocelot-project-search-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+
+    /**
+     * A running search.
+     */
+    public static class Search {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        /**
+         * Stops the search; the files being searched are finished, but their
+         * matches aren't reported.
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+}
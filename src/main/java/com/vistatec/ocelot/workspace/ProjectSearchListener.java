@@ -0,0 +1,23 @@
+package com.vistatec.ocelot.workspace;
+
+import java.util.List;
+
+/**
+ * Receives the results of a {@link ProjectSearch} as each file is searched.
+ * The methods are called from the search threads.
+ */
+public interface ProjectSearchListener {
+
+    /**
+     * Called with the matches of one file, if it has any.
+     */
+    void matchesFound(List<ProjectMatch> matches);
+
+    /**
+     * Called once all the files have been searched, or the search has been
+     * cancelled.
+     *
+     * @param filesSearched the number of files that were searched
+     */
+    void searchFinished(int filesSearched);
+}
@@ -0,0 +1,230 @@
+package com.vistatec.ocelot.workspace;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+import com.google.inject.Inject;
+import com.vistatec.ocelot.ui.ODialogPanel;
+
+/**
+ * Concordance search across the XLIFF files of a project directory. Matches
+ * are added to the table as each file is searched.
+ */
+public class ProjectSearchView extends ODialogPanel implements ActionListener {
+    private static final long serialVersionUID = 1L;
+
+    private final ProjectSearch projectSearch;
+    private final MatchTableModel model = new MatchTableModel();
+    private final JTextField directory = new JTextField(30);
+    private final JTextField query = new JTextField(30);
+    private final JCheckBox searchTargets = new JCheckBox("Search targets");
+    private final JLabel status = new JLabel(" ");
+    private JButton browse, search, close;
+    private ProjectSearch.Search current;
+
+    @Inject
+    public ProjectSearchView(ProjectSearch projectSearch) {
+        super(new BorderLayout(10, 10));
+        this.projectSearch = projectSearch;
+        setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        JPanel directoryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        directoryPanel.add(new JLabel("Directory:"));
+        directoryPanel.add(directory);
+        browse = new JButton("Browse...");
+        browse.addActionListener(this);
+        directoryPanel.add(browse);
+
+        JPanel queryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        queryPanel.add(new JLabel("Find:"));
+        query.addActionListener(this);
+        queryPanel.add(query);
+        queryPanel.add(searchTargets);
+
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(directoryPanel, BorderLayout.PAGE_START);
+        topPanel.add(queryPanel, BorderLayout.PAGE_END);
+        add(topPanel, BorderLayout.PAGE_START);
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(150);
+        table.getColumnModel().getColumn(1).setPreferredWidth(50);
+        table.getColumnModel().getColumn(2).setPreferredWidth(300);
+        table.getColumnModel().getColumn(3).setPreferredWidth(300);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(800, 350));
+        add(scrollPane, BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(status, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        search = new JButton("Search");
+        search.addActionListener(this);
+        buttonPanel.add(search);
+        close = new JButton("Close");
+        close.addActionListener(this);
+        buttonPanel.add(close);
+        bottomPanel.add(buttonPanel, BorderLayout.LINE_END);
+        add(bottomPanel, BorderLayout.PAGE_END);
+    }
+
+    public void setDirectory(File dir) {
+        directory.setText(dir.getAbsolutePath());
+    }
+
+    @Override
+    public JButton getDefaultButton() {
+        return search;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == browse) {
+            JFileChooser chooser = new JFileChooser(directory.getText());
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                setDirectory(chooser.getSelectedFile());
+            }
+        } else if (e.getSource() == close) {
+            cancelSearch();
+            getDialog().dispose();
+        } else {
+            startSearch();
+        }
+    }
+
+    private void startSearch() {
+        cancelSearch();
+        model.clear();
+        String text = query.getText();
+        File dir = new File(directory.getText());
+        if (text.isEmpty() || !dir.isDirectory()) {
+            status.setText(text.isEmpty() ? "Nothing to find" : "Not a directory");
+            return;
+        }
+        status.setText("Searching...");
+        ViewListener listener = new ViewListener();
+        current = projectSearch.search(dir, text, searchTargets.isSelected(), listener);
+        // Set on the Swing thread before any result can reach the listener
+        listener.search = current;
+    }
+
+    private void cancelSearch() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
+    }
+
+    /**
+     * Forwards the results of the current search to the Swing thread,
+     * ignoring those of searches that have been replaced or cancelled.
+     */
+    private class ViewListener implements ProjectSearchListener {
+        private ProjectSearch.Search search;
+
+        @Override
+        public void matchesFound(final List<ProjectMatch> matches) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCurrent()) {
+                        model.addMatches(matches);
+                        status.setText("Searching... " + model.getRowCount() + " matches");
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void searchFinished(final int filesSearched) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCurrent()) {
+                        status.setText(model.getRowCount() + " matches in "
+                                + filesSearched + " files");
+                        current = null;
+                    }
+                }
+            });
+        }
+
+        private boolean isCurrent() {
+            return search == current && !search.isCancelled();
+        }
+    }
+
+    static class MatchTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+
+        private static final String[] COLUMN_NAMES = { "File", "Seg#", "Source", "Target" };
+
+        private final List<ProjectMatch> matches = new ArrayList<ProjectMatch>();
+
+        void addMatches(List<ProjectMatch> newMatches) {
+            int first = matches.size();
+            matches.addAll(newMatches);
+            fireTableRowsInserted(first, matches.size() - 1);
+        }
+
+        void clear() {
+            matches.clear();
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return matches.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ProjectMatch match = matches.get(row);
+            switch (column) {
+            case 0:
+                return match.getFile().getName();
+            case 1:
+                return match.getSegmentNumber();
+            case 2:
+                return match.getSource();
+            default:
+                return match.getTarget();
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.vistatec.ocelot.workspace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vistatec.ocelot.segment.editdistance.EditDistance;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.WordCounter;
+import com.vistatec.ocelot.services.XliffService;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * The XLIFF files being worked on, so that switching between them doesn't
+ * parse them again each time. Parsed documents are kept up to a memory
+ * budget; beyond it, the least recently focused documents without unsaved
+ * changes are evicted, and parsed again when they are next focused.
+ * <p>
+ * The memory used by a document is estimated from the size of its file. The
+ * budget is taken from the {@value #MEMORY_BUDGET_PROPERTY} system property,
+ * in megabytes, and defaults to a quarter of the maximum heap.
+ * <p>
+ * A loaded document whose file has changed on disk since it was parsed or
+ * saved is parsed again when it is focused, unless it has unsaved changes.
+ */
+public class Workspace {
+    private static final Logger LOG = Logger.getLogger(Workspace.class);
+
+    public static final String MEMORY_BUDGET_PROPERTY = "ocelot.workspace.memoryBudgetMB";
+
+    /**
+     * Rough heap used by a parsed document per byte of its file: the Okapi
+     * events, the segment atoms and the enrichments.
+     */
+    static final int BYTES_PER_FILE_BYTE = 12;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private static ExecutorService executor;
+
+    private final XliffService xliffService;
+    private final long memoryBudget;
+    /** Least recently focused first. */
+    private final Map<File, WorkspaceDocument> documents =
+            new LinkedHashMap<File, WorkspaceDocument>();
+    private WorkspaceDocument active;
+
+    public Workspace(XliffService xliffService) {
+        this(xliffService, getDefaultMemoryBudget());
+    }
+
+    public Workspace(XliffService xliffService, long memoryBudget) {
+        this.xliffService = xliffService;
+        this.memoryBudget = memoryBudget;
+    }
+
+    private static long getDefaultMemoryBudget() {
+        String budget = System.getProperty(MEMORY_BUDGET_PROPERTY);
+        if (budget != null) {
+            try {
+                return Long.parseLong(budget) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                LOG.warn("Invalid " + MEMORY_BUDGET_PROPERTY + ": " + budget);
+            }
+        }
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Adds a file to the workspace without parsing it.
+     */
+    public synchronized WorkspaceDocument addFile(File file) {
+        File key = file.getAbsoluteFile();
+        WorkspaceDocument doc = documents.get(key);
+        if (doc == null) {
+            doc = new WorkspaceDocument(key);
+            documents.put(key, doc);
+        }
+        return doc;
+    }
+
+    /**
+     * Makes a file the active document, parsing it unless it is still loaded
+     * and unchanged on disk, and evicts other documents if needed.
+     */
+    public synchronized XLIFFDocument focus(File file) throws IOException, XMLStreamException {
+        WorkspaceDocument doc = addFile(file);
+        if (doc.isChangedOnDisk()) {
+            if (doc.isDirty()) {
+                LOG.warn(doc.getFile() + " has changed on disk, keeping its unsaved changes");
+            } else {
+                LOG.info(doc.getFile() + " has changed on disk, parsing it again");
+                unload(doc);
+            }
+        }
+        if (!doc.isLoaded()) {
+            XLIFFDocument xliff = xliffService.parse(doc.getFile());
+            doc.setDocument(xliff, estimateBytes(doc.getFile()));
+        }
+        documents.remove(doc.getFile());
+        documents.put(doc.getFile(), doc);
+        active = doc;
+        evictOverBudget();
+        return doc.getDocument();
+    }
+
+    public synchronized boolean isLoaded(File file) {
+        WorkspaceDocument doc = documents.get(file.getAbsoluteFile());
+        return doc != null && doc.isLoaded();
+    }
+
+    /**
+     * @return the parsed document of a file, or null if it isn't loaded
+     */
+    public synchronized XLIFFDocument getLoadedDocument(File file) {
+        WorkspaceDocument doc = documents.get(file.getAbsoluteFile());
+        return doc != null ? doc.getDocument() : null;
+    }
+
+    /**
+     * @return whether a file is loaded and has changed on disk since it was
+     * parsed or saved
+     */
+    public synchronized boolean isChangedOnDisk(File file) {
+        WorkspaceDocument doc = documents.get(file.getAbsoluteFile());
+        return doc != null && doc.isChangedOnDisk();
+    }
+
+    /**
+     * @return the focused document, or null
+     */
+    public synchronized XLIFFDocument getActiveDocument() {
+        return active != null ? active.getDocument() : null;
+    }
+
+    public synchronized void markDirty(XLIFFDocument xliff) {
+        WorkspaceDocument doc = getEntry(xliff);
+        if (doc != null) {
+            doc.setDirty(true);
+        }
+    }
+
+    /**
+     * Records that a document has been saved to a file. A document saved to
+     * another file than its own moves to that file; the file it was parsed
+     * from stays in the workspace and is parsed again when it is focused.
+     */
+    public synchronized void markSaved(XLIFFDocument xliff, File savedTo) {
+        WorkspaceDocument doc = getEntry(xliff);
+        if (doc == null) {
+            return;
+        }
+        File key = savedTo.getAbsoluteFile();
+        if (!doc.getFile().equals(key)) {
+            WorkspaceDocument moved = new WorkspaceDocument(key);
+            moved.setDocument(xliff, estimateBytes(key));
+            // The document now belongs to the new entry, so it isn't closed
+            doc.evict();
+            doc.setDirty(false);
+            WorkspaceDocument replaced = documents.remove(key);
+            if (replaced != null) {
+                unload(replaced);
+            }
+            documents.put(key, moved);
+            if (active == doc || active == replaced) {
+                active = moved;
+            }
+            doc = moved;
+        }
+        doc.setDirty(false);
+        doc.updateFileState();
+        evictOverBudget();
+    }
+
+    public synchronized boolean isDirty(File file) {
+        WorkspaceDocument doc = documents.get(file.getAbsoluteFile());
+        return doc != null && doc.isDirty();
+    }
+
+    /**
+     * @return the files with unsaved changes, least recently focused first
+     */
+    public synchronized List<WorkspaceDocument> getDirtyDocuments() {
+        List<WorkspaceDocument> dirty = new ArrayList<WorkspaceDocument>();
+        for (WorkspaceDocument doc : documents.values()) {
+            if (doc.isDirty()) {
+                dirty.add(doc);
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Removes a file from the workspace, discarding any unsaved changes.
+     */
+    public synchronized void close(File file) {
+        WorkspaceDocument doc = documents.remove(file.getAbsoluteFile());
+        if (doc == null) {
+            return;
+        }
+        if (doc == active) {
+            active = null;
+        }
+        unload(doc);
+    }
+
+    /**
+     * @return the files of the workspace, least recently focused first
+     */
+    public synchronized List<WorkspaceDocument> getDocuments() {
+        return new ArrayList<WorkspaceDocument>(documents.values());
+    }
+
+    /**
+     * @return the estimated heap used by the loaded documents
+     */
+    public synchronized long getLoadedBytes() {
+        long total = 0;
+        for (WorkspaceDocument doc : documents.values()) {
+            total += doc.getEstimatedBytes();
+        }
+        return total;
+    }
+
+    private WorkspaceDocument getEntry(XLIFFDocument xliff) {
+        for (WorkspaceDocument doc : documents.values()) {
+            if (doc.getDocument() == xliff) {
+                return doc;
+            }
+        }
+        return null;
+    }
+
+    private void evictOverBudget() {
+        long loaded = getLoadedBytes();
+        Iterator<WorkspaceDocument> iter = documents.values().iterator();
+        while (loaded > memoryBudget && iter.hasNext()) {
+            WorkspaceDocument doc = iter.next();
+            if (doc != active && doc.isLoaded() && !doc.isDirty()) {
+                loaded -= doc.getEstimatedBytes();
+                unload(doc);
+                LOG.debug("Evicted " + doc.getFile() + " from the workspace");
+            }
+        }
+    }
+
+    private void unload(WorkspaceDocument doc) {
+        if (doc.isLoaded()) {
+            xliffService.close(doc.getDocument());
+            doc.evict();
+        }
+    }
+
+    static long estimateBytes(File file) {
+        return file.length() * BYTES_PER_FILE_BYTE;
+    }
+
+    /**
+     * Computes the statistics of all the files in parallel. Evicted files are
+     * parsed for them but not kept.
+     */
+    public List<DocumentStats> getStats() throws IOException {
+        return forEachDocument(new DocumentTask<DocumentStats>() {
+            @Override
+            public DocumentStats process(File file, XLIFFDocument xliff) {
+                List<OcelotSegment> segments = xliff.getSegments();
+                WordCounter counter = new WordCounter(Locale.forLanguageTag(
+                        xliff.getSrcLocale().toString().replace('_', '-')));
+                int editDistance = 0;
+                for (int distance : EditDistance.calcEditDistances(segments)) {
+                    editDistance += distance;
+                }
+                int words = 0, lqis = 0;
+                for (OcelotSegment segment : segments) {
+                    words += segment.getSourceWordCount(counter);
+                    lqis += segment.getLQI().size();
+                }
+                return new DocumentStats(file, segments.size(), words, editDistance, lqis);
+            }
+        });
+    }
+
+    private interface DocumentTask<T> {
+        T process(File file, XLIFFDocument xliff);
+    }
+
+    /**
+     * Runs a task over each file of the workspace, in the order of
+     * {@link #getDocuments()}.
+     */
+    private <T> List<T> forEachDocument(final DocumentTask<T> task) throws IOException {
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        synchronized (this) {
+            for (WorkspaceDocument doc : documents.values()) {
+                final File file = doc.getFile();
+                final XLIFFDocument loaded = doc.getDocument();
+                futures.add(getExecutor().submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        if (loaded != null) {
+                            return task.process(file, loaded);
+                        }
+                        XLIFFDocument parsed = xliffService.parse(file);
+                        try {
+                            return task.process(file, parsed);
+                        } finally {
+                            xliffService.close(parsed);
+                        }
+                    }
+                }));
+            }
+        }
+        List<T> results = new ArrayList<T>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing the workspace", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Error while processing the workspace", e.getCause());
+        }
+        return results;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("ocelot-workspace-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,93 @@
+package com.vistatec.ocelot.workspace;
+
+import java.io.File;
+
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+/**
+ * A file in the {@link Workspace}. The parsed document is only held while it
+ * fits in the workspace memory budget; what is kept after it has been evicted
+ * is enough to list the file.
+ */
+public class WorkspaceDocument {
+    private final File file;
+    private XLIFFDocument document;
+    private long estimatedBytes;
+    private int segmentCount = -1;
+    private boolean dirty;
+    /** The state of the file when it was last parsed or saved. */
+    private long lastModified, length;
+
+    WorkspaceDocument(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the parsed document, or null if it hasn't been loaded or has
+     * been evicted
+     */
+    XLIFFDocument getDocument() {
+        return document;
+    }
+
+    void setDocument(XLIFFDocument document, long estimatedBytes) {
+        this.document = document;
+        this.estimatedBytes = estimatedBytes;
+        this.segmentCount = document.getSegments().size();
+        updateFileState();
+    }
+
+    void updateFileState() {
+        lastModified = file.lastModified();
+        length = file.length();
+    }
+
+    /**
+     * @return whether the document is loaded and its file has changed since
+     * it was parsed or saved
+     */
+    boolean isChangedOnDisk() {
+        return document != null
+                && (file.lastModified() != lastModified || file.length() != length);
+    }
+
+    void evict() {
+        document = null;
+        estimatedBytes = 0;
+    }
+
+    public boolean isLoaded() {
+        return document != null;
+    }
+
+    /**
+     * @return the estimated heap used by the parsed document, or 0 if it
+     * isn't loaded
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * @return the number of segments, or -1 if the file hasn't been loaded yet
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return whether the document has unsaved changes. Dirty documents are
+     * never evicted.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+}
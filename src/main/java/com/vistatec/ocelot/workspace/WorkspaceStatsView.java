@@ -0,0 +1,171 @@
+package com.vistatec.ocelot.workspace;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+import org.apache.log4j.Logger;
+
+import com.google.inject.Inject;
+import com.vistatec.ocelot.ui.ODialogPanel;
+
+/**
+ * Statistics of the files of the {@link Workspace}, including their unsaved
+ * changes. They are computed in the background when the view is shown and
+ * when it is refreshed.
+ */
+public class WorkspaceStatsView extends ODialogPanel implements ActionListener {
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(WorkspaceStatsView.class);
+
+    private final Workspace workspace;
+    private final StatsTableModel model = new StatsTableModel();
+    private final JLabel status = new JLabel(" ");
+    private JButton refresh, close;
+    /** Counts the refreshes, so that only the last one is shown. */
+    private int refreshes;
+
+    @Inject
+    public WorkspaceStatsView(Workspace workspace) {
+        super(new BorderLayout(10, 10));
+        this.workspace = workspace;
+        setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(250);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(650, 250));
+        add(scrollPane, BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(status, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        refresh = new JButton("Refresh");
+        refresh.addActionListener(this);
+        buttonPanel.add(refresh);
+        close = new JButton("Close");
+        close.addActionListener(this);
+        buttonPanel.add(close);
+        bottomPanel.add(buttonPanel, BorderLayout.LINE_END);
+        add(bottomPanel, BorderLayout.PAGE_END);
+    }
+
+    @Override
+    public JButton getDefaultButton() {
+        return refresh;
+    }
+
+    @Override
+    public void postInit() {
+        refresh();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == close) {
+            getDialog().dispose();
+        } else {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        final int refresh = ++refreshes;
+        status.setText("Computing...");
+        Thread thread = new Thread("ocelot-workspace-stats") {
+            @Override
+            public void run() {
+                List<DocumentStats> stats = null;
+                try {
+                    stats = workspace.getStats();
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Could not compute the workspace statistics", e);
+                }
+                final List<DocumentStats> result = stats;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (refresh != refreshes) {
+                            return;
+                        }
+                        if (result != null) {
+                            model.setStats(result);
+                            status.setText(result.size() + " files");
+                        } else {
+                            status.setText("Could not compute the statistics");
+                        }
+                    }
+                });
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static class StatsTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+
+        private static final String[] COLUMN_NAMES = { "File", "Segments",
+                "Source Words", "Edit Distance", "LQIs" };
+
+        private final List<DocumentStats> stats = new ArrayList<DocumentStats>();
+
+        void setStats(List<DocumentStats> newStats) {
+            stats.clear();
+            stats.addAll(newStats);
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return stats.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Integer.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            DocumentStats docStats = stats.get(row);
+            switch (column) {
+            case 0:
+                return docStats.getFile().getName();
+            case 1:
+                return docStats.getSegmentCount();
+            case 2:
+                return docStats.getSourceWordCount();
+            case 3:
+                return docStats.getEditDistance();
+            default:
+                return docStats.getLqiCount();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.vistatec.ocelot.xliff;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.input.BOMInputStream;
+
+/**
+ * What Ocelot needs to know about an XLIFF file before parsing it: its
+ * encoding, XLIFF version and languages. They are all read from the first
+ * bytes of the file, and the stream is then reset so that the parser reads
+ * the same bytes again from memory rather than from disk.
+ */
+public class XLIFFHead {
+    /** The number of bytes looked at. */
+    public static final int HEAD_SIZE = 64 * 1024;
+
+    private static final String XLIFF12_NS = "urn:oasis:names:tc:xliff:document:1.2";
+    private static final String XLIFF20_NS = "urn:oasis:names:tc:xliff:document:2.0";
+
+    private final XLIFFVersion version;
+    private final String encoding;
+    private final boolean bom;
+    private final String sourceLang, targetLang;
+
+    XLIFFHead(XLIFFVersion version, String encoding, boolean bom,
+            String sourceLang, String targetLang) {
+        this.version = version;
+        this.encoding = encoding;
+        this.bom = bom;
+        this.sourceLang = sourceLang;
+        this.targetLang = targetLang;
+    }
+
+    public XLIFFVersion getVersion() {
+        return version;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public boolean hasBOM() {
+        return bom;
+    }
+
+    /**
+     * @return the source language, or null if the head doesn't declare it
+     */
+    public String getSourceLang() {
+        return sourceLang;
+    }
+
+    /**
+     * @return the target language, or null if the head doesn't declare it
+     */
+    public String getTargetLang() {
+        return targetLang;
+    }
+
+    /**
+     * Reads the head of an XLIFF file, leaving the stream where it was.
+     * @param in a stream supporting {@link InputStream#mark(int)} for at least
+     * {@link #HEAD_SIZE} bytes, such as a {@link java.io.BufferedInputStream}
+     * of that size
+     * @throws IllegalStateException if the head isn't the start of an XLIFF
+     * document
+     */
+    public static XLIFFHead read(InputStream in) throws IOException, XMLStreamException {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("The stream must support mark()");
+        }
+        in.mark(HEAD_SIZE);
+        byte[] head = new byte[HEAD_SIZE];
+        int length = 0;
+        try {
+            int read;
+            while (length < HEAD_SIZE && (read = in.read(head, length, HEAD_SIZE - length)) != -1) {
+                length += read;
+            }
+        } finally {
+            in.reset();
+        }
+        return parse(head, length);
+    }
+
+    static XLIFFHead parse(byte[] head, int length) throws IOException, XMLStreamException {
+        BOMInputStream bomIn = new BOMInputStream(new ByteArrayInputStream(head, 0, length),
+                ByteOrderMark.UTF_8, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_16LE,
+                ByteOrderMark.UTF_32BE, ByteOrderMark.UTF_32LE);
+        boolean bom = bomIn.hasBOM();
+        String encoding = bom ? bomIn.getBOMCharsetName() : null;
+
+        XMLInputFactory xml = XMLInputFactory.newInstance();
+        xml.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XMLStreamReader reader = encoding != null
+                ? xml.createXMLStreamReader(bomIn, encoding)
+                : xml.createXMLStreamReader(bomIn);
+        XLIFFVersion version = null;
+        String sourceLang = null, targetLang = null;
+        try {
+            if (encoding == null) {
+                encoding = reader.getCharacterEncodingScheme() != null
+                        ? reader.getCharacterEncodingScheme() : "UTF-8";
+            }
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String localPart = reader.getLocalName();
+                if (version == null && localPart.equals("xliff")) {
+                    version = XLIFFVersion.XLIFF12;
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        QName name = reader.getAttributeName(i);
+                        if (isXliffVersionAttributeName(name)
+                                && "2.0".equals(reader.getAttributeValue(i))) {
+                            version = XLIFFVersion.XLIFF20;
+                        }
+                    }
+                    if (version == XLIFFVersion.XLIFF20) {
+                        sourceLang = reader.getAttributeValue(null, "srcLang");
+                        targetLang = reader.getAttributeValue(null, "trgLang");
+                        break;
+                    }
+                } else if (version == XLIFFVersion.XLIFF12 && localPart.equals("file")) {
+                    sourceLang = reader.getAttributeValue(null, "source-language");
+                    targetLang = reader.getAttributeValue(null, "target-language");
+                    break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            // The head may end in the middle of an element; that is only an
+            // error if the version hasn't been seen by then
+            if (version == null && length < HEAD_SIZE) {
+                throw e;
+            }
+        } finally {
+            reader.close();
+        }
+        if (version == null) {
+            throw new IllegalStateException("Could not detect XLIFF version");
+        }
+        return new XLIFFHead(version, encoding, bom, sourceLang, targetLang);
+    }
+
+    // The XLIFF spec is unclear on whether @version is namespaced.  My assumption
+    // is no, it is not namespaced, but just in case other implementations disagree,
+    // we'll be permissive.
+    private static boolean isXliffVersionAttributeName(QName name) {
+        if (!"version".equals(name.getLocalPart())) return false;
+        String ns = name.getNamespaceURI();
+        return (ns == null || "".equals(ns) ||
+                XLIFF12_NS.equals(ns) || XLIFF20_NS.equals(ns));
+    }
+}
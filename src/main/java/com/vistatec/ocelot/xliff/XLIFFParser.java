@@ -4,12 +4,25 @@ import com.vistatec.ocelot.segment.model.OcelotSegment;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 public interface XLIFFParser {
     public List<OcelotSegment> parse(File xliffFile) throws IOException;
 
+    /**
+     * Parses a document whose head has already been read. The stream is
+     * positioned at the start of the document, and is closed by the caller.
+     */
+    public List<OcelotSegment> parse(InputStream in, XLIFFHead head) throws IOException;
+
     public String getSourceLang();
 
     public String getTargetLang();
+
+    /**
+     * Releases what the parser holds for the parsed document outside the
+     * heap, such as temporary files. The document can't be saved afterwards.
+     */
+    public void close();
 }
@@ -28,17 +28,30 @@
  */
 package com.vistatec.ocelot.xliff.okapi;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLStreamException;
 
 import net.sf.okapi.common.Event;
-import net.sf.okapi.common.FileUtil;
 import net.sf.okapi.common.IResource;
 import net.sf.okapi.common.LocaleId;
 import net.sf.okapi.common.annotation.AltTranslation;
@@ -60,6 +73,7 @@ import net.sf.okapi.common.resource.TextContainer;
 import net.sf.okapi.filters.xliff.Parameters;
 import net.sf.okapi.filters.xliff.XLIFFFilter;
 
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,6 +91,7 @@ import com.vistatec.ocelot.segment.model.okapi.Note;
 import com.vistatec.ocelot.segment.model.okapi.Notes;
 import com.vistatec.ocelot.segment.model.okapi.OkapiSegment;
 import com.vistatec.ocelot.segment.model.okapi.TextContainerVariant;
+import com.vistatec.ocelot.xliff.XLIFFHead;
 import com.vistatec.ocelot.xliff.XLIFFParser;
 import com.vistatec.ocelot.xliff.freme.EnrichmentConverterXLIFF12;
 
@@ -84,6 +99,13 @@ import com.vistatec.ocelot.xliff.freme.EnrichmentConverterXLIFF12;
  * Parse XLIFF file for use in the workbench. The Event list is used when
  * writing out files through Okapi; updates to the workbench segments must then
  * be reflected(synchronized) in the proper Event.
+ * <p>
+ * When spilling events, the Event list isn't kept: the file is copied to a
+ * compressed temporary file instead, and the events are read again from it
+ * when saving, with the text units holding the content of the workbench
+ * segments. This roughly halves the memory needed for a file, at the cost of
+ * parsing it again on save. The temporary file is deleted when the parser is
+ * closed, or when the JVM exits.
  */
 public class OkapiXLIFF12Parser implements XLIFFParser {
 	private static Logger LOG = LoggerFactory
@@ -94,6 +116,26 @@ public class OkapiXLIFF12Parser implements XLIFFParser {
 	private String sourceLang, targetLang;
 	private EnrichmentConverterXLIFF12 enrichmentConverter;
 
+	/** Spill files that haven't been deleted yet, deleted on exit. */
+	private static final Set<File> liveSpillFiles = Collections
+	        .newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("ocelot-spill-cleanup") {
+			@Override
+			public void run() {
+				for (File file : liveSpillFiles) {
+					file.delete();
+				}
+			}
+		});
+	}
+
+	private boolean spillEvents;
+	private File spillFile;
+	private XLIFFHead spillHead;
+	private Map<Integer, OkapiSegment> spilledSegments;
+
 	@Override
 	public String getSourceLang() {
 		return this.sourceLang;
@@ -113,53 +155,121 @@ public class OkapiXLIFF12Parser implements XLIFFParser {
 	}
 
 	public Event getSegmentEvent(int segEventNumber) {
+		checkEventsKept();
 		return this.events.get(segEventNumber);
 	}
 
 	public List<Event> getSegmentEvents() {
+		checkEventsKept();
 		return this.events;
 	}
 
+	private void checkEventsKept() {
+		if (spillEvents) {
+			throw new IllegalStateException(
+			        "The events have been spilled, use readSpilledEvents()");
+		}
+	}
+
+	/**
+	 * Sets whether the events are spilled to a temporary file rather than
+	 * kept in memory. Must be set before parsing.
+	 */
+	public void setSpillEvents(boolean spillEvents) {
+		this.spillEvents = spillEvents;
+	}
+
+	public boolean isSpillingEvents() {
+		return spillEvents;
+	}
+
+	/**
+	 * @return the temporary file holding the events, or null
+	 */
+	File getSpillFile() {
+		return spillFile;
+	}
+
+	/**
+	 * @return the segment parsed from the text unit of an event, when spilling
+	 *         events
+	 */
+	public OkapiSegment getSpilledSegment(int segEventNumber) {
+		return spilledSegments.get(segEventNumber);
+	}
+
 	@Override
 	public List<OcelotSegment> parse(File xliffFile) throws IOException {
-		events = new LinkedList<Event>();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(
+		        xliffFile), XLIFFHead.HEAD_SIZE)) {
+			return parse(in, XLIFFHead.read(in));
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not read the head of " + xliffFile, e);
+		}
+	}
+
+	@Override
+	public List<OcelotSegment> parse(InputStream is, XLIFFHead head)
+	        throws IOException {
+		if (!spillEvents) {
+			return parseEvents(is, head);
+		}
+		boolean parsed = false;
+		try {
+			writeSpillFile(is);
+			spillHead = head;
+			spilledSegments = new HashMap<Integer, OkapiSegment>();
+			List<OcelotSegment> segments;
+			try (InputStream spilled = openSpillFile()) {
+				segments = parseEvents(spilled, head);
+			}
+			parsed = true;
+			return segments;
+		} finally {
+			if (!parsed) {
+				deleteSpillFile();
+			}
+		}
+	}
+
+	/**
+	 * Deletes the spill file, if any. The document can't be saved after
+	 * that.
+	 */
+	@Override
+	public void close() {
+		deleteSpillFile();
+		spilledSegments = null;
+	}
+
+	private List<OcelotSegment> parseEvents(InputStream is, XLIFFHead head)
+	        throws IOException {
+		events = spillEvents ? null : new LinkedList<Event>();
 		List<OcelotSegment> segments = new LinkedList<OcelotSegment>();
 		documentSegmentNum = 1;
 
-		List<String> locales = FileUtil.guessLanguages(xliffFile
-		        .getAbsolutePath());
-		LocaleId sourceLocale = null, targetLocale = null;
-		sourceLocale = (locales.size() >= 1) ? LocaleId.fromString(locales
-		        .get(0)) : LocaleId.EMPTY;
-		targetLocale = (locales.size() >= 2) ? LocaleId.fromString(locales
-		        .get(1)) : LocaleId.EMPTY;
-
-		FileInputStream is = new FileInputStream(xliffFile);
-		RawDocument fileDoc = new RawDocument(is, "UTF-8", sourceLocale,
-		        targetLocale);
-		this.filter = new XLIFFFilter();
-		Parameters filterParams = new Parameters();
-		filterParams.setAddAltTrans(true);
-		this.filter.setParameters(filterParams);
+		// The languages of the first file element, read with the head
+		LocaleId sourceLocale = head.getSourceLang() != null ? LocaleId
+		        .fromString(head.getSourceLang()) : LocaleId.EMPTY;
+		LocaleId targetLocale = head.getTargetLang() != null ? LocaleId
+		        .fromString(head.getTargetLang()) : LocaleId.EMPTY;
+
+		RawDocument fileDoc = new RawDocument(is, head.getEncoding(),
+		        sourceLocale, targetLocale);
+		this.filter = createFilter();
 		this.filter.open(fileDoc);
 		int fileEventNum = 0;
 
 		while (this.filter.hasNext()) {
 			Event event = this.filter.next();
-			events.add(event);
+			if (events != null) {
+				events.add(event);
+			}
 
 			if (event.isStartSubDocument()) {
 				StartSubDocument fileElement = (StartSubDocument) event
 				        .getResource();
-				XLIFFToolAnnotation toolAnn = fileElement
-				        .getAnnotation(XLIFFToolAnnotation.class);
-				if (toolAnn == null) {
-					toolAnn = new XLIFFToolAnnotation();
-					fileElement.setAnnotation(toolAnn);
-				}
-				if (toolAnn.get("Ocelot") == null) {
-					toolAnn.add(new XLIFFTool("Ocelot", "Ocelot"), fileElement);
-				}
+				addOcelotTool(fileElement);
 				if (fileElement.getProperty("sourceLanguage") != null) {
 					String fileSourceLang = fileElement.getProperty(
 					        "sourceLanguage").getValue();
@@ -184,14 +294,152 @@ public class OkapiXLIFF12Parser implements XLIFFParser {
 
 			} else if (event.isTextUnit()) {
 				ITextUnit tu = (ITextUnit) event.getResource();
-				segments.add(convertTextUnitToSegment(tu, fileEventNum));
+				OkapiSegment segment = convertTextUnitToSegment(tu, fileEventNum);
+				segments.add(segment);
+				if (spilledSegments != null) {
+					spilledSegments.put(fileEventNum, segment);
+				}
 			}
 			fileEventNum++;
 		}
-		is.close();
 		return segments;
 	}
 
+	private static void addOcelotTool(StartSubDocument fileElement) {
+		XLIFFToolAnnotation toolAnn = fileElement
+		        .getAnnotation(XLIFFToolAnnotation.class);
+		if (toolAnn == null) {
+			toolAnn = new XLIFFToolAnnotation();
+			fileElement.setAnnotation(toolAnn);
+		}
+		if (toolAnn.get("Ocelot") == null) {
+			toolAnn.add(new XLIFFTool("Ocelot", "Ocelot"), fileElement);
+		}
+	}
+
+	private XLIFFFilter createFilter() {
+		XLIFFFilter xliffFilter = new XLIFFFilter();
+		Parameters filterParams = new Parameters();
+		filterParams.setAddAltTrans(true);
+		xliffFilter.setParameters(filterParams);
+		return xliffFilter;
+	}
+
+	private void writeSpillFile(InputStream is) throws IOException {
+		deleteSpillFile();
+		spillFile = File.createTempFile("ocelot-events-", ".xlf.gz");
+		liveSpillFiles.add(spillFile);
+		try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(
+		        new FileOutputStream(spillFile)))) {
+			IOUtils.copy(is, out);
+		}
+	}
+
+	private void deleteSpillFile() {
+		if (spillFile != null) {
+			if (!spillFile.delete() && spillFile.exists()) {
+				LOG.warn("Could not delete " + spillFile);
+			}
+			liveSpillFiles.remove(spillFile);
+			spillFile = null;
+		}
+	}
+
+	private InputStream openSpillFile() throws IOException {
+		return new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+		        spillFile)));
+	}
+
+	/**
+	 * Reads the events again from the spill file, for saving. The text units
+	 * are given the source and target containers of their segments, so they
+	 * hold the current content of the segments; any other change must be
+	 * applied to them again.
+	 */
+	public SpilledEvents readSpilledEvents() throws IOException {
+		if (!spillEvents || spillFile == null) {
+			throw new IllegalStateException("No events have been spilled");
+		}
+		return new SpilledEvents();
+	}
+
+	/**
+	 * The events of a spilled file, numbered as when it was parsed.
+	 */
+	public class SpilledEvents implements Iterator<Event>, Closeable {
+		private final RawDocument fileDoc;
+		private final XLIFFFilter spilledFilter;
+		private int eventNum = 0;
+
+		private SpilledEvents() throws IOException {
+			LocaleId sourceLocale = spillHead.getSourceLang() != null ? LocaleId
+			        .fromString(spillHead.getSourceLang()) : LocaleId.EMPTY;
+			LocaleId targetLocale = spillHead.getTargetLang() != null ? LocaleId
+			        .fromString(spillHead.getTargetLang()) : LocaleId.EMPTY;
+			fileDoc = new RawDocument(openSpillFile(), spillHead.getEncoding(),
+			        sourceLocale, targetLocale);
+			spilledFilter = createFilter();
+			spilledFilter.open(fileDoc);
+		}
+
+		public XLIFFFilter getFilter() {
+			return spilledFilter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return spilledFilter.hasNext();
+		}
+
+		@Override
+		public Event next() {
+			Event event = spilledFilter.next();
+			if (event.isStartSubDocument()) {
+				StartSubDocument fileElement = event.getStartSubDocument();
+				addOcelotTool(fileElement);
+				if (fileElement.getProperty("sourceLanguage") != null) {
+					fileDoc.setSourceLocale(LocaleId.fromString(fileElement
+					        .getProperty("sourceLanguage").getValue()));
+				}
+				if (fileElement.getProperty("targetLanguage") != null) {
+					fileDoc.setTargetLocale(LocaleId.fromString(fileElement
+					        .getProperty("targetLanguage").getValue()));
+				}
+			} else if (event.isTextUnit()) {
+				restoreSegmentContent(event.getTextUnit(),
+				        spilledSegments.get(eventNum));
+			}
+			eventNum++;
+			return event;
+		}
+
+		private void restoreSegmentContent(ITextUnit tu, OkapiSegment segment) {
+			if (segment == null) {
+				return;
+			}
+			tu.setSource(((TextContainerVariant) segment.getSource())
+			        .getTextContainer());
+			// The same target locale as chosen when parsing
+			Set<LocaleId> targetLocales = tu.getTargetLocales();
+			LocaleId targetLocale = targetLocales.isEmpty() ? LocaleId
+			        .fromString(getTargetLang()) : targetLocales.iterator()
+			        .next();
+			tu.setTarget(targetLocale, ((TextContainerVariant) segment
+			        .getTarget()).getTextContainer());
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			spilledFilter.close();
+			fileDoc.close();
+		}
+	}
+
 	public OkapiSegment convertTextUnitToSegment(ITextUnit tu, int fileEventNum) {
 		TextContainer srcTu = tu.getSource();
 		TextContainer tgtTu = new TextContainer();
@@ -43,7 +43,9 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -104,35 +106,55 @@ public class OkapiXLIFF12Writer implements XLIFFWriter {
     @Override
     public void updateSegment(OcelotSegment seg) {
         OkapiSegment okapiSeg = (OkapiSegment) seg;
+        if (getParser().isSpillingEvents()) {
+            // The text unit is updated when it is read again on save, but the
+            // Ocelot provenance is added to the segment now
+            addOcelotProvenance(okapiSeg);
+            updatedSegmentEvents.add(okapiSeg.eventNum);
+            return;
+        }
         Event event = getParser().getSegmentEvent(okapiSeg.eventNum);
         if (event == null) {
             LOG.error("Failed to find Okapi Event associated with segment #"+okapiSeg.getSegmentNumber());
 
         } else if (event.isTextUnit()) {
-            ITextUnit textUnit = event.getTextUnit();
-            String rwRef = "RW" + okapiSeg.getSegmentNumber();
-
-            updateITSLQIAnnotations(textUnit, okapiSeg, rwRef);
-
-            ITSProvenanceAnnotations provAnns = addOcelotProvenance(okapiSeg);
-            if (provAnns.getAllAnnotations().size() > 0) {
-                textUnit.setProperty(new Property(Property.ITS_PROV, " its:provenanceRecordsRef=\"#" + rwRef + "\""));
-                provAnns.setData(rwRef);
-                textUnit.setAnnotation(provAnns);
-            }
-
-            if (okapiSeg.hasOriginalTarget()) {
-                // Make sure the Okapi Event is aware that the target has changed.
-                textUnit.setTarget(LocaleId.fromString(parser.getTargetLang()), unwrap(okapiSeg.getTarget()));
-                updateOriginalTarget(okapiSeg);
-            }
+            updateTextUnit(event.getTextUnit(), okapiSeg, true);
         } else {
             LOG.error("Event associated with Segment was not an Okapi TextUnit!");
             LOG.error("Failed to update event for segment #"+okapiSeg.getSegmentNumber());
         }
     }
 
+    private void updateTextUnit(ITextUnit textUnit, OkapiSegment okapiSeg,
+            boolean notifyProvenance) {
+        String rwRef = "RW" + okapiSeg.getSegmentNumber();
+
+        updateITSLQIAnnotations(textUnit, okapiSeg, rwRef);
+
+        ITSProvenanceAnnotations provAnns = addOcelotProvenance(okapiSeg, notifyProvenance);
+        if (provAnns.getAllAnnotations().size() > 0) {
+            textUnit.setProperty(new Property(Property.ITS_PROV, " its:provenanceRecordsRef=\"#" + rwRef + "\""));
+            provAnns.setData(rwRef);
+            textUnit.setAnnotation(provAnns);
+        }
+
+        if (okapiSeg.hasOriginalTarget()) {
+            // Make sure the Okapi Event is aware that the target has changed.
+            textUnit.setTarget(LocaleId.fromString(parser.getTargetLang()), unwrap(okapiSeg.getTarget()));
+            updateOriginalTarget(okapiSeg);
+        }
+    }
+
     ITSProvenanceAnnotations addOcelotProvenance(OcelotSegment seg) {
+        return addOcelotProvenance(seg, true);
+    }
+
+    /**
+     * @param notify whether the user provenance is also added to the segment,
+     * if it doesn't have it yet. When spilling events, that is done on update,
+     * and it is only added to the text unit on save.
+     */
+    private ITSProvenanceAnnotations addOcelotProvenance(OcelotSegment seg, boolean notify) {
         ITSProvenanceAnnotations provAnns = new ITSProvenanceAnnotations();
         for (Provenance prov : seg.getProvenance()) {
             String revPerson = prov.getRevPerson();
@@ -162,8 +184,10 @@ public class OkapiXLIFF12Writer implements XLIFFWriter {
                     GenericAnnotationType.PROV_REVORG, userProvenance.getRevOrg(),
                     GenericAnnotationType.PROV_PROVREF, userProvenance.getProvRef());
             provAnns.add(provGA);
-            Provenance ocelotProv = new OkapiProvenance(provGA);
-            eventQueue.post(new ProvenanceAddEvent(ocelotProv, seg, true));
+            if (notify) {
+                Provenance ocelotProv = new OkapiProvenance(provGA);
+                eventQueue.post(new ProvenanceAddEvent(ocelotProv, seg, true));
+            }
         }
 
         return provAnns;
@@ -248,14 +272,28 @@ public class OkapiXLIFF12Writer implements XLIFFWriter {
 
     @Override
     public void save(File source) throws UnsupportedEncodingException, FileNotFoundException, IOException {
-        saveEvents(parser.getFilter(), parser.getSegmentEvents(),
-                source.getAbsolutePath(), LocaleId.fromString(parser.getTargetLang()));
+        LocaleId locId = LocaleId.fromString(parser.getTargetLang());
+        if (parser.isSpillingEvents()) {
+            try (OkapiXLIFF12Parser.SpilledEvents events = parser.readSpilledEvents()) {
+                saveEvents(events.getFilter(), events, source.getAbsolutePath(), locId);
+            }
+        } else {
+            saveEvents(parser.getFilter(), parser.getSegmentEvents().iterator(),
+                    source.getAbsolutePath(), locId);
+        }
     }
 
     // HACK fix for OC-21.  As of M23, the XLIFF Filter doesn't properly manage
     // ITS namespace insertion for all cases, so we insert it into the <xliff> element
     // if one isn't already present.
     private boolean foundXliffElement = false;
+
+    // The events of the segments updated since the file was opened, when
+    // spilling events
+    private final Set<Integer> updatedSegmentEvents =
+            Collections.synchronizedSet(new HashSet<Integer>());
+    private final Set<Integer> updatedNoteEvents =
+            Collections.synchronizedSet(new HashSet<Integer>());
     private static final Pattern XLIFF_ELEMENT_PATTERN = Pattern.compile("(.*<xliff)([^>]*)(>.*)");
     private static final Pattern ITS_NAMESPACE_PATTERN = Pattern.compile("xmlns(:[^=]+)?=\"" + Namespaces.ITS_NS_URI + "\"");
 
@@ -263,40 +301,64 @@ public class OkapiXLIFF12Writer implements XLIFFWriter {
     public void updateNotes(OcelotSegment seg) {
 	    // TODO: refactor some of this code with updateSegment
 	    OkapiSegment okapiSeg = (OkapiSegment) seg;
+        if (getParser().isSpillingEvents()) {
+            updatedNoteEvents.add(okapiSeg.eventNum);
+            return;
+        }
         Event event = getParser().getSegmentEvent(okapiSeg.eventNum);
         if (event == null) {
             LOG.error("Failed to find Okapi Event associated with segment #"+okapiSeg.getSegmentNumber());
 
         } else if (event.isTextUnit()) {
-            ITextUnit textUnit = event.getTextUnit();
-
-            Note note = seg.getNotes().getOcelotNote();
-            if (note == null) {
-                // The note has been removed, so we should clear the content
-                textUnit.removeProperty(Property.NOTE);
-                return;
-            }
-            String noteText = note.getContent();
-            Property prop = textUnit.getProperty(Property.NOTE);
-            if (prop == null) {
-                prop = new Property(Property.NOTE, noteText);
-                textUnit.setProperty(prop);
-            }
-            else {
-                prop.setValue(noteText);
-            }
-            LOG.info("Updated note for " + seg.getTuId() + " to '" + noteText + "'");
+            updateNotes(event.getTextUnit(), seg);
         } else {
             LOG.error("Event associated with Segment was not an Okapi TextUnit!");
             LOG.error("Failed to update event for segment #"+okapiSeg.getSegmentNumber());
         }
     }
 
-    private void saveEvents(IFilter filter, List<Event> events, String output, LocaleId locId) throws UnsupportedEncodingException, FileNotFoundException, IOException {
+    private void updateNotes(ITextUnit textUnit, OcelotSegment seg) {
+        Note note = seg.getNotes().getOcelotNote();
+        if (note == null) {
+            // The note has been removed, so we should clear the content
+            textUnit.removeProperty(Property.NOTE);
+            return;
+        }
+        String noteText = note.getContent();
+        Property prop = textUnit.getProperty(Property.NOTE);
+        if (prop == null) {
+            prop = new Property(Property.NOTE, noteText);
+            textUnit.setProperty(prop);
+        }
+        else {
+            prop.setValue(noteText);
+        }
+        LOG.info("Updated note for " + seg.getTuId() + " to '" + noteText + "'");
+    }
+
+    /**
+     * Applies the updates of the segments to a text unit read again from
+     * the spill file.
+     */
+    private ITextUnit applySpilledUpdates(ITextUnit textUnit, int eventNum) {
+        if (updatedSegmentEvents.contains(eventNum)) {
+            updateTextUnit(textUnit, parser.getSpilledSegment(eventNum), false);
+        }
+        if (updatedNoteEvents.contains(eventNum)) {
+            updateNotes(textUnit, parser.getSpilledSegment(eventNum));
+        }
+        return textUnit;
+    }
+
+    private void saveEvents(IFilter filter, Iterator<Event> events, String output, LocaleId locId) throws UnsupportedEncodingException, FileNotFoundException, IOException {
         StringBuilder tmp = new StringBuilder();
         ISkeletonWriter skelWriter = filter.createSkeletonWriter();
         EncoderManager encoderManager = filter.getEncoderManager();
-        for (Event event : events) {
+        // Spilled events are read again, so the namespace fix must be
+        // applied on every save
+        foundXliffElement = false;
+        for (int eventNum = 0; events.hasNext(); eventNum++) {
+            Event event = events.next();
             switch (event.getEventType()) {
                 case START_DOCUMENT:
                     tmp.append(skelWriter.processStartDocument(locId, "UTF-8", null, encoderManager,
@@ -312,7 +374,8 @@ public class OkapiXLIFF12Writer implements XLIFFWriter {
                     tmp.append(skelWriter.processEndSubDocument(event.getEnding()));
                     break;
                 case TEXT_UNIT:
-                    tmp.append(skelWriter.processTextUnit(event.getTextUnit()));
+                    tmp.append(skelWriter.processTextUnit(
+                            applySpilledUpdates(event.getTextUnit(), eventNum)));
                     break;
                 case DOCUMENT_PART:
                     tmp.append(skelWriter.processDocumentPart(
@@ -30,15 +30,14 @@ package com.vistatec.ocelot.xliff.okapi;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -63,7 +62,6 @@ import net.sf.okapi.lib.xliff2.its.Provenances;
 import net.sf.okapi.lib.xliff2.reader.Event;
 import net.sf.okapi.lib.xliff2.reader.XLIFFReader;
 
-import com.ibm.icu.text.SimpleDateFormat;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.its.model.Provenance;
 import com.vistatec.ocelot.its.model.okapi.OkapiProvenance;
@@ -76,6 +74,8 @@ import com.vistatec.ocelot.segment.model.okapi.FragmentVariant;
 import com.vistatec.ocelot.segment.model.okapi.Notes;
 import com.vistatec.ocelot.segment.model.okapi.OcelotRevision;
 import com.vistatec.ocelot.segment.model.okapi.OkapiSegment;
+import com.vistatec.ocelot.segment.model.okapi.RevisionDates;
+import com.vistatec.ocelot.xliff.XLIFFHead;
 import com.vistatec.ocelot.xliff.XLIFFParser;
 import com.vistatec.ocelot.xliff.freme.EnrichmentConverterXLIFF20;
 
@@ -83,9 +83,6 @@ import com.vistatec.ocelot.xliff.freme.EnrichmentConverterXLIFF20;
  * Parse XLIFF 2.0 file for use in the workbench.
  */
 public class OkapiXLIFF20Parser implements XLIFFParser {
-	private static final String DATETIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ssX";
-	private final SimpleDateFormat dateFormatter = new SimpleDateFormat(
-	        DATETIME_PATTERN);
 	private List<Event> events;
 	private List<net.sf.okapi.lib.xliff2.core.Segment> segmentUnitParts;
 	private List<TargetVersion> targetVersions;
@@ -111,8 +108,36 @@ public class OkapiXLIFF20Parser implements XLIFFParser {
 		return this.targetVersions.get(segmentUnitPartIndex);
 	}
 
+	/**
+	 * Gets the revisions of a segment target, newest first. They are only
+	 * read from the change tracking data when first asked for.
+	 */
+	public List<OcelotRevision> getTargetRevisions(int segmentUnitPartIndex) {
+		return this.targetVersions.get(segmentUnitPartIndex).getRevisions();
+	}
+
 	@Override
 	public List<OcelotSegment> parse(File xliffFile) throws IOException {
+		XLIFFReader reader = new XLIFFReader();
+		reader.open(xliffFile);
+		return parse(reader);
+	}
+
+	@Override
+	public List<OcelotSegment> parse(InputStream in, XLIFFHead head)
+	        throws IOException {
+		// The languages are read from the xliff element by the reader
+		XLIFFReader reader = new XLIFFReader();
+		reader.open(in);
+		return parse(reader);
+	}
+
+	@Override
+	public void close() {
+		// Nothing is kept outside the heap
+	}
+
+	private List<OcelotSegment> parse(XLIFFReader reader) {
 		List<OcelotSegment> segments = new LinkedList<>();
 		segmentEventMapping = new HashMap<Integer, Integer>();
 		events = new LinkedList<Event>();
@@ -121,8 +146,6 @@ public class OkapiXLIFF20Parser implements XLIFFParser {
 		this.documentSegmentNum = 1;
 		int segmentUnitPartIndex = 0;
 
-		XLIFFReader reader = new XLIFFReader();
-		reader.open(xliffFile);
 		while (reader.hasNext()) {
 			Event event = reader.next();
 			this.events.add(event);
@@ -181,7 +204,10 @@ List<Enrichment> sourceEnrichments = enrichmentConverter.retrieveEnrichments(uni
 
 	/**
 	 * Sets the revisions of the target for this segment if a
-	 * {@link ChangeTrack} object exists for the segment.
+	 * {@link ChangeTrack} object exists for the segment. The revisions are
+	 * read in a single pass, keeping only what opening the file needs: the
+	 * oldest text as the original target, the text of the current version,
+	 * and the highest version number.
 	 * 
 	 * @param unit the xliff unit
 	 * @param okapiSegment
@@ -194,50 +220,36 @@ List<Enrichment> sourceEnrichments = enrichmentConverter.retrieveEnrichments(uni
 	        OcelotSegment ocelotSegment) {
 
 		if (unit.hasChangeTrack()) {
-			List<OcelotRevision> ocelotRevisions = new ArrayList<OcelotRevision>();
-			Revisions targetRevisions = null;
-			Iterator<Revisions> revsIt = unit.getChangeTrack().iterator();
-			Revisions revs = null;
-			while (revsIt.hasNext()) {
-				revs = revsIt.next();
-				if (revs.getAppliesTo().equals(Const.ELEM_TARGET)) {
-					targetRevisions = revs;
-					break;
+			Revisions targetRevisions = findTargetRevisions(unit);
+			if (targetRevisions == null) {
+				if (ocelotSegment.getTarget().getDisplayText().isEmpty()) {
+					targetVersions.add(new TargetVersion(TargetVersion.VERSION_PREFIX + "1"));
+					return;
 				}
-			}
-			if (targetRevisions != null) {
-				for (Revision rev : targetRevisions) {
-					Iterator<Item> itemsIt = rev.iterator();
-					Item currItem = null;
-					while (itemsIt.hasNext()) {
-						currItem = itemsIt.next();
-						if (currItem.getProperty().equals(
-						        Item.PROPERTY_CONTENT_VALUE)) {
-							ocelotRevisions.add(new OcelotRevision(rev,
-							        currItem));
-						}
-					}
-				}
-			} else if (!ocelotSegment.getTarget().getDisplayText().isEmpty()) {
 				targetRevisions = createRevisionsForTarget(okapiSegment
 				        .getTarget());
 				unit.getChangeTrack().add(targetRevisions);
-				ocelotRevisions.add(new OcelotRevision(targetRevisions.get(0),
-				        targetRevisions.get(0).get(0)));
 			}
-			if (!ocelotRevisions.isEmpty()) {
-				Collections.sort(ocelotRevisions,
-				        new OcelotRevisionComparator());
-				if (ocelotRevisions.size() > 1) {
-					List<SegmentAtom> atoms = new ArrayList<SegmentAtom>();
-					TextAtom origTrgtAtom = new TextAtom(ocelotRevisions.get(ocelotRevisions.size() - 1).getText());
-					atoms.add(origTrgtAtom);
-					FragmentVariant origTargetVar = new FragmentVariant(atoms, true);
-					ocelotSegment.setOriginalTarget(origTargetVar);
-				}
-				
-				int nextVersion = 1;
-				for (OcelotRevision rev : ocelotRevisions) {
+			int contentItems = 0;
+			int nextVersion = 1;
+			String oldestText = null, currentText = null;
+			long oldest = Long.MAX_VALUE;
+			for (Revision rev : targetRevisions) {
+				for (Item item : rev) {
+					if (!item.getProperty().equals(Item.PROPERTY_CONTENT_VALUE)) {
+						continue;
+					}
+					contentItems++;
+					// The last of the oldest, as after a stable sort by date
+					long datetime = RevisionDates.parse(rev.getDatetime());
+					if (datetime <= oldest) {
+						oldest = datetime;
+						oldestText = item.getText();
+					}
+					if (currentText == null
+					        && rev.getVersion().equals(targetRevisions.getCurrentVersion())) {
+						currentText = item.getText();
+					}
 					if (rev.getVersion().startsWith(TargetVersion.VERSION_PREFIX)) {
 						int revNum = Integer.parseInt(rev.getVersion()
 						        .substring(TargetVersion.VERSION_PREFIX.length()));
@@ -246,41 +258,58 @@ List<Enrichment> sourceEnrichments = enrichmentConverter.retrieveEnrichments(uni
 						}
 					}
 				}
-				//check currentVersion and target
-				OcelotRevision currRev = null;
-				for(OcelotRevision ocelotRev: ocelotRevisions){
-					if(ocelotRev.getVersion().equals(targetRevisions.getCurrentVersion())){
-						currRev = ocelotRev;
-						break;
-					}
-				}
-				if(!currRev.getText().equals(okapiSegment.getTarget().getPlainText())) {
-					Item currTargetItem = new Item(Item.PROPERTY_CONTENT_VALUE);
-					currTargetItem.setText(okapiSegment.getTarget().getPlainText());
-					Revision revision = new Revision();
-					revision.setVersion(TargetVersion.VERSION_PREFIX + nextVersion++);
-					revision.setDatetime(dateFormatter.format(new Date()));
-					revision.add(currTargetItem);
-					targetRevisions.add(revision);
-					targetRevisions.setCurrentVersion(revision.getVersion());
-				}
-				targetVersions.add(new TargetVersion(TargetVersion.VERSION_PREFIX + nextVersion));
-			} else {
+			}
+			if (contentItems == 0) {
 				targetVersions.add(new TargetVersion(TargetVersion.VERSION_PREFIX + "1"));
+				return;
+			}
+			if (contentItems > 1) {
+				List<SegmentAtom> atoms = new ArrayList<SegmentAtom>();
+				atoms.add(new TextAtom(oldestText));
+				FragmentVariant origTargetVar = new FragmentVariant(atoms, true);
+				ocelotSegment.setOriginalTarget(origTargetVar);
 			}
+			//check currentVersion and target
+			if (currentText == null || !currentText.equals(okapiSegment.getTarget().getPlainText())) {
+				Item currTargetItem = new Item(Item.PROPERTY_CONTENT_VALUE);
+				currTargetItem.setText(okapiSegment.getTarget().getPlainText());
+				Revision revision = new Revision();
+				revision.setVersion(TargetVersion.VERSION_PREFIX + nextVersion++);
+				revision.setDatetime(RevisionDates.now());
+				revision.add(currTargetItem);
+				targetRevisions.add(revision);
+				targetRevisions.setCurrentVersion(revision.getVersion());
+			}
+			targetVersions.add(new TargetVersion(TargetVersion.VERSION_PREFIX + nextVersion,
+			        targetRevisions));
 
 		} else if (!ocelotSegment.getTarget().getDisplayText().isEmpty()) {
 			ChangeTrack changeTrack = new ChangeTrack();
 			unit.setChangeTrack(changeTrack);
-			changeTrack.add(createRevisionsForTarget(okapiSegment
-			        .getTarget()));
-			targetVersions.add(new TargetVersion(TargetVersion.VERSION_PREFIX + "2"));
+			Revisions targetRevisions = createRevisionsForTarget(okapiSegment
+			        .getTarget());
+			changeTrack.add(targetRevisions);
+			targetVersions.add(new TargetVersion(TargetVersion.VERSION_PREFIX + "2",
+			        targetRevisions));
 		} else {
 			targetVersions.add(new TargetVersion(TargetVersion.VERSION_PREFIX + "1"));
 		}
 	}
-	
-	
+
+	/**
+	 * @return the revisions of the unit that apply to the target, or null
+	 */
+	static Revisions findTargetRevisions(Unit unit) {
+		if (!unit.hasChangeTrack()) {
+			return null;
+		}
+		for (Revisions revs : unit.getChangeTrack()) {
+			if (revs.getAppliesTo().equals(Const.ELEM_TARGET)) {
+				return revs;
+			}
+		}
+		return null;
+	}
 	
 	private Revisions createRevisionsForTarget(Fragment target){
 		
@@ -288,7 +317,7 @@ List<Enrichment> sourceEnrichments = enrichmentConverter.retrieveEnrichments(uni
 		revisions.setAppliesTo(Const.ELEM_TARGET);
 		revisions.setCurrentVersion(TargetVersion.VERSION_PREFIX + "1");
 		Revision revision = new Revision();
-		revision.setDatetime(dateFormatter.format(new Date()));
+		revision.setDatetime(RevisionDates.now());
 		revision.setVersion(TargetVersion.VERSION_PREFIX + "1");
 		revisions.add(revision);
 		Item item = new Item(Item.PROPERTY_CONTENT_VALUE);
@@ -468,10 +497,6 @@ List<Enrichment> sourceEnrichments = enrichmentConverter.retrieveEnrichments(uni
 		}
 	}
 	
-	public SimpleDateFormat getRevisionDateFormatter(){
-		return dateFormatter;
-	}
-	
 	public String getFragmentPlainText(Fragment fragment ){
 		
 		StringBuilder plainText = new StringBuilder();
@@ -564,22 +589,35 @@ class OcelotRevisionComparator implements Comparator<OcelotRevision> {
 	@Override
 	public int compare(OcelotRevision o1, OcelotRevision o2) {
 
-		return (-1)
-		        * Long.valueOf(o1.getDatetimeAsDate().getTime()).compareTo(
-		                Long.valueOf(o2.getDatetimeAsDate().getTime()));
+		// Newest first
+		return o1.getDatetime() < o2.getDatetime() ? 1
+		        : o1.getDatetime() > o2.getDatetime() ? -1 : 0;
 	}
 
 }
 
+/**
+ * The version of a segment target written on the next save. The revision
+ * being written is kept once created, so that further updates of the target
+ * before the save only change its text.
+ */
 class TargetVersion {
 
 	static final String VERSION_PREFIX = "Rev";
 	private String version;
 	private boolean updated;
+	private Revisions targetRevisions;
+	private Item contentItem;
+	private List<OcelotRevision> revisions;
 
 	public TargetVersion(String version) {
 		this.version = version;
     }
+
+	public TargetVersion(String version, Revisions targetRevisions) {
+		this.version = version;
+		this.targetRevisions = targetRevisions;
+	}
 	
 	public String getVersion() {
 		return version;
@@ -597,6 +635,50 @@ class TargetVersion {
 		this.updated = updated;
 	}
 
+	/**
+	 * @return the unit revisions that apply to the target, or null if there
+	 *         are none yet
+	 */
+	public Revisions getTargetRevisions() {
+		return targetRevisions;
+	}
+
+	public void setTargetRevisions(Revisions targetRevisions) {
+		this.targetRevisions = targetRevisions;
+		this.revisions = null;
+	}
+
+	/**
+	 * @return the content item of the revision for this version, or null if
+	 *         it hasn't been created yet
+	 */
+	public Item getContentItem() {
+		return contentItem;
+	}
+
+	public void setContentItem(Item contentItem) {
+		this.contentItem = contentItem;
+		this.revisions = null;
+	}
+
+	public List<OcelotRevision> getRevisions() {
+		if (revisions == null) {
+			List<OcelotRevision> ocelotRevisions = new ArrayList<OcelotRevision>();
+			if (targetRevisions != null) {
+				for (Revision rev : targetRevisions) {
+					for (Item item : rev) {
+						if (item.getProperty().equals(Item.PROPERTY_CONTENT_VALUE)) {
+							ocelotRevisions.add(new OcelotRevision(rev, item));
+						}
+					}
+				}
+			}
+			Collections.sort(ocelotRevisions, new OcelotRevisionComparator());
+			revisions = ocelotRevisions;
+		}
+		return revisions;
+	}
+
 	public void nextVersion() {
 
 		if (updated) {
@@ -604,6 +686,8 @@ class TargetVersion {
 			        .parseInt(version.substring(VERSION_PREFIX.length()));
 			version = VERSION_PREFIX + (versionNum + 1);
 			updated = false;
+			contentItem = null;
+			revisions = null;
 		}
 	}
-}
\ No newline at end of file
+}
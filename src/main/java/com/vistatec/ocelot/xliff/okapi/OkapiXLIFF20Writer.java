@@ -36,8 +36,6 @@ import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
-import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 
 import net.sf.okapi.lib.xliff2.Const;
@@ -73,6 +71,7 @@ import com.vistatec.ocelot.segment.model.OcelotSegment;
 import com.vistatec.ocelot.segment.model.okapi.FragmentVariant;
 import com.vistatec.ocelot.segment.model.okapi.Note;
 import com.vistatec.ocelot.segment.model.okapi.OkapiSegment;
+import com.vistatec.ocelot.segment.model.okapi.RevisionDates;
 import com.vistatec.ocelot.xliff.XLIFFWriter;
 
 /**
@@ -174,65 +173,55 @@ public class OkapiXLIFF20Writer implements XLIFFWriter {
 	private void manageRevision(Event event, Segment unitPart, TargetVersion nextVersion) {
 
     	if(event.isUnit()){
-    		Unit unit =  event.getUnit();
-    		Item item = null;
-    		Date now = new Date();
-    		if(!unit.hasChangeTrack()){
-    			ChangeTrack changeTrack = new ChangeTrack();
-    			unit.setChangeTrack(changeTrack);
-    			Revisions revisions = createTargetRevisions(nextVersion.getVersion());
-    			changeTrack.add(revisions);
-    			Revision revision = createCurrentRevision(nextVersion.getVersion(), parser.getRevisionDateFormatter().format(now));
-    			revisions.add(revision);
-    			item = new Item();
-    			item.setProperty(Item.PROPERTY_CONTENT_VALUE);
-    			revision.add(item);
-    		} else {
-    			Revisions targetRevisions = null;
-    			Iterator<Revisions> revsIt = unit.getChangeTrack().iterator();
-    			Revisions revs = null;
-    			while(revsIt.hasNext()) {
-    				revs = revsIt.next();
-    				if(revs.getAppliesTo().equals(Const.ELEM_TARGET)){
-    					targetRevisions = revs;
-    					break;
-    				}
-    			}
-    			if(targetRevisions == null){
-    				targetRevisions = createTargetRevisions(nextVersion.getVersion());
-    				unit.getChangeTrack().add(targetRevisions);
-    			}
-    			Revision currentRevision = null;
-    			for(Revision rev: targetRevisions){
-    				if(rev.getVersion().equals(nextVersion.getVersion())){
-    					currentRevision = rev;
-    					break;
-    				}
-    			}
-    			if(currentRevision == null){
-    				currentRevision = createCurrentRevision(nextVersion.getVersion(), parser.getRevisionDateFormatter().format(now));
-    				targetRevisions.add(currentRevision);
-    				targetRevisions.setCurrentVersion(nextVersion.getVersion());
-    			}
-    			Iterator<Item> itemsIt = currentRevision.iterator();
-    			Item currItem = null;
-    			while(itemsIt.hasNext()){
-    				currItem = itemsIt.next();
-    				if(currItem.getProperty().equals(Item.PROPERTY_CONTENT_VALUE)){
-    					item = currItem;
-    					break;
-    				}
-    			}
-    			if(item == null){
-    				item = new Item();
-    				item.setProperty(Item.PROPERTY_CONTENT_VALUE);
-    				currentRevision.add(item);
-    			}
+    		// The revision of the next version is only looked up or created
+    		// on the first update; later updates just replace its text
+    		Item item = nextVersion.getContentItem();
+    		if(item == null){
+    			item = createContentItem(event.getUnit(), nextVersion);
+    			nextVersion.setContentItem(item);
     		}
     		item.setText(unitPart.getTarget().toString());
     		nextVersion.setUpdated(true);
     	}
     }
+
+	private Item createContentItem(Unit unit, TargetVersion nextVersion) {
+
+		Revisions targetRevisions = nextVersion.getTargetRevisions();
+		if(targetRevisions == null){
+			if(!unit.hasChangeTrack()){
+				unit.setChangeTrack(new ChangeTrack());
+			}
+			targetRevisions = OkapiXLIFF20Parser.findTargetRevisions(unit);
+			if(targetRevisions == null){
+				targetRevisions = createTargetRevisions(nextVersion.getVersion());
+				unit.getChangeTrack().add(targetRevisions);
+			}
+			nextVersion.setTargetRevisions(targetRevisions);
+		}
+		// Segments of the same unit share its revisions
+		Revision currentRevision = null;
+		for(Revision rev: targetRevisions){
+			if(rev.getVersion().equals(nextVersion.getVersion())){
+				currentRevision = rev;
+				break;
+			}
+		}
+		if(currentRevision == null){
+			currentRevision = createCurrentRevision(nextVersion.getVersion(), RevisionDates.now());
+			targetRevisions.add(currentRevision);
+			targetRevisions.setCurrentVersion(nextVersion.getVersion());
+		}
+		for(Item currItem: currentRevision){
+			if(currItem.getProperty().equals(Item.PROPERTY_CONTENT_VALUE)){
+				return currItem;
+			}
+		}
+		Item item = new Item();
+		item.setProperty(Item.PROPERTY_CONTENT_VALUE);
+		currentRevision.add(item);
+		return item;
+	}
     
     private Revisions createTargetRevisions(String version){
     	
@@ -28,25 +28,18 @@
  */
 package com.vistatec.ocelot.xliff.okapi;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.InputStream;
 
-import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
-
-import org.apache.commons.io.ByteOrderMark;
-import org.apache.commons.io.input.BOMInputStream;
 
 import com.vistatec.ocelot.config.UserProvenance;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.xliff.XLIFFFactory;
+import com.vistatec.ocelot.xliff.XLIFFHead;
 import com.vistatec.ocelot.xliff.XLIFFParser;
 import com.vistatec.ocelot.xliff.XLIFFVersion;
 import com.vistatec.ocelot.xliff.XLIFFWriter;
@@ -56,66 +49,28 @@ import com.vistatec.ocelot.xliff.XLIFFWriter;
  */
 public class OkapiXLIFFFactory implements XLIFFFactory {
 
+    /**
+     * System property to spill the Okapi events of XLIFF 1.2 files to disk
+     * rather than keep them in memory, for opening large files with a small
+     * heap.
+     */
+    public static final String SPILL_EVENTS_PROPERTY = "ocelot.spillEvents";
+
     @Override
     public XLIFFVersion detectXLIFFVersion(File detectVersion) throws IOException, XMLStreamException {
-        try (BOMInputStream bomInputStream = new BOMInputStream(new FileInputStream(detectVersion),
-                ByteOrderMark.UTF_8, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_16LE,
-                ByteOrderMark.UTF_32BE, ByteOrderMark.UTF_32LE)) {
-            String bom = "UTF-8";
-            if (bomInputStream.hasBOM()) {
-                bom = bomInputStream.getBOMCharsetName();
-            }
-
-            XMLInputFactory xml = XMLInputFactory.newInstance();
-            XMLEventReader reader = xml.createXMLEventReader(bomInputStream, bom);
-            while (reader.hasNext()) {
-                XMLEvent event = reader.nextEvent();
-                switch (event.getEventType()) {
-                    case XMLEvent.START_ELEMENT:
-                        StartElement startElement = (StartElement) event;
-                        String localPart = startElement.getName().getLocalPart();
-                        if (localPart.equals("xliff")) {
-                            @SuppressWarnings("unchecked")
-                            Iterator<Attribute> attrs = startElement.getAttributes();
-                            while (attrs.hasNext()) {
-                                Attribute attr = attrs.next();
-                                if (isXliffVersionAttributeName(attr.getName())) {
-                                    String value = attr.getValue();
-                                    reader.close();
-                                    if ("2.0".equals(value)) {
-                                        return XLIFFVersion.XLIFF20;
-                                    } else {
-                                        return XLIFFVersion.XLIFF12;
-                                    }
-                                }
-                            }
-                        }
-                        break;
-
-                    default:
-                        break;
-                }
-            }
-            throw new IllegalStateException("Could not detect XLIFF version");
+        try (InputStream in = new BufferedInputStream(new FileInputStream(detectVersion),
+                XLIFFHead.HEAD_SIZE)) {
+            return XLIFFHead.read(in).getVersion();
         }
     }
 
-    // The XLIFF spec is unclear on whether @version is namespaced.  My assumption
-    // is no, it is not namespaced, but just in case other implementations disagree,
-    // we'll be permissive.
-    private boolean isXliffVersionAttributeName(QName name) {
-        if (!"version".equals(name.getLocalPart())) return false;
-        String ns = name.getNamespaceURI();
-        return (ns == null || "".equals(ns) ||
-                "urn:oasis:names:tc:xliff:document:1.2".equals(ns) ||
-                "urn:oasis:names:tc:xliff:document:2.0".equals(ns));
-    }
-
     @Override
     public XLIFFParser newXLIFFParser(XLIFFVersion version) throws IOException, XMLStreamException {
         switch (version) {
         case XLIFF12:
-            return new OkapiXLIFF12Parser();
+            OkapiXLIFF12Parser parser = new OkapiXLIFF12Parser();
+            parser.setSpillEvents(Boolean.getBoolean(SPILL_EVENTS_PROPERTY));
+            return parser;
         case XLIFF20:
             return new OkapiXLIFF20Parser();
         }
@@ -0,0 +1,65 @@
+package com.vistatec.ocelot.batch;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+public class TestFileReport {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testTmLeverageBands() {
+        FileReport report = new FileReport(new File("test.xlf"));
+        assertNull(report.getTmLeverage());
+        report.addTmMatch(100);
+        report.addTmMatch(99.5f);
+        report.addTmMatch(95);
+        report.addTmMatch(80);
+        report.addTmMatch(49);
+        report.addTmMatch(0);
+
+        Map<String, Integer> leverage = report.getTmLeverage();
+        assertEquals(Integer.valueOf(1), leverage.get("100"));
+        assertEquals(Integer.valueOf(2), leverage.get("95-99"));
+        assertEquals(Integer.valueOf(0), leverage.get("85-94"));
+        assertEquals(Integer.valueOf(1), leverage.get("75-84"));
+        assertEquals(Integer.valueOf(0), leverage.get("50-74"));
+        assertEquals(Integer.valueOf(2), leverage.get("none"));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        FileReport report = new FileReport(new File("test.xlf"));
+        report.setSegmentCount(3);
+        report.setRuleMatches("Needs review", 2);
+        report.setEditDistance(12);
+        report.setElapsedMillis(5);
+
+        JsonNode json = mapper.readTree(report.toJson(mapper));
+        assertEquals("test.xlf", json.get("file").getTextValue());
+        assertEquals(3, json.get("segments").getIntValue());
+        assertEquals(2, json.get("ruleMatches").get("Needs review").getIntValue());
+        assertEquals(12, json.get("editDistance").getIntValue());
+        assertNull(json.get("tmLeverage"));
+        assertNull(json.get("error"));
+    }
+
+    @Test
+    public void testJsonWithError() throws Exception {
+        FileReport report = new FileReport(new File("bad.xlf"));
+        report.setError("IllegalStateException: Could not detect XLIFF version");
+        assertTrue(report.hasError());
+
+        String line = report.toJson(mapper);
+        assertFalse(line.contains("\n"));
+        JsonNode json = mapper.readTree(line);
+        assertEquals("IllegalStateException: Could not detect XLIFF version",
+                json.get("error").getTextValue());
+        assertNull(json.get("segments"));
+    }
+}
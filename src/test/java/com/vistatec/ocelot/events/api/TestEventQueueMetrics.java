@@ -0,0 +1,131 @@
+package com.vistatec.ocelot.events.api;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.eventbus.Subscribe;
+import com.vistatec.ocelot.events.api.EventQueueMetrics.Snapshot;
+import com.vistatec.ocelot.events.api.TestLaneEventQueue.TestEvent;
+
+public class TestEventQueueMetrics {
+    private LaneEventQueue eventQueue;
+    private EventQueueMetrics metrics;
+
+    @Before
+    public void setup() {
+        eventQueue = new LaneEventQueue(Executors.newSingleThreadExecutor());
+        metrics = new EventQueueMetrics();
+        eventQueue.setMetrics(metrics);
+    }
+
+    @After
+    public void teardown() {
+        eventQueue.shutdown();
+    }
+
+    @Test
+    public void testCountsAndCascadeDepth() {
+        eventQueue.registerListener(new CascadingListener());
+        eventQueue.post(new TestEvent("3"));
+        eventQueue.post(new TestEvent("0"));
+
+        Snapshot events = find(metrics.getEventSnapshots(), "TestEvent");
+        // 3 -> 2 -> 1 -> 0, then 0 again
+        assertEquals(5, events.getCount());
+        assertEquals(5, events.getDeliveries());
+        assertEquals(3, events.getMaxCascadeDepth());
+
+        Snapshot subscriber = find(metrics.getSubscriberSnapshots(),
+                "CascadingListener.countDown(TestEvent)");
+        assertEquals(5, subscriber.getCount());
+        assertEquals(3, subscriber.getMaxCascadeDepth());
+        assertTrue(subscriber.getMaxNanos() <= subscriber.getTotalNanos());
+    }
+
+    @Test
+    public void testPercentiles() {
+        EventQueueMetrics metrics = new EventQueueMetrics();
+        for (int i = 0; i < 98; i++) {
+            metrics.eventHandled(TestEvent.class, getMethod(), 0,
+                    TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        metrics.eventHandled(TestEvent.class, getMethod(), 0,
+                TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.eventHandled(TestEvent.class, getMethod(), 0,
+                TimeUnit.MILLISECONDS.toNanos(50));
+
+        Snapshot snapshot = metrics.getSubscriberSnapshots().get(0);
+        assertEquals(100, snapshot.getDeliveries());
+        // 10us falls in the [8us, 16us) bucket
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(16),
+                snapshot.getPercentileNanos(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(16),
+                snapshot.getPercentileNanos(90));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(8192),
+                snapshot.getPercentileNanos(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50),
+                snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void testJsonAndReset() throws Exception {
+        eventQueue.registerListener(new CascadingListener());
+        eventQueue.post(new TestEvent("1"));
+
+        JsonNode json = new ObjectMapper().readTree(metrics.toJson());
+        assertEquals("TestEvent", json.get("events").get(0).get("name").asText());
+        assertEquals(2, json.get("events").get(0).get("count").asInt());
+        assertEquals(1, json.get("events").get(0).get("maxCascadeDepth").asInt());
+        assertEquals(1, json.get("subscribers").size());
+
+        metrics.reset();
+        assertTrue(metrics.getEventSnapshots().isEmpty());
+        assertTrue(metrics.getSubscriberSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testDisabled() {
+        eventQueue.setMetrics(null);
+        eventQueue.registerListener(new CascadingListener());
+        eventQueue.post(new TestEvent("2"));
+        assertTrue(metrics.getEventSnapshots().isEmpty());
+    }
+
+    private static Snapshot find(List<Snapshot> snapshots, String name) {
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.getName().equals(name)) {
+                return snapshot;
+            }
+        }
+        fail("No metrics for " + name + " in " + snapshots);
+        return null;
+    }
+
+    private static Method getMethod() {
+        try {
+            return CascadingListener.class.getMethod("countDown", TestEvent.class);
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public class CascadingListener implements OcelotEventQueueListener {
+        @Subscribe
+        public void countDown(TestEvent e) {
+            int n = Integer.parseInt(e.name);
+            if (n > 0) {
+                eventQueue.post(new TestEvent(String.valueOf(n - 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.vistatec.ocelot.events.api;
+
+import static org.junit.Assert.*;
+
+import java.awt.SecondaryLoop;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.eventbus.Subscribe;
+
+public class TestLaneEventQueue {
+    private LaneEventQueue eventQueue;
+
+    @Before
+    public void setup() {
+        eventQueue = new LaneEventQueue(Executors.newSingleThreadExecutor());
+    }
+
+    @After
+    public void teardown() {
+        eventQueue.shutdown();
+    }
+
+    @Test
+    public void testDirectDeliveryKeepsEventBusOrder() {
+        final List<String> received = new ArrayList<>();
+        eventQueue.registerListener(new OcelotEventQueueListener() {
+            @Subscribe
+            public void first(TestEvent e) {
+                received.add("first:" + e.name);
+                if (e.name.equals("outer")) {
+                    eventQueue.post(new TestEvent("inner"));
+                    received.add("posted inner");
+                }
+            }
+        });
+        eventQueue.post(new TestEvent("outer"));
+        // The nested event is only delivered after the outer one
+        assertEquals(list("first:outer", "posted inner", "first:inner"), received);
+    }
+
+    @Test
+    public void testSupertypeSubscribers() {
+        RecordingListener listener = new RecordingListener();
+        eventQueue.registerListener(listener);
+        eventQueue.post(new SubTestEvent("sub"));
+        assertEquals(list("sub"), listener.names);
+
+        eventQueue.unregisterListener(listener);
+        eventQueue.post(new TestEvent("ignored"));
+        assertEquals(list("sub"), listener.names);
+    }
+
+    @Test
+    public void testComponentListenersRunOnEDT() throws Exception {
+        RecordingPanel panel = new RecordingPanel();
+        eventQueue.registerListener(panel);
+        eventQueue.post(new TestEvent("a"));
+        flushEDT();
+        assertEquals(list("a"), panel.names);
+        assertTrue(panel.onEDT);
+    }
+
+    @Test
+    public void testBackgroundLane() throws Exception {
+        BackgroundListener listener = new BackgroundListener();
+        eventQueue.registerListener(listener);
+        for (int i = 0; i < 50; i++) {
+            eventQueue.post(new TestEvent(String.valueOf(i)));
+        }
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals("49", listener.names.get(49));
+        assertEquals("0", listener.names.get(0));
+        assertFalse(listener.onPostingThread);
+    }
+
+    @Test
+    public void testEventLaneOverridesListenerLane() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        eventQueue.registerListener(listener);
+        eventQueue.post(new UIEvent(1));
+        flushEDT();
+        assertEquals(list("ui:1"), listener.names);
+        assertTrue(lastOnEDT);
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        eventQueue.registerListener(listener);
+
+        // Hold up the EDT so that everything is posted within one frame
+        final CountDownLatch release = new CountDownLatch(1);
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            eventQueue.post(new UIEvent(1));
+            eventQueue.post(new UIEvent(2));
+        }
+        release.countDown();
+        flushEDT();
+        Collections.sort(listener.names);
+        assertEquals(list("ui:1", "ui:2"), listener.names);
+
+        // Once delivered, the same event is delivered again
+        eventQueue.post(new UIEvent(1));
+        flushEDT();
+        assertEquals(3, listener.names.size());
+    }
+
+    @Test
+    public void testDeferredEventsReachNestedEventLoops() throws Exception {
+        ModalPanel panel = new ModalPanel();
+        eventQueue.registerListener(panel);
+        eventQueue.post(new TestEvent("modal"));
+        assertTrue(panel.closed.await(10, TimeUnit.SECONDS));
+        // The background event was delivered while the "dialog" was open
+        assertEquals(list("modal", "background", "closed"), panel.names);
+    }
+
+    private static void flushEDT() throws Exception {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private static volatile boolean lastOnEDT;
+
+    static class TestEvent implements OcelotEvent {
+        final String name;
+
+        TestEvent(String name) {
+            this.name = name;
+        }
+    }
+
+    static class SubTestEvent extends TestEvent {
+        SubTestEvent(String name) {
+            super(name);
+        }
+    }
+
+    @DispatchOn(DispatchLane.UI)
+    static class UIEvent extends TestEvent implements CoalescingEvent {
+        final int id;
+
+        UIEvent(int id) {
+            super("ui:" + id);
+            this.id = id;
+        }
+
+        @Override
+        public Object getCoalescingKey() {
+            return id;
+        }
+    }
+
+    public static class RecordingListener implements OcelotEventQueueListener {
+        final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+
+        @Subscribe
+        public void record(TestEvent e) {
+            lastOnEDT = SwingUtilities.isEventDispatchThread();
+            names.add(e.name);
+        }
+    }
+
+    public static class RecordingPanel extends JPanel implements OcelotEventQueueListener {
+        private static final long serialVersionUID = 1L;
+        final List<String> names = new ArrayList<>();
+        volatile boolean onEDT;
+
+        @Subscribe
+        public void record(TestEvent e) {
+            onEDT = SwingUtilities.isEventDispatchThread();
+            names.add(e.name);
+        }
+    }
+
+    /**
+     * Opens a stand-in for a modal dialog, a nested event loop, while
+     * handling an event, and closes it once an event posted from another
+     * thread has been received, or after a timeout.
+     */
+    public class ModalPanel extends JPanel implements OcelotEventQueueListener {
+        private static final long serialVersionUID = 1L;
+        final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch closed = new CountDownLatch(1);
+        private SecondaryLoop dialogLoop;
+
+        @Subscribe
+        public void record(TestEvent e) {
+            names.add(e.name);
+            if (e.name.equals("modal")) {
+                dialogLoop = Toolkit.getDefaultToolkit().getSystemEventQueue()
+                        .createSecondaryLoop();
+                Thread poster = new Thread() {
+                    @Override
+                    public void run() {
+                        eventQueue.post(new TestEvent("background"));
+                    }
+                };
+                poster.start();
+                final SecondaryLoop loop = dialogLoop;
+                Thread timeout = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(5000);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        loop.exit();
+                    }
+                };
+                timeout.setDaemon(true);
+                timeout.start();
+                dialogLoop.enter();
+                timeout.interrupt();
+                names.add("closed");
+                closed.countDown();
+            } else if (dialogLoop != null) {
+                dialogLoop.exit();
+            }
+        }
+    }
+
+    @DispatchOn(DispatchLane.BACKGROUND)
+    public static class BackgroundListener implements OcelotEventQueueListener {
+        final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(50);
+        final String postingThread = Thread.currentThread().getName();
+        volatile boolean onPostingThread;
+
+        @Subscribe
+        public void record(TestEvent e) {
+            onPostingThread |= Thread.currentThread().getName().equals(postingThread);
+            names.add(e.name);
+            done.countDown();
+        }
+    }
+}
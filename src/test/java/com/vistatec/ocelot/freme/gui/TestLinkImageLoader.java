@@ -0,0 +1,166 @@
+package com.vistatec.ocelot.freme.gui;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestLinkImageLoader {
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger imageRequests = new AtomicInteger();
+    private File cacheDir;
+    private LinkImageLoader loader;
+
+    @Before
+    public void setup() throws Exception {
+        BufferedImage image = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        final byte[] png = out.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/image.png", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                imageRequests.incrementAndGet();
+                exchange.sendResponseHeaders(200, png.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(png);
+                }
+            }
+        });
+        server.createContext("/moved.png", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Location", "/image.png");
+                exchange.sendResponseHeaders(302, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        cacheDir = Files.createTempDir();
+    }
+
+    @After
+    public void teardown() {
+        if (loader != null) {
+            loader.shutdown();
+        }
+        server.stop(0);
+        for (File file : cacheDir.listFiles()) {
+            file.delete();
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void testImageIsScaledAndCached() throws Exception {
+        loader = new LinkImageLoader(cacheDir, 10, 2);
+        BufferedImage image = load(baseUrl + "/image.png", 100, 100);
+        assertEquals(100, image.getWidth());
+        assertEquals(50, image.getHeight());
+        assertEquals(1, imageRequests.get());
+
+        // Memory cache
+        assertSame(image, loader.getCachedImage(baseUrl + "/image.png", 100, 100));
+        assertSame(image, load(baseUrl + "/image.png", 100, 100));
+        // Disk cache, at another size
+        BufferedImage larger = load(baseUrl + "/image.png", 200, 200);
+        assertEquals(200, larger.getWidth());
+        assertEquals(1, imageRequests.get());
+
+        LinkImageLoader other = new LinkImageLoader(cacheDir, 10, 1);
+        try {
+            assertNull(other.getCachedImage(baseUrl + "/image.png", 100, 100));
+            RecordingCallback callback = new RecordingCallback();
+            other.load(baseUrl + "/image.png", 100, 100, callback);
+            assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+            assertNotNull(callback.images.poll());
+        } finally {
+            other.shutdown();
+        }
+        assertEquals(1, imageRequests.get());
+    }
+
+    @Test
+    public void testRedirectsAreFollowed() throws Exception {
+        loader = new LinkImageLoader(null, 10, 2);
+        BufferedImage image = load(baseUrl + "/moved.png", 400, 400);
+        assertEquals(400, image.getWidth());
+        assertEquals(200, image.getHeight());
+    }
+
+    @Test
+    public void testMissingImage() throws Exception {
+        loader = new LinkImageLoader(cacheDir, 10, 2);
+        RecordingCallback callback = new RecordingCallback();
+        loader.load(baseUrl + "/missing.png", 100, 100, callback);
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+        assertNull(callback.images.poll());
+        assertEquals(0, cacheDir.listFiles().length);
+    }
+
+    @Test
+    public void testConcurrentLoadsShareOneDownload() throws Exception {
+        loader = new LinkImageLoader(null, 10, 4);
+        RecordingCallback callback = new RecordingCallback(5);
+        for (int i = 0; i < 5; i++) {
+            loader.load(baseUrl + "/image.png", 50, 50, callback);
+        }
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+        assertEquals(5, callback.images.size());
+        assertEquals(1, imageRequests.get());
+    }
+
+    private BufferedImage load(String url, int maxWidth, int maxHeight) throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        loader.load(url, maxWidth, maxHeight, callback);
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+        BufferedImage image = callback.images.poll();
+        assertNotNull(image);
+        return image;
+    }
+
+    private static class RecordingCallback implements LinkImageLoader.Callback {
+        final BlockingQueue<BufferedImage> images = new LinkedBlockingQueue<>();
+        final CountDownLatch done;
+
+        RecordingCallback() {
+            this(1);
+        }
+
+        RecordingCallback(int count) {
+            done = new CountDownLatch(count);
+        }
+
+        @Override
+        public void imageLoaded(String url, BufferedImage image) {
+            if (image != null) {
+                images.add(image);
+            }
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestEnrichmentResultBatcher {
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<List<Integer>>());
+    private EnrichmentResultBatcher<Integer> batcher;
+
+    @After
+    public void teardown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testResultsAreHandledInFewBatches() throws Exception {
+        batcher = new EnrichmentResultBatcher<>(100, new RecordingHandler());
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 250;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 250; i++) {
+                        batcher.add(offset + i);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+
+        List<Integer> all = new ArrayList<>();
+        synchronized (batches) {
+            assertTrue(batches.size() <= 10);
+            for (List<Integer> batch : batches) {
+                all.addAll(batch);
+            }
+        }
+        Collections.sort(all);
+        assertEquals(1000, all.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) all.get(i));
+        }
+    }
+
+    @Test
+    public void testFlush() {
+        batcher = new EnrichmentResultBatcher<>(60000, new RecordingHandler());
+        batcher.add(1);
+        batcher.add(2);
+        batcher.flush();
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2)), batches);
+        // Nothing left to handle
+        batcher.flush();
+        assertEquals(1, batches.size());
+
+        batcher.add(3);
+        batcher.clear();
+        batcher.flush();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testFlushThenRunsOnBatcherThread() throws Exception {
+        batcher = new EnrichmentResultBatcher<>(60000, new RecordingHandler());
+        batcher.add(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<Integer> handledBefore = new ArrayList<>();
+        final String caller = Thread.currentThread().getName();
+        final List<String> taskThread = new ArrayList<>();
+        batcher.flushThen(new Runnable() {
+            @Override
+            public void run() {
+                handledBefore.add(batches.size());
+                taskThread.add(Thread.currentThread().getName());
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // The results were handled before the task, off the calling thread
+        assertEquals(Collections.singletonList(1), handledBefore);
+        assertFalse(caller.equals(taskThread.get(0)));
+    }
+
+    private class RecordingHandler implements EnrichmentResultBatcher.Handler<Integer> {
+        @Override
+        public void handle(List<Integer> batch) {
+            batches.add(batch);
+        }
+    }
+}
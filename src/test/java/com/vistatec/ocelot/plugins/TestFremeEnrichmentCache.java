@@ -0,0 +1,160 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+import com.vistatec.ocelot.segment.model.enrichment.EntityEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.LinkInfoData;
+import com.vistatec.ocelot.segment.model.enrichment.TerminologyEnrichment;
+import com.vistatec.ocelot.segment.model.enrichment.TranslationEnrichment;
+
+public class TestFremeEnrichmentCache {
+    private static final Set<Integer> ALL_SERVICES = new HashSet<>(Arrays.asList(
+            FremePlugin.EENTITY_SERVICE, FremePlugin.ELINK_SERVICE,
+            FremePlugin.ETERMINOLOGY, FremePlugin.ETRANSLATION));
+
+    private File cacheFile;
+
+    @Before
+    public void setup() throws Exception {
+        cacheFile = File.createTempFile("freme_cache", ".json");
+        cacheFile.delete();
+    }
+
+    @After
+    public void teardown() {
+        cacheFile.delete();
+    }
+
+    @Test
+    public void testKeys() {
+        String key = FremeEnrichmentCache.key("Hello\tworld", false, "en", "fr", ALL_SERVICES);
+        assertEquals(key, FremeEnrichmentCache.key("Hello world", false, "en", "fr", ALL_SERVICES));
+        assertFalse(key.equals(FremeEnrichmentCache.key("Hello world", true, "en", "fr", ALL_SERVICES)));
+        assertFalse(key.equals(FremeEnrichmentCache.key("Hello world", false, "en", "de", ALL_SERVICES)));
+        assertFalse(key.equals(FremeEnrichmentCache.key("Hello world", false, "en", "fr",
+                Collections.singleton(FremePlugin.EENTITY_SERVICE))));
+    }
+
+    @Test
+    public void testEnrichmentsSurviveSaving() throws Exception {
+        List<Enrichment> enrichments = new ArrayList<>();
+        EntityEnrichment entity = new EntityEnrichment("char=0,5", "http://dbpedia.org/resource/Paris");
+        entity.setAnnotatorRef("http://example.com/annotator");
+        enrichments.add(entity);
+
+        LinkEnrichment link = new LinkEnrichment(0, 5);
+        link.setReferenceEntity("http://dbpedia.org/resource/Paris");
+        link.setEntityName("Paris", "http://www.w3.org/2000/01/rdf-schema#label");
+        link.setImageURL("http://example.com/paris.png", "http://dbpedia.org/ontology/thumbnail");
+        LinkInfoData population = new LinkInfoData("http://dbpedia.org/ontology/populationTotal",
+                "Population Total", Integer.class);
+        population.setValue("2220445");
+        LinkInfoData birth = new LinkInfoData("http://dbpedia.org/ontology/birthDate",
+                "Birth Date", Date.class);
+        birth.setValue("1900-01-01");
+        link.setInfoList(Arrays.asList(population, birth));
+        enrichments.add(link);
+
+        Model model = ModelFactory.createDefaultModel();
+        Resource term = model.createResource("http://example.com/term/1");
+        model.add(term, model.createProperty("http://www.w3.org/2000/01/rdf-schema#", "comment"), "A city");
+        List<Statement> triples = model.listStatements().toList();
+        TerminologyEnrichment terminology = new TerminologyEnrichment("char=6,11");
+        terminology.setSourceTerm("ville");
+        terminology.setTargetTerm("city");
+        terminology.setTermInfoRef("http://example.com/term/1");
+        terminology.setTermTriples(triples);
+        terminology.setDisabled(true);
+        enrichments.add(terminology);
+
+        enrichments.add(new TranslationEnrichment("char=0,11", "Paris city", "en"));
+
+        FremeEnrichmentCache cache = new FremeEnrichmentCache(cacheFile, 10);
+        assertTrue(cache.put("key", enrichments));
+        cache.save();
+        assertTrue(cacheFile.isFile());
+
+        List<Enrichment> loaded = new FremeEnrichmentCache(cacheFile, 10).get("key");
+        assertEquals(4, loaded.size());
+
+        EntityEnrichment loadedEntity = (EntityEnrichment) loaded.get(0);
+        assertEquals("http://dbpedia.org/resource/Paris", loadedEntity.getEntityURL());
+        assertEquals("http://example.com/annotator", loadedEntity.getAnnotatorRef());
+        assertEquals(0, loadedEntity.getOffsetStartIdx());
+        assertEquals(5, loadedEntity.getOffsetEndIdx());
+
+        LinkEnrichment loadedLink = (LinkEnrichment) loaded.get(1);
+        assertEquals(link, loadedLink);
+        assertEquals("Paris", loadedLink.getEntityName().getValue());
+        assertEquals("http://example.com/paris.png", loadedLink.getImageURL().getValue());
+        assertEquals(2, loadedLink.getInfoList().size());
+        assertEquals("2220445", loadedLink.getInfoList().get(0).getValue());
+        assertEquals(Date.class, loadedLink.getInfoList().get(1).getDataType());
+        assertEquals("Birth Date", loadedLink.getInfoList().get(1).getLabel());
+
+        TerminologyEnrichment loadedTerm = (TerminologyEnrichment) loaded.get(2);
+        assertEquals("ville", loadedTerm.getSourceTerm());
+        assertEquals("city", loadedTerm.getTargetTerm());
+        assertEquals(6, loadedTerm.getOffsetStartIdx());
+        assertTrue(loadedTerm.isDisabled());
+        assertEquals(new HashSet<>(triples), new HashSet<>(loadedTerm.getTermTriples()));
+
+        TranslationEnrichment loadedTranslation = (TranslationEnrichment) loaded.get(3);
+        assertEquals("Paris city", loadedTranslation.getTranslation());
+        assertEquals("en", loadedTranslation.getLanguage());
+        assertEquals(11, loadedTranslation.getOffsetEndIdx());
+    }
+
+    @Test
+    public void testLookupsReturnCopies() {
+        FremeEnrichmentCache cache = new FremeEnrichmentCache(null, 10);
+        cache.put("key", Collections.<Enrichment>singletonList(new EntityEnrichment("char=0,5", "http://example.com/e")));
+        List<Enrichment> first = cache.get("key");
+        first.get(0).setDisabled(true);
+        assertFalse(cache.get("key").get(0).isDisabled());
+    }
+
+    @Test
+    public void testSizeBoundAndHitRate() {
+        FremeEnrichmentCache cache = new FremeEnrichmentCache(cacheFile, 2);
+        List<Enrichment> none = Collections.emptyList();
+        cache.put("a", none);
+        cache.put("b", none);
+        assertNotNull(cache.get("a"));
+        cache.put("c", none);
+        // "b" was the least recently used
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.75, cache.getHitRate(), 0.001);
+
+        cache.save();
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        cache.save();
+        assertNull(new FremeEnrichmentCache(cacheFile, 2).get("a"));
+    }
+}
@@ -0,0 +1,289 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.*;
+
+import java.awt.Component;
+import java.awt.Window;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vistatec.ocelot.plugins.exception.FremeEnrichmentException;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+
+public class TestFremeEnrichmentScheduler {
+    private FremeEnrichmentScheduler<TestFragment> scheduler;
+    private final RecordingListener listener = new RecordingListener();
+
+    @After
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testBatchesAreBoundedAndConcurrencyIsLimited() throws Exception {
+        scheduler = new FremeEnrichmentScheduler<>(3, 5, 1, 10, listener);
+        StubBatchPlugin plugin = new StubBatchPlugin(20);
+        scheduler.submit(plugin, fragments(1, 100, false));
+        scheduler.submit(plugin, fragments(1, 100, true));
+        assertTrue(listener.finished.await(10, TimeUnit.SECONDS));
+
+        assertEquals(200, listener.enriched.size());
+        assertEquals(40, plugin.calls.get());
+        assertTrue(plugin.maxConcurrent.get() <= 3);
+        assertTrue(plugin.maxBatchSize.get() <= 5);
+        FremeEnrichmentScheduler.Progress last = listener.lastProgress;
+        assertTrue(last.isFinished());
+        assertEquals(200, last.getTotal());
+        assertEquals(200, last.getEnriched());
+        assertFalse(scheduler.isBusy());
+    }
+
+    @Test
+    public void testVisibleSegmentsAreSentFirst() throws Exception {
+        scheduler = new FremeEnrichmentScheduler<>(1, 10, 1, 10, listener);
+        BlockingPlugin plugin = new BlockingPlugin();
+        scheduler.submit(plugin, fragments(1, 100, false));
+        assertTrue(plugin.started.await(5, TimeUnit.SECONDS));
+        // The first fragment is being enriched, the others are queued
+        scheduler.setVisibleSegments(60, 64);
+        plugin.release.countDown();
+        assertTrue(listener.finished.await(10, TimeUnit.SECONDS));
+
+        List<String> expected = new ArrayList<>();
+        expected.add("1");
+        for (int i = 2; i <= 10; i++) {
+            expected.add(Integer.toString(i));
+        }
+        for (int i = 60; i <= 64; i++) {
+            expected.add(Integer.toString(i));
+        }
+        expected.add("11");
+        assertEquals(expected, plugin.texts.subList(0, expected.size()));
+        assertEquals(100, plugin.texts.size());
+    }
+
+    @Test
+    public void testFailedCallsAreRetried() throws Exception {
+        scheduler = new FremeEnrichmentScheduler<>(2, 10, 3, 10, listener);
+        FlakyPlugin plugin = new FlakyPlugin();
+        scheduler.submit(plugin, Collections.singletonList(new TestFragment(1, "flaky", false)));
+        scheduler.submit(plugin, Collections.singletonList(new TestFragment(2, "broken", false)));
+        scheduler.submit(plugin, Collections.singletonList(new TestFragment(3, "fine", false)));
+        assertTrue(listener.finished.await(10, TimeUnit.SECONDS));
+
+        assertEquals(3, plugin.attempts("flaky"));
+        assertEquals(3, plugin.attempts("broken"));
+        assertEquals(1, plugin.attempts("fine"));
+        assertEquals(2, listener.enriched.size());
+        assertEquals(Collections.singletonList("broken"), listener.failed);
+        assertEquals(1, listener.lastProgress.getFailed());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        scheduler = new FremeEnrichmentScheduler<>(1, 1, 1, 10, listener);
+        BlockingPlugin plugin = new BlockingPlugin();
+        scheduler.submit(plugin, fragments(1, 100, false));
+        assertTrue(plugin.started.await(5, TimeUnit.SECONDS));
+        scheduler.cancel();
+        assertTrue(listener.finished.await(1, TimeUnit.SECONDS));
+        assertTrue(listener.lastProgress.isCancelled());
+        assertFalse(scheduler.isBusy());
+
+        plugin.release.countDown();
+        Thread.sleep(200);
+        // The result of the call in progress is dropped, and nothing else is sent
+        assertEquals(Collections.singletonList("1"), plugin.texts);
+        assertTrue(listener.enriched.isEmpty());
+    }
+
+    private static List<TestFragment> fragments(int first, int last, boolean target) {
+        List<TestFragment> fragments = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            fragments.add(new TestFragment(i, Integer.toString(i), target));
+        }
+        return fragments;
+    }
+
+    static class TestFragment implements FremeEnrichmentScheduler.Fragment {
+        private final int segNumber;
+        private final String text;
+        private final boolean target;
+
+        TestFragment(int segNumber, String text, boolean target) {
+            this.segNumber = segNumber;
+            this.text = text;
+            this.target = target;
+        }
+
+        @Override
+        public int getSegNumber() {
+            return segNumber;
+        }
+
+        @Override
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public boolean isTarget() {
+            return target;
+        }
+    }
+
+    static class RecordingListener implements FremeEnrichmentScheduler.Listener<TestFragment> {
+        final List<String> enriched = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile FremeEnrichmentScheduler.Progress lastProgress;
+
+        @Override
+        public void fragmentEnriched(TestFragment fragment, List<Enrichment> enrichments) {
+            enriched.add(fragment.getText());
+        }
+
+        @Override
+        public void fragmentFailed(TestFragment fragment, Exception e) {
+            failed.add(fragment.getText());
+        }
+
+        @Override
+        public void progressChanged(FremeEnrichmentScheduler.Progress progress) {
+            lastProgress = progress;
+            if (progress.isFinished()) {
+                finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * Local stand-in for the FREME services.
+     */
+    static class StubPlugin implements FremePlugin {
+        final List<String> texts = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public String getPluginName() {
+            return "Stub FREME Plugin";
+        }
+
+        @Override
+        public String getPluginVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public void configureServiceChain(Window ocelotMainFrame) {
+        }
+
+        @Override
+        public void turnOnService(int serviceType) {
+        }
+
+        @Override
+        public void turnOffService(int serviceType) {
+        }
+
+        @Override
+        public List<Enrichment> enrichSourceContent(String plainText)
+                throws FremeEnrichmentException {
+            texts.add(plainText);
+            return new ArrayList<Enrichment>();
+        }
+
+        @Override
+        public List<Enrichment> enrichTargetContent(String plainText)
+                throws FremeEnrichmentException {
+            return enrichSourceContent(plainText);
+        }
+
+        @Override
+        public void setSourceAndTargetLanguages(String sourceLanguage, String targetLanguage) {
+        }
+
+        @Override
+        public Component getCategoryFilterPanel() {
+            return null;
+        }
+    }
+
+    static class StubBatchPlugin extends StubPlugin implements BatchFremePlugin {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger maxBatchSize = new AtomicInteger();
+        private final long latencyMillis;
+
+        StubBatchPlugin(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public List<List<Enrichment>> enrichSourceContents(List<String> plainTexts) {
+            calls.incrementAndGet();
+            int now = running.incrementAndGet();
+            maxConcurrent.set(Math.max(maxConcurrent.get(), now));
+            maxBatchSize.set(Math.max(maxBatchSize.get(), plainTexts.size()));
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            List<List<Enrichment>> results = new ArrayList<>();
+            for (int i = 0; i < plainTexts.size(); i++) {
+                results.add(new ArrayList<Enrichment>());
+            }
+            return results;
+        }
+
+        @Override
+        public List<List<Enrichment>> enrichTargetContents(List<String> plainTexts) {
+            return enrichSourceContents(plainTexts);
+        }
+    }
+
+    static class BlockingPlugin extends StubPlugin {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public List<Enrichment> enrichSourceContent(String plainText)
+                throws FremeEnrichmentException {
+            List<Enrichment> result = super.enrichSourceContent(plainText);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }
+    }
+
+    static class FlakyPlugin extends StubPlugin {
+        int attempts(String text) {
+            return Collections.frequency(texts, text);
+        }
+
+        @Override
+        public List<Enrichment> enrichSourceContent(String plainText)
+                throws FremeEnrichmentException {
+            super.enrichSourceContent(plainText);
+            if (plainText.equals("broken")
+                    || (plainText.equals("flaky") && attempts(plainText) < 3)) {
+                throw new FremeEnrichmentException(plainText, new RuntimeException("Service unavailable"));
+            }
+            return new ArrayList<Enrichment>();
+        }
+    }
+}
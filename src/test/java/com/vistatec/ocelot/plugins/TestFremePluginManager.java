@@ -0,0 +1,104 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vistatec.ocelot.events.ItsDocStatsRemovedMetadataEvent;
+import com.vistatec.ocelot.events.RefreshSegmentView;
+import com.vistatec.ocelot.events.api.OcelotEvent;
+import com.vistatec.ocelot.events.api.OcelotEventQueue;
+import com.vistatec.ocelot.events.api.OcelotEventQueueListener;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.enrichment.Enrichment;
+
+public class TestFremePluginManager {
+    private static final Set<Integer> ALL_SERVICES = new HashSet<>(Arrays.asList(
+            FremePlugin.EENTITY_SERVICE, FremePlugin.ELINK_SERVICE,
+            FremePlugin.ETERMINOLOGY, FremePlugin.ETRANSLATION));
+
+    private final List<OcelotEvent> events = Collections.synchronizedList(new ArrayList<OcelotEvent>());
+    private File cacheFile;
+    private FremeEnrichmentCache cache;
+    private FremePluginManager fremeManager;
+
+    @Before
+    public void setup() throws Exception {
+        cacheFile = File.createTempFile("freme_cache", ".json");
+        cacheFile.delete();
+        fremeManager = new FremePluginManager(new RecordingEventQueue());
+        fremeManager.setSourceAndTargetLanguages("en", "fr");
+        cache = new FremeEnrichmentCache(cacheFile, FremeEnrichmentCache.DEFAULT_MAX_ENTRIES);
+        fremeManager.setEnrichmentCache(cache);
+    }
+
+    @After
+    public void teardown() {
+        cacheFile.delete();
+    }
+
+    @Test
+    public void testRepetitionsAreEnrichedAsOneBatch() {
+        List<OcelotSegment> repetitions = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            repetitions.add(new SimpleSegment.Builder()
+                    .segmentNumber(i)
+                    .source("Hello")
+                    .target("Bonjour")
+                    .build());
+        }
+        fremeManager.setSegments(repetitions);
+        // Enriched from the cache, so that no plugin is needed
+        assertTrue(cache.put(
+                FremeEnrichmentCache.key("Bonjour", true, "en", "fr", ALL_SERVICES),
+                Collections.<Enrichment>emptyList()));
+
+        fremeManager.enrichTargets(null, repetitions);
+
+        int removedStats = 0, refreshes = 0;
+        RefreshSegmentView firstRefresh = null;
+        synchronized (events) {
+            for (OcelotEvent event : events) {
+                if (event instanceof ItsDocStatsRemovedMetadataEvent) {
+                    removedStats++;
+                } else if (event instanceof RefreshSegmentView) {
+                    refreshes++;
+                    if (firstRefresh == null) {
+                        firstRefresh = (RefreshSegmentView) event;
+                    }
+                }
+            }
+        }
+        assertEquals(1, removedStats);
+        // One when the enrichments are removed, one when they are applied
+        assertEquals(2, refreshes);
+        assertEquals(20, firstRefresh.getSegmentNumbers().size());
+        assertEquals(1, (int) firstRefresh.getSegmentNumbers().first());
+    }
+
+    private class RecordingEventQueue implements OcelotEventQueue {
+        @Override
+        public void post(OcelotEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void registerListener(OcelotEventQueueListener listener) {
+        }
+
+        @Override
+        public void unregisterListener(OcelotEventQueueListener listener) {
+        }
+    }
+}
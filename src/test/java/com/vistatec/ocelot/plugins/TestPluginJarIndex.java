@@ -0,0 +1,116 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPluginJarIndex {
+    private static final String SAMPLE_ITS_PLUGIN =
+            "com.vistatec.ocelot.plugins.samples.itsplugin.SampleITSPlugin";
+
+    private File sampleJar;
+    private URLClassLoader sampleLoader;
+    private File tmpDir;
+
+    @Before
+    public void setup() throws Exception {
+        sampleJar = new File(getClass().getResource("/ITSPlugin-1.0-SNAPSHOT.jar").toURI());
+        sampleLoader = new URLClassLoader(new URL[] { sampleJar.toURI().toURL() },
+                getClass().getClassLoader());
+        tmpDir = File.createTempFile("plugins", "");
+        tmpDir.delete();
+        tmpDir.mkdirs();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        sampleLoader.close();
+        for (File f : tmpDir.listFiles()) {
+            f.delete();
+        }
+        tmpDir.delete();
+    }
+
+    @Test
+    public void testServiceFiles() throws Exception {
+        File jar = new File(tmpDir, "services.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/services/" + SegmentPlugin.class.getName()));
+            out.write("# Comment\ncom.example.First\n\ncom.example.Second # trailing\n".getBytes("UTF-8"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("META-INF/services/" + ReportPlugin.class.getName()));
+            out.write("com.example.Report\n".getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        // The declared classes don't exist, so they can't have been loaded
+        Map<String, Class<? extends Plugin>> expected = new LinkedHashMap<>();
+        expected.put("com.example.First", SegmentPlugin.class);
+        expected.put("com.example.Second", SegmentPlugin.class);
+        expected.put("com.example.Report", ReportPlugin.class);
+        assertEquals(expected, new PluginJarIndex(null).getPluginClasses(jar, null));
+    }
+
+    @Test
+    public void testManifestAttribute() throws Exception {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name(PluginJarIndex.MANIFEST_ATTRIBUTE),
+                SAMPLE_ITS_PLUGIN + ", java.lang.String");
+        File jar = new File(tmpDir, "manifest.jar");
+        new JarOutputStream(new FileOutputStream(jar), manifest).close();
+
+        assertEquals(Collections.singletonMap(SAMPLE_ITS_PLUGIN, ITSPlugin.class),
+                new PluginJarIndex(null).getPluginClasses(jar, sampleLoader));
+    }
+
+    @Test
+    public void testScanFallbackIsCached() throws Exception {
+        File cacheFile = new File(tmpDir, "cache.properties");
+        PluginJarIndex index = new PluginJarIndex(cacheFile);
+        Map<String, Class<? extends Plugin>> expected =
+                Collections.<String, Class<? extends Plugin>>singletonMap(
+                        SAMPLE_ITS_PLUGIN, ITSPlugin.class);
+        assertEquals(expected, index.getPluginClasses(sampleJar, sampleLoader));
+        index.save();
+        assertTrue(cacheFile.isFile());
+
+        // Without a class loader, the jar can only be found in the cache
+        assertEquals(expected, new PluginJarIndex(cacheFile).getPluginClasses(sampleJar, null));
+    }
+
+    @Test
+    public void testChangedJarIsReindexed() throws Exception {
+        File jar = new File(tmpDir, "changing.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/services/" + ITSPlugin.class.getName()));
+            out.write("com.example.Old\n".getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        PluginJarIndex index = new PluginJarIndex(null);
+        assertTrue(index.getPluginClasses(jar, null).containsKey("com.example.Old"));
+
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/services/" + ITSPlugin.class.getName()));
+            out.write("com.example.New\n".getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        jar.setLastModified(jar.lastModified() + 2000);
+        assertEquals(Collections.singletonMap("com.example.New", ITSPlugin.class),
+                index.getPluginClasses(jar, null));
+    }
+}
@@ -0,0 +1,148 @@
+package com.vistatec.ocelot.plugins;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+
+public class TestSegmentPluginRunner {
+    private SegmentPluginRunner runner;
+
+    @After
+    public void teardown() {
+        runner.shutdown();
+    }
+
+    @Test
+    public void testCallbacksAreDeliveredInOrder() throws Exception {
+        runner = new SegmentPluginRunner(5000, 3);
+        RecordingPlugin plugin = new RecordingPlugin();
+        for (int i = 0; i < 100; i++) {
+            runner.execute(plugin, "test", plugin.record("enter " + i));
+            runner.execute(plugin, "test", plugin.record("exit " + i));
+        }
+        assertTrue(runner.awaitIdle(plugin, 5, TimeUnit.SECONDS));
+
+        assertEquals(200, plugin.events.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Arrays.asList("enter " + i, "exit " + i),
+                    plugin.events.subList(2 * i, 2 * i + 2));
+        }
+        assertEquals(200, runner.getStats(plugin).getCalls());
+        assertEquals(0, runner.getStats(plugin).getFailures());
+    }
+
+    @Test
+    public void testFailuresAreCounted() throws Exception {
+        runner = new SegmentPluginRunner(5000, 3);
+        RecordingPlugin plugin = new RecordingPlugin();
+        runner.execute(plugin, "test", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Plugin failure");
+            }
+        });
+        runner.execute(plugin, "test", plugin.record("after failure"));
+        assertTrue(runner.awaitIdle(plugin, 5, TimeUnit.SECONDS));
+
+        assertEquals(Collections.singletonList("after failure"), plugin.events);
+        assertEquals(2, runner.getStats(plugin).getCalls());
+        assertEquals(1, runner.getStats(plugin).getFailures());
+    }
+
+    @Test
+    public void testSlowPluginIsSuspended() throws Exception {
+        runner = new SegmentPluginRunner(50, 2);
+        final CountDownLatch suspended = new CountDownLatch(1);
+        runner.setSuspensionListener(new SegmentPluginRunner.SuspensionListener() {
+            @Override
+            public void pluginSuspended(SegmentPlugin plugin,
+                    SegmentPluginRunner.PluginStats stats) {
+                suspended.countDown();
+            }
+        });
+        RecordingPlugin slowPlugin = new RecordingPlugin();
+        RecordingPlugin fastPlugin = new RecordingPlugin();
+        for (int i = 0; i < 3; i++) {
+            runner.execute(slowPlugin, "test", sleep(10000));
+            runner.execute(fastPlugin, "test", fastPlugin.record("fast " + i));
+        }
+        assertTrue(suspended.await(5, TimeUnit.SECONDS));
+        assertTrue(runner.isSuspended(slowPlugin));
+        assertEquals(2, runner.getStats(slowPlugin).getOverruns());
+
+        // Other plugins aren't held up or affected
+        assertTrue(runner.awaitIdle(fastPlugin, 5, TimeUnit.SECONDS));
+        assertEquals(3, fastPlugin.events.size());
+        assertFalse(runner.isSuspended(fastPlugin));
+
+        runner.execute(slowPlugin, "test", slowPlugin.record("ignored"));
+        runner.resume(slowPlugin);
+        assertFalse(runner.isSuspended(slowPlugin));
+        runner.execute(slowPlugin, "test", slowPlugin.record("resumed"));
+        assertTrue(runner.awaitIdle(slowPlugin, 5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("resumed"), slowPlugin.events);
+    }
+
+    private static Runnable sleep(final long millis) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    // Interrupted for running over budget
+                }
+            }
+        };
+    }
+
+    public static class RecordingPlugin implements SegmentPlugin {
+        private final List<String> events =
+                Collections.synchronizedList(new ArrayList<String>());
+
+        Runnable record(final String event) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    events.add(event);
+                }
+            };
+        }
+
+        @Override
+        public String getPluginName() {
+            return "Recording Plugin";
+        }
+
+        @Override
+        public String getPluginVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public void onSegmentTargetEnter(OcelotSegment seg) {
+        }
+
+        @Override
+        public void onSegmentTargetExit(OcelotSegment seg) {
+        }
+
+        @Override
+        public void onFileOpen(String filename) {
+        }
+
+        @Override
+        public void onFileSave(String filename) {
+        }
+    }
+}
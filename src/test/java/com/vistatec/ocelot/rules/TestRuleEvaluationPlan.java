@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2015, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.*;
+
+import com.google.common.collect.Sets;
+import com.vistatec.ocelot.its.model.ITSMetadata;
+import com.vistatec.ocelot.its.model.OtherITSMetadata;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+
+import static com.vistatec.ocelot.rules.RulesTestHelpers.lqi;
+
+import static org.junit.Assert.*;
+
+public class TestRuleEvaluationPlan {
+
+    @Test
+    public void testLiteralAlternatives() {
+        assertEquals(Sets.newHashSet("omission"), literals("omission"));
+        assertEquals(Sets.newHashSet("omission"), literals("^omission$"));
+        assertEquals(Sets.newHashSet("omission", "terminology"), literals("omission|terminology"));
+        assertEquals(Sets.newHashSet("omission", "terminology"), literals("^(omission|terminology)$"));
+        assertEquals(Sets.newHashSet("omission", "terminology"), literals("(?:omission|terminology)"));
+        assertEquals(Sets.newHashSet("locale-specific-content"), literals("locale-specific-content"));
+        assertNull(literals("^S.*"));
+        assertNull(literals("omission|terminolog?y"));
+        assertNull(literals("(omission)|(terminology)"));
+        assertNull(literals("omission\\$"));
+        assertNull(RuleEvaluationPlan.literalAlternatives(
+                Pattern.compile("omission", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testPlanAgreesWithRules() {
+        List<Rule> rules = Arrays.asList(
+                rule(new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("omission"))),
+                rule(new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("omission|terminology")),
+                     new RuleMatcher(DataCategoryField.LQI_SEVERITY, Matchers.numeric(85, 100))),
+                rule(new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("^o.*")),
+                     new RuleMatcher(DataCategoryField.LQI_COMMENT, Matchers.regex("Fix"))),
+                rule(new RuleMatcher(DataCategoryField.LQI_SEVERITY, Matchers.numeric(60, 60))),
+                rule(new RuleMatcher(DataCategoryField.MT_CONFIDENCE, Matchers.numeric(0, 75))),
+                rule());
+        List<ITSMetadata> metadata = Arrays.<ITSMetadata>asList(
+                lqi("omission", 85),
+                lqi("omission", 60, "Fix"),
+                lqi("terminology", 90),
+                lqi("terminology", 60, "Fix"),
+                lqi("other", 100, "Fix"),
+                new OtherITSMetadata(DataCategoryField.MT_CONFIDENCE, new Double(50)),
+                new OtherITSMetadata(DataCategoryField.MT_CONFIDENCE, new Integer(75)),
+                new OtherITSMetadata(DataCategoryField.MT_CONFIDENCE, "50"));
+
+        RuleEvaluationPlan plan = RuleEvaluationPlan.compile(rules);
+        for (ITSMetadata its : metadata) {
+            BitSet matches = plan.matchingRules(its);
+            for (int i = 0; i < rules.size(); i++) {
+                assertEquals("rule " + i + " against " + its.getFieldValues(),
+                        rules.get(i).matches(its), matches.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testRuleMask() {
+        List<Rule> rules = Arrays.asList(
+                rule(new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("omission"))),
+                rule(new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("om.*"))));
+        RuleEvaluationPlan plan = RuleEvaluationPlan.compile(rules);
+        BitSet mask = new BitSet();
+        mask.set(1);
+        BitSet matches = plan.matchingRules(lqi("omission", 85), mask);
+        assertFalse(matches.get(0));
+        assertTrue(matches.get(1));
+
+        OcelotSegment segment = new SimpleSegment.Builder()
+                .segmentNumber(1)
+                .source("")
+                .target("")
+                .build();
+        segment.addAllLQI(Collections.singletonList(lqi("omission", 85)));
+        assertTrue(plan.matchesAny(segment, mask));
+        assertFalse(plan.matchesAny(segment, new BitSet()));
+    }
+
+    @Test
+    public void testPlanIsRecompiledWhenRulesChange() {
+        RuleConfiguration config = new RuleConfiguration();
+        config.addRuleConstaint("rule1", new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("omission")));
+        RuleEvaluationPlan plan = config.getEvaluationPlan();
+        assertSame(plan, config.getEvaluationPlan());
+        assertTrue(plan.matchingRules(lqi("omission", 85)).get(0));
+
+        // Adding a matcher to an existing rule invalidates the plan
+        config.addRuleConstaint("rule1", new RuleMatcher(DataCategoryField.LQI_SEVERITY, Matchers.numeric(90, 100)));
+        assertFalse(plan.isCurrent(config.getRules()));
+        assertFalse(config.getEvaluationPlan().matchingRules(lqi("omission", 85)).get(0));
+
+        // So does adding a rule
+        config.addRuleConstaint("rule2", new RuleMatcher(DataCategoryField.LQI_TYPE, Matchers.regex("omission")));
+        assertEquals(2, config.getEvaluationPlan().getRuleCount());
+        assertTrue(config.getEvaluationPlan().matchingRules(lqi("omission", 85)).get(1));
+    }
+
+    private Set<String> literals(String regex) {
+        return RuleEvaluationPlan.literalAlternatives(Pattern.compile(regex));
+    }
+
+    private Rule rule(RuleMatcher... matchers) {
+        return new Rule(new ArrayList<RuleMatcher>(Arrays.asList(matchers)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.vistatec.ocelot.segment.editdistance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.vistatec.ocelot.segment.editdistance.Levenshtein.Mode;
+
+public class TestLevenshtein {
+
+    @Test
+    public void testCharacterDistance() {
+        assertEquals(0, Levenshtein.distance("", ""));
+        assertEquals(6, Levenshtein.distance("", "target"));
+        assertEquals(6, Levenshtein.distance("target", ""));
+        assertEquals(0, Levenshtein.distance("target", "target"));
+        assertEquals(1, Levenshtein.distance("target", "targetA"));
+        assertEquals(3, Levenshtein.distance("kitten", "sitting"));
+        assertEquals(2, Levenshtein.distance("abc", "xbz"));
+        // Outside the direct symbol range
+        assertEquals(1, Levenshtein.distance("été", "étè"));
+    }
+
+    @Test
+    public void testTokenDistance() {
+        assertEquals(0, Levenshtein.distance("a  b", "a b", Mode.TOKEN));
+        assertEquals(1, Levenshtein.distance("the red car", "the blue car", Mode.TOKEN));
+        assertEquals(1, Levenshtein.distance("the car.", "the car", Mode.TOKEN));
+        assertEquals(2, Levenshtein.distance("one two", "two three", Mode.TOKEN));
+    }
+
+    @Test
+    public void testMatchesDynamicProgramming() {
+        Random random = new Random(7);
+        // Lengths either side of the 64 symbol blocks
+        for (int i = 0; i < 2000; i++) {
+            String a = randomText(random, random.nextInt(200));
+            String b = random.nextBoolean() ? edit(random, a) : randomText(random, random.nextInt(200));
+            assertEquals(a + " / " + b, naiveDistance(a, b), Levenshtein.distance(a, b));
+        }
+    }
+
+    @Test
+    public void testEarlyExit() {
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            String a = randomText(random, random.nextInt(150));
+            String b = edit(random, a);
+            int expected = naiveDistance(a, b);
+            int max = random.nextInt(10);
+            int distance = Levenshtein.distance(a, b, Mode.CHARACTER, max);
+            assertEquals(a + " / " + b, expected <= max ? expected : max + 1, distance);
+            assertEquals(expected <= max, Levenshtein.isWithin(a, b, Mode.CHARACTER, max));
+        }
+        assertTrue(Levenshtein.isWithin("target", "targetAB", Mode.CHARACTER, 2));
+        assertFalse(Levenshtein.isWithin("target", "targetABC", Mode.CHARACTER, 2));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            // A small alphabet, with some characters beyond the direct range
+            text.append(random.nextInt(8) == 0 ? (char) ('а' + random.nextInt(3))
+                    : (char) ('a' + random.nextInt(4)));
+        }
+        return text.toString();
+    }
+
+    private static String edit(Random random, String text) {
+        StringBuilder edited = new StringBuilder(text);
+        int edits = random.nextInt(12);
+        for (int i = 0; i < edits; i++) {
+            int pos = random.nextInt(edited.length() + 1);
+            switch (random.nextInt(3)) {
+                case 0:
+                    edited.insert(pos, randomText(random, 1));
+                    break;
+                case 1:
+                    if (pos < edited.length()) {
+                        edited.deleteCharAt(pos);
+                    }
+                    break;
+                default:
+                    if (pos < edited.length()) {
+                        edited.setCharAt(pos, randomText(random, 1).charAt(0));
+                    }
+            }
+        }
+        return edited.toString();
+    }
+
+    private static int naiveDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1], current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
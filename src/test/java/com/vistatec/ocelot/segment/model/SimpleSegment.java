@@ -45,7 +45,7 @@ public class SimpleSegment extends BaseSegment {
 
     @Override
     public boolean isEditable() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return true;
     }
 
     @Override
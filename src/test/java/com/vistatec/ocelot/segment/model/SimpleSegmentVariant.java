@@ -33,13 +33,14 @@ public class SimpleSegmentVariant extends BaseSegmentVariant {
 
     @Override
     public SegmentVariant createCopy() {
-        throw new UnsupportedOperationException();
+        return new SimpleSegmentVariant(new ArrayList<>(atoms));
     }
 
     @Override
     public void setContent(SegmentVariant variant) {
         atoms.clear();
         atoms.addAll(((SimpleSegmentVariant)variant).getAtoms());
+        contentChanged();
     }
 
     @Override
@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
@@ -61,6 +63,28 @@ public class TestBaseSegment {
         assertEquals(0, seg.getEditDistance());
     }
 
+    @Test
+    public void testEditDistanceReadDuringEdits() throws Exception {
+        final OcelotSegment seg = newSegment();
+        final AtomicBoolean editing = new AtomicBoolean(true);
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while (editing.get()) {
+                    seg.getEditDistance();
+                }
+            }
+        };
+        reader.start();
+        for (int i = 0; i < 2000; i++) {
+            seg.updateTarget(new SimpleSegmentVariant(i % 2 == 0 ? "targetA" : "targetAB"));
+        }
+        editing.set(false);
+        reader.join();
+        // A distance computed for an older target is never kept
+        assertEquals(2, seg.getEditDistance());
+    }
+
     private static int nextSegmentId = 1;
     public static SimpleSegment newSegment() {
         int id = nextSegmentId++;
@@ -0,0 +1,73 @@
+package com.vistatec.ocelot.segment.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestRepetitionIndex {
+
+    @Test
+    public void testGroupsRepeatedSources() {
+        OcelotSegment hello1 = segment(1, "Hello world");
+        OcelotSegment unique = segment(2, "Goodbye");
+        OcelotSegment hello2 = segment(3, " Hello \t world ");
+        OcelotSegment empty1 = segment(4, "");
+        OcelotSegment other1 = segment(5, "Other");
+        OcelotSegment empty2 = segment(6, " ");
+        OcelotSegment other2 = segment(7, "Other");
+        OcelotSegment hello3 = segment(8, "Hello world");
+        RepetitionIndex index = RepetitionIndex.build(Arrays.asList(
+                hello1, unique, hello2, empty1, other1, empty2, other2, hello3));
+
+        List<RepetitionGroup> groups = index.getGroups();
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList(hello1, hello2, hello3), groups.get(0).getSegments());
+        assertEquals(Arrays.asList(other1, other2), groups.get(1).getSegments());
+        assertSame(groups.get(0), index.getGroup(hello2));
+        assertSame(hello1, index.getGroup(hello3).getFirst());
+        assertNull(index.getGroup(unique));
+        assertNull(index.getGroup(empty1));
+        assertEquals(5, index.getRepeatedSegmentCount());
+    }
+
+    @Test
+    public void testCodesAreComparedByIdAndDisplay() {
+        SegmentVariant link1 = new SimpleSegmentVariant.Builder()
+                .text("See ").code("1", "<a>", "<a href='one'>").text("here")
+                .code("2", "</a>", "</a>").build();
+        SegmentVariant link2 = new SimpleSegmentVariant.Builder()
+                .text("See ").code("1", "<a>", "<a href='two'>").text("here")
+                .code("2", "</a>", "</a>").build();
+        SegmentVariant otherId = new SimpleSegmentVariant.Builder()
+                .text("See ").code("3", "<a>", "<a href='one'>").text("here")
+                .code("2", "</a>", "</a>").build();
+        SegmentVariant spaced = new SimpleSegmentVariant.Builder()
+                .text("See").code("1", "<a>", "<a href='one'>").text("here")
+                .code("2", "</a>", "</a>").build();
+
+        assertEquals(RepetitionIndex.key(link1), RepetitionIndex.key(link2));
+        assertNotEquals(RepetitionIndex.key(link1), RepetitionIndex.key(otherId));
+        assertNotEquals(RepetitionIndex.key(link1), RepetitionIndex.key(spaced));
+        assertNotEquals(RepetitionIndex.key(link1),
+                RepetitionIndex.key(new SimpleSegmentVariant("See here")));
+
+        assertTrue(RepetitionIndex.hasSameCodes(link1, link1.createCopy()));
+        assertFalse(RepetitionIndex.hasSameCodes(link1, link2));
+    }
+
+    private static OcelotSegment segment(int number, String source) {
+        return new SimpleSegment.Builder()
+                .segmentNumber(number)
+                .source(source)
+                .target("")
+                .build();
+    }
+}
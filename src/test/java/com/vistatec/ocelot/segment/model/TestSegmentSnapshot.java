@@ -0,0 +1,46 @@
+package com.vistatec.ocelot.segment.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TestSegmentSnapshot {
+
+    @Test
+    public void testSnapshotDoesNotFollowEdits() {
+        OcelotSegment segment = new SimpleSegment.Builder()
+                .segmentNumber(3)
+                .source("Hello")
+                .target("Bonjour")
+                .build();
+        SegmentSnapshot snapshot = SegmentSnapshot.of(segment);
+
+        segment.updateTarget(new SimpleSegmentVariant("Salut"));
+        assertEquals("Salut", segment.getTarget().getDisplayText());
+        assertEquals("Bonjour", snapshot.getTarget().getDisplayText());
+        assertEquals(3, snapshot.getSegmentNumber());
+        assertEquals("Hello", snapshot.getSource().getDisplayText());
+        assertEquals(0, snapshot.getEditDistance());
+        assertTrue(snapshot.getLQI().isEmpty());
+        assertSame(snapshot, SegmentSnapshot.of(snapshot));
+    }
+
+    @Test
+    public void testSnapshotIsReadOnly() {
+        SegmentSnapshot snapshot = SegmentSnapshot.of(new SimpleSegment.Builder()
+                .segmentNumber(1)
+                .source("Hello")
+                .target("Bonjour")
+                .build());
+        try {
+            snapshot.updateTarget(new SimpleSegmentVariant("Salut"));
+            fail("Snapshots can't be edited");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        assertEquals("Bonjour", snapshot.getTarget().getDisplayText());
+    }
+}
@@ -0,0 +1,68 @@
+package com.vistatec.ocelot.segment.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestWordCounter {
+
+    @Test
+    public void testCountWords() {
+        WordCounter counter = new WordCounter(Locale.ENGLISH);
+        assertEquals(0, counter.countWords(""));
+        assertEquals(0, counter.countWords(" 42 ... !"));
+        assertEquals(4, counter.countWords("Hello, world: it's 2015 here."));
+        assertEquals(2, counter.countWords("one two"));
+    }
+
+    @Test
+    public void testSegmentsKeepTheirCount() {
+        CountingWordCounter counter = new CountingWordCounter(Locale.ENGLISH);
+        OcelotSegment seg = new SimpleSegment.Builder().segmentNumber(1)
+                .source("three little words").target("target").build();
+        assertEquals(3, seg.getSourceWordCount(counter));
+        assertEquals(3, seg.getSourceWordCount(counter));
+        assertEquals(1, counter.calls.get());
+
+        // Another locale counts again
+        CountingWordCounter frenchCounter = new CountingWordCounter(Locale.FRENCH);
+        assertEquals(3, seg.getSourceWordCount(frenchCounter));
+        assertEquals(1, frenchCounter.calls.get());
+        assertEquals(3, seg.getSourceWordCount(frenchCounter));
+        assertEquals(1, frenchCounter.calls.get());
+    }
+
+    @Test
+    public void testCountSourceWords() {
+        CountingWordCounter counter = new CountingWordCounter(Locale.ENGLISH);
+        List<OcelotSegment> segments = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            segments.add(new SimpleSegment.Builder().segmentNumber(i)
+                    .source("segment number " + i).target("target").build());
+        }
+        assertEquals(4000, counter.countSourceWords(segments));
+        assertEquals(2000, counter.calls.get());
+        assertEquals(4000, counter.countSourceWords(segments));
+        assertEquals(2000, counter.calls.get());
+        assertEquals(20, counter.countSourceWords(segments.subList(0, 10)));
+    }
+
+    private static class CountingWordCounter extends WordCounter {
+        final AtomicInteger calls = new AtomicInteger();
+
+        CountingWordCounter(Locale locale) {
+            super(locale);
+        }
+
+        @Override
+        public int countWords(String text) {
+            calls.incrementAndGet();
+            return super.countWords(text);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.vistatec.ocelot.segment.model.okapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestRevisionDates {
+
+    @Test
+    public void testParse() {
+        assertEquals(1451649600000L, RevisionDates.parse("2016-01-01T12:00:00Z"));
+        assertEquals(1451649600000L, RevisionDates.parse("2016-01-01T14:00:00+02"));
+    }
+
+    @Test
+    public void testUnknown() {
+        assertEquals(RevisionDates.UNKNOWN, RevisionDates.parse(null));
+        assertEquals(RevisionDates.UNKNOWN, RevisionDates.parse(""));
+        assertEquals(RevisionDates.UNKNOWN, RevisionDates.parse("yesterday"));
+        assertNull(RevisionDates.format(RevisionDates.UNKNOWN));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        long millis = 1451649600000L;
+        assertEquals(millis, RevisionDates.parse(RevisionDates.format(millis)));
+    }
+
+    @Test
+    public void testParseOnManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final String datetime = String.format("2016-01-01T%02d:%02d:00Z", i / 60 % 24, i % 60);
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return RevisionDates.parse(datetime);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                long expected = 1451606400000L + (i / 60 % 24) * 3600000L + (i % 60) * 60000L;
+                assertEquals(expected, results.get(i).get().longValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
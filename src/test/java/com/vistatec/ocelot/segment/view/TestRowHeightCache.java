@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.segment.view;
+
+import java.awt.Font;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+
+import static com.vistatec.ocelot.SegmentViewColumn.*;
+
+public class TestRowHeightCache {
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+    private static final String LONG_TEXT = "This is a fairly long segment that "
+            + "will certainly need to wrap over several lines in a narrow column.";
+
+    private RowHeightCache cache;
+    private OcelotSegment seg;
+
+    @Before
+    public void setup() {
+        cache = new RowHeightCache();
+        seg = new SimpleSegment.Builder()
+                .segmentNumber(1)
+                .source(LONG_TEXT)
+                .target("")
+                .build();
+    }
+
+    @Test
+    public void testMeasuredHeightIsCached() {
+        assertEquals(-1, cache.getHeight(seg, Source, 100, FONT));
+        int height = cache.measure(seg, Source, LONG_TEXT, 100, FONT);
+        assertEquals(height, cache.getHeight(seg, Source, 100, FONT));
+        assertEquals(-1, cache.getHeight(seg, Target, 100, FONT));
+    }
+
+    @Test
+    public void testWidthOrFontChangeMissesCache() {
+        cache.measure(seg, Source, LONG_TEXT, 100, FONT);
+        assertEquals(-1, cache.getHeight(seg, Source, 200, FONT));
+        assertEquals(-1, cache.getHeight(seg, Source, 100, FONT.deriveFont(20f)));
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.measure(seg, Source, LONG_TEXT, 100, FONT);
+        cache.measure(seg, Target, "", 100, FONT);
+        cache.invalidate(seg);
+        assertEquals(-1, cache.getHeight(seg, Source, 100, FONT));
+        assertEquals(-1, cache.getHeight(seg, Target, 100, FONT));
+
+        cache.measure(seg, Source, LONG_TEXT, 100, FONT);
+        cache.measure(seg, Target, "", 100, FONT);
+        cache.invalidate(Target);
+        assertTrue(cache.getHeight(seg, Source, 100, FONT) > 0);
+        assertEquals(-1, cache.getHeight(seg, Target, 100, FONT));
+    }
+
+    @Test
+    public void testEstimateTracksWrapping() {
+        int oneLine = cache.estimate("1", 100, FONT);
+        assertEquals(cache.measure(seg, SegNum, "1", 100, FONT), oneLine);
+        assertTrue(cache.estimate(LONG_TEXT, 100, FONT) > oneLine);
+        assertTrue(cache.estimate(LONG_TEXT, 100, FONT)
+                > cache.estimate(LONG_TEXT, 400, FONT));
+        assertTrue(cache.estimate("1\n2", 400, FONT) > oneLine);
+    }
+}
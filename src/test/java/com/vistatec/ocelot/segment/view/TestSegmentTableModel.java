@@ -30,6 +30,8 @@ package com.vistatec.ocelot.segment.view;
 
 import com.vistatec.ocelot.segment.model.SegmentVariant;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.RepetitionGroup;
+import com.vistatec.ocelot.segment.model.RepetitionIndex;
 
 import static org.junit.Assert.*;
 
@@ -151,5 +153,25 @@ public class TestSegmentTableModel {
             throw new UnsupportedOperationException("Not supported yet.");
         }
 
+        @Override
+        public RepetitionIndex getRepetitionIndex() {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+
+        @Override
+        public RepetitionGroup getRepetitions(OcelotSegment seg) {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+
+        @Override
+        public void setPropagateRepetitions(boolean propagate) {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+
+        @Override
+        public boolean isPropagateRepetitions() {
+            throw new UnsupportedOperationException("Not supported yet.");
+        }
+
     }
 }
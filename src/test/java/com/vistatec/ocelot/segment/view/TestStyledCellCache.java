@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015, VistaTEC or third-party contributors as indicated
+ * by the @author tags or express copyright attribution statements applied by
+ * the authors. All third-party contributions are distributed under license by
+ * VistaTEC.
+ *
+ * This file is part of Ocelot.
+ *
+ * Ocelot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Ocelot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, write to:
+ *
+ *     Free Software Foundation, Inc.
+ *     51 Franklin Street, Fifth Floor
+ *     Boston, MA 02110-1301
+ *     USA
+ *
+ * Also, see the full LGPL text here: <http://www.gnu.org/copyleft/lesser.html>
+ */
+package com.vistatec.ocelot.segment.view;
+
+import java.awt.ComponentOrientation;
+import java.awt.Font;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SegmentVariant;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
+
+public class TestStyledCellCache {
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+
+    private StyledCellCache cache;
+    private OcelotSegment seg;
+
+    @Before
+    public void setup() {
+        cache = new StyledCellCache(2);
+        seg = new SimpleSegment.Builder()
+                .segmentNumber(1)
+                .source("source text")
+                .target("new target")
+                .originalTarget("old target")
+                .build();
+    }
+
+    @Test
+    public void testUnchangedVariantReusesCell() throws Exception {
+        SegmentTextCell cell = cache.getVariantCell(seg.getSource(), FONT, false);
+        assertEquals("source text", cell.getText());
+        assertEquals(FONT, cell.getFont());
+        cell.getStyledDocument().insertString(0, "marker ", null);
+
+        // The document isn't rebuilt if the content hasn't changed
+        assertSame(cell, cache.getVariantCell(seg.getSource(), FONT, false));
+        assertEquals("marker source text", cell.getText());
+    }
+
+    @Test
+    public void testChangedVariantIsRestyledInPlace() {
+        SegmentVariant source = seg.getSource();
+        SegmentTextCell cell = cache.getVariantCell(source, FONT, false);
+        source.setContent(new SimpleSegmentVariant("changed text"));
+
+        assertSame(cell, cache.getVariantCell(source, FONT, false));
+        assertEquals("changed text", cell.getText());
+        assertEquals("changed text", source.getDisplayText());
+    }
+
+    @Test
+    public void testFontAndOrientationFollowRenderer() {
+        Font bigger = FONT.deriveFont(20f);
+        SegmentTextCell cell = cache.getVariantCell(seg.getSource(), FONT, true);
+        assertEquals(ComponentOrientation.RIGHT_TO_LEFT, cell.getComponentOrientation());
+
+        assertSame(cell, cache.getVariantCell(seg.getSource(), bigger, false));
+        assertEquals(bigger, cell.getFont());
+        assertEquals(ComponentOrientation.LEFT_TO_RIGHT, cell.getComponentOrientation());
+    }
+
+    @Test
+    public void testTargetDiffCell() {
+        SegmentTextCell diff = cache.getTargetDiffCell(seg, FONT, false);
+        assertNotSame(diff, cache.getVariantCell(seg.getTarget(), FONT, false));
+        assertSame(diff, cache.getTargetDiffCell(seg, FONT, false));
+        assertTrue(diff.getText().contains("new"));
+        assertTrue(diff.getText().contains("old"));
+
+        seg.updateTarget(new SimpleSegmentVariant("newer target"));
+        assertSame(diff, cache.getTargetDiffCell(seg, FONT, false));
+        assertTrue(diff.getText().contains("newer"));
+    }
+
+    @Test
+    public void testCellsAreRecycled() {
+        SegmentTextCell source = cache.getVariantCell(seg.getSource(), FONT, false);
+        cache.getVariantCell(seg.getTarget(), FONT, false);
+        assertEquals(2, cache.size());
+
+        // Over capacity: the least recently used source cell is recycled
+        SegmentTextCell original = cache.getVariantCell(seg.getOriginalTarget(), FONT, false);
+        SegmentTextCell diff = cache.getTargetDiffCell(seg, FONT, false);
+        assertEquals(2, cache.size());
+        assertTrue(diff == source || original == source);
+
+        cache.invalidate(seg);
+        assertEquals(0, cache.size());
+        assertSame(diff, cache.getVariantCell(seg.getSource(), FONT, false));
+        assertEquals("source text", diff.getText());
+    }
+}
@@ -0,0 +1,116 @@
+package com.vistatec.ocelot.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.okapi.common.LocaleId;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.io.Files;
+import com.vistatec.ocelot.events.SegmentTargetEnterEvent;
+import com.vistatec.ocelot.events.SegmentTargetExitEvent;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+public class TestEditDistanceReportService {
+    private final Mockery mockery = new Mockery();
+
+    @Test
+    public void testReport() throws Exception {
+        final OcelotSegment edited = new SimpleSegment.Builder()
+                .segmentNumber(1)
+                .source("The red car")
+                .target("La voiture rouge")
+                .originalTarget("La voiture bleue")
+                .build();
+        final OcelotSegment unedited = new SimpleSegment.Builder()
+                .segmentNumber(2)
+                .source("Hello")
+                .target("Bonjour")
+                .build();
+        XLIFFDocument xliff = mockDocument(edited, unedited);
+
+        FakeTicker ticker = new FakeTicker();
+        EditDistanceReportService service = new EditDistanceReportService(ticker);
+        service.enterSegmentTarget(new SegmentTargetEnterEvent(xliff, edited));
+        ticker.advance(2500);
+        service.exitSegmentTarget(new SegmentTargetExitEvent(xliff, edited));
+        assertEquals(2500, service.getTimeInSegment(1, TimeUnit.MILLISECONDS));
+
+        List<String> lines = writeReport(service, xliff);
+        assertEquals(Arrays.asList(
+                "File,test.xlf",
+                "Seg#,Edit Distance,Normalized Edit Distance,Source Words,Target Words,Time (s)",
+                "1,4,0.2500,3,3,2.5",
+                "2,0,0.0000,1,1,0.0",
+                ",TOTAL",
+                ",4",
+                "",
+                "Percentile,Edit Distance,Normalized Edit Distance",
+                "50,0,0.0000",
+                "90,4,0.2500",
+                "95,4,0.2500",
+                "100,4,0.2500"), lines);
+    }
+
+    @Test
+    public void testEmptyDocument() throws Exception {
+        List<String> lines = writeReport(new EditDistanceReportService(), mockDocument());
+        assertEquals(",0", lines.get(3));
+        assertEquals("50,,", lines.get(6));
+    }
+
+    @Test
+    public void testPercentileRank() {
+        assertEquals(0, EditDistanceReportService.percentileRank(50, 1));
+        assertEquals(4, EditDistanceReportService.percentileRank(50, 10));
+        assertEquals(8, EditDistanceReportService.percentileRank(90, 10));
+        assertEquals(9, EditDistanceReportService.percentileRank(100, 10));
+    }
+
+    private XLIFFDocument mockDocument(OcelotSegment... segments) {
+        final XLIFFDocument xliff = mockery.mock(XLIFFDocument.class, "xliff" + segments.length);
+        final List<OcelotSegment> segmentList = Arrays.asList(segments);
+        mockery.checking(new Expectations() {{
+            allowing(xliff).getSegments(); will(returnValue(segmentList));
+            allowing(xliff).getSrcLocale(); will(returnValue(LocaleId.fromString("en")));
+            allowing(xliff).getTgtLocale(); will(returnValue(LocaleId.fromString("fr")));
+        }});
+        return xliff;
+    }
+
+    private static List<String> writeReport(EditDistanceReportService service,
+            XLIFFDocument xliff) throws IOException {
+        File report = File.createTempFile("ocelot", ".csv");
+        try {
+            service.writeEditDistanceReport(xliff, "test.xlf", report);
+            return Files.readLines(report, StandardCharsets.UTF_8);
+        } finally {
+            report.delete();
+        }
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.vistatec.ocelot.services;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -14,7 +20,11 @@ import org.junit.Test;
 import com.vistatec.ocelot.config.UserProvenance;
 import com.vistatec.ocelot.events.ItsDocStatsAddedProvEvent;
 import com.vistatec.ocelot.events.ItsDocStatsChangedEvent;
+import com.vistatec.ocelot.events.ItsDocStatsRemovedLqiEvent;
+import com.vistatec.ocelot.events.ItsDocStatsRemovedMetadataEvent;
 import com.vistatec.ocelot.events.ItsDocStatsUpdateLqiEvent;
+import com.vistatec.ocelot.events.ItsDocStatsUpdateMetadataEvent;
+import com.vistatec.ocelot.events.api.LaneEventQueue;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.its.model.Provenance;
@@ -23,6 +33,8 @@ import com.vistatec.ocelot.its.stats.model.ITSStats;
 import com.vistatec.ocelot.its.stats.model.LanguageQualityIssueStats;
 import com.vistatec.ocelot.its.stats.model.ProvenanceStats;
 import com.vistatec.ocelot.rules.RulesTestHelpers;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
 
 public class TestItsDocStatsService {
     private final Mockery mockery = new Mockery();
@@ -62,4 +74,186 @@ public class TestItsDocStatsService {
         expectedStats.add(new ProvenanceStats(ProvenanceStats.Type.revOrg, "b"));
         assertEquals(expectedStats, docStats.getStats());
     }
+
+    @Test
+    public void testRemoveLQI() {
+        mockery.checking(new Expectations() {{
+            exactly(4).of(mockEventQueue).post(with(any(ItsDocStatsChangedEvent.class)));
+        }});
+        LanguageQualityIssue minor = RulesTestHelpers.lqi("omission", 10);
+        LanguageQualityIssue major = RulesTestHelpers.lqi("omission", 90);
+        docStatsService.updateLQIStats(new ItsDocStatsUpdateLqiEvent(minor));
+        docStatsService.updateLQIStats(new ItsDocStatsUpdateLqiEvent(major));
+
+        // The severity range shrinks back to the remaining issue
+        docStatsService.removeLQIStats(new ItsDocStatsRemovedLqiEvent(major));
+        assertEquals(Collections.singletonList(new LanguageQualityIssueStats(minor)),
+                docStats.getStats());
+
+        docStatsService.removeLQIStats(new ItsDocStatsRemovedLqiEvent(minor));
+        assertEquals(Collections.emptyList(), docStats.getStats());
+    }
+
+    @Test
+    public void testEditLQIReplacesPreviousStats() {
+        mockery.checking(new Expectations() {{
+            exactly(2).of(mockEventQueue).post(with(any(ItsDocStatsChangedEvent.class)));
+        }});
+        LanguageQualityIssue lqi = RulesTestHelpers.lqi("omission", 85);
+        docStatsService.updateLQIStats(new ItsDocStatsUpdateLqiEvent(lqi));
+
+        LanguageQualityIssue previous = new LanguageQualityIssue(lqi);
+        lqi.setType("grammar");
+        lqi.setSeverity(20);
+        docStatsService.updateLQIStats(new ItsDocStatsUpdateLqiEvent(lqi, previous));
+        assertEquals(Collections.singletonList(new LanguageQualityIssueStats(lqi)),
+                docStats.getStats());
+    }
+
+    @Test
+    public void testRemoveMetadata() {
+        mockery.checking(new Expectations() {{
+            exactly(3).of(mockEventQueue).post(with(any(ItsDocStatsChangedEvent.class)));
+        }});
+        Provenance prov = new UserProvenance("a", "b", "c");
+        docStatsService.addProvenanceStats(new ItsDocStatsAddedProvEvent(prov));
+        docStatsService.addProvenanceStats(new ItsDocStatsAddedProvEvent(
+                new UserProvenance("a", "d", "c")));
+
+        ITSDocStats removed = new ITSDocStats();
+        removed.addProvenanceStats(prov);
+        docStatsService.removeMetadataStats(new ItsDocStatsRemovedMetadataEvent(removed));
+
+        ProvenanceStats person = new ProvenanceStats(ProvenanceStats.Type.revPerson, "a");
+        List<ITSStats> expectedStats = new ArrayList<>();
+        expectedStats.add(person);
+        expectedStats.add(new ProvenanceStats(ProvenanceStats.Type.revOrg, "d"));
+        assertEquals(expectedStats, docStats.getStats());
+    }
+
+    @Test
+    public void testUpdateMetadata() {
+        mockery.checking(new Expectations() {{
+            exactly(3).of(mockEventQueue).post(with(any(ItsDocStatsChangedEvent.class)));
+        }});
+        Provenance prov = new UserProvenance("a", "b", "c");
+        docStatsService.addProvenanceStats(new ItsDocStatsAddedProvEvent(prov));
+        docStatsService.addProvenanceStats(new ItsDocStatsAddedProvEvent(
+                new UserProvenance("a", "d", "c")));
+
+        // Replace one organization by another, in a single update
+        ITSDocStats removed = new ITSDocStats();
+        removed.addProvenanceStats(prov);
+        ITSDocStats added = new ITSDocStats();
+        added.addProvenanceStats(new UserProvenance("a", "e", "c"));
+        docStatsService.updateMetadataStats(new ItsDocStatsUpdateMetadataEvent(added, removed));
+
+        ProvenanceStats person = new ProvenanceStats(ProvenanceStats.Type.revPerson, "a");
+        person.setCount(2);
+        List<ITSStats> expectedStats = new ArrayList<>();
+        expectedStats.add(person);
+        expectedStats.add(new ProvenanceStats(ProvenanceStats.Type.revOrg, "d"));
+        expectedStats.add(new ProvenanceStats(ProvenanceStats.Type.revOrg, "e"));
+        assertEquals(expectedStats, docStats.getStats());
+    }
+
+    @Test
+    public void testMetadataDeltasFromOtherThreadsAreAppliedOnEDT() throws Exception {
+        final AtomicBoolean offEDT = new AtomicBoolean();
+        ITSDocStats edtStats = new ITSDocStats() {
+            @Override
+            public void addAll(ITSDocStats other) {
+                offEDT.compareAndSet(false, !SwingUtilities.isEventDispatchThread());
+                super.addAll(other);
+            }
+
+            @Override
+            public void removeAll(ITSDocStats other) {
+                offEDT.compareAndSet(false, !SwingUtilities.isEventDispatchThread());
+                super.removeAll(other);
+            }
+        };
+        final LaneEventQueue eventQueue = new LaneEventQueue(Executors.newSingleThreadExecutor());
+        try {
+            eventQueue.registerListener(new ITSDocStatsService(edtStats, eventQueue));
+            final Provenance prov = new UserProvenance("a", "b", "c");
+            // Posted like the enrichment results, from a background thread
+            Thread poster = new Thread() {
+                @Override
+                public void run() {
+                    ITSDocStats added = new ITSDocStats();
+                    added.addProvenanceStats(prov);
+                    eventQueue.post(new ItsDocStatsUpdateMetadataEvent(added, new ITSDocStats()));
+                    eventQueue.post(new ItsDocStatsRemovedMetadataEvent(added));
+                    eventQueue.post(new ItsDocStatsUpdateMetadataEvent(added, new ITSDocStats()));
+                }
+            };
+            poster.start();
+            poster.join();
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            assertFalse(offEDT.get());
+            assertEquals(2, edtStats.getStats().size());
+        } finally {
+            eventQueue.shutdown();
+        }
+    }
+
+    @Test
+    public void testVerifyStats() {
+        mockery.checking(new Expectations() {{
+            allowing(mockEventQueue).post(with(any(ItsDocStatsChangedEvent.class)));
+        }});
+        LanguageQualityIssue lqi = RulesTestHelpers.lqi("omission", 85);
+        OcelotSegment seg = new SimpleSegment.Builder()
+                .segmentNumber(1)
+                .source("source")
+                .target("target")
+                .build();
+        seg.addLQI(lqi);
+        List<OcelotSegment> segments = Collections.singletonList(seg);
+
+        docStatsService.updateLQIStats(new ItsDocStatsUpdateLqiEvent(lqi));
+        assertTrue(docStatsService.verifyStats(segments));
+
+        // Stats that missed an update are corrected
+        seg.addLQI(RulesTestHelpers.lqi("grammar", 50));
+        assertFalse(docStatsService.verifyStats(segments));
+        assertEquals(2, docStatsService.getNumStats());
+        assertTrue(docStatsService.verifyStats(segments));
+    }
+
+    @Test
+    public void testParallelStatsMatchSequential() {
+        List<OcelotSegment> segments = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            OcelotSegment seg = new SimpleSegment.Builder()
+                    .segmentNumber(i + 1)
+                    .source("source " + i)
+                    .target("target " + i)
+                    .build();
+            seg.addLQI(RulesTestHelpers.lqi("type" + (i % 7), i % 100));
+            seg.addProvenance(new UserProvenance("person" + (i % 13), "org", null));
+            segments.add(seg);
+        }
+
+        ITSDocStats sequential = docStatsService.calculateStats(segments, segments.size());
+        ITSDocStats parallel = docStatsService.calculateStats(segments, 64);
+        assertTrue(sequential.hasSameStats(parallel));
+        assertEquals(sequential.getStats().size(), parallel.getStats().size());
+        for (int i = 0; i < sequential.getStats().size(); i++) {
+            assertEquals(sequential.getStats().get(i).getKey(),
+                    parallel.getStats().get(i).getKey());
+        }
+        int lqiCount = 0;
+        for (ITSStats stats : parallel.getStats()) {
+            if (stats instanceof LanguageQualityIssueStats) {
+                lqiCount += stats.getCount();
+            }
+        }
+        assertEquals(2000, lqiCount);
+    }
 }
@@ -4,11 +4,15 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -16,13 +20,16 @@ import com.vistatec.ocelot.events.ItsDocStatsUpdateLqiEvent;
 import com.vistatec.ocelot.events.ItsDocStatsRecalculateEvent;
 import com.vistatec.ocelot.events.LQIEditEvent;
 import com.vistatec.ocelot.events.LQIModificationEvent;
+import com.vistatec.ocelot.events.RepetitionsUpdatedEvent;
 import com.vistatec.ocelot.events.SegmentEditEvent;
 import com.vistatec.ocelot.events.SegmentTargetResetEvent;
+import com.vistatec.ocelot.events.SegmentTargetUpdateEvent;
 import com.vistatec.ocelot.events.api.OcelotEventQueue;
 import com.vistatec.ocelot.its.model.LanguageQualityIssue;
 import com.vistatec.ocelot.rules.RulesTestHelpers;
 import com.vistatec.ocelot.segment.model.OcelotSegment;
 import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
 import com.vistatec.ocelot.xliff.XLIFFDocument;
 
 public class TestSegmentService {
@@ -108,4 +115,79 @@ public class TestSegmentService {
         assertTrue(seg.getLQI().get(0).getType().equals("grammar"));
         assertTrue(seg.getLQI().get(0).getSeverity() == 75);
     }
+
+    @Test
+    public void testPropagateConfirmedEdit() {
+        final OcelotSegment edited = segment(1, "Hello", "Bonjour");
+        final OcelotSegment same = segment(2, "Hello", "Bonjour");
+        final OcelotSegment different = segment(3, "Hello", "Salut");
+        final OcelotSegment unique = segment(4, "Goodbye", "Bonjour");
+        final XLIFFDocument xliff = mockDocument(edited, same, different, unique);
+        mockery.checking(new Expectations() {{
+            oneOf(mockEventQueue).post(with(any(SegmentEditEvent.class)));
+            oneOf(mockEventQueue).post(with(any(RepetitionsUpdatedEvent.class)));
+                will(checkRepetitions(Collections.singletonList(same)));
+        }});
+        segmentService.setSegments(xliff);
+        assertEquals(3, segmentService.getRepetitions(edited).size());
+
+        segmentService.updateSegmentTarget(new SegmentTargetUpdateEvent(xliff, edited,
+                new SimpleSegmentVariant("Allo"), true));
+        assertEquals("Allo", same.getTarget().getDisplayText());
+        assertEquals("Bonjour", same.getOriginalTarget().getDisplayText());
+        assertEquals("Salut", different.getTarget().getDisplayText());
+        assertEquals("Bonjour", unique.getTarget().getDisplayText());
+        mockery.assertIsSatisfied();
+    }
+
+    @Test
+    public void testUnconfirmedEditIsNotPropagated() {
+        final OcelotSegment edited = segment(1, "Hello", "Bonjour");
+        final OcelotSegment same = segment(2, "Hello", "Bonjour");
+        final XLIFFDocument xliff = mockDocument(edited, same);
+        mockery.checking(new Expectations() {{
+            exactly(2).of(mockEventQueue).post(with(any(SegmentEditEvent.class)));
+        }});
+        segmentService.setSegments(xliff);
+
+        segmentService.updateSegmentTarget(new SegmentTargetUpdateEvent(xliff, edited,
+                new SimpleSegmentVariant("Allo")));
+        assertEquals("Bonjour", same.getTarget().getDisplayText());
+
+        segmentService.setPropagateRepetitions(false);
+        segmentService.updateSegmentTarget(new SegmentTargetUpdateEvent(xliff, edited,
+                new SimpleSegmentVariant("Salut"), true));
+        assertEquals("Bonjour", same.getTarget().getDisplayText());
+        mockery.assertIsSatisfied();
+    }
+
+    private static OcelotSegment segment(int number, String source, String target) {
+        return new SimpleSegment.Builder()
+                .segmentNumber(number)
+                .source(source)
+                .target(target)
+                .build();
+    }
+
+    private XLIFFDocument mockDocument(OcelotSegment... segments) {
+        final XLIFFDocument xliff = mockery.mock(XLIFFDocument.class);
+        final List<OcelotSegment> segmentList = Arrays.asList(segments);
+        mockery.checking(new Expectations() {{
+            allowing(mockEventQueue).post(with(any(ItsDocStatsRecalculateEvent.class)));
+            allowing(xliff).getSegments();
+                will(returnValue(segmentList));
+        }});
+        return xliff;
+    }
+
+    private static Action checkRepetitions(final List<OcelotSegment> expected) {
+        return new CustomAction("check repetitions") {
+            @Override
+            public Object invoke(Invocation invocation) {
+                RepetitionsUpdatedEvent e = (RepetitionsUpdatedEvent) invocation.getParameter(0);
+                assertEquals(expected, e.getRepetitions());
+                return null;
+            }
+        };
+    }
 }
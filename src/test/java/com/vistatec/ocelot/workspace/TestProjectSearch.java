@@ -0,0 +1,213 @@
+package com.vistatec.ocelot.workspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegmentVariant;
+import com.vistatec.ocelot.services.XliffService;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+public class TestProjectSearch {
+    private final Mockery mockery = new Mockery() {{
+        setThreadingPolicy(new Synchroniser());
+    }};
+    private final FakeXliffService xliffService = new FakeXliffService();
+    private final Workspace workspace = new Workspace(xliffService);
+    private File directory;
+    private File first, second, other;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDir();
+        first = new File(directory, "a.xlf");
+        second = new File(new File(directory, "sub"), "b.xliff");
+        other = new File(directory, "notes.txt");
+        second.getParentFile().mkdir();
+        for (File file : Arrays.asList(first, second, other)) {
+            Files.write("content", file, StandardCharsets.UTF_8);
+        }
+        xliffService.documents.put(first, mockDocument("first",
+                segment(1, "The red car", "La voiture rouge"),
+                segment(2, "Hello", "Bonjour")));
+        xliffService.documents.put(second, mockDocument("second",
+                segment(1, "Hello", null),
+                segment(2, "A RED door", "Une porte rouge")));
+    }
+
+    @After
+    public void after() {
+        second.delete();
+        second.getParentFile().delete();
+        first.delete();
+        other.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void testListFiles() {
+        assertEquals(Arrays.asList(first, second), ProjectSearch.listFiles(directory));
+    }
+
+    @Test
+    public void testSearchSources() throws Exception {
+        ProjectSearch search = new ProjectSearch(xliffService, workspace);
+        CollectingListener listener = search(search, "red", false);
+        assertEquals(2, listener.filesSearched);
+        assertEquals(2, listener.matches.size());
+        assertEquals(first, listener.matches.get(0).getFile());
+        assertEquals(1, listener.matches.get(0).getSegmentNumber());
+        assertEquals("La voiture rouge", listener.matches.get(0).getTarget());
+        assertEquals(second, listener.matches.get(1).getFile());
+        assertEquals(2, listener.matches.get(1).getSegmentNumber());
+
+        assertTrue(search(search, "bleu", false).matches.isEmpty());
+    }
+
+    @Test
+    public void testSearchTargets() throws Exception {
+        CollectingListener listener = search(new ProjectSearch(xliffService, workspace), "bonjour", true);
+        assertEquals(1, listener.matches.size());
+        assertEquals("Hello", listener.matches.get(0).getSource());
+    }
+
+    @Test
+    public void testIndexesAreReused() throws Exception {
+        ProjectSearch search = new ProjectSearch(xliffService, workspace);
+        search(search, "hello", false);
+        search(search, "red", false);
+        assertEquals(2, xliffService.parses);
+        // Only the indexes are kept
+        assertEquals(2, xliffService.closes);
+        assertEquals(2, search.getIndexedFileCount());
+
+        // Modified files are indexed again
+        assertTrue(first.setLastModified(first.lastModified() - 10000));
+        search(search, "hello", false);
+        assertEquals(3, xliffService.parses);
+    }
+
+    @Test
+    public void testSearchesWorkspaceDocuments() throws Exception {
+        ProjectSearch search = new ProjectSearch(xliffService, workspace);
+        XLIFFDocument xliff = workspace.focus(first);
+        assertEquals(1, search(search, "voiture", true).matches.size());
+        // The loaded document is indexed without parsing the file again
+        assertEquals(2, xliffService.parses);
+
+        // Unsaved edits are found
+        xliff.getSegments().get(0).updateTarget(new SimpleSegmentVariant("La voiture bleue"));
+        workspace.markDirty(xliff);
+        CollectingListener listener = search(search, "bleue", true);
+        assertEquals(1, listener.matches.size());
+        assertEquals(first, listener.matches.get(0).getFile());
+        assertEquals(2, xliffService.parses);
+    }
+
+    @Test
+    public void testTrigramFilter() throws Exception {
+        FileIndex index = new ProjectSearch(xliffService, workspace).getIndex(first);
+        assertTrue(index.mightContain("red car"));
+        assertTrue(index.mightContain("ca"));
+        assertFalse(index.mightContain("bicycle"));
+    }
+
+    private CollectingListener search(ProjectSearch search, String text,
+            boolean searchTargets) throws InterruptedException {
+        CollectingListener listener = new CollectingListener();
+        search.search(directory, text, searchTargets, listener);
+        assertTrue(listener.finished.await(10, TimeUnit.SECONDS));
+        Collections.sort(listener.matches, new Comparator<ProjectMatch>() {
+            @Override
+            public int compare(ProjectMatch m1, ProjectMatch m2) {
+                int c = m1.getFile().compareTo(m2.getFile());
+                return c != 0 ? c : m1.getSegmentNumber() - m2.getSegmentNumber();
+            }
+        });
+        return listener;
+    }
+
+    private static OcelotSegment segment(int number, String source, String target) {
+        SimpleSegment.Builder builder = new SimpleSegment.Builder()
+                .segmentNumber(number)
+                .source(source);
+        if (target != null) {
+            builder.target(target);
+        }
+        return builder.build();
+    }
+
+    private XLIFFDocument mockDocument(String name, OcelotSegment... segments) {
+        final XLIFFDocument xliff = mockery.mock(XLIFFDocument.class, name);
+        final List<OcelotSegment> segmentList = Arrays.asList(segments);
+        mockery.checking(new Expectations() {{
+            allowing(xliff).getSegments(); will(returnValue(segmentList));
+        }});
+        return xliff;
+    }
+
+    private static class CollectingListener implements ProjectSearchListener {
+        final List<ProjectMatch> matches = Collections.synchronizedList(new ArrayList<ProjectMatch>());
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile int filesSearched;
+
+        @Override
+        public void matchesFound(List<ProjectMatch> found) {
+            matches.addAll(found);
+        }
+
+        @Override
+        public void searchFinished(int filesSearched) {
+            this.filesSearched = filesSearched;
+            finished.countDown();
+        }
+    }
+
+    private static class FakeXliffService implements XliffService {
+        final Map<File, XLIFFDocument> documents = new HashMap<File, XLIFFDocument>();
+        int parses, closes;
+
+        @Override
+        public synchronized XLIFFDocument parse(File xliffFile)
+                throws IOException, XMLStreamException {
+            parses++;
+            return documents.get(xliffFile);
+        }
+
+        @Override
+        public void save(XLIFFDocument xliffFile, File dest)
+                throws FileNotFoundException, IOException {
+        }
+
+        @Override
+        public synchronized void close(XLIFFDocument xliffFile) {
+            closes++;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.vistatec.ocelot.workspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import net.sf.okapi.common.LocaleId;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vistatec.ocelot.segment.model.OcelotSegment;
+import com.vistatec.ocelot.segment.model.SimpleSegment;
+import com.vistatec.ocelot.services.XliffService;
+import com.vistatec.ocelot.xliff.XLIFFDocument;
+
+public class TestWorkspace {
+    private static final int FILE_SIZE = 1000;
+    private static final long DOCUMENT_BYTES = FILE_SIZE * Workspace.BYTES_PER_FILE_BYTE;
+
+    private final Mockery mockery = new Mockery() {{
+        setThreadingPolicy(new Synchroniser());
+    }};
+    private final FakeXliffService xliffService = new FakeXliffService();
+    private final List<File> files = new ArrayList<File>();
+
+    @Before
+    public void before() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            File file = File.createTempFile("ocelot-workspace", ".xlf").getAbsoluteFile();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(FILE_SIZE);
+            }
+            files.add(file);
+        }
+        xliffService.documents.put(files.get(0), mockDocument("doc0",
+                segment(1, "The red car", "La voiture rouge", "La voiture bleue"),
+                segment(2, "Hello", "Bonjour", null)));
+        xliffService.documents.put(files.get(1), mockDocument("doc1",
+                segment(1, "A red door", "Une porte rouge", null)));
+        xliffService.documents.put(files.get(2), mockDocument("doc2",
+                segment(1, "Goodbye", "Au revoir", null)));
+    }
+
+    @After
+    public void after() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFocusKeepsDocumentsWithinBudget() throws Exception {
+        Workspace workspace = new Workspace(xliffService, 3 * DOCUMENT_BYTES);
+        XLIFFDocument doc0 = workspace.focus(files.get(0));
+        workspace.focus(files.get(1));
+        assertSame(doc0, workspace.focus(files.get(0)));
+        assertSame(doc0, workspace.getActiveDocument());
+        assertEquals(2, xliffService.parses);
+        assertEquals(2 * DOCUMENT_BYTES, workspace.getLoadedBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyFocused() throws Exception {
+        Workspace workspace = new Workspace(xliffService, 2 * DOCUMENT_BYTES);
+        workspace.focus(files.get(0));
+        workspace.focus(files.get(1));
+        workspace.focus(files.get(0));
+        workspace.focus(files.get(2));
+        assertTrue(workspace.isLoaded(files.get(0)));
+        assertFalse(workspace.isLoaded(files.get(1)));
+        assertTrue(workspace.isLoaded(files.get(2)));
+        assertEquals(2 * DOCUMENT_BYTES, workspace.getLoadedBytes());
+        assertEquals(1, xliffService.closes);
+
+        // Evicted documents are parsed again
+        workspace.focus(files.get(1));
+        assertEquals(4, xliffService.parses);
+        assertEquals(3, workspace.getDocuments().size());
+    }
+
+    @Test
+    public void testDirtyDocumentsAreNotEvicted() throws Exception {
+        Workspace workspace = new Workspace(xliffService, DOCUMENT_BYTES);
+        XLIFFDocument doc0 = workspace.focus(files.get(0));
+        workspace.markDirty(doc0);
+        workspace.focus(files.get(1));
+        assertTrue(workspace.isLoaded(files.get(0)));
+        assertTrue(workspace.isDirty(files.get(0)));
+
+        workspace.markSaved(doc0, files.get(0));
+        assertFalse(workspace.isLoaded(files.get(0)));
+        assertTrue(workspace.isLoaded(files.get(1)));
+    }
+
+    @Test
+    public void testGetDirtyDocuments() throws Exception {
+        Workspace workspace = new Workspace(xliffService, 3 * DOCUMENT_BYTES);
+        XLIFFDocument doc0 = workspace.focus(files.get(0));
+        XLIFFDocument doc1 = workspace.focus(files.get(1));
+        workspace.focus(files.get(2));
+        workspace.markDirty(doc1);
+        workspace.markDirty(doc0);
+        // Not only the active document
+        List<WorkspaceDocument> dirty = workspace.getDirtyDocuments();
+        assertEquals(2, dirty.size());
+        assertEquals(files.get(0), dirty.get(0).getFile());
+        assertEquals(files.get(1), dirty.get(1).getFile());
+
+        workspace.markSaved(doc0, files.get(0));
+        assertEquals(1, workspace.getDirtyDocuments().size());
+        workspace.close(files.get(1));
+        assertTrue(workspace.getDirtyDocuments().isEmpty());
+        assertEquals(1, xliffService.closes);
+    }
+
+    @Test
+    public void testSaveAsMovesDocument() throws Exception {
+        Workspace workspace = new Workspace(xliffService, 3 * DOCUMENT_BYTES);
+        XLIFFDocument doc0 = workspace.focus(files.get(0));
+        workspace.markDirty(doc0);
+        File saveAs = File.createTempFile("ocelot-workspace", ".xlf").getAbsoluteFile();
+        files.add(saveAs);
+        workspace.markSaved(doc0, saveAs);
+
+        assertTrue(workspace.getDirtyDocuments().isEmpty());
+        assertSame(doc0, workspace.getActiveDocument());
+        assertSame(doc0, workspace.getLoadedDocument(saveAs));
+        // The original file is parsed again from disk when it is focused
+        assertFalse(workspace.isLoaded(files.get(0)));
+        assertEquals(0, xliffService.closes);
+        assertSame(doc0, workspace.focus(saveAs));
+        assertEquals(1, xliffService.parses);
+    }
+
+    @Test
+    public void testReparsesFilesChangedOnDisk() throws Exception {
+        Workspace workspace = new Workspace(xliffService, 3 * DOCUMENT_BYTES);
+        workspace.focus(files.get(0));
+        workspace.focus(files.get(1));
+        assertFalse(workspace.isChangedOnDisk(files.get(0)));
+        resize(files.get(0));
+        assertTrue(workspace.isChangedOnDisk(files.get(0)));
+
+        workspace.focus(files.get(0));
+        assertEquals(3, xliffService.parses);
+        assertEquals(1, xliffService.closes);
+        assertFalse(workspace.isChangedOnDisk(files.get(0)));
+    }
+
+    @Test
+    public void testKeepsDirtyFilesChangedOnDisk() throws Exception {
+        Workspace workspace = new Workspace(xliffService, 3 * DOCUMENT_BYTES);
+        XLIFFDocument doc0 = workspace.focus(files.get(0));
+        workspace.markDirty(doc0);
+        resize(files.get(0));
+
+        assertSame(doc0, workspace.focus(files.get(0)));
+        assertEquals(1, xliffService.parses);
+        assertTrue(workspace.isDirty(files.get(0)));
+        assertTrue(workspace.isChangedOnDisk(files.get(0)));
+
+        // Saving overwrites the change on disk
+        workspace.markSaved(doc0, files.get(0));
+        assertFalse(workspace.isChangedOnDisk(files.get(0)));
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        Workspace workspace = new Workspace(xliffService, DOCUMENT_BYTES);
+        workspace.addFile(files.get(0));
+        workspace.focus(files.get(1));
+        List<DocumentStats> stats = workspace.getStats();
+        assertEquals(2, stats.size());
+        assertEquals(files.get(0), stats.get(0).getFile());
+        assertEquals(2, stats.get(0).getSegmentCount());
+        assertEquals(4, stats.get(0).getSourceWordCount());
+        assertEquals(4, stats.get(0).getEditDistance());
+        assertEquals(0, stats.get(0).getLqiCount());
+        assertEquals(3, stats.get(1).getSourceWordCount());
+        assertEquals(0, stats.get(1).getEditDistance());
+
+        // The file that wasn't loaded was parsed for the stats only
+        assertFalse(workspace.isLoaded(files.get(0)));
+        assertEquals(1, xliffService.closes);
+    }
+
+    private static void resize(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(FILE_SIZE + 1);
+        }
+    }
+
+    private static OcelotSegment segment(int number, String source, String target,
+            String originalTarget) {
+        SimpleSegment.Builder builder = new SimpleSegment.Builder()
+                .segmentNumber(number)
+                .source(source)
+                .target(target);
+        if (originalTarget != null) {
+            builder.originalTarget(originalTarget);
+        }
+        return builder.build();
+    }
+
+    private XLIFFDocument mockDocument(String name, OcelotSegment... segments) {
+        final XLIFFDocument xliff = mockery.mock(XLIFFDocument.class, name);
+        final List<OcelotSegment> segmentList = Arrays.asList(segments);
+        mockery.checking(new Expectations() {{
+            allowing(xliff).getSegments(); will(returnValue(segmentList));
+            allowing(xliff).getSrcLocale(); will(returnValue(LocaleId.fromString("en")));
+            allowing(xliff).getTgtLocale(); will(returnValue(LocaleId.fromString("fr")));
+        }});
+        return xliff;
+    }
+
+    private static class FakeXliffService implements XliffService {
+        final Map<File, XLIFFDocument> documents = new HashMap<File, XLIFFDocument>();
+        int parses, closes;
+
+        @Override
+        public synchronized XLIFFDocument parse(File xliffFile)
+                throws IOException, XMLStreamException {
+            parses++;
+            return documents.get(xliffFile);
+        }
+
+        @Override
+        public void save(XLIFFDocument xliffFile, File dest)
+                throws FileNotFoundException, IOException {
+        }
+
+        @Override
+        public synchronized void close(XLIFFDocument xliffFile) {
+            closes++;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.vistatec.ocelot.xliff;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class TestXLIFFHead {
+
+    @Test
+    public void testXliff12() throws Exception {
+        try (InputStream in = open("/com/vistatec/ocelot/xliff/okapi/xliff_test.xlf")) {
+            XLIFFHead head = XLIFFHead.read(in);
+            assertEquals(XLIFFVersion.XLIFF12, head.getVersion());
+            assertEquals("en-US", head.getSourceLang());
+            assertEquals("fr-FR", head.getTargetLang());
+            assertEquals("UTF-8", head.getEncoding());
+            assertFalse(head.hasBOM());
+            // The stream is back at the start of the document
+            assertTrue(new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8)
+                    .startsWith("<?xml"));
+        }
+    }
+
+    @Test
+    public void testItsVersionIsIgnored() throws Exception {
+        try (InputStream in = open("/empty_xliff_12_with_itsVersion.xlf")) {
+            XLIFFHead head = XLIFFHead.read(in);
+            assertEquals(XLIFFVersion.XLIFF12, head.getVersion());
+            assertEquals("en-us", head.getSourceLang());
+            assertEquals("de-de", head.getTargetLang());
+        }
+    }
+
+    @Test
+    public void testXliff20() throws Exception {
+        try (InputStream in = open("/com/vistatec/ocelot/xliff/okapi/XLIFF2.0_example.xlf")) {
+            XLIFFHead head = XLIFFHead.read(in);
+            assertEquals(XLIFFVersion.XLIFF20, head.getVersion());
+            assertEquals("en", head.getSourceLang());
+            assertEquals("fr", head.getTargetLang());
+        }
+    }
+
+    @Test
+    public void testBOMAndLongDocument() throws Exception {
+        ByteArrayOutputStream doc = new ByteArrayOutputStream();
+        doc.write(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF });
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<xliff version=\"1.2\"><file source-language=\"de\" original=\"x\"><body>");
+        while (xml.length() < 2 * XLIFFHead.HEAD_SIZE) {
+            xml.append("<trans-unit id=\"1\"><source>Text</source></trans-unit>");
+        }
+        doc.write(xml.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = doc.toByteArray();
+
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(bytes));
+        XLIFFHead head = XLIFFHead.read(in);
+        assertTrue(head.hasBOM());
+        assertEquals("UTF-8", head.getEncoding());
+        assertEquals(XLIFFVersion.XLIFF12, head.getVersion());
+        assertEquals("de", head.getSourceLang());
+        assertNull(head.getTargetLang());
+        assertArrayEquals(bytes, ByteStreams.toByteArray(in));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotXliff() throws Exception {
+        XLIFFHead.read(new BufferedInputStream(new ByteArrayInputStream(
+                "<?xml version=\"1.0\"?><tmx version=\"1.4\"/>".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private InputStream open(String resource) {
+        return new BufferedInputStream(getClass().getResourceAsStream(resource));
+    }
+}
@@ -107,6 +107,27 @@ public class TestOkapiXLIFF12Writer extends XMLTestCase {
                             "/gold/lqi_no_provenance.xlf");
     }
 
+    @Test
+    public void testSpilledEventsWriteITSNamespace() throws Exception {
+        System.setProperty(OkapiXLIFFFactory.SPILL_EVENTS_PROPERTY, "true");
+        try {
+            checkAgainstGoldXML(roundtripXliffAndAddLQI("/no-its-namespace.xlf"), "/gold/no-its-namespace.xlf");
+        } finally {
+            System.clearProperty(OkapiXLIFFFactory.SPILL_EVENTS_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testSpilledEventsDontWriteEmptyProvenance() throws Exception {
+        System.setProperty(OkapiXLIFFFactory.SPILL_EVENTS_PROPERTY, "true");
+        try {
+            checkAgainstGoldXML(roundtripXliffAndAddLQI("/test.xlf", "test_empty_provenance.xml"),
+                                "/gold/lqi_no_provenance.xlf");
+        } finally {
+            System.clearProperty(OkapiXLIFFFactory.SPILL_EVENTS_PROPERTY);
+        }
+    }
+
     private void checkAgainstGoldXML(File output, String goldResourceName) throws Exception {
         try (Reader r = new InputStreamReader(new FileInputStream(output), StandardCharsets.UTF_8);
                 Reader goldReader = new InputStreamReader(getClass().getResourceAsStream(goldResourceName),
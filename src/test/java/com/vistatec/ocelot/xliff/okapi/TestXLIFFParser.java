@@ -237,4 +237,24 @@ public class TestXLIFFParser {
         List<OcelotSegment> segments = parser.parse(new File(getClass().getResource("/oc26.xlf").toURI()));
         assertEquals(1, segments.size());
     }
+
+    @Test
+    public void testCloseDeletesSpillFile() throws Exception {
+        OkapiXLIFF12Parser parser = new OkapiXLIFF12Parser();
+        parser.setSpillEvents(true);
+        File xliff = new File(getClass().getResource("/oc26.xlf").toURI());
+        parser.parse(xliff);
+        File first = parser.getSpillFile();
+        assertTrue(first.exists());
+
+        // Parsing again replaces the spill file
+        parser.parse(xliff);
+        assertFalse(first.exists());
+        File second = parser.getSpillFile();
+        assertTrue(second.exists());
+
+        parser.close();
+        assertFalse(second.exists());
+        assertNull(parser.getSpillFile());
+    }
 }